@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A phase of the compilation of a JSP.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+@Name("net.gcolin.jsp.Compile")
+@Label("JSP Compilation")
+@Category("JSP")
+@Description("A phase of the compilation of a JSP")
+class CompileEvent extends Event {
+
+  @Label("Page")
+  String page;
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Failed")
+  boolean failed;
+
+}
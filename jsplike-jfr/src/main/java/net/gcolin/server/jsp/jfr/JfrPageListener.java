@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.jfr;
+
+import net.gcolin.server.jsp.PageListener;
+
+/**
+ * Record the compilations, the renders and the custom tags of the JSP in the Java Flight Recorder.
+ * The events are in the category {@code JSP} and cost almost nothing when they are not enabled in
+ * the recording.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class JfrPageListener implements PageListener {
+
+  @Override
+  public Object compileStarted(String page, String phase) {
+    CompileEvent event = new CompileEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.page = page;
+    event.phase = phase;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void compileEnded(Object event, boolean failed) {
+    if (event != null) {
+      CompileEvent compile = (CompileEvent) event;
+      compile.failed = failed;
+      compile.commit();
+    }
+  }
+
+  @Override
+  public Object renderStarted(String path, int depth) {
+    RenderEvent event = new RenderEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.path = path;
+    event.depth = depth;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void renderEnded(Object event, long size, boolean failed) {
+    if (event != null) {
+      RenderEvent render = (RenderEvent) event;
+      render.size = size;
+      render.failed = failed;
+      render.commit();
+    }
+  }
+
+  @Override
+  public Object tagStarted(String path, String tag, int depth) {
+    TagEvent event = new TagEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.path = path;
+    event.tag = tag;
+    event.depth = depth;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void tagEnded(Object event) {
+    if (event != null) {
+      ((TagEvent) event).commit();
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The execution of a custom tag.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+@Name("net.gcolin.jsp.Tag")
+@Label("JSP Tag")
+@Category("JSP")
+@Description("The execution of a custom tag in a JSP")
+class TagEvent extends Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Tag")
+  String tag;
+
+  @Label("Depth")
+  @Description("0 for a tag outside of any tag")
+  int depth;
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * A typed request attribute resolved once per application.
+ *
+ * <p>
+ * A controller sets the value with {@link #set(ServletRequest, Object)} and the compiled pages
+ * read it by index without a string-keyed lookup. The value is also set as the request attribute
+ * with the same name, so it is visible by {@link ServletRequest#getAttribute(String)}, the
+ * {@code requestScope} and the filters. A value set with
+ * {@link ServletRequest#setAttribute(String, Object)} is still visible by the pages, and
+ * {@link AttributeSlotListener} clears the slot when the attribute is set or removed by name, so
+ * the slot never hides a newer value.
+ * </p>
+ *
+ * <pre>
+ * static final AttributeSlot&lt;List&lt;Item&gt;&gt; ITEMS = AttributeSlot.of("items");
+ * ...
+ * ITEMS.set(request, items);
+ * </pre>
+ *
+ * @param <T> the type of the attribute
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public final class AttributeSlot<T> {
+
+  private static final ConcurrentMap<String, AttributeSlot<?>> SLOTS = new ConcurrentHashMap<>();
+  private static final AtomicInteger COUNT = new AtomicInteger();
+
+  private final String name;
+  private final int index;
+
+  private AttributeSlot(String name, int index) {
+    this.name = name;
+    this.index = index;
+  }
+
+  /**
+   * Get the slot of an attribute.
+   * 
+   * @param name the attribute name
+   * @param <T> the type of the attribute
+   * @return the same slot for the same name
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> AttributeSlot<T> of(String name) {
+    AttributeSlot<?> slot = SLOTS.get(name);
+    if (slot == null) {
+      slot = SLOTS.computeIfAbsent(name, n -> new AttributeSlot<>(n, COUNT.getAndIncrement()));
+    }
+    return (AttributeSlot<T>) slot;
+  }
+
+  static int count() {
+    return COUNT.get();
+  }
+
+  static AttributeSlot<?> find(String name) {
+    return SLOTS.get(name);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public T get(ServletRequest request) {
+    return AttributeSlots.of(request).get(this, request);
+  }
+
+  /**
+   * Set the value of the slot and of the request attribute with the same name.
+   * 
+   * @param request the request
+   * @param value the value
+   */
+  public void set(ServletRequest request, T value) {
+    // the listener clears the slot, so the attribute is set first
+    request.setAttribute(name, value);
+    AttributeSlots.create(request).set(this, value);
+  }
+
+  @Override
+  public String toString() {
+    return "AttributeSlot [name=" + name + ", index=" + index + "]";
+  }
+}
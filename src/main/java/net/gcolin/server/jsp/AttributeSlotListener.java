@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import javax.servlet.ServletRequestAttributeEvent;
+import javax.servlet.ServletRequestAttributeListener;
+
+/**
+ * Clear the {@link AttributeSlot} of a request attribute set or removed by name, so the pages read
+ * the new value. Registered by the web fragment of the JSP runtime.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class AttributeSlotListener implements ServletRequestAttributeListener {
+
+  @Override
+  public void attributeAdded(ServletRequestAttributeEvent srae) {
+    clear(srae);
+  }
+
+  @Override
+  public void attributeRemoved(ServletRequestAttributeEvent srae) {
+    clear(srae);
+  }
+
+  @Override
+  public void attributeReplaced(ServletRequestAttributeEvent srae) {
+    clear(srae);
+  }
+
+  private static void clear(ServletRequestAttributeEvent srae) {
+    AttributeSlot<?> slot = AttributeSlot.find(srae.getName());
+    if (slot != null) {
+      AttributeSlots slots =
+          (AttributeSlots) srae.getServletRequest().getAttribute(AttributeSlots.ATTRIBUTE);
+      if (slots != null) {
+        slots.clear(slot);
+      }
+    }
+  }
+
+}
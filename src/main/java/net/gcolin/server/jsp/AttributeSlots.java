@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import java.util.Arrays;
+
+import javax.servlet.ServletRequest;
+
+/**
+ * The values of the {@link AttributeSlot} of a request.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public final class AttributeSlots {
+
+  public static final String ATTRIBUTE = AttributeSlots.class.getName();
+  private static final AttributeSlots EMPTY = new AttributeSlots(0);
+
+  private Object[] values;
+
+  private AttributeSlots(int size) {
+    values = new Object[size];
+  }
+
+  /**
+   * Get the slots of a request.
+   * 
+   * @param request the request
+   * @return the slots or an empty instance if no slot has been set
+   */
+  public static AttributeSlots of(ServletRequest request) {
+    AttributeSlots slots = (AttributeSlots) request.getAttribute(ATTRIBUTE);
+    return slots == null ? EMPTY : slots;
+  }
+
+  /**
+   * Get or create the slots of a request.
+   * 
+   * @param request the request
+   * @return the slots
+   */
+  public static AttributeSlots create(ServletRequest request) {
+    AttributeSlots slots = (AttributeSlots) request.getAttribute(ATTRIBUTE);
+    if (slots == null) {
+      slots = new AttributeSlots(AttributeSlot.count());
+      request.setAttribute(ATTRIBUTE, slots);
+    }
+    return slots;
+  }
+
+  /**
+   * Get a value. If the slot is not set, the value is the request attribute with the same name.
+   * 
+   * @param slot the slot
+   * @param request the request
+   * @param <T> the type of the value
+   * @return the value or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(AttributeSlot<T> slot, ServletRequest request) {
+    int index = slot.getIndex();
+    Object value = index < values.length ? values[index] : null;
+    if (value == null) {
+      value = request.getAttribute(slot.getName());
+    }
+    return (T) value;
+  }
+
+  /**
+   * Set a value.
+   * 
+   * @param slot the slot
+   * @param value the value
+   * @param <T> the type of the value
+   */
+  public <T> void set(AttributeSlot<T> slot, T value) {
+    int index = slot.getIndex();
+    if (index >= values.length) {
+      values = Arrays.copyOf(values, Math.max(index + 1, AttributeSlot.count()));
+    }
+    values[index] = value;
+  }
+
+  /**
+   * Clear a value, so the request attribute with the same name is read instead.
+   * 
+   * @param slot the slot
+   */
+  public void clear(AttributeSlot<?> slot) {
+    int index = slot.getIndex();
+    if (index < values.length) {
+      values[index] = null;
+    }
+  }
+}
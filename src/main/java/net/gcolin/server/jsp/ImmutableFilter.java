@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Let the clients cache forever the assets fingerprinted by the war optimizer.
+ *
+ * <p>
+ * The name of a fingerprinted asset contains its content hash, so its content never changes. The
+ * fingerprinted assets are listed in {@code /WEB-INF/fingerprint.properties} for a war and in
+ * {@code META-INF/fingerprint.properties} for a jar. The filter must be declared before the
+ * {@link PrecompressedFilter}, the header is set before the rest of the chain.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class ImmutableFilter implements Filter {
+
+  public static final String WAR_MANIFEST = "/WEB-INF/fingerprint.properties";
+  public static final String JAR_MANIFEST = "META-INF/fingerprint.properties";
+  public static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+  private Set<String> immutables = new HashSet<>();
+
+  @Override
+  public void init(FilterConfig filterConfig) throws ServletException {
+    ServletContext servletContext = filterConfig.getServletContext();
+    try (InputStream in = servletContext.getResourceAsStream(WAR_MANIFEST)) {
+      if (in != null) {
+        load(in);
+      }
+      Enumeration<URL> manifests = servletContext.getClassLoader().getResources(JAR_MANIFEST);
+      while (manifests.hasMoreElements()) {
+        try (InputStream jar = manifests.nextElement().openStream()) {
+          load(jar);
+        }
+      }
+    } catch (IOException ex) {
+      throw new ServletException(ex);
+    }
+    Logs.LOG.log(Level.INFO, "{0} immutable resources", immutables.size());
+  }
+
+  /**
+   * Read a manifest. A line is {@code fingerprintedPath=originalPath}.
+   *
+   * @param in the manifest
+   * @throws IOException if an I/O error occurs.
+   */
+  void load(InputStream in) throws IOException {
+    Properties properties = new Properties();
+    properties.load(in);
+    immutables.addAll(properties.stringPropertyNames());
+  }
+
+  @Override
+  public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+      throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) req;
+    String method = request.getMethod();
+    if ("GET".equals(method) || "HEAD".equals(method)) {
+      String path = request.getServletPath();
+      if (request.getPathInfo() != null) {
+        path += request.getPathInfo();
+      }
+      if (immutables.contains(path)) {
+        ((HttpServletResponse) res).setHeader("Cache-Control", CACHE_CONTROL);
+      }
+    }
+    chain.doFilter(req, res);
+  }
+
+  @Override
+  public void destroy() {
+    immutables.clear();
+  }
+
+}
@@ -16,36 +16,363 @@
 package net.gcolin.server.jsp;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.Servlet;
 import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.UnavailableException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import net.gcolin.common.io.Io;
 import net.gcolin.common.lang.Pair;
+import net.gcolin.server.jsp.internal.CompileScheduler;
+import net.gcolin.server.jsp.internal.CountingResponse;
+import net.gcolin.server.jsp.internal.DirectoryPageRepository;
+import net.gcolin.server.jsp.internal.HotPages;
+import net.gcolin.server.jsp.internal.InterpretedServlet;
 import net.gcolin.server.jsp.internal.JspCompiler;
+import net.gcolin.server.jsp.internal.PageStats;
+import net.gcolin.server.jsp.internal.Profiler;
+import net.gcolin.server.jsp.internal.Synthetic;
 
+/**
+ * Serve the JSP. A JSP is compiled at its first request, unless it is listed in a manifest of JSP
+ * precompiled by the war optimizer: {@code /WEB-INF/jsp.properties} for a war and
+ * {@code META-INF/jsp.properties} for a jar. A precompiled JSP is loaded at its first request, or
+ * in a background thread at the startup with the init parameter {@code precompiled} set to
+ * {@code eager}. With {@code precompiled} set to {@code only}, the JSP are never compiled nor
+ * interpreted and a JSP missing from the manifests is not found, so the compiler is not needed,
+ * as in a GraalVM native image.
+ *
+ * <p>
+ * With the init parameter {@code tiered} set to {@code true}, the first requests of a JSP are
+ * served by an interpreter of the page model while the JSP is compiled in a background thread.
+ * The interpreter is also used when there is no compiler, for example on a JRE. A JSP with custom
+ * tags, includes or messages is always compiled.
+ * </p>
+ *
+ * <p>
+ * The compilations run on a bounded number of threads, the most requested JSP first. A request
+ * waiting too long for a compilation, or arriving when too many JSP wait for one, gets a 503
+ * response with a {@code Retry-After} header.
+ * </p>
+ *
+ * <p>
+ * A failed compilation is kept and its error is sent again without compiling, until the JSP is
+ * modified or until a delay starting at {@code compileRetry} seconds (1 by default) and doubled at
+ * each failure up to {@code compileRetryMax} seconds (60 by default).
+ * </p>
+ *
+ * <p>
+ * The servlet counts the requests of the JSP and writes the {@code warmupSize} most requested (100
+ * by default) in the work directory at the shutdown. At the next startup, they are compiled in the
+ * background and the application attribute {@link #READY_ATTRIBUTE} is {@code true} when they are
+ * ready. The counts of the previous runs are halved at each startup, so a JSP not requested anymore
+ * leaves the list. The init parameter {@code warmup} set to {@code false} disables it.
+ * </p>
+ *
+ * <p>
+ * For a large number of JSP, the servlets can be released so their classes are unloaded: the JSP
+ * not requested for {@code pageIdleTimeout} seconds, and the least recently requested when more than
+ * {@code maxPages} JSP are in memory. With the {@code jspWork} application attribute, the class
+ * files are written and an evicted JSP is loaded again from them without compiling.
+ * </p>
+ *
+ * <p>
+ * The statistics of each JSP are registered as a {@link PageStatsMXBean}, unless the init
+ * parameter {@code jmx} is {@code false}. The renders, the custom tags and the compilation phases
+ * are sent to the {@link PageListener} found by {@link Monitoring}.
+ * </p>
+ *
+ * <p>
+ * The init parameter {@code profile} starts a {@link Profiler} that samples the renders every
+ * {@code profile} milliseconds. Its reports are written in the work directory at the shutdown.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
 public class JspServlet implements Servlet {
 
+	public static final String WAR_MANIFEST = "/WEB-INF/jsp.properties";
+	public static final String JAR_MANIFEST = "META-INF/jsp.properties";
+	public static final String READY_ATTRIBUTE = "net.gcolin.server.jsp.ready";
+
 	private ServletConfig config;
 	private Map<String, Pair<Supplier<Boolean>, Servlet>> compiled = new ConcurrentHashMap<>();
+	private Map<String, String> precompiled = new HashMap<>();
 	private JspCompiler compiler;
+	private boolean tiered;
+	private boolean precompiledOnly;
+	private boolean jmx;
+	private final Map<String, PageStats> stats = new ConcurrentHashMap<>();
+	private Profiler profiler;
+	private CompileScheduler scheduler;
+	private final HotPages hotPages = new HotPages();
+	private Map<String, Failure> failures = new ConcurrentHashMap<>();
+	private long compileRetry;
+	private long compileRetryMax;
+	private int maxPages;
+	private long pageIdleTimeout;
+	private Map<String, Long> accessed = new ConcurrentHashMap<>();
+	private Set<String> evicted = ConcurrentHashMap.newKeySet();
+	private final Map<Servlet, Renders> rendering = new ConcurrentHashMap<>();
+	private final LongAdder evictions = new LongAdder();
+	private ScheduledExecutorService evictor;
 
 	@Override
 	public void init(ServletConfig config) throws ServletException {
 		this.config = config;
-		boolean alwayswrite = Boolean.parseBoolean(config.getInitParameter("alwayswrite"))
-				|| Boolean.parseBoolean(System.getProperty("writeJsp"));
-		compiler = new JspCompiler(config.getServletContext().getClassLoader(), alwayswrite, false);
+		tiered = Boolean.parseBoolean(config.getInitParameter("tiered"));
+		precompiledOnly = "only".equals(config.getInitParameter("precompiled"));
+		jmx = !"false".equals(config.getInitParameter("jmx"));
+		int profile = getInt("profile", 0);
+		if (profile > 0) {
+			profiler = new Profiler(profile);
+		}
+		compileRetry = TimeUnit.SECONDS.toMillis(getInt("compileRetry", 1));
+		compileRetryMax = TimeUnit.SECONDS.toMillis(getInt("compileRetryMax", 60));
+		maxPages = getInt("maxPages", 0);
+		pageIdleTimeout = TimeUnit.SECONDS.toMillis(getInt("pageIdleTimeout", 0));
+		if (pageIdleTimeout > 0) {
+			evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "jsp-evictor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			long period = Math.max(1000, pageIdleTimeout / 2);
+			evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+		}
+		ServletContext ctx = config.getServletContext();
+		try (InputStream in = ctx.getResourceAsStream(WAR_MANIFEST)) {
+			if (in != null) {
+				load(in);
+			}
+			Enumeration<URL> manifests = ctx.getClassLoader().getResources(JAR_MANIFEST);
+			while (manifests.hasMoreElements()) {
+				try (InputStream jar = manifests.nextElement().openStream()) {
+					load(jar);
+				}
+			}
+		} catch (IOException ex) {
+			throw new ServletException(ex);
+		}
+		if (!precompiled.isEmpty()) {
+			Logs.LOG.log(Level.INFO, "{0} precompiled JSP", precompiled.size());
+			if ("eager".equals(config.getInitParameter("precompiled"))) {
+				Thread thread = new Thread(() -> loadAll(ctx), "jsp-precompiled");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+		List<String> hot = Collections.emptyList();
+		File work = getWorkDir(ctx);
+		if (work != null && !"false".equals(config.getInitParameter("warmup"))) {
+			try {
+				hot = hotPages.load(work);
+			} catch (IOException ex) {
+				Logs.LOG.log(Level.WARNING, "cannot read the hot JSP list", ex);
+			}
+		}
+		if (hot.isEmpty()) {
+			ctx.setAttribute(READY_ATTRIBUTE, Boolean.TRUE);
+		} else {
+			ctx.setAttribute(READY_ATTRIBUTE, Boolean.FALSE);
+			List<String> paths = hot;
+			Thread thread = new Thread(() -> warmUp(ctx, paths), "jsp-warmup");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Read a manifest. A line is {@code path=className}.
+	 *
+	 * @param in the manifest
+	 * @throws IOException if an I/O error occurs.
+	 */
+	void load(InputStream in) throws IOException {
+		Properties properties = new Properties();
+		properties.load(in);
+		for (String path : properties.stringPropertyNames()) {
+			precompiled.put(path, properties.getProperty(path).trim());
+		}
+	}
+
+	private File getWorkDir(ServletContext ctx) {
+		File work = (File) ctx.getAttribute("jspWork");
+		return work == null ? (File) ctx.getAttribute(ServletContext.TEMPDIR) : work;
+	}
+
+	/**
+	 * Compile the JSP of the hot list in the background, then set the application attribute
+	 * {@link #READY_ATTRIBUTE} to {@code true}. With the init parameter {@code warmupRenders}, each
+	 * JSP is also rendered with an empty request for warming the JIT.
+	 *
+	 * @param ctx the servlet context
+	 * @param paths the most requested JSP of the last run
+	 */
+	private void warmUp(ServletContext ctx, List<String> paths) {
+		int renders = getInt("warmupRenders", 0);
+		// the jobs submitted after destroy() are ignored by the stopped scheduler
+		CompileScheduler compileScheduler = getScheduler();
+		List<CompletableFuture<?>> jobs = new ArrayList<>();
+		for (String path : paths) {
+			try {
+				Pair<Supplier<Boolean>, Servlet> servlet = get(path, ctx);
+				if (servlet.getRight() != null && !(servlet.getRight() instanceof InterpretedServlet)) {
+					// precompiled or compiled, nothing to compile
+					for (int i = 0; i < renders; i++) {
+						render(servlet, path, ctx);
+					}
+					continue;
+				}
+				// a request of the JSP during the warm-up waits for this job and gets its result
+				CompletableFuture<?> job = compileScheduler.submit(path, () -> {
+					try {
+						Servlet target = compile(path, ctx, servlet);
+						for (int i = 0; i < renders; i++) {
+							render(servlet, path, ctx);
+						}
+						return target;
+					} catch (IOException | RuntimeException ex) {
+						Logs.LOG.log(Level.WARNING, "cannot warm up " + path, ex);
+						throw ex;
+					}
+				});
+				// null if already scheduled for a request or if the servlet is stopped
+				if (job != null) {
+					jobs.add(job);
+				}
+			} catch (IOException | ServletException | RuntimeException ex) {
+				Logs.LOG.log(Level.WARNING, "cannot warm up " + path, ex);
+			}
+		}
+		for (CompletableFuture<?> job : jobs) {
+			try {
+				job.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof UnavailableException) {
+					// the servlet is stopped
+					return;
+				}
+				// already logged by the job
+			}
+		}
+		if (compileScheduler.isClosed()) {
+			return;
+		}
+		Logs.LOG.log(Level.INFO, "{0} JSP warmed up", paths.size());
+		ctx.setAttribute(READY_ATTRIBUTE, Boolean.TRUE);
+	}
+
+	private void render(Pair<Supplier<Boolean>, Servlet> servlet, String path, ServletContext ctx) {
+		Servlet target;
+		synchronized (servlet) {
+			target = enter(servlet);
+		}
+		if (target == null) {
+			// evicted
+			return;
+		}
+		try {
+			target.service(Synthetic.request(ctx, path), Synthetic.response());
+		} catch (IOException | ServletException | RuntimeException ex) {
+			// the JSP may need attributes
+			Logs.LOG.log(Level.FINE, "cannot render " + path, ex);
+		} finally {
+			exit(servlet, target);
+		}
+	}
+
+	private void loadAll(ServletContext ctx) {
+		for (String path : precompiled.keySet()) {
+			try {
+				get(path, ctx);
+			} catch (IOException | ServletException | RuntimeException ex) {
+				Logs.LOG.log(Level.WARNING, "cannot load the precompiled JSP " + path, ex);
+			}
+		}
+	}
+
+	/**
+	 * Get the compiler, created at the first compilation because all the JSP may be precompiled.
+	 *
+	 * @return the compiler
+	 */
+	private synchronized JspCompiler getCompiler() {
+		if (compiler == null) {
+			boolean alwayswrite = Boolean.parseBoolean(config.getInitParameter("alwayswrite"))
+					|| Boolean.parseBoolean(System.getProperty("writeJsp"));
+			// the class files of an evicted JSP are loaded again at its next request
+			boolean writeClasses = (maxPages > 0 || pageIdleTimeout > 0)
+					&& config.getServletContext().getAttribute("jspWork") != null;
+			compiler = new JspCompiler(config.getServletContext().getClassLoader(), alwayswrite, writeClasses);
+			String repository = config.getInitParameter("compileRepository");
+			if (repository != null) {
+				compiler.setRepository(new DirectoryPageRepository(new File(repository)));
+			}
+		}
+		return compiler;
+	}
+
+	/**
+	 * Get the compilation scheduler, created at the first compilation. The init parameters are
+	 * {@code compileThreads} (half of the processors by default), {@code compileQueue} the maximum
+	 * number of JSP waiting for a compilation (64 by default), {@code compileTimeout} the maximum
+	 * waiting time of a request in seconds (30 by default) and {@code retryAfter} the delay in
+	 * seconds sent to the rejected clients (5 by default).
+	 *
+	 * @return the scheduler
+	 */
+	private synchronized CompileScheduler getScheduler() {
+		if (scheduler == null) {
+			scheduler = new CompileScheduler(
+					getInt("compileThreads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+					getInt("compileQueue", 64), getInt("compileTimeout", 30), getInt("retryAfter", 5));
+		}
+		return scheduler;
+	}
+
+	private int getInt(String name, int defaultValue) {
+		String value = config.getInitParameter(name);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
 	}
 
 	@Override
@@ -92,40 +419,515 @@ public class JspServlet implements Servlet {
 			path = servletPath + pathInfo;
 		}
 
-		Pair<Supplier<Boolean>, Servlet> servlet = compiled.get(path);
-		if (servlet == null) {
-			synchronized (this) {
-				servlet = compiled.get(path);
-				if (servlet == null) {
-					Servlet resp = (Servlet) compiler.buildServlet(path, req.getServletContext());
-					URL url = request.getServletContext().getResource(path);
-					Supplier<Boolean> needCompileAgain = () -> false;
-					if ("file".equals(url.getProtocol())) {
-						File file = new File(url.getFile());
-						long mod = file.lastModified();
-						needCompileAgain = () -> file.lastModified() != mod;
-					}
-					servlet = new Pair<Supplier<Boolean>, Servlet>(needCompileAgain, resp);
-					compiled.put(path, servlet);
-				}
+		Servlet target;
+		try {
+			target = resolve(path, req.getServletContext());
+		} catch (UnavailableException ex) {
+			Logs.LOG.log(Level.WARNING, "reject {0}: {1}", new Object[] {path, ex.getMessage()});
+			HttpServletResponse response = (HttpServletResponse) res;
+			response.setHeader("Retry-After", String.valueOf(ex.getUnavailableSeconds()));
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+		// a missing or failing JSP is not counted
+		hotPages.hit(path);
+
+		try {
+			serve(path, target, req, res);
+		} finally {
+			exit(compiled.get(path), target);
+		}
+	}
+
+	private void serve(String path, Servlet target, ServletRequest req, ServletResponse res)
+			throws ServletException, IOException {
+		if (!jmx && !Monitoring.isEnabled() && profiler == null) {
+			target.service(req, res);
+			return;
+		}
+		CountingResponse response = new CountingResponse((HttpServletResponse) res);
+		Object event = Monitoring.renderStarted(path);
+		if (profiler != null) {
+			profiler.enter(path);
+		}
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			target.service(req, response);
+			failed = false;
+		} finally {
+			long nanos = System.nanoTime() - start;
+			if (profiler != null) {
+				profiler.exit();
+			}
+			if (jmx) {
+				stats(path).rendered(nanos, response.getCount(), failed);
 			}
+			Monitoring.renderEnded(event, response.getCount(), failed);
 		}
+	}
+
+	/**
+	 * Record a servlet generated for a JSP in the statistics and in the profiler.
+	 *
+	 * @param path the path of the JSP
+	 * @param servlet the loaded servlet
+	 * @param nanos the time of the compilation
+	 */
+	private void loaded(String path, Servlet servlet, long nanos) {
+		if (jmx) {
+			stats(path).compiled(nanos, JspCompiler.classSize(servlet.getClass()));
+		}
+		if (profiler != null) {
+			profiler.register(path, servlet.getClass());
+		}
+	}
+
+	/**
+	 * Get the profiler enabled by the init parameter {@code profile}.
+	 *
+	 * @return the profiler or {@code null}
+	 */
+	public Profiler getProfiler() {
+		return profiler;
+	}
 
+	/**
+	 * Get the statistics of a JSP, registered in the platform MBean server at their creation.
+	 *
+	 * @param path the path of the JSP
+	 * @return the statistics
+	 */
+	private PageStats stats(String path) {
+		return stats.computeIfAbsent(path, key -> {
+			PageStats pageStats = new PageStats(key);
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(pageStats, objectName(key));
+			} catch (JMException ex) {
+				Logs.LOG.log(Level.FINE, "cannot register the statistics of " + key, ex);
+			}
+			return pageStats;
+		});
+	}
+
+	private ObjectName objectName(String path) throws MalformedObjectNameException {
+		String context = config.getServletContext().getContextPath();
+		return new ObjectName("net.gcolin.server.jsp:type=Page,context="
+				+ ObjectName.quote(context == null || context.isEmpty() ? "/" : context) + ",path="
+				+ ObjectName.quote(path));
+	}
+
+	/**
+	 * Get the servlet of a JSP, compiled again if the JSP is modified. The request waits for the
+	 * compilation in the {@link CompileScheduler}, unless the JSP is interpreted. The render is
+	 * counted until {@link #exit(Pair, Servlet)}, so the servlet is not released during the render.
+	 *
+	 * @param path the path of the JSP
+	 * @param ctx the servlet context
+	 * @return the servlet
+	 * @throws IOException if an I/O error occurs.
+	 * @throws ServletException if the compilation fails or if the scheduler is overloaded
+	 */
+	private Servlet resolve(String path, ServletContext ctx) throws IOException, ServletException {
+		Pair<Supplier<Boolean>, Servlet> servlet = get(path, ctx);
+		accessed.put(path, System.currentTimeMillis());
 		synchronized (servlet) {
 			if (servlet.getLeft().get()) {
-				URL url = request.getServletContext().getResource(path);
+				URL url = ctx.getResource(path);
 				File file = new File(url.getFile());
 				long mod = file.lastModified();
 				servlet.setLeft(() -> file.lastModified() != mod);
-				ClassLoader cl = servlet.getRight().getClass().getClassLoader();
-				if (cl instanceof AutoCloseable) {
-					Io.close((AutoCloseable) cl);
+				release(servlet.getRight());
+				servlet.setRight(null);
+				failures.remove(path);
+				evicted.remove(path);
+			}
+			if (servlet.getRight() == null) {
+				servlet.setRight(interpret(path, ctx, servlet));
+			}
+			if (servlet.getRight() != null) {
+				if (servlet.getRight() instanceof InterpretedServlet) {
+					getScheduler().hit(path);
 				}
-				servlet.setRight((Servlet) compiler.buildServlet(path, req.getServletContext()));
+				return enter(servlet);
+			}
+		}
+		Failure failure = failures.get(path);
+		if (failure != null && failure.retryAt > System.currentTimeMillis()) {
+			throw new ServletException("the compilation of " + path + " failed, it is retried in "
+					+ (failure.retryAt - System.currentTimeMillis()) / 1000 + "s", failure.error);
+		}
+		Servlet target = getScheduler().await(path, () -> compile(path, ctx, servlet));
+		if (target == null) {
+			// joined a background job without result, its servlet is in the holder
+			synchronized (servlet) {
+				target = servlet.getRight();
+			}
+			if (target == null) {
+				target = getScheduler().await(path, () -> compile(path, ctx, servlet));
+			}
+		}
+		synchronized (servlet) {
+			if (target != null && servlet.getRight() == target) {
+				return enter(servlet);
 			}
 		}
+		// evicted or replaced since its compilation
+		return resolve(path, ctx);
+	}
 
-		servlet.getValue().service(req, res);
+	/**
+	 * Compile a JSP, unless it has a compiled servlet. The compiled servlet replaces the interpreter
+	 * of the JSP.
+	 *
+	 * @param path the path of the JSP
+	 * @param ctx the servlet context
+	 * @param servlet the holder of the servlet
+	 * @return the servlet
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private Servlet compile(String path, ServletContext ctx, Pair<Supplier<Boolean>, Servlet> servlet)
+			throws IOException {
+		synchronized (servlet) {
+			if (servlet.getRight() != null && !(servlet.getRight() instanceof InterpretedServlet)) {
+				return servlet.getRight();
+			}
+		}
+		Servlet resp = null;
+		long start = System.nanoTime();
+		try {
+			if (evicted.remove(path)) {
+				resp = (Servlet) getCompiler().loadServlet(path, ctx);
+			}
+			if (resp == null) {
+				resp = (Servlet) getCompiler().buildServlet(path, ctx);
+			}
+		} catch (IOException | RuntimeException ex) {
+			failures.merge(path, new Failure(ex, compileRetry),
+					(previous, next) -> previous.next(ex, compileRetryMax));
+			throw ex;
+		}
+		failures.remove(path);
+		loaded(path, resp, System.nanoTime() - start);
+		Servlet target;
+		Servlet unused = null;
+		synchronized (servlet) {
+			if (servlet.getRight() == null || servlet.getRight() instanceof InterpretedServlet) {
+				unused = servlet.getRight();
+				servlet.setRight(resp);
+			} else if (servlet.getRight() != resp) {
+				unused = resp;
+			}
+			target = servlet.getRight();
+			release(unused);
+		}
+		if (maxPages > 0) {
+			evictLeastRecent();
+		}
+		return target;
+	}
+
+	/**
+	 * Release the servlet of a JSP. The JSP is loaded again from its class files or compiled again
+	 * at its next request. A precompiled JSP is never evicted.
+	 *
+	 * @param path the path of the JSP
+	 * @param servlet the holder of the servlet
+	 * @return {@code true} if the servlet is released
+	 */
+	private boolean evict(String path, Pair<Supplier<Boolean>, Servlet> servlet) {
+		if (precompiled.containsKey(path)) {
+			return false;
+		}
+		synchronized (servlet) {
+			Servlet resident = servlet.getRight();
+			if (resident == null) {
+				return false;
+			}
+			servlet.setRight(null);
+			release(resident);
+		}
+		evicted.add(path);
+		evictions.increment();
+		return true;
+	}
+
+	private void evictIdle() {
+		long limit = System.currentTimeMillis() - pageIdleTimeout;
+		int nb = 0;
+		for (Map.Entry<String, Pair<Supplier<Boolean>, Servlet>> entry : compiled.entrySet()) {
+			Long last = accessed.get(entry.getKey());
+			if ((last == null || last < limit) && evict(entry.getKey(), entry.getValue())) {
+				nb++;
+			}
+		}
+		logEviction(nb);
+	}
+
+	private void evictLeastRecent() {
+		List<String> resident = new ArrayList<>();
+		for (Map.Entry<String, Pair<Supplier<Boolean>, Servlet>> entry : compiled.entrySet()) {
+			if (entry.getValue().getRight() != null && !precompiled.containsKey(entry.getKey())) {
+				resident.add(entry.getKey());
+			}
+		}
+		if (resident.size() <= maxPages) {
+			return;
+		}
+		resident.sort(Comparator.comparingLong(path -> accessed.getOrDefault(path, 0L)));
+		int nb = 0;
+		for (int i = 0, size = resident.size() - maxPages; i < size; i++) {
+			Pair<Supplier<Boolean>, Servlet> servlet = compiled.get(resident.get(i));
+			if (servlet != null && evict(resident.get(i), servlet)) {
+				nb++;
+			}
+		}
+		logEviction(nb);
+	}
+
+	private void logEviction(int nb) {
+		if (nb > 0) {
+			Logs.LOG.log(Level.INFO, "{0} JSP evicted, {1} resident, {2} KB of metaspace",
+					new Object[] {nb, getResidentPages(), getMetaspaceUsed() / 1024});
+		}
+	}
+
+	/**
+	 * Get the servlet of a JSP in memory.
+	 *
+	 * @param path the path of the JSP
+	 * @return the servlet, the interpreter or {@code null}
+	 */
+	Servlet getServlet(String path) {
+		Pair<Supplier<Boolean>, Servlet> servlet = compiled.get(path);
+		return servlet == null ? null : servlet.getRight();
+	}
+
+	/**
+	 * Get the number of JSP with a servlet in memory.
+	 *
+	 * @return the number of resident JSP
+	 */
+	public int getResidentPages() {
+		int nb = 0;
+		for (Pair<Supplier<Boolean>, Servlet> servlet : compiled.values()) {
+			if (servlet.getRight() != null) {
+				nb++;
+			}
+		}
+		return nb;
+	}
+
+	/**
+	 * Get the number of evictions since the startup.
+	 *
+	 * @return the number of evicted servlets
+	 */
+	public long getEvictedPages() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Get the memory used by the class metadata.
+	 *
+	 * @return the size of the metaspace in bytes or -1 if the JVM has no metaspace
+	 */
+	public static long getMetaspaceUsed() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if ("Metaspace".equals(pool.getName())) {
+				return pool.getUsage().getUsed();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The last failed compilation of a JSP. The JSP is compiled again after a delay doubled at each
+	 * failure, or when it is modified.
+	 */
+	private static final class Failure {
+
+		private final Exception error;
+		private final long delay;
+		private final long retryAt;
+
+		private Failure(Exception error, long delay) {
+			this.error = error;
+			this.delay = delay;
+			this.retryAt = System.currentTimeMillis() + delay;
+		}
+
+		private Failure next(Exception error, long maxDelay) {
+			return new Failure(error, Math.min(delay * 2, maxDelay));
+		}
+	}
+
+	/**
+	 * The renders in progress of a servlet, counted under the lock of its holder.
+	 */
+	private static final class Renders {
+
+		private int count;
+		private boolean released;
+	}
+
+	/**
+	 * Count a render of the servlet of a holder. The caller holds the lock of the holder.
+	 *
+	 * @param servlet the holder of the servlet
+	 * @return the servlet or {@code null} if the JSP has no servlet in memory
+	 */
+	private Servlet enter(Pair<Supplier<Boolean>, Servlet> servlet) {
+		Servlet target = servlet.getRight();
+		if (target != null) {
+			rendering.computeIfAbsent(target, key -> new Renders()).count++;
+		}
+		return target;
+	}
+
+	/**
+	 * End a render counted by {@link #enter(Pair)}. A servlet released during its renders is
+	 * destroyed after the last one.
+	 *
+	 * @param servlet the holder of the servlet
+	 * @param target the rendered servlet
+	 */
+	private void exit(Pair<Supplier<Boolean>, Servlet> servlet, Servlet target) {
+		synchronized (servlet) {
+			Renders current = rendering.get(target);
+			if (--current.count > 0) {
+				return;
+			}
+			rendering.remove(target);
+			if (!current.released) {
+				return;
+			}
+		}
+		dispose(target);
+	}
+
+	/**
+	 * Release a servlet removed from its holder, now or after its renders in progress. The caller
+	 * holds the lock of the holder.
+	 *
+	 * @param servlet the released servlet or {@code null}
+	 */
+	private void release(Servlet servlet) {
+		if (servlet == null) {
+			return;
+		}
+		Renders current = rendering.get(servlet);
+		if (current != null) {
+			current.released = true;
+		} else {
+			dispose(servlet);
+		}
+	}
+
+	private void dispose(Servlet servlet) {
+		servlet.destroy();
+		if (servlet instanceof InterpretedServlet) {
+			// the interpreter is loaded by the class loader of the application
+			return;
+		}
+		ClassLoader cl = servlet.getClass().getClassLoader();
+		if (cl instanceof AutoCloseable) {
+			Io.close((AutoCloseable) cl);
+		}
+	}
+
+	/**
+	 * Create the interpreter of a JSP in the tiered mode or without a compiler. The JSP is
+	 * compiled in the background from the Java source generated with the interpreter, and the
+	 * compiled servlet replaces the interpreter.
+	 *
+	 * @param path the path of the JSP
+	 * @param ctx the servlet context
+	 * @param servlet the holder of the servlet, updated after the compilation in the background
+	 * @return the interpreter or {@code null} if the JSP must be compiled now
+	 * @throws IOException if an I/O error occurs.
+	 * @throws ServletException if the interpreter cannot be initialized, or if the JSP cannot be
+	 *         interpreted without a compiler
+	 */
+	private Servlet interpret(String path, ServletContext ctx, Pair<Supplier<Boolean>, Servlet> servlet)
+			throws IOException, ServletException {
+		JspCompiler jspCompiler = getCompiler();
+		boolean canCompile = jspCompiler.isCompilerAvailable();
+		if (!tiered && canCompile) {
+			return null;
+		}
+		// the Java source is generated from the same parsing as the interpreter
+		List<Pair<String, String>> java = canCompile ? new ArrayList<>(1) : null;
+		InterpretedServlet interpreted = jspCompiler.buildInterpreter(path, ctx, java);
+		if (interpreted != null) {
+			interpreted.init(config);
+			if (canCompile && !java.isEmpty()) {
+				getScheduler().submit(path, () -> {
+					try {
+						long start = System.nanoTime();
+						Servlet resp = (Servlet) getCompiler().buildServlet(java, ctx)[0];
+						loaded(path, resp, System.nanoTime() - start);
+						synchronized (servlet) {
+							// the JSP may have been modified during the compilation
+							if (servlet.getRight() == interpreted) {
+								servlet.setRight(resp);
+								release(interpreted);
+							}
+							return servlet.getRight();
+						}
+					} catch (IOException | RuntimeException ex) {
+						Logs.LOG.log(Level.WARNING, "cannot compile " + path + ", the JSP stays interpreted", ex);
+						return null;
+					}
+				});
+			}
+		}
+		return interpreted;
+	}
+
+	private Pair<Supplier<Boolean>, Servlet> get(String path, ServletContext ctx)
+			throws IOException, ServletException {
+		Pair<Supplier<Boolean>, Servlet> servlet = compiled.get(path);
+		if (servlet == null) {
+			synchronized (this) {
+				servlet = compiled.get(path);
+				if (servlet == null) {
+					String className = precompiled.get(path);
+					if (className != null) {
+						// the source of a precompiled JSP is not in the war
+						servlet = new Pair<Supplier<Boolean>, Servlet>(() -> false, load(className));
+						loaded(path, servlet.getRight(), 0);
+					} else if (precompiledOnly) {
+						throw new FileNotFoundException("the JSP " + path + " is not precompiled");
+					} else {
+						// the servlet is created by resolve, outside of this lock
+						URL url = ctx.getResource(path);
+						if (url == null) {
+							throw new FileNotFoundException("cannot find file " + path);
+						}
+						servlet = new Pair<Supplier<Boolean>, Servlet>(() -> false, null);
+						if ("file".equals(url.getProtocol())) {
+							File file = new File(url.getFile());
+							long mod = file.lastModified();
+							servlet.setLeft(() -> file.lastModified() != mod);
+						}
+					}
+					compiled.put(path, servlet);
+				}
+			}
+		}
+		return servlet;
+	}
+
+	private Servlet load(String className) throws ServletException {
+		try {
+			Servlet servlet = (Servlet) config.getServletContext().getClassLoader().loadClass(className)
+					.newInstance();
+			servlet.init(config);
+			return servlet;
+		} catch (ReflectiveOperationException ex) {
+			throw new ServletException("cannot load the precompiled JSP " + className, ex);
+		}
 	}
 
 	@Override
@@ -134,8 +936,42 @@ public class JspServlet implements Servlet {
 	}
 
 	@Override
-	public void destroy() {
-		//
+	public synchronized void destroy() {
+		if (evictor != null) {
+			evictor.shutdownNow();
+			evictor = null;
+		}
+		File work = config == null ? null : getWorkDir(config.getServletContext());
+		if (work != null) {
+			try {
+				hotPages.save(work, getInt("warmupSize", 100));
+			} catch (IOException ex) {
+				Logs.LOG.log(Level.WARNING, "cannot write the hot JSP list", ex);
+			}
+		}
+		if (profiler != null) {
+			profiler.shutdown();
+			if (work != null) {
+				try {
+					profiler.save(work);
+				} catch (IOException ex) {
+					Logs.LOG.log(Level.WARNING, "cannot write the JSP profile", ex);
+				}
+			}
+			profiler = null;
+		}
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+		for (String path : stats.keySet()) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(path));
+			} catch (JMException ex) {
+				Logs.LOG.log(Level.FINE, "cannot unregister the statistics of " + path, ex);
+			}
+		}
+		stats.clear();
 	}
 
 }
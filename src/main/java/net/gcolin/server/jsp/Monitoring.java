@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Send the compilations and the renders to the {@link PageListener}. The methods do nothing
+ * without listener. The generated servlets call {@link #tagStarted(String)} and
+ * {@link #tagEnded(Object)} around their custom tags.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public final class Monitoring {
+
+  private static final PageListener LISTENER = load();
+  private static final ThreadLocal<State> STATE = new ThreadLocal<State>() {
+    @Override
+    protected State initialValue() {
+      return new State();
+    }
+  };
+
+  private Monitoring() {}
+
+  private static PageListener load() {
+    Iterator<PageListener> it =
+        ServiceLoader.load(PageListener.class, Monitoring.class.getClassLoader()).iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+
+  public static boolean isEnabled() {
+    return LISTENER != null;
+  }
+
+  /**
+   * A phase of a compilation starts.
+   * 
+   * @param page the path of the JSP
+   * @param phase the phase
+   * @return the event or {@code null}
+   */
+  public static Object compileStarted(String page, String phase) {
+    return LISTENER == null ? null : LISTENER.compileStarted(page, phase);
+  }
+
+  /**
+   * A phase of a compilation ends.
+   * 
+   * @param event the event returned by {@link #compileStarted(String, String)}
+   * @param failed {@code true} if the phase throws an exception
+   */
+  public static void compileEnded(Object event, boolean failed) {
+    if (LISTENER != null) {
+      LISTENER.compileEnded(event, failed);
+    }
+  }
+
+  /**
+   * A render starts, maybe in the render of an including JSP.
+   * 
+   * @param path the path of the JSP
+   * @return the event or {@code null}
+   */
+  public static Object renderStarted(String path) {
+    if (LISTENER == null) {
+      return null;
+    }
+    State state = STATE.get();
+    Object event = LISTENER.renderStarted(path, state.depth);
+    state.push(path);
+    return event;
+  }
+
+  /**
+   * A render ends.
+   * 
+   * @param event the event returned by {@link #renderStarted(String)}
+   * @param size the size of the output
+   * @param failed {@code true} if the render throws an exception
+   */
+  public static void renderEnded(Object event, long size, boolean failed) {
+    if (LISTENER != null) {
+      State state = STATE.get();
+      if (state.pop()) {
+        // the thread may belong to the server after the request
+        STATE.remove();
+      }
+      LISTENER.renderEnded(event, size, failed);
+    }
+  }
+
+  /**
+   * A custom tag starts.
+   * 
+   * @param tag the name of the tag
+   * @return the event or {@code null}
+   */
+  public static Object tagStarted(String tag) {
+    if (LISTENER == null) {
+      return null;
+    }
+    State state = STATE.get();
+    return LISTENER.tagStarted(state.path(), tag, state.tags++);
+  }
+
+  /**
+   * A custom tag ends.
+   * 
+   * @param event the event returned by {@link #tagStarted(String)}
+   */
+  public static void tagEnded(Object event) {
+    if (LISTENER != null) {
+      STATE.get().tags--;
+      LISTENER.tagEnded(event);
+    }
+  }
+
+  /**
+   * The JSP rendered by a thread, the including JSP first.
+   */
+  private static final class State {
+
+    private String[] paths = new String[0];
+    private int depth;
+    private int tags;
+
+    private String path() {
+      return depth == 0 ? null : paths[depth - 1];
+    }
+
+    private void push(String path) {
+      if (depth == paths.length) {
+        String[] grown = new String[depth + 4];
+        System.arraycopy(paths, 0, grown, 0, depth);
+        paths = grown;
+      }
+      paths[depth++] = path;
+    }
+
+    private boolean pop() {
+      if (depth > 0) {
+        paths[--depth] = null;
+      }
+      return depth == 0;
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+/**
+ * Receive the compilations and the renders of the JSP, for a profiler or a flight recorder. The
+ * implementation is found with a {@link java.util.ServiceLoader}. A started event is given back
+ * to the method ending it.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public interface PageListener {
+
+  /**
+   * A phase of a compilation starts.
+   * 
+   * @param page the path of the JSP, or the class names for the Java compilation
+   * @param phase {@code parse}, {@code generate} or {@code javac}
+   * @return the event
+   */
+  Object compileStarted(String page, String phase);
+
+  void compileEnded(Object event, boolean failed);
+
+  /**
+   * A render starts.
+   * 
+   * @param path the path of the JSP
+   * @param depth 0 for a request, 1 for a JSP included by it
+   * @return the event
+   */
+  Object renderStarted(String path, int depth);
+
+  void renderEnded(Object event, long size, boolean failed);
+
+  /**
+   * A custom tag starts.
+   * 
+   * @param path the path of the rendered JSP
+   * @param tag the name of the tag with its prefix
+   * @param depth 0 for a tag outside of any tag
+   * @return the event
+   */
+  Object tagStarted(String path, String tag, int depth);
+
+  void tagEnded(Object event);
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A store of compiled JSP shared by the nodes of a cluster. The first node that needs a JSP
+ * compiles it and publishes its classes, the other nodes load them.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public interface PageRepository {
+
+  /**
+   * Get the classes of a compiled JSP, or compile and publish them if no node did it before. The
+   * nodes requesting the same key at the same time wait for the first compilation.
+   * 
+   * @param key the hash of the generated source
+   * @param compilation the compilation run if the key is not published
+   * @return the bytecode by class name
+   * @throws IOException if an I/O error occurs.
+   */
+  Map<String, byte[]> get(String key, Compilation compilation) throws IOException;
+
+  /**
+   * The compilation of a JSP.
+   */
+  @FunctionalInterface
+  interface Compilation {
+
+    Map<String, byte[]> compile() throws IOException;
+  }
+
+}
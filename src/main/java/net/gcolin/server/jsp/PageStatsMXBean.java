@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+/**
+ * The statistics of a JSP, registered in the platform MBean server with the name
+ * {@code net.gcolin.server.jsp:type=Page,context=<context path>,path=<path of the JSP>}.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public interface PageStatsMXBean {
+
+  String getPath();
+
+  long getRenderCount();
+
+  long getErrorCount();
+
+  /**
+   * Get the size of the output of the renders, including the included JSP: the characters of the
+   * writer and the bytes of the output stream.
+   * 
+   * @return the size of the output
+   */
+  long getBytesWritten();
+
+  /**
+   * Get the mean time of a render.
+   * 
+   * @return the mean time in microseconds
+   */
+  long getMeanLatency();
+
+  /**
+   * Get the upper bounds of the latency histogram, the last bucket has no bound.
+   * 
+   * @return the upper bounds in microseconds
+   */
+  long[] getLatencyBounds();
+
+  /**
+   * Get the number of renders in each bucket of the latency histogram.
+   * 
+   * @return the counts, one more than the bounds
+   */
+  long[] getLatencyHistogram();
+
+  /**
+   * Get the time of the last compilation, 0 for a precompiled JSP.
+   * 
+   * @return the time in milliseconds
+   */
+  long getCompileTime();
+
+  /**
+   * Get the size of the class files of the servlet and of its member classes.
+   * 
+   * @return the size in bytes or -1 if unknown
+   */
+  long getClassSize();
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.common.io.Io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serve the precompressed variants of the static resources created by the war optimizer.
+ *
+ * <p>
+ * The variants are listed with their size in {@code /WEB-INF/precompressed.properties} for a war
+ * and in {@code META-INF/precompressed.properties} for a jar. The smallest variant accepted by the
+ * {@code Accept-Encoding} header is sent, nothing is compressed at request time. The requests of
+ * resources without variant go through the chain.
+ * </p>
+ *
+ * <p>
+ * A variant is sent with an {@code ETag} of its encoding, its size and its modification time, and
+ * with its {@code Last-Modified} date. The requests with a matching {@code If-None-Match}, or else
+ * with an {@code If-Modified-Since} not older than the variant, get a 304 response.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class PrecompressedFilter implements Filter {
+
+  public static final String WAR_MANIFEST = "/WEB-INF/precompressed.properties";
+  public static final String JAR_MANIFEST = "META-INF/precompressed.properties";
+  public static final String IDENTITY = "identity";
+
+  private ServletContext servletContext;
+  private Map<String, Variant[]> variants = new HashMap<>();
+
+  /**
+   * A representation of a resource.
+   */
+  static class Variant {
+
+    private final String encoding;
+    private final String suffix;
+    private final long size;
+    private volatile long lastModified = -2;
+
+    Variant(String encoding, String suffix, long size) {
+      this.encoding = encoding;
+      this.suffix = suffix;
+      this.size = size;
+    }
+
+    public String getEncoding() {
+      return encoding;
+    }
+
+    public long getSize() {
+      return size;
+    }
+  }
+
+  @Override
+  public void init(FilterConfig filterConfig) throws ServletException {
+    servletContext = filterConfig.getServletContext();
+    try (InputStream in = servletContext.getResourceAsStream(WAR_MANIFEST)) {
+      if (in != null) {
+        load(in);
+      }
+      Enumeration<URL> manifests = servletContext.getClassLoader().getResources(JAR_MANIFEST);
+      while (manifests.hasMoreElements()) {
+        try (InputStream jar = manifests.nextElement().openStream()) {
+          load(jar);
+        }
+      }
+    } catch (IOException ex) {
+      throw new ServletException(ex);
+    }
+    Logs.LOG.log(Level.INFO, "{0} precompressed resources", variants.size());
+  }
+
+  /**
+   * Read a manifest. A line is {@code path=size encoding:extension:size...}.
+   *
+   * @param in the manifest
+   * @throws IOException if an I/O error occurs.
+   */
+  void load(InputStream in) throws IOException {
+    Properties properties = new Properties();
+    properties.load(in);
+    for (String path : properties.stringPropertyNames()) {
+      String[] parts = properties.getProperty(path).trim().split(" +");
+      Variant[] list = new Variant[parts.length];
+      list[0] = new Variant(IDENTITY, "", Long.parseLong(parts[0]));
+      for (int i = 1; i < parts.length; i++) {
+        String[] variant = parts[i].split(":");
+        list[i] = new Variant(variant[0], "." + variant[1], Long.parseLong(variant[2]));
+      }
+      variants.put(path, list);
+    }
+  }
+
+  @Override
+  public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+      throws IOException, ServletException {
+    HttpServletRequest request = (HttpServletRequest) req;
+    String method = request.getMethod();
+    Variant[] list = null;
+    if ("GET".equals(method) || "HEAD".equals(method)) {
+      String path = request.getServletPath();
+      if (request.getPathInfo() != null) {
+        path += request.getPathInfo();
+      }
+      list = variants.get(path);
+      if (list != null) {
+        HttpServletResponse response = (HttpServletResponse) res;
+        response.addHeader("Vary", "Accept-Encoding");
+        Variant variant = select(list, request.getHeader("Accept-Encoding"));
+        if (variant != null && variant != list[0] && send(path, variant, request, response)) {
+          return;
+        }
+      }
+    }
+    chain.doFilter(req, res);
+  }
+
+  private boolean send(String path, Variant variant, HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    long lastModified = lastModified(path, variant);
+    String etag = "\"" + variant.encoding + '-' + variant.size + '-' + lastModified + '"';
+    try (InputStream in = servletContext.getResourceAsStream(path + variant.suffix)) {
+      if (in == null) {
+        return false;
+      }
+      response.setHeader("ETag", etag);
+      if (lastModified >= 0) {
+        response.setDateHeader("Last-Modified", lastModified);
+      }
+      if (notModified(request, etag, lastModified)) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+      }
+      String type = servletContext.getMimeType(path);
+      if (type != null) {
+        response.setContentType(type);
+      }
+      response.setHeader("Content-Encoding", variant.encoding);
+      response.setContentLengthLong(variant.size);
+      if (!"HEAD".equals(request.getMethod())) {
+        Io.copy(in, response.getOutputStream());
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Get the modification time of a variant, read once.
+   *
+   * @return the time in milliseconds or -1 if it is unknown
+   */
+  private long lastModified(String path, Variant variant) throws IOException {
+    long lastModified = variant.lastModified;
+    if (lastModified == -2) {
+      lastModified = -1;
+      URL url = servletContext.getResource(path + variant.suffix);
+      if (url != null) {
+        URLConnection connection = url.openConnection();
+        lastModified = connection.getLastModified();
+        if (lastModified == 0) {
+          lastModified = -1;
+        }
+      }
+      variant.lastModified = lastModified;
+    }
+    return lastModified;
+  }
+
+  /**
+   * Check the conditional headers. {@code If-Modified-Since} is ignored when
+   * {@code If-None-Match} is present.
+   *
+   * @param request the request
+   * @param etag the ETag of the variant
+   * @param lastModified the modification time of the variant or -1
+   * @return {@code true} if the client has the variant already
+   */
+  static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      for (String tag : ifNoneMatch.split(",")) {
+        String value = tag.trim();
+        if ("*".equals(value) || etag.equals(value) || ("W/" + etag).equals(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (lastModified < 0) {
+      return false;
+    }
+    long since;
+    try {
+      since = request.getDateHeader("If-Modified-Since");
+    } catch (IllegalArgumentException ex) {
+      return false;
+    }
+    // the HTTP dates have a precision of a second
+    return since != -1 && lastModified / 1000 <= since / 1000;
+  }
+
+  /**
+   * Select the smallest variant accepted.
+   *
+   * @param list the variants, the first is the identity
+   * @param acceptEncoding the Accept-Encoding header
+   * @return the variant or {@code null} if none is acceptable
+   */
+  static Variant select(Variant[] list, String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return list[0];
+    }
+    Map<String, Float> qualities = new HashMap<>();
+    for (String coding : acceptEncoding.split(",")) {
+      String name = coding;
+      float quality = 1f;
+      int semi = coding.indexOf(';');
+      if (semi != -1) {
+        name = coding.substring(0, semi);
+        String param = coding.substring(semi + 1).trim();
+        if (param.startsWith("q=")) {
+          try {
+            quality = Float.parseFloat(param.substring(2).trim());
+          } catch (NumberFormatException ex) {
+            quality = 0f;
+          }
+        }
+      }
+      qualities.put(name.trim().toLowerCase(), quality);
+    }
+    Float any = qualities.get("*");
+    Variant best = null;
+    for (Variant variant : list) {
+      Float quality = qualities.get(variant.encoding);
+      if (quality == null) {
+        // identity is acceptable unless explicitly refused
+        quality = any != null ? any : variant == list[0] ? 1f : 0f;
+      }
+      if (quality > 0 && (best == null || variant.size < best.size)) {
+        best = variant;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public void destroy() {
+    variants.clear();
+  }
+
+}
@@ -17,6 +17,10 @@ package net.gcolin.server.jsp;
 
 import net.gcolin.server.jsp.internal.BuildContext;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
 public class Util {
 
   private Util() {}
@@ -58,4 +62,24 @@ public class Util {
       throw new IllegalStateException(ex);
     }
   }
+
+  /**
+   * Read all the chars of a reader.
+   * 
+   * @param reader a reader
+   * @return the chars read
+   * @throws IOException if an I/O error occurs.
+   */
+  public static char[] toCharArray(Reader reader) throws IOException {
+    char[] buf = new char[8192];
+    int len = 0;
+    int nb;
+    while ((nb = reader.read(buf, len, buf.length - len)) != -1) {
+      len += nb;
+      if (len == buf.length) {
+        buf = Arrays.copyOf(buf, buf.length * 2);
+      }
+    }
+    return len == buf.length ? buf : Arrays.copyOf(buf, len);
+  }
 }
@@ -22,8 +22,22 @@ import net.gcolin.server.jsp.JspRuntimeException;
 import net.gcolin.server.jsp.Logs;
 import net.gcolin.server.jsp.Util;
 import net.gcolin.server.jsp.internal.Var.VarType;
+import net.gcolin.server.jsp.internal.exp.CompositeStringJExpression;
+import net.gcolin.server.jsp.internal.exp.ConstantJExpression;
 import net.gcolin.server.jsp.internal.exp.JExpression;
 import net.gcolin.server.jsp.internal.exp.JExpressionBuilder;
+import net.gcolin.server.jsp.internal.exp.NullSafeJExpression;
+import net.gcolin.server.jsp.internal.exp.ValueJExpression;
+import net.gcolin.server.jsp.internal.node.AssignNode;
+import net.gcolin.server.jsp.internal.node.BlockNode;
+import net.gcolin.server.jsp.internal.node.CodeNode;
+import net.gcolin.server.jsp.internal.node.HtmlMinifier;
+import net.gcolin.server.jsp.internal.node.JavaBuilder;
+import net.gcolin.server.jsp.internal.node.LocalNode;
+import net.gcolin.server.jsp.internal.node.Node;
+import net.gcolin.server.jsp.internal.node.OutputNode;
+import net.gcolin.server.jsp.internal.node.PageOptimizer;
+import net.gcolin.server.jsp.internal.node.TextNode;
 import net.gcolin.server.jsp.internal.tag.IncludeTagBuilder;
 import net.gcolin.server.jsp.internal.tag.JspEndIncludeTagBuilder;
 import net.gcolin.server.jsp.internal.tag.JspIncludeTagBuilder;
@@ -34,16 +48,19 @@ import net.gcolin.server.jsp.internal.tag.TagBuilder;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Type;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -56,37 +73,43 @@ import javax.servlet.http.HttpServletResponse;
 
 public class BuildContext {
 
+  /**
+   * The maximum size in bytes of a string constant in a class file.
+   */
+  private static final int MAX_CONSTANT = 65535;
+
   private Map<String, URL> scannedTaglib = new HashMap<>();
   private Deque<List<Var>> varStack = new ArrayDeque<>();
   private final Set<String> taglibPrefix = new HashSet<String>();
   private final Map<String, Expression> existingVars = new HashMap<>();
-  private StringBuilder java = new StringBuilder();
+  private final Map<String, String> members = new LinkedHashMap<>();
   private File file;
   private File rootfile;
-  private Deque<Fragment> javaService = new ArrayDeque<>();
-  private List<Fragment> fragments = new ArrayList<>();
+  private final BlockNode root = new BlockNode();
+  private Deque<BlockNode> blocks = new ArrayDeque<>();
   private StringBuilder out = new StringBuilder();
-  private StringBuilder exprTmp = new StringBuilder();
-  private StringBuilder tmp = new StringBuilder();
+  private StringBuilder pending = new StringBuilder();
   private Set<String> toClear = new HashSet<>();
   private Map<String, Expression> expressionBuilded = new HashMap<>();
+  private Set<String> readVars;
   private ClassLoader classLoader;
   private ServletContext servletContext;
   private String contentType;
-  private static final int STATE_DEFAULT = 0;
-  private static final int STATE_START_ELEMENT = 1;
-  private static final int STATE_COMMENT = 2;
-  private static final int STATE_EXPRESSION_START = 3;
-  private static final int STATE_EXPRESSION = 4;
+  private boolean minify;
+  private boolean minified;
 
   private final Router<TagBuilder> taglib = new Router<>();
-  private int state = STATE_DEFAULT;
   private boolean precBlanc;
-  private boolean precBlancTmp;
   private final String uri;
   private int anonymousVarIndex = 0;
   private int exprIndex = 0;
   private boolean written = false;
+  private final List<String> sources = new ArrayList<>();
+  private int source;
+  private int line = 1;
+  private int textSource;
+  private int textLine;
+  private Smap smap;
 
   private Map<String, String> attributes = new HashMap<String, String>();
 
@@ -100,6 +123,7 @@ public class BuildContext {
     this.uri = uri;
     this.classLoader = servletContext.getClassLoader();
     this.servletContext = servletContext;
+    sources.add(uri);
     // load jsp default taglib
     taglib.add(new JspPageTagBuilder());
     taglib.add(new JspTaglibTagBuider());
@@ -108,7 +132,7 @@ public class BuildContext {
     taglib.add(new JspParamTagBuilder());
     taglib.add(new IncludeTagBuilder());
 
-    javaService.offerLast(new Fragment());
+    blocks.offerLast(root);
     varStack.offerLast(new ArrayList<>());
     existingVars.put("request",
         new Expression("_c._r", HttpServletRequest.class, HttpServletRequest.class, false));
@@ -125,10 +149,27 @@ public class BuildContext {
     }
   }
 
+  public String getContentType() {
+    return contentType;
+  }
+
   public void setContentType(String contentType) {
     this.contentType = contentType;
   }
 
+  public boolean isMinify() {
+    return minify;
+  }
+
+  /**
+   * Minify the static HTML of the page at the Java generation.
+   * 
+   * @param minify {@code true} for removing the comments and the spaces around the block tags
+   */
+  public void setMinify(boolean minify) {
+    this.minify = minify;
+  }
+
   public Map<String, URL> getScannedTaglib() {
     return scannedTaglib;
   }
@@ -163,8 +204,8 @@ public class BuildContext {
     if (existingVars.containsKey(var.getName())) {
       return existingVars.get(var.getName());
     }
-    writeVariable(var);
     String value = buildExpressionName(var);
+    writeVariable(var);
 
     if (var.getVarType() != VarType.LOCAL && !var.getType().isPrimitive()) {
       toClear.add(var.getName());
@@ -174,13 +215,15 @@ public class BuildContext {
 
     Expression expr =
         new Expression(value, var.getType(), var.getGenericType(), !var.getType().isPrimitive());
+    expr.setVar(var);
+    expr.setTree(new ValueJExpression(expr, var.getName()));
     existingVars.put(var.getName(), expr);
     if (var.getVarType() == VarType.NONE || var.getVarType() == VarType.LOCAL) {
       varStack.peekLast().add(var);
     }
 
     if (var.isEager()) {
-      appendJavaService(expr.getJavaCall() + ";");
+      addNode(new AssignNode(expr.getJavaCall() + ";", null, null, expr, false));
     }
 
     return expr;
@@ -188,19 +231,48 @@ public class BuildContext {
 
   private void appendVar0(Var var) {
     if (var.getVarType() == VarType.APPLICATION_ATTRIBUTE) {
-      appendJava(generateLazyGetter(var, "_r.getServetContext().getAttribute(\"", false));
+      appendMember(Reflect.getGetterStdName(var.getName()), generateLazyGetter(var,
+          "_r.getServletContext().getAttribute(\"" + var.getName() + "\")"));
     } else if (var.getVarType() == VarType.REQUEST_ATTRIBUTE) {
-      appendJava(generateLazyGetter(var, "_r.getAttribute(\"", false));
+      appendSlot(var);
     } else if (var.getVarType() == VarType.SESSION_ATTRIBUTE) {
       appendSessionVariable(var);
     } else if (var.getVarType() == VarType.BEAN) {
-      appendJava(generateLazyGetter(var,
-          "((java.util.function.BiFunction<String,java.lang.reflect.Type,Object>)"
-              + "_r.getServletContext().getAttribute(\"inject\")).apply(\"",
-          true));
+      appendInject();
+      appendMember(Reflect.getGetterStdName(var.getName()), generateLazyGetter(var,
+          "_inject().apply(\"" + var.getName() + "\"," + var.getClassString() + ".class)"));
     }
   }
 
+  /**
+   * Append the getter of the inject function, resolved once for all the requests of the page. The
+   * beans are resolved by the function at each request, so their scope is kept.
+   */
+  private void appendInject() {
+    String type = "java.util.function.BiFunction<String,java.lang.reflect.Type,Object>";
+    appendMember("_inject", "        private static volatile " + type + " _injectShared;\n\n"
+        + "        private " + type + " _inject(){\n"
+        + "            " + type + " v = _injectShared;\n"
+        + "            if(v == null){\n"
+        + "                v = (" + type + ")_r.getServletContext().getAttribute(\"inject\");\n"
+        + "                _injectShared = v;\n"
+        + "            }\n            return v;\n        }");
+  }
+
+  private void appendSlot(Var var) {
+    appendMember("_slots", "        private net.gcolin.server.jsp.AttributeSlots _slotValues;\n\n"
+        + "        private net.gcolin.server.jsp.AttributeSlots _slots(){\n"
+        + "            if(_slotValues == null){\n"
+        + "                _slotValues = net.gcolin.server.jsp.AttributeSlots.of(_r);\n"
+        + "            }\n            return _slotValues;\n        }");
+    String slot = "_" + var.getName() + "Slot";
+    appendMember(slot, "        private static final net.gcolin.server.jsp.AttributeSlot<"
+        + var.getClassString() + "> " + slot
+        + " = net.gcolin.server.jsp.AttributeSlot.of(\"" + var.getName() + "\");");
+    appendMember(Reflect.getGetterStdName(var.getName()),
+        generateLazyGetter(var, "_slots().get(" + slot + ",_r)"));
+  }
+
   private void appendSessionVariable(Var var) {
     if (var.getType() == Locale.class && "locale".equals(var.getName())) {
       StringBuilder str = new StringBuilder();
@@ -219,17 +291,19 @@ public class BuildContext {
       str.append(var.getName()).append(" = java.util.Locale.getDefault();\n                }");
       str.append("\n            }\n            return ");
       str.append(var.getName()).append(";\n        }");
-      appendJava(str.toString());
+      appendMember(Reflect.getGetterStdName(var.getName()), str.toString());
     } else {
-      appendJava(generateLazyGetter(var, "_r.getSession().getAttribute(\"", false));
+      appendMember(Reflect.getGetterStdName(var.getName()), generateLazyGetter(var,
+          "_r.getSession().getAttribute(\"" + var.getName() + "\")"));
     }
   }
 
   private void writeVariable(Var var) {
     if (var.getVarType() == VarType.LOCAL) {
-      appendJavaService(var.getClassString() + " " + var.getName() + ";");
+      addNode(new LocalNode(var.getName(), var.getClassString(), null));
     } else if (var.getVarType() != VarType.NONE) {
-      appendJava("        private " + var.getClassString() + " " + var.getName() + ";");
+      appendMember(var.getName(),
+          "        private " + var.getClassString() + " " + var.getName() + ";");
     }
   }
 
@@ -246,7 +320,7 @@ public class BuildContext {
     return value;
   }
 
-  private String generateLazyGetter(Var var, String getter, boolean withType) {
+  private String generateLazyGetter(Var var, String value) {
     StringBuilder str = new StringBuilder();
     str.append("        private ");
     str.append(var.getClassString());
@@ -255,11 +329,8 @@ public class BuildContext {
     str.append("{\n            if(").append(var.getName());
     str.append(" == null){\n                ");
     str.append(var.getName()).append(" = (").append(var.getClassString()).append(")");
-    str.append(getter).append(var.getName()).append('"');
-    if (withType) {
-      str.append(',').append(var.getClassString()).append(".class");
-    }
-    str.append(");\n            }\n            return ");
+    str.append(value);
+    str.append(";\n            }\n            return ");
     str.append(var.getName()).append(";\n        }");
     return str.toString();
   }
@@ -274,6 +345,9 @@ public class BuildContext {
     if (!existingVars.containsKey(name)) {
       throw new IllegalArgumentException("variable " + name + " does not exist");
     }
+    if (readVars != null) {
+      readVars.add(name);
+    }
     return existingVars.get(name);
   }
 
@@ -289,7 +363,10 @@ public class BuildContext {
     } else if (expr.contains("${")) {
       return buildCompositeExpression(expr);
     } else {
-      return new Expression("\"" + expr + "\"", String.class, String.class, false);
+      Expression expression =
+          new Expression("\"" + expr + "\"", String.class, String.class, false);
+      expression.setTree(new ConstantJExpression(expr));
+      return expression;
     }
   }
 
@@ -297,15 +374,21 @@ public class BuildContext {
     int prec = 0;
     int idx = 0;
     StringBuilder sb = new StringBuilder();
+    CompositeStringJExpression tree = new CompositeStringJExpression();
+    Set<String> variables = new HashSet<>();
     while ((idx = expr.indexOf("${", prec)) != -1) {
       if (sb.length() > 0) {
         sb.append('+');
       }
       if (idx - prec > 0) {
         sb.append('\"').append(expr.substring(prec, idx)).append("\"+");
+        tree.add(new ConstantJExpression(expr.substring(prec, idx)));
       }
       int end = expr.indexOf('}', idx);
-      sb.append(buildeL(expr.substring(idx + 2, end)).getJavaCall());
+      Expression part = buildeL(expr.substring(idx + 2, end));
+      sb.append(part.getJavaCall());
+      tree.add(part.getTree());
+      variables.addAll(part.getVariables());
       prec = end + 1;
     }
     if (prec < expr.length()) {
@@ -313,8 +396,12 @@ public class BuildContext {
         sb.append('+');
       }
       sb.append('\"').append(expr.substring(prec)).append('\"');
+      tree.add(new ConstantJExpression(expr.substring(prec)));
     }
-    return new Expression(sb.toString(), String.class, String.class, false);
+    Expression expression = new Expression(sb.toString(), String.class, String.class, false);
+    expression.setTree(tree);
+    expression.setVariables(variables);
+    return expression;
   }
 
   /**
@@ -326,15 +413,30 @@ public class BuildContext {
   public Expression buildeL(String expr) {
     Expression prec = expressionBuilded.get(expr);
     if (prec != null) {
+      if (readVars != null) {
+        readVars.addAll(prec.getVariables());
+      }
       return prec;
     }
 
-    JExpression str = new JExpressionBuilder().build(expr, this);
+    Set<String> parentReadVars = readVars;
+    readVars = new HashSet<>();
+    JExpression str;
+    Set<String> variables = readVars;
+    try {
+      str = new JExpressionBuilder().build(expr, this);
+    } finally {
+      readVars = parentReadVars;
+    }
+    if (readVars != null) {
+      readVars.addAll(variables);
+    }
     String strString = str.toString();
 
     Expression expression;
     if (str.nullable() && !str.mustbeLocal()) {
-      appendJava("        private " + Reflect.toJavaClass(str.getGenericType()) + " expression"
+      appendMember("expression" + exprIndex, "        private "
+          + Reflect.toJavaClass(str.getGenericType()) + " expression"
           + exprIndex + "(){\n            try{\n                "
           + Reflect.toJavaClass(str.getGenericType()) + " v = " + strString.replaceAll("_c\\.", "")
           + ";\n                "
@@ -344,10 +446,13 @@ public class BuildContext {
           + getDefaultValue(str.getType()) + ";\n            }\n        }");
       expression = new Expression("_c.expression" + (exprIndex++) + "()",
           Reflect.toClass(str.getGenericType()), str.getGenericType(), false);
+      expression.setTree(new NullSafeJExpression(str, getDefault(str.getType())));
     } else {
       expression = new Expression(strString, Reflect.toClass(str.getGenericType()),
           str.getGenericType(), str.nullable());
+      expression.setTree(str);
     }
+    expression.setVariables(variables);
     expressionBuilded.put(expr, expression);
 
     return expression;
@@ -371,6 +476,27 @@ public class BuildContext {
     return dvalue;
   }
 
+  /**
+   * Get the value of {@link #getDefaultValue(Type)} for the interpreter.
+   */
+  private Object getDefault(Type current) {
+    Object dvalue = null;
+    if (current == String.class) {
+      dvalue = "";
+    } else if (current == Boolean.class || current == boolean.class) {
+      dvalue = false;
+    } else if (isLong(current)) {
+      dvalue = 0L;
+    } else if (isDouble(current)) {
+      dvalue = 0.0;
+    } else if (isFloat(current)) {
+      dvalue = 0f;
+    } else if (isNumber(current)) {
+      dvalue = 0;
+    }
+    return dvalue;
+  }
+
   private boolean isNumber(Type current) {
     return Util.load(Number.class, this)
         .isAssignableFrom(Reflect.toNonPrimitiveEquivalent(Reflect.toClass(current)));
@@ -404,167 +530,124 @@ public class BuildContext {
   }
 
   /**
-   * Enter in a JsPFragment.
+   * Add a node in the current block.
    * 
-   * @param var the suffix name of the fragment
-   * @param isTag isTag
-   * @return the fragment name
+   * @param node a node
    */
-  public String pushFragment(String var, boolean isTag) {
-    Fragment fragment = new Fragment();
-    fragment.name = "f" + var;
-    fragment.var = var;
-    fragment.indent++;
-    fragment.tag = isTag;
-    fragments.add(fragment);
-    javaService.offerLast(fragment);
-    return fragment.name;
-  }
-
-  public boolean isInFragment() {
-    return javaService.size() > 1;
-  }
-
-  public String popFragment() {
-    return javaService.pollLast().var;
+  public void addNode(Node node) {
+    if (node.getLine() == 0) {
+      node.setLocation(source, line);
+    }
+    blocks.peekLast().add(node);
   }
 
   /**
-   * Increment tabulation.
+   * Add a block in the current block and enter in it. The variables declared in the block are
+   * removed when the block is closed.
+   * 
+   * @param block a block
    */
-  public void incrTab() {
-    javaService.peekLast().indent++;
+  public void openBlock(BlockNode block) {
+    addNode(block);
+    blocks.offerLast(block);
     varStack.offerLast(new ArrayList<>());
   }
 
   /**
-   * Decrement tabulation.
+   * Exit the current block.
+   * 
+   * @return the closed block
    */
-  public void decrTab() {
-    javaService.peekLast().indent--;
+  public BlockNode closeBlock() {
+    if (blocks.size() == 1) {
+      throw new JspRuntimeException("unexpected end tag in " + uri);
+    }
+    BlockNode block = blocks.pollLast();
     for (Var v : varStack.pollLast()) {
       existingVars.remove(v.getName());
+      block.getLocals().add(v.getName());
+      block.getDeclared().add(v.getName());
     }
-  }
-
-  public void appendJava(String line) {
-    java.append(line).append("\n\n");
+    blocks.peekLast().getLocals().addAll(block.getLocals());
+    blocks.peekLast().getDeclared().addAll(block.getDeclared());
+    return block;
   }
 
   /**
-   * Add a Java line.
+   * Notify that a variable is assigned in the current block.
    * 
-   * @param line java code
+   * @param name variable name
    */
-  public void appendJavaService(String line) {
-    appendTab();
-    javaService.peekLast().str.append(line).append('\n');
+  public void assignVariable(String name) {
+    blocks.peekLast().getLocals().add(name);
   }
 
-  public Fragment getFragment() {
-    return javaService.peekLast();
+  public BlockNode getBlock() {
+    return blocks.peekLast();
   }
 
   /**
-   * Get the last Fragment with a tag.
+   * Add a member to the Context class. The member is written only if its name is used.
    * 
-   * @return a fragment
+   * @param name the name of the member
+   * @param code the Java code of the member
    */
-  public Fragment getTagFragment() {
-    Iterator<Fragment> it = javaService.descendingIterator();
-    while (it.hasNext()) {
-      Fragment fragment = it.next();
-      if (fragment.tag) {
-        return fragment;
-      }
-    }
-    return null;
+  public void appendMember(String name, String code) {
+    members.put(name, code);
   }
 
   /**
-   * Get the last Fragment with a jsptag.
+   * Add a Java line.
    * 
-   * @return a fragment
-   */
-  public Fragment getJspTagFragment() {
-    Iterator<Fragment> it = javaService.descendingIterator();
-    while (it.hasNext()) {
-      Fragment fragment = it.next();
-      if (fragment.var != null) {
-        return fragment;
-      }
-    }
-    return null;
-  }
-
-  /**
-   * Append a tabulation.
+   * @param line java code
+   * @param expressions the expressions used in the line
    */
-  public void appendTab() {
-    for (int i = 0; i < javaService.peekLast().indent; i++) {
-      javaService.peekLast().str.append("    ");
+  public void appendJavaService(String line, Expression... expressions) {
+    CodeNode node = new CodeNode(line);
+    for (Expression expression : expressions) {
+      node.getVariables().addAll(expression.getVariables());
     }
-  }
-
-  public void appendJavaPartial(String line) {
-    javaService.peekLast().str.append(line);
+    addNode(node);
   }
 
   private void flushOut() {
     if (out.length() > 0) {
+      TextNode text = new TextNode(out.toString());
+      text.setLocation(textSource, textLine);
+      addNode(text);
       precBlanc = false;
-      StringBuilder sb = new StringBuilder(out.length() + 10);
-      for (int i = 0; i < out.length(); i++) {
-        char ch = out.charAt(i);
-        if (ch == '"') {
-          sb.append("\\\"");
-        } else if (ch == '\\') {
-          sb.append("\\\\");
-        } else if (ch == ' ' && sb.length() > 11 && sb.indexOf("//<![CDATA[") == sb.length() - 11) {
-          sb.append("\\n");
-        } else {
-          sb.append(ch);
-        }
-      }
-      String ss = sb.toString();
-      precBlanc = false;
-      appendJavaService("_w.write(\"" + ss + "\");");
-
       out.setLength(0);
     }
   }
 
-  private void appendTmp(char ch) {
-    if (ch == '\r') {
-      return;
-    }
-    if (Strings.isBlank(ch)) {
-      if (!precBlancTmp) {
-        precBlancTmp = true;
-        tmp.append(' ');
+  private void append(char[] buf, int start, int end) {
+    markText();
+    int run = start;
+    for (int i = start; i < end; i++) {
+      char ch = buf[i];
+      if (ch == '\r' || Strings.isBlank(ch)) {
+        if (run < i) {
+          out.append(buf, run, i - run);
+        }
+        run = i + 1;
+        if (ch != '\r' && written && !precBlanc) {
+          precBlanc = true;
+          out.append(' ');
+        }
+      } else {
+        precBlanc = false;
+        written = true;
       }
-    } else {
-      precBlancTmp = false;
-      tmp.append(ch == '\n' ? "\\n" : ch);
+    }
+    if (run < end) {
+      out.append(buf, run, end - run);
     }
   }
 
-  private void append(char ch) {
-    if (ch == '\r') {
-      return;
-    }
-    if (Strings.isBlank(ch)) {
-      if (!written) {
-        return;
-      }
-      if (!precBlanc) {
-        precBlanc = true;
-        out.append(' ');
-      }
-    } else {
-      precBlanc = false;
-      written = true;
-      out.append(ch == '\n' ? "\\n" : ch);
+  private void markText() {
+    if (out.length() == 0) {
+      textSource = source;
+      textLine = line;
     }
   }
 
@@ -573,148 +656,159 @@ public class BuildContext {
   }
 
   /**
-   * Write a char from the JSP.
+   * Write a char from the JSP. The chars are buffered until the Java generation.
    * 
    * @param ch a char
    */
   public void write(char ch) {
-    if (state == STATE_DEFAULT) {
-      writeDefault(ch);
-    } else if (state == STATE_START_ELEMENT) {
-      writeStartElement(ch);
-    } else if (state == STATE_COMMENT) {
-      writeComment(ch);
-    } else if (state == STATE_EXPRESSION_START) {
-      if (ch == '{') {
-        state = STATE_EXPRESSION;
-        flushOut();
-      } else {
-        state = STATE_DEFAULT;
-        append('$');
-        append(ch);
-      }
-    } else if (state == STATE_EXPRESSION) {
-      writeExpression(ch);
-    }
-  }
-
-  private void writeExpression(char ch) {
-    if (ch == '}') {
-      Expression expr = buildeL(exprTmp.toString());
-      String jc = expr.getJavaCall();
-      if (expr.getType() == Void.TYPE) {
-        appendJavaService(jc + ";");
-      } else if (expr.isNullable()) {
-        appendJavaService("try{");
-        incrTab();
-        appendJavaService("_w.write(String.valueOf(" + jc + "));");
-        decrTab();
-        appendJavaService("}catch(NullPointerException ex){}");
-      } else if (expr.getType() == String.class) {
-        appendJavaService("_w.write(" + expr.getJavaCall() + ");");
-      } else if (expr.getType().isPrimitive()) {
-        appendJavaService("_w.write(String.valueOf(" + expr.getJavaCall() + "));");
-      } else {
-        appendJavaService("_w.write(" + expr.getJavaCall() + ".toString());");
-      }
-      exprTmp.setLength(0);
-      precBlanc = false;
-      state = STATE_DEFAULT;
-    } else {
-      exprTmp.append(ch);
-    }
-  }
-
-  private void writeComment(char ch) {
-    if (ch == '>' && tmp.charAt(tmp.length() - 1) == '%' && tmp.charAt(tmp.length() - 2) == '-'
-        && tmp.charAt(tmp.length() - 3) == '-') {
-      if (tmp.indexOf("%-- var ") == 0) {
-        int index = tmp.indexOf("=");
-        String name = tmp.substring(8, index).trim();
-        int as = tmp.indexOf("as", index);
-        String clazzString = tmp.substring(as + 2, tmp.length() - 3).trim();
-        try {
-          Type clazz = Reflect.parseAsGeneric(clazzString, classLoader, 0, clazzString.length());
-          String ts = tmp.substring(index + 1, as).trim();
-          boolean eager = false;
-          if (ts.endsWith("_EAGER")) {
-            eager = true;
-            ts = ts.substring(0, ts.length() - 6);
-          }
-          Var.VarType type = Var.VarType.valueOf(ts);
-          Var val = new Var(name, type, Reflect.toClass(clazz), clazz);
-          val.setEager(eager);
-          appendVariable(val);
-        } catch (ClassNotFoundException ex) {
-          throw new JspRuntimeException(ex);
-        }
-      }
-      tmp.setLength(0);
-      state = STATE_DEFAULT;
-    } else {
-      appendTmp(ch);
-    }
-  }
-
-  private void writeStartElement(char ch) {
-    if (ch == '-' && tmp.length() == 2 && tmp.indexOf("%-") == 0) {
-      state = STATE_COMMENT;
-      appendTmp(ch);
-    } else if (ch == '<') {
-      if (tmp.length() > 0) {
-        precBlancTmp = false;
-        out.append('<');
-        state = STATE_DEFAULT;
-        String str = tmp.toString();
-        tmp.setLength(0);
-        for (int i = 0; i < str.length(); i++) {
-          write(str.charAt(i));
+    pending.append(ch);
+  }
+
+  /**
+   * Parse a JSP content.
+   * 
+   * @param buf a buffer
+   * @param off the first char to parse
+   * @param len the number of chars to parse
+   */
+  public void parse(char[] buf, int off, int len) {
+    parse(new JspLexer(buf, off, len));
+  }
+
+  /**
+   * Parse a JSP content.
+   * 
+   * @param lexer a lexer on the JSP content
+   */
+  public void parse(JspLexer lexer) {
+    char[] buf = lexer.getBuffer();
+    int scanned = lexer.getPosition();
+    int token;
+    while ((token = lexer.next()) != JspLexer.END) {
+      for (; scanned < lexer.getStart(); scanned++) {
+        if (buf[scanned] == '\n') {
+          line++;
         }
-        state = STATE_START_ELEMENT;
       }
-    } else if (ch == '>') {
-      String element = tmp.toString();
-      String path = getPath(element);
-      TagBuilder builder = taglib.getResource(path);
-      if (builder != null) {
-        tmp.setLength(0);
+      if (token == JspLexer.TEXT) {
+        append(buf, lexer.getStart(), lexer.getEnd());
+      } else if (token == JspLexer.EXPRESSION) {
         flushOut();
-        boolean standalone = false;
-        String pa = null;
-        if (element.endsWith("/")) {
-          pa = element.substring(builder.getPath().length(), element.length() - 1);
-          standalone = true;
-        } else {
-          pa = element.substring(builder.getPath().length());
+        writeExpression(lexer.getValue());
+        precBlanc = false;
+      } else if (token == JspLexer.COMMENT) {
+        writeComment(collapse(buf, lexer.getStart(), lexer.getEnd()));
+        precBlanc = false;
+      } else if (token == JspLexer.ELEMENT) {
+        writeElement(collapse(buf, lexer.getStart(), lexer.getEnd()));
+        precBlanc = false;
+      }
+    }
+  }
+
+  /**
+   * Parse the content of a static include. The nodes are located in the included file.
+   * 
+   * @param path the path of the included file
+   * @param content the content of the included file
+   */
+  public void include(String path, char[] content) {
+    int parentSource = source;
+    int parentLine = line;
+    int index = sources.indexOf(path);
+    if (index == -1) {
+      index = sources.size();
+      sources.add(path);
+    }
+    source = index;
+    line = 1;
+    try {
+      parse(content, 0, content.length);
+    } finally {
+      source = parentSource;
+      line = parentLine;
+    }
+  }
+
+  private String collapse(char[] buf, int start, int end) {
+    StringBuilder str = new StringBuilder(end - start);
+    boolean blanc = false;
+    for (int i = start; i < end; i++) {
+      char ch = buf[i];
+      if (ch == '\r') {
+        continue;
+      }
+      if (Strings.isBlank(ch)) {
+        if (!blanc) {
+          blanc = true;
+          str.append(' ');
         }
-        builder.build(element, Var.params(pa), this, standalone);
       } else {
-        out.append('<');
-        String str = tmp.toString();
-        tmp.setLength(0);
-        state = STATE_DEFAULT;
-        for (int i = 0; i < str.length(); i++) {
-          write(str.charAt(i));
-        }
-        out.append('>');
+        blanc = false;
+        str.append(ch);
       }
+    }
+    return str.toString();
+  }
 
-      precBlanc = false;
-      state = STATE_DEFAULT;
-    } else {
-      appendTmp(ch);
+  private void writeExpression(String el) {
+    addNode(new OutputNode(buildeL(el)));
+  }
+
+  private void writeComment(String comment) {
+    if (comment.startsWith("%-- var ") && comment.endsWith("--%")) {
+      int index = comment.indexOf('=');
+      String name = comment.substring(8, index).trim();
+      int as = comment.indexOf("as", index);
+      String clazzString = comment.substring(as + 2, comment.length() - 3).trim();
+      try {
+        Type clazz = Reflect.parseAsGeneric(clazzString, classLoader, 0, clazzString.length());
+        String ts = comment.substring(index + 1, as).trim();
+        boolean eager = false;
+        if (ts.endsWith("_EAGER")) {
+          eager = true;
+          ts = ts.substring(0, ts.length() - 6);
+        }
+        Var.VarType type = Var.VarType.valueOf(ts);
+        Var val = new Var(name, type, Reflect.toClass(clazz), clazz);
+        val.setEager(eager);
+        appendVariable(val);
+      } catch (ClassNotFoundException ex) {
+        throw new JspRuntimeException(ex);
+      }
     }
   }
 
-  private void writeDefault(char ch) {
-    if (ch == '<') {
-      state = STATE_START_ELEMENT;
-      precBlanc = false;
-    } else if (ch == '$') {
-      state = STATE_EXPRESSION_START;
-      precBlanc = false;
+  private void writeElement(String element) {
+    String path = getPath(element);
+    TagBuilder builder = taglib.getResource(path);
+    if (builder != null) {
+      flushOut();
+      boolean standalone = false;
+      String pa = null;
+      if (element.endsWith("/")) {
+        pa = element.substring(builder.getPath().length(), element.length() - 1);
+        standalone = true;
+      } else {
+        pa = element.substring(builder.getPath().length());
+      }
+      builder.build(element, Var.params(pa), this, standalone);
     } else {
-      append(ch);
+      markText();
+      out.append('<');
+      char[] content = element.toCharArray();
+      JspLexer lexer = new JspLexer(content, 0, content.length, true);
+      int token;
+      while ((token = lexer.next()) != JspLexer.END) {
+        if (token == JspLexer.TEXT) {
+          append(content, lexer.getStart(), lexer.getEnd());
+        } else {
+          flushOut();
+          writeExpression(lexer.getValue());
+          precBlanc = false;
+        }
+      }
+      out.append('>');
     }
   }
 
@@ -726,26 +820,96 @@ public class BuildContext {
     return element.endsWith("/") ? element.substring(0, element.length() - 1) : element;
   }
 
-  public static class Fragment {
-    public String name;
-    public String var;
-    public int indent = 2;
-    public boolean tag;
-    public StringBuilder str = new StringBuilder();
+  private void finish() {
+    if (pending.length() > 0) {
+      char[] content = new char[pending.length()];
+      pending.getChars(0, content.length, content, 0);
+      pending.setLength(0);
+      parse(content, 0, content.length);
+    }
+    flushOut();
+  }
+
+  /**
+   * Get the page model for the interpreter, without the optimizations of the Java generation.
+   * 
+   * @return the root node
+   */
+  public BlockNode getModel() {
+    finish();
+    if (minify && !minified) {
+      new HtmlMinifier().minify(root);
+      minified = true;
+    }
+    return root;
   }
 
   public String getName() {
-    return getUri().replaceAll("[\\\\/\\.-]", "_");
+    return toClassName(getUri());
   }
 
   /**
-   * Transform to Java.
+   * Get the name of the class generated for a JSP.
+   * 
+   * @param uri the path of the JSP
+   * @return the class name
+   */
+  public static String toClassName(String uri) {
+    return uri.replaceAll("[\\\\/\\.-]", "_");
+  }
+
+  /**
+   * Transform to Java. The {@link Smap} of the JSP lines is kept in a constant of the servlet.
    * 
    * @param writer writer
    * @throws IOException if an I/O error occurs.
    */
   public void toJava(Writer writer) throws IOException {
-    flushOut();
+    StringWriter code = new StringWriter();
+    writeClass(code);
+    StringBuilder java = new StringBuilder(code.getBuffer().length());
+    smap = Smap.extract(getName() + ".java", sources, code.getBuffer(), java);
+    writer.write(java.toString());
+    String text = smap.toString();
+    if (text.getBytes(StandardCharsets.UTF_8).length < MAX_CONSTANT) {
+      writer.write("    public static final String " + Smap.FIELD + " = \"");
+      writer.write(Strings.encodeJava(text));
+      writer.write("\";\n");
+    } else {
+      Logs.LOG.log(Level.FINE, "the SMAP of {0} is too large for a constant", uri);
+    }
+    writer.write("}");
+  }
+
+  /**
+   * Get the source map of the last Java generation.
+   * 
+   * @return the map or {@code null} before {@link #toJava(Writer)}
+   */
+  public Smap getSmap() {
+    return smap;
+  }
+
+  private void writeClass(Writer writer) throws IOException {
+    finish();
+    new PageOptimizer(this).optimize(root);
+    if (minify && !minified) {
+      new HtmlMinifier().minify(root);
+    }
+    JavaBuilder service = new JavaBuilder(2);
+    root.toJava(service);
+    StringBuilder body = new StringBuilder(service.toString());
+    for (String method : service.getMethods()) {
+      body.append(method);
+    }
+    for (JavaBuilder.Fragment f : service.getFragments()) {
+      body.append(f.getCode());
+      for (String method : f.getMethods()) {
+        body.append(method);
+      }
+    }
+    Collection<String> used = PageOptimizer.usedMembers(members, body);
+
     writer.write("@SuppressWarnings(\"unchecked\") public class ");
     writer.write(getName());
     writer.write(" implements javax.servlet.Servlet {\n\n");
@@ -753,28 +917,40 @@ public class BuildContext {
     writer.write("        private javax.servlet.http.HttpServletRequest _r;\n");
     writer.write("        private javax.servlet.http.HttpServletResponse _re;\n");
     writer.write("        private net.gcolin.server.jsp.JspContextFacade _context;\n");
-    writer.write(java.toString());
+    for (Map.Entry<String, String> member : members.entrySet()) {
+      if (used.contains(member.getKey())) {
+        writer.write(member.getValue());
+        writer.write("\n\n");
+      }
+    }
     writer.write("    }\n");
     writer.write("    private javax.servlet.ServletConfig _config;\n");
     writer.write("    public javax.servlet.ServletConfig getServletConfig(){return _config;}\n");
     writer.write("    public void init(javax.servlet.ServletConfig config) {_config=config;}\n");
     writer.write("    public void destroy(){}\n");
     writer.write("    public String getServletInfo(){return \"jspsevlet of " + getUri() + "\";}\n");
-    for (Fragment f : fragments) {
+    for (JavaBuilder.Fragment f : service.getFragments()) {
       writer.write("    private class ");
-      writer.write(f.name);
+      writer.write(f.getName());
       writer.write(" extends javax.servlet.jsp.tagext.JspFragment {\n");
       writer.write("        private Context _c;\n");
       writer.write("        public ");
-      writer.write(f.name);
+      writer.write(f.getName());
       writer.write(" (Context c){this._c=c;}\n");
       writer.write("        public javax.servlet.jsp.JspContext getJspContext()"
           + "{return _c._context;}\n");
       writer.write("        public void invoke(java.io.Writer _w) "
           + "throws javax.servlet.jsp.JspException,java.io.IOException{\n"
           + "            _c._context.pushWriter(_w);\n");
-      writer.write(f.str.toString());
-      writer.write("            _c._context.popWriter();\n        }\n    }\n");
+      writer.write(f.getCode());
+      writer.write("            _c._context.popWriter();\n        }\n");
+      for (String method : f.getMethods()) {
+        writer.write(method);
+      }
+      writer.write("    }\n");
+    }
+    for (String method : service.getMethods()) {
+      writer.write(method);
     }
     writer.write("    public void service(javax.servlet.ServletRequest req,"
         + " javax.servlet.ServletResponse res) throws "
@@ -791,9 +967,9 @@ public class BuildContext {
         "        _c._context = new net.gcolin.server.jsp.JspContextFacade(_c._r,_c._re,this);\n");
     writer.write("        try{\n");
     writer.write("        java.io.Writer _w = _c._context.getOut();\n");
-    writer.write(javaService.peekLast().str.toString());
+    writer.write(service.toString());
     writer.write("        _w.flush();\n        } finally {\n"
-        + "        _c._context.release();\n        }\n    }\n}");
+        + "        _c._context.release();\n        }\n    }\n");
   }
 
   public File getFile() {
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import net.gcolin.server.jsp.Logs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import javax.servlet.ServletException;
+import javax.servlet.UnavailableException;
+
+/**
+ * Run the compilations of the JSP on a bounded number of threads. The requests of a JSP waiting for
+ * its compilation share the same task, and the most requested JSP are compiled first. A request is
+ * rejected with an {@link UnavailableException} when too many requested JSP wait for a compilation
+ * or when it waits too long.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CompileScheduler {
+
+  private static final String STOPPED = "the JSP servlet is stopped";
+  private final Map<String, Task> tasks = new HashMap<>();
+  private final List<Task> queue = new ArrayList<>();
+  private final Thread[] workers;
+  private final int maxQueued;
+  private final long timeout;
+  private final int retryAfter;
+  private boolean closed;
+
+  /**
+   * Create a CompileScheduler.
+   *
+   * @param threads the number of compilation threads
+   * @param maxQueued the maximum number of requested JSP waiting for a compilation
+   * @param timeout the maximum waiting time of a request in seconds
+   * @param retryAfter the delay in seconds given to the rejected clients
+   */
+  public CompileScheduler(int threads, int maxQueued, long timeout, int retryAfter) {
+    this.maxQueued = maxQueued;
+    this.timeout = timeout;
+    this.retryAfter = retryAfter;
+    workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread(this::work, "jsp-compiler-" + i);
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+  }
+
+  /**
+   * Run a compilation and wait for its result. If the compilation of the same JSP is already
+   * scheduled, wait for it instead.
+   *
+   * @param key the path of the JSP
+   * @param job the compilation
+   * @param <T> the type of the result
+   * @return the result of the compilation
+   * @throws IOException if the compilation fails with an I/O error.
+   * @throws ServletException if the compilation fails, or an {@link UnavailableException} if the
+   *         scheduler is overloaded
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T await(String key, Callable<T> job) throws IOException, ServletException {
+    Task task;
+    synchronized (this) {
+      if (closed) {
+        throw new UnavailableException(STOPPED);
+      }
+      task = tasks.get(key);
+      if (task == null) {
+        if (awaited() >= maxQueued) {
+          throw new UnavailableException("too many JSP to compile", retryAfter);
+        }
+        task = schedule(key, job);
+      }
+      task.awaited = true;
+      task.hits++;
+    }
+    try {
+      return (T) task.result.get(timeout, TimeUnit.SECONDS);
+    } catch (TimeoutException ex) {
+      throw new UnavailableException("the compilation of " + key + " is too long", retryAfter);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ServletException(ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof ServletException) {
+        throw (ServletException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ServletException(cause);
+    }
+  }
+
+  /**
+   * Run a compilation without waiting for it. The job handles its result and its errors. The
+   * compilations in the background are not limited by the maximum number of waiting JSP.
+   *
+   * @param key the path of the JSP
+   * @param job the compilation
+   * @return the result of the job, completed with an {@link UnavailableException} if the scheduler
+   *         is stopped before running it, or {@code null} if the JSP is already scheduled or the
+   *         scheduler is stopped and the job is ignored
+   */
+  public synchronized CompletableFuture<?> submit(String key, Callable<?> job) {
+    if (closed || tasks.containsKey(key)) {
+      return null;
+    }
+    return schedule(key, job).result;
+  }
+
+  /**
+   * Count a request of a JSP served while its compilation is waiting, for compiling the most
+   * requested JSP first.
+   *
+   * @param key the path of the JSP
+   */
+  public synchronized void hit(String key) {
+    Task task = tasks.get(key);
+    if (task != null) {
+      task.hits++;
+    }
+  }
+
+  /**
+   * Stop the threads. The waiting compilations are cancelled and the next ones are rejected.
+   */
+  public synchronized void shutdown() {
+    closed = true;
+    for (Task task : queue) {
+      task.result.completeExceptionally(new UnavailableException(STOPPED));
+    }
+    queue.clear();
+    tasks.clear();
+    notifyAll();
+  }
+
+  /**
+   * Check if the scheduler is stopped.
+   *
+   * @return {@code true} after {@link #shutdown()}
+   */
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  private int awaited() {
+    int nb = 0;
+    for (int i = 0; i < queue.size(); i++) {
+      if (queue.get(i).awaited) {
+        nb++;
+      }
+    }
+    return nb;
+  }
+
+  private Task schedule(String key, Callable<?> job) {
+    Task task = new Task(key, job);
+    tasks.put(key, task);
+    queue.add(task);
+    notify();
+    return task;
+  }
+
+  private synchronized Task next() throws InterruptedException {
+    while (queue.isEmpty() && !closed) {
+      wait();
+    }
+    if (closed) {
+      return null;
+    }
+    Task next = queue.get(0);
+    for (int i = 1; i < queue.size(); i++) {
+      if (queue.get(i).hits > next.hits) {
+        next = queue.get(i);
+      }
+    }
+    queue.remove(next);
+    return next;
+  }
+
+  private void work() {
+    try {
+      Task task;
+      while ((task = next()) != null) {
+        try {
+          task.result.complete(task.job.call());
+        } catch (Exception ex) {
+          task.result.completeExceptionally(ex);
+        } catch (Error ex) {
+          Logs.LOG.log(Level.SEVERE, "cannot compile " + task.key, ex);
+          task.result.completeExceptionally(ex);
+        } finally {
+          synchronized (this) {
+            tasks.remove(task.key, task);
+          }
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A scheduled compilation.
+   */
+  private static final class Task {
+
+    private final String key;
+    private final Callable<?> job;
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+    private int hits;
+    private boolean awaited;
+
+    private Task(String key, Callable<?> job) {
+      this.key = key;
+      this.job = job;
+    }
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * A response that counts the characters written by its writer and the bytes written by its
+ * output stream.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CountingResponse extends HttpServletResponseWrapper {
+
+  private long count;
+  private PrintWriter writer;
+  private ServletOutputStream stream;
+
+  public CountingResponse(HttpServletResponse response) {
+    super(response);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public PrintWriter getWriter() throws IOException {
+    if (writer == null) {
+      writer = new PrintWriter(new FilterWriter(super.getWriter()) {
+
+        @Override
+        public void write(int ch) throws IOException {
+          count++;
+          out.write(ch);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+          count += len;
+          out.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+          count += len;
+          out.write(str, off, len);
+        }
+      });
+    }
+    return writer;
+  }
+
+  @Override
+  public ServletOutputStream getOutputStream() throws IOException {
+    if (stream == null) {
+      ServletOutputStream delegate = super.getOutputStream();
+      stream = new ServletOutputStream() {
+
+        @Override
+        public void write(int by) throws IOException {
+          count++;
+          delegate.write(by);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) throws IOException {
+          count += len;
+          delegate.write(buf, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+          delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+          delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+          return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+          delegate.setWriteListener(writeListener);
+        }
+      };
+    }
+    return stream;
+  }
+
+}
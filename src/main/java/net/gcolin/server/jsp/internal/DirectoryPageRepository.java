@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import net.gcolin.server.jsp.Logs;
+import net.gcolin.server.jsp.PageRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.tools.JavaFileObject.Kind;
+
+/**
+ * A {@link PageRepository} in a directory shared by the nodes, such as a network file system. The
+ * classes of a key are in a sub directory named by the key. A node compiles a key while holding a
+ * lock on the file {@code <key>.lock} and moves the classes to the sub directory when they are all
+ * written, so the other nodes never read a partial compilation. The lock file is deleted when the
+ * classes are published. A lock file left by a failed compilation or a stopped node is reused by
+ * the next compilation of its key, so it can be deleted at any time.
+ *
+ * <p>
+ * The directory must support the atomic moves. Otherwise the repository logs an error at its
+ * creation and every node compiles its own classes.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class DirectoryPageRepository implements PageRepository {
+
+  /**
+   * A file lock is held by the JVM, so the threads of a JVM are serialized before locking. The
+   * monitors are striped by lock file, so their number is bounded.
+   */
+  private static final Object[] MONITORS = new Object[64];
+
+  static {
+    for (int i = 0; i < MONITORS.length; i++) {
+      MONITORS[i] = new Object();
+    }
+  }
+
+  private final File dir;
+  private volatile boolean shared;
+
+  /**
+   * Create a DirectoryPageRepository.
+   *
+   * @param dir the shared directory
+   */
+  public DirectoryPageRepository(File dir) {
+    this.dir = dir;
+    shared = checkAtomicMove(dir);
+  }
+
+  private static boolean checkAtomicMove(File dir) {
+    try {
+      if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+        throw new IOException("cannot create " + dir);
+      }
+      File probe = Files.createTempDirectory(dir.toPath(), "probe.").toFile();
+      File moved = new File(dir, probe.getName() + ".moved");
+      try {
+        Files.move(probe.toPath(), moved.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        delete(probe);
+        delete(moved);
+      }
+      return true;
+    } catch (AtomicMoveNotSupportedException ex) {
+      Logs.LOG.log(Level.SEVERE, "{0} does not support the atomic moves, the compiled JSP are not"
+          + " shared", dir);
+    } catch (IOException ex) {
+      Logs.LOG.log(Level.SEVERE, "cannot use " + dir + ", the compiled JSP are not shared", ex);
+    }
+    return false;
+  }
+
+  /**
+   * Tell if the compiled JSP are shared, the directory supporting the atomic moves.
+   *
+   * @return {@code true} if the compiled JSP are shared
+   */
+  public boolean isShared() {
+    return shared;
+  }
+
+  @Override
+  public Map<String, byte[]> get(String key, Compilation compilation) throws IOException {
+    if (!shared) {
+      return compilation.compile();
+    }
+    File entry = new File(dir, key);
+    Map<String, byte[]> classes = read(entry);
+    if (classes != null) {
+      return classes;
+    }
+    if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+      throw new IOException("cannot create " + dir);
+    }
+    File lockFile = new File(dir, key + ".lock");
+    Object monitor =
+        MONITORS[(lockFile.getAbsolutePath().hashCode() & 0x7fffffff) % MONITORS.length];
+    synchronized (monitor) {
+      try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE)) {
+        FileLock lock = channel.lock();
+        try {
+          classes = read(entry);
+          if (classes != null) {
+            return classes;
+          }
+          classes = compilation.compile();
+          publish(entry, classes);
+          // the next nodes find the classes before locking
+          if (!lockFile.delete()) {
+            Logs.LOG.log(Level.FINE, "cannot delete {0}", lockFile);
+          }
+          return classes;
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  private Map<String, byte[]> read(File entry) throws IOException {
+    File[] files = entry.listFiles();
+    if (files == null) {
+      return null;
+    }
+    Map<String, byte[]> classes = new HashMap<>();
+    for (File file : files) {
+      String name = file.getName();
+      if (name.endsWith(Kind.CLASS.extension)) {
+        classes.put(name.substring(0, name.length() - Kind.CLASS.extension.length()),
+            Files.readAllBytes(file.toPath()));
+      }
+    }
+    return classes;
+  }
+
+  private void publish(File entry, Map<String, byte[]> classes) throws IOException {
+    File tmp = Files.createTempDirectory(dir.toPath(), entry.getName() + ".").toFile();
+    for (Map.Entry<String, byte[]> clazz : classes.entrySet()) {
+      Files.write(new File(tmp, clazz.getKey() + Kind.CLASS.extension).toPath(), clazz.getValue());
+    }
+    try {
+      Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException | DirectoryNotEmptyException ex) {
+      // published by another node
+      delete(tmp);
+    } catch (AtomicMoveNotSupportedException ex) {
+      shared = false;
+      Logs.LOG.log(Level.SEVERE, dir + " does not support the atomic moves, the compiled JSP are"
+          + " not shared anymore", ex);
+      delete(tmp);
+    }
+  }
+
+  private static void delete(File tmp) {
+    File[] files = tmp.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    tmp.delete();
+  }
+
+}
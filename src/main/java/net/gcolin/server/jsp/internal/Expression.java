@@ -15,7 +15,12 @@
 
 package net.gcolin.server.jsp.internal;
 
+import net.gcolin.server.jsp.internal.exp.JExpression;
+import net.gcolin.server.jsp.internal.exp.Scope;
+
 import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
 
 public class Expression {
 
@@ -27,6 +32,14 @@ public class Expression {
 
   private boolean nullable;
 
+  private Set<String> variables = Collections.emptySet();
+
+  private Var var;
+
+  private JExpression tree;
+
+  private boolean pure;
+
   /**
    * Create an Expression.
    * 
@@ -61,4 +74,77 @@ public class Expression {
   public void setNullable(boolean nullable) {
     this.nullable = nullable;
   }
+
+  /**
+   * Get the names of the page variables read by the expression.
+   * 
+   * @return variable names
+   */
+  public Set<String> getVariables() {
+    return variables;
+  }
+
+  public void setVariables(Set<String> variables) {
+    this.variables = variables;
+  }
+
+  /**
+   * Get the declaration of the variable read by the expression.
+   * 
+   * @return the declaration or {@code null} if the expression is not a declared variable
+   */
+  public Var getVar() {
+    return var;
+  }
+
+  public void setVar(Var var) {
+    this.var = var;
+  }
+
+  public JExpression getTree() {
+    return tree;
+  }
+
+  public void setTree(JExpression tree) {
+    this.tree = tree;
+  }
+
+  /**
+   * Check if the expression can be evaluated without compilation.
+   * 
+   * @return {@code true} if the expression can be evaluated
+   */
+  public boolean isInterpretable() {
+    return tree != null && tree.interpretable();
+  }
+
+  /**
+   * Check if the expression has no side effect, so it can be evaluated once instead of several
+   * times.
+   * 
+   * @return {@code true} if the expression only reads values
+   * @see JExpression#pure()
+   */
+  public boolean isPure() {
+    return tree == null ? pure : tree.pure();
+  }
+
+  /**
+   * Declare that an expression without tree has no side effect.
+   * 
+   * @param pure {@code true} if the expression only reads values
+   */
+  public void setPure(boolean pure) {
+    this.pure = pure;
+  }
+
+  /**
+   * Evaluate the expression without compilation.
+   * 
+   * @param scope the variables
+   * @return the value
+   */
+  public Object evaluate(Scope scope) {
+    return tree.evaluate(scope);
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import net.gcolin.common.lang.Pair;
+import net.gcolin.server.jsp.Logs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Count the requests of the JSP, for compiling the most requested JSP at the next startup. The
+ * list is a file with a path by line, the most requested first, followed by its number of
+ * requests. The number of counted JSP is bounded, and the counts of the last run are halved when
+ * they are loaded, so the list follows the recent requests.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class HotPages {
+
+  public static final String FILE_NAME = "jsp-hot.txt";
+  public static final int DEFAULT_MAX_PAGES = 10000;
+
+  private final Map<String, LongAdder> hits = new ConcurrentHashMap<>();
+  private final int maxPages;
+
+  /**
+   * Create a HotPages counting at most {@link #DEFAULT_MAX_PAGES} JSP.
+   */
+  public HotPages() {
+    this(DEFAULT_MAX_PAGES);
+  }
+
+  /**
+   * Create a HotPages.
+   *
+   * @param maxPages the maximum number of counted JSP, the requests of the other JSP are ignored
+   */
+  public HotPages(int maxPages) {
+    this.maxPages = maxPages;
+  }
+
+  /**
+   * Count a request.
+   *
+   * @param path the path of the JSP
+   */
+  public void hit(String path) {
+    LongAdder count = hits.get(path);
+    if (count == null) {
+      if (hits.size() >= maxPages) {
+        return;
+      }
+      count = hits.computeIfAbsent(path, key -> new LongAdder());
+    }
+    count.increment();
+  }
+
+  /**
+   * Get the JSP sorted by their number of requests.
+   *
+   * @param max the maximum size of the list
+   * @return the paths, the most requested first
+   */
+  public List<String> ranked(int max) {
+    List<Pair<String, Long>> counts = new ArrayList<>(hits.size());
+    for (Map.Entry<String, LongAdder> entry : hits.entrySet()) {
+      counts.add(new Pair<>(entry.getKey(), entry.getValue().sum()));
+    }
+    counts.sort((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()));
+    List<String> paths = new ArrayList<>(Math.min(max, counts.size()));
+    for (int i = 0; i < counts.size() && i < max; i++) {
+      paths.add(counts.get(i).getKey());
+    }
+    return paths;
+  }
+
+  /**
+   * Write the list of the most requested JSP.
+   *
+   * @param dir the work directory
+   * @param max the maximum size of the list
+   * @throws IOException if an I/O error occurs.
+   */
+  public void save(File dir, int max) throws IOException {
+    List<String> paths = ranked(max);
+    if (paths.isEmpty()) {
+      return;
+    }
+    try (Writer writer = new OutputStreamWriter(
+        new FileOutputStream(new File(dir, FILE_NAME)), StandardCharsets.UTF_8)) {
+      for (String path : paths) {
+        LongAdder count = hits.get(path);
+        writer.write(path + " " + (count == null ? 0 : count.sum()) + "\n");
+      }
+    }
+  }
+
+  /**
+   * Read the list of the most requested JSP written at the last shutdown. The halves of the numbers
+   * of requests are added to the counters, so the list keeps the JSP requested before but forgets
+   * the JSP not requested anymore after a few runs.
+   *
+   * @param dir the work directory
+   * @return the paths, the most requested first
+   * @throws IOException if an I/O error occurs.
+   */
+  public List<String> load(File dir) throws IOException {
+    File file = new File(dir, FILE_NAME);
+    if (!file.isFile()) {
+      return Collections.emptyList();
+    }
+    List<String> paths = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int space = line.lastIndexOf(' ');
+        if (space == -1) {
+          continue;
+        }
+        String path = line.substring(0, space).trim();
+        try {
+          long count = Long.parseLong(line.substring(space + 1).trim()) / 2;
+          if (count > 0 && (hits.containsKey(path) || hits.size() < maxPages)) {
+            hits.computeIfAbsent(path, key -> new LongAdder()).add(count);
+            paths.add(path);
+          }
+        } catch (NumberFormatException ex) {
+          Logs.LOG.log(Level.WARNING, "invalid line in {0}: {1}", new Object[] {file, line});
+        }
+      }
+    }
+    return paths;
+  }
+
+}
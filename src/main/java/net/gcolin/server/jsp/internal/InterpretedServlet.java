@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import net.gcolin.server.jsp.JspContextFacade;
+import net.gcolin.server.jsp.internal.node.BlockNode;
+import net.gcolin.server.jsp.internal.node.Frame;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A servlet that walks the model of a page instead of running its compiled code. It serves the
+ * page while the compilation runs, or when there is no compiler.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class InterpretedServlet implements Servlet {
+
+  private final String uri;
+  private final String contentType;
+  private final BlockNode model;
+  private final Map<String, Object> shared = new ConcurrentHashMap<>();
+  private ServletConfig config;
+
+  /**
+   * Create an InterpretedServlet.
+   * 
+   * @param uri the path of the page
+   * @param contentType the content type of the page or {@code null}
+   * @param model the model of the page
+   */
+  public InterpretedServlet(String uri, String contentType, BlockNode model) {
+    this.uri = uri;
+    this.contentType = contentType;
+    this.model = model;
+  }
+
+  @Override
+  public void init(ServletConfig config) throws ServletException {
+    this.config = config;
+  }
+
+  @Override
+  public ServletConfig getServletConfig() {
+    return config;
+  }
+
+  @Override
+  public void service(ServletRequest req, ServletResponse res)
+      throws ServletException, IOException {
+    if (contentType != null) {
+      res.setContentType(contentType);
+    }
+    HttpServletRequest request = (HttpServletRequest) req;
+    HttpServletResponse response = (HttpServletResponse) res;
+    JspContextFacade context = new JspContextFacade(request, response, this);
+    try {
+      Writer writer = context.getOut();
+      model.interpret(new Frame(request, response, writer, shared));
+      writer.flush();
+    } finally {
+      context.release();
+    }
+  }
+
+  @Override
+  public String getServletInfo() {
+    return "interpreted jspsevlet of " + uri;
+  }
+
+  @Override
+  public void destroy() {
+    shared.clear();
+  }
+
+}
@@ -70,6 +70,15 @@ public class JdkCompiler extends AbstractCompiler {
 		return ToolProvider.getSystemJavaCompiler();
 	}
 
+	/**
+	 * Check if the JDK compiler is present. A JRE has no compiler.
+	 * 
+	 * @return {@code true} if the pages can be compiled
+	 */
+	public boolean isAvailable() {
+		return javac != null;
+	}
+
 	@Override
 	public ClassLoader compile(String[] targetClassName, String[] source, ClassLoader classLoader, File work,
 			boolean writeClasses) throws IOException {
@@ -158,16 +167,24 @@ public class JdkCompiler extends AbstractCompiler {
 		return cl;
 	}
 
-	private static class MutableClassLoader extends ClassLoader {
+	private static class MutableClassLoader extends PageClassLoader {
+
+		private long size;
 
 		public MutableClassLoader(ClassLoader parent) {
 			super(parent);
 		}
 
 		public void add(String name, byte[] data) {
+			size += data.length;
 			defineClass(name, data, 0, data.length);
 		}
 
+		@Override
+		public long getSize() {
+			return size;
+		}
+
 	}
 
 	private static class JavaMemoryFile extends SimpleJavaFileObject {
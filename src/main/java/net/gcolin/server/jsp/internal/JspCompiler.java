@@ -24,6 +24,10 @@ import net.gcolin.common.reflect.ScanException;
 import net.gcolin.server.jsp.Compiler;
 import net.gcolin.server.jsp.JspRuntimeException;
 import net.gcolin.server.jsp.Logs;
+import net.gcolin.server.jsp.Monitoring;
+import net.gcolin.server.jsp.PageRepository;
+import net.gcolin.server.jsp.Util;
+import net.gcolin.server.jsp.internal.node.BlockNode;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -46,13 +50,19 @@ import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.logging.Level;
 
 import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
 import javax.tools.JavaFileObject.Kind;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -67,6 +77,7 @@ public class JspCompiler {
   private Compiler compiler;
   private boolean alwaysWrite;
   private boolean writeClasses;
+  private PageRepository repository;
 
   /**
    * Create a JspCompiler.
@@ -104,6 +115,28 @@ public class JspCompiler {
     scan(cl);
   }
 
+  public Compiler getCompiler() {
+    return compiler;
+  }
+
+  /**
+   * Share the compiled JSP with other nodes. The compiler must write the class files.
+   * 
+   * @param repository the shared repository or {@code null}
+   */
+  public void setRepository(PageRepository repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * Check if the pages can be compiled.
+   * 
+   * @return {@code false} if the JDK compiler is not present
+   */
+  public boolean isCompilerAvailable() {
+    return !(compiler instanceof JdkCompiler) || ((JdkCompiler) compiler).isAvailable();
+  }
+
   private void scan(ClassLoader cl) {
     if (cl == null) {
       return;
@@ -198,6 +231,63 @@ public class JspCompiler {
     return buildServlet(new String[] {path}, ctx)[0];
   }
 
+  /**
+   * Load the servlet of a JSP from the class files written by its last compilation, without
+   * compiling it again. The class files are written with the option writeClasses.
+   * 
+   * @param path the path of the jsp file
+   * @param ctx the servlet context
+   * @return a Servlet or {@code null} if there are no class files
+   * @throws IOException if an I/O error occurs.
+   */
+  public Object loadServlet(String path, ServletContext ctx) throws IOException {
+    File work = (File) ctx.getAttribute("jspWork");
+    String className = BuildContext.toClassName(path.replace('\\', '/'));
+    if (!writeClasses || work == null
+        || !new File(work, className + Kind.CLASS.extension).isFile()) {
+      return null;
+    }
+    URLClassLoader cl = new URLClassLoader(new URL[] {work.toURI().toURL()}, ctx.getClassLoader());
+    try {
+      return cl.loadClass(className).newInstance();
+    } catch (ReflectiveOperationException | LinkageError ex) {
+      Logs.LOG.log(Level.WARNING, "cannot load the classes of " + path, ex);
+      Io.close(cl);
+      return null;
+    }
+  }
+
+  /**
+   * Get the size of the class files of a compiled JSP and of its member classes.
+   * 
+   * @param type the class of the servlet
+   * @return the size in bytes or -1 if the class files cannot be read
+   */
+  public static long classSize(Class<?> type) {
+    ClassLoader cl = type.getClassLoader();
+    if (cl instanceof PageClassLoader) {
+      return ((PageClassLoader) cl).getSize();
+    }
+    URL url = cl == null ? null
+        : cl.getResource(type.getName().replace('.', '/') + Kind.CLASS.extension);
+    if (url == null) {
+      return -1;
+    }
+    long size;
+    try {
+      size = url.openConnection().getContentLengthLong();
+    } catch (IOException ex) {
+      return -1;
+    }
+    for (Class<?> member : type.getDeclaredClasses()) {
+      long memberSize = classSize(member);
+      if (memberSize > 0) {
+        size += memberSize;
+      }
+    }
+    return size;
+  }
+
   /**
    * Create servlets from a JSP file.
    * 
@@ -207,35 +297,80 @@ public class JspCompiler {
    * @throws IOException if an I/O error occurs.
    */
   public Object[] buildServlet(String[] path, ServletContext ctx) throws IOException {
-    String[] targetClassName = new String[path.length];
-    String[] sourceFile = new String[path.length];
+    return buildServlet(generateJava(path, ctx), ctx);
+  }
+
+  /**
+   * Generate the Java sources of JSP files, without compiling them.
+   * 
+   * @param path the paths of the jsp file
+   * @param ctx the servlet context
+   * @return the class names and the Java sources
+   * @throws IOException if an I/O error occurs.
+   */
+  public List<Pair<String, String>> generateJava(String[] path, ServletContext ctx)
+      throws IOException {
+    List<Pair<String, String>> java = new ArrayList<>(path.length);
     File work = (File) ctx.getAttribute("jspWork");
     for (int i = 0; i < path.length; i++) {
       URL url = ctx.getResource(path[i]);
       if (url == null) {
         throw new FileNotFoundException("cannot find file " + path[i]);
       }
-      Pair<String, String> java = generateJava(path[i], ctx, url);
-      targetClassName[i] = java.getKey();
-      sourceFile[i] = java.getValue();
+      Pair<String, String> source = generateJava(path[i], ctx, url);
+      java.add(source);
 
       if (alwaysWrite) {
-        writeFile(targetClassName[i], sourceFile[i], work);
+        writeFile(source.getKey(), source.getValue(), work);
       }
     }
+    return java;
+  }
+
+  /**
+   * Compile Java sources generated by {@link #generateJava(String[], ServletContext)}.
+   * 
+   * @param java the class names and the Java sources
+   * @param ctx the servlet context
+   * @return some Servlets
+   * @throws IOException if an I/O error occurs.
+   */
+  public Object[] buildServlet(List<Pair<String, String>> java, ServletContext ctx)
+      throws IOException {
+    String[] targetClassName = new String[java.size()];
+    String[] sourceFile = new String[java.size()];
+    File work = (File) ctx.getAttribute("jspWork");
+    for (int i = 0; i < targetClassName.length; i++) {
+      targetClassName[i] = java.get(i).getKey();
+      sourceFile[i] = java.get(i).getValue();
+    }
 
     try {
-      ClassLoader cl =
-          compiler.compile(targetClassName, sourceFile, ctx.getClassLoader(), work, writeClasses);
       Object[] servlet = new Object[targetClassName.length];
-      for (int i = 0; i < path.length; i++) {
+      if (repository != null) {
+        for (int i = 0; i < targetClassName.length; i++) {
+          servlet[i] = loadShared(targetClassName[i], sourceFile[i], ctx);
+        }
+        return servlet;
+      }
+      Object event = Monitoring.compileStarted(String.join(",", targetClassName), "javac");
+      boolean failed = true;
+      ClassLoader cl;
+      try {
+        cl = compiler.compile(targetClassName, sourceFile, ctx.getClassLoader(), work,
+            writeClasses);
+        failed = false;
+      } finally {
+        Monitoring.compileEnded(event, failed);
+      }
+      for (int i = 0; i < targetClassName.length; i++) {
         servlet[i] = cl.loadClass(targetClassName[i]).newInstance();
       }
       return servlet;
     } catch (IOException | JspRuntimeException | InstantiationException | IllegalAccessException
         | ClassNotFoundException ex) {
       if (!alwaysWrite) {
-        for (int i = 0; i < path.length; i++) {
+        for (int i = 0; i < targetClassName.length; i++) {
           writeFile(targetClassName[i], sourceFile[i], work);
         }
       }
@@ -247,6 +382,116 @@ public class JspCompiler {
     }
   }
 
+  /**
+   * Get the classes of a JSP from the repository, keyed by the hash of its generated source, and
+   * compile them only if no node published them before.
+   */
+  private Object loadShared(String className, String source, ServletContext ctx)
+      throws IOException, InstantiationException, IllegalAccessException,
+      ClassNotFoundException {
+    Map<String, byte[]> classes =
+        repository.get(hash(className, source), () -> compileClasses(className, source, ctx));
+    File work = (File) ctx.getAttribute("jspWork");
+    if (writeClasses && work != null) {
+      for (Map.Entry<String, byte[]> clazz : classes.entrySet()) {
+        Files.write(new File(work, clazz.getKey() + Kind.CLASS.extension).toPath(),
+            clazz.getValue());
+      }
+    }
+    return new BytecodeClassLoader(ctx.getClassLoader(), classes).loadClass(className)
+        .newInstance();
+  }
+
+  private Map<String, byte[]> compileClasses(String className, String source, ServletContext ctx)
+      throws IOException {
+    File tmp = Files.createTempDirectory("jsp").toFile();
+    try {
+      Object event = Monitoring.compileStarted(className, "javac");
+      boolean failed = true;
+      try {
+        compiler.compile(new String[] {className}, new String[] {source}, ctx.getClassLoader(),
+            tmp, true);
+        failed = false;
+      } finally {
+        Monitoring.compileEnded(event, failed);
+      }
+      Map<String, byte[]> classes = new HashMap<>();
+      File[] files = tmp.listFiles();
+      for (int i = 0; files != null && i < files.length; i++) {
+        String name = files[i].getName();
+        if (name.endsWith(Kind.CLASS.extension)) {
+          classes.put(name.substring(0, name.length() - Kind.CLASS.extension.length()),
+              Files.readAllBytes(files[i].toPath()));
+        }
+      }
+      if (classes.isEmpty()) {
+        throw new IOException(
+            "the compiler " + compiler.getClass().getName() + " does not write the class files");
+      }
+      return classes;
+    } finally {
+      File[] files = tmp.listFiles();
+      for (int i = 0; files != null && i < files.length; i++) {
+        files[i].delete();
+      }
+      tmp.delete();
+    }
+  }
+
+  /**
+   * The key of a generated source in the repository. The version of Java is in the key because
+   * the class files of a newer compiler cannot be loaded by an older JVM.
+   */
+  private static String hash(String className, String source) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new JspRuntimeException(ex);
+    }
+    digest.update((className + "\n" + System.getProperty("java.specification.version") + "\n")
+        .getBytes(StandardCharsets.UTF_8));
+    byte[] bytes = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+    StringBuilder str = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      str.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return str.toString();
+  }
+
+  /**
+   * Define the classes of a JSP from their bytecode.
+   */
+  private static final class BytecodeClassLoader extends PageClassLoader {
+
+    private final Map<String, byte[]> classes;
+    private final long size;
+
+    private BytecodeClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+      super(parent);
+      this.classes = classes;
+      long total = 0;
+      for (byte[] data : classes.values()) {
+        total += data.length;
+      }
+      size = total;
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      byte[] data = classes.get(name);
+      if (data == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return defineClass(name, data, 0, data.length);
+    }
+  }
+
   private void writeFile(String targetClassName, String sourceFile, File work)
       throws IOException, UnsupportedEncodingException {
     try (
@@ -258,40 +503,136 @@ public class JspCompiler {
     }
   }
 
+  /**
+   * Create a servlet that interprets a JSP file without compilation.
+   * 
+   * @param path the path of the jsp file
+   * @param ctx the servlet context
+   * @return a Servlet or {@code null} if the JSP uses a feature that needs a compilation
+   * @throws IOException if an I/O error occurs.
+   * @throws ServletException if the JSP needs a compilation and the compiler is not available
+   */
+  public InterpretedServlet buildInterpreter(String path, ServletContext ctx)
+      throws IOException, ServletException {
+    return buildInterpreter(path, ctx, null);
+  }
+
+  /**
+   * Create a servlet that interprets a JSP file without compilation, and generate its Java source
+   * from the same parsing for compiling it later with
+   * {@link #buildServlet(List, ServletContext)}. The interpreter runs the page model optimized by
+   * the Java generation.
+   * 
+   * @param path the path of the jsp file
+   * @param ctx the servlet context
+   * @param java the list receiving the class name and the Java source or {@code null} for
+   *        interpreting only
+   * @return a Servlet or {@code null} if the JSP uses a feature that needs a compilation
+   * @throws IOException if an I/O error occurs.
+   * @throws ServletException if the JSP needs a compilation and the compiler is not available
+   */
+  public InterpretedServlet buildInterpreter(String path, ServletContext ctx,
+      List<Pair<String, String>> java) throws IOException, ServletException {
+    URL url = ctx.getResource(path);
+    if (url == null) {
+      throw new FileNotFoundException("cannot find file " + path);
+    }
+    Logs.LOG.info("Interpret " + path);
+    BuildContext context = parse(path, ctx, url, built -> {
+      built.getModel();
+      return built;
+    });
+    BlockNode model = context.getModel();
+    net.gcolin.server.jsp.internal.node.Node unsupported = model.unsupported();
+    if (unsupported != null) {
+      if (!isCompilerAvailable()) {
+        throw new ServletException("cannot interpret " + path + " without a compiler, the "
+            + unsupported.getClass().getSimpleName() + " at line " + unsupported.getLine()
+            + " needs a compilation");
+      }
+      return null;
+    }
+    if (java != null) {
+      Logs.LOG.info("Generate java from " + path);
+      Object event = Monitoring.compileStarted(context.getUri(), "generate");
+      boolean failed = true;
+      try {
+        Pair<String, String> source = toJava(context);
+        if (alwaysWrite) {
+          writeFile(source.getKey(), source.getValue(), (File) ctx.getAttribute("jspWork"));
+        }
+        java.add(source);
+        failed = false;
+      } catch (IOException | RuntimeException ex) {
+        Logs.LOG.log(Level.WARNING, "cannot generate java from " + path
+            + ", the JSP stays interpreted", ex);
+      } finally {
+        Monitoring.compileEnded(event, failed);
+      }
+    }
+    return new InterpretedServlet(context.getUri(), context.getContentType(), model);
+  }
+
   private Pair<String, String> generateJava(String path, ServletContext ctx, URL url)
       throws IOException {
     Logs.LOG.info("Generate java from " + path);
+    return parse(path, ctx, url, this::toJava);
+  }
+
+  private Pair<String, String> toJava(BuildContext context) throws IOException {
+    StringWriter sw = new StringWriter();
+    context.toJava(sw);
+    sw.flush();
+
+    String targetClassName = context.getName();
+    String sourceFile = sw.toString();
+    Io.close(sw);
+    return new Pair<>(targetClassName, sourceFile);
+  }
+
+  /**
+   * A step after the parsing of a JSP file.
+   */
+  @FunctionalInterface
+  private interface BuildStep<T> {
+
+    T apply(BuildContext context) throws IOException;
+  }
+
+  private <T> T parse(String path, ServletContext ctx, URL url, BuildStep<T> step)
+      throws IOException {
     BuildContext context = new BuildContext(path.replace('\\', '/'), ctx);
     context.setScannedTaglib(scannedTaglib);
-    StringWriter sw = new StringWriter();
-    Reader reader = null;
-    int line = 1;
-    int column = 0;
+    JspLexer lexer = null;
     try {
-      reader = Io.reader(url.openStream(), StandardCharsets.UTF_8.name());
-      int ch;
-      while ((ch = reader.read()) != -1) {
-        if (ch == '\n') {
-          column = 1;
-          line++;
-        } else if (ch != '\r') {
-          column++;
-        }
-        context.write((char) ch);
+      char[] content;
+      try (Reader reader = Io.reader(url.openStream(), StandardCharsets.UTF_8.name())) {
+        content = Util.toCharArray(reader);
+      }
+      lexer = new JspLexer(content, 0, content.length);
+      Object event = Monitoring.compileStarted(context.getUri(), "parse");
+      boolean failed = true;
+      try {
+        context.parse(lexer);
+        failed = false;
+      } finally {
+        Monitoring.compileEnded(event, failed);
+      }
+      event = Monitoring.compileStarted(context.getUri(), "generate");
+      failed = true;
+      try {
+        T result = step.apply(context);
+        failed = false;
+        return result;
+      } finally {
+        Monitoring.compileEnded(event, failed);
       }
-      context.toJava(sw);
-      sw.flush();
-
-      String targetClassName = context.getName();
-      String sourceFile = sw.toString();
-      Io.close(sw);
-      return new Pair<>(targetClassName, sourceFile);
     } catch (Exception ex) {
+      if (lexer == null) {
+        throw new JspRuntimeException("cannot read " + url.toExternalForm(), ex);
+      }
       throw new JspRuntimeException("cannot generate java file of " + url.toExternalForm()
-          + " at line " + line + " and column " + column, ex);
-    } finally {
-
-      Io.close(reader);
+          + " at line " + lexer.getLine() + " and column " + lexer.getColumn(), ex);
     }
   }
 }
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+/**
+ * A pull lexer that splits a whole JSP buffer into tokens.
+ *
+ * <p>
+ * The lexer only looks for {@code <} and {@code $} and returns the literal runs between them as
+ * ranges of the original buffer, so the consumer can copy them in bulk. An element is a
+ * {@code <...>} whose content does not contain another {@code <} outside an expression, otherwise
+ * the {@code <} is a literal character.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class JspLexer {
+
+  public static final int END = 0;
+  public static final int TEXT = 1;
+  public static final int ELEMENT = 2;
+  public static final int COMMENT = 3;
+  public static final int EXPRESSION = 4;
+
+  private final char[] buf;
+  private final int limit;
+  private final boolean textOnly;
+  private int pos;
+  private int start;
+  private int end;
+
+  /**
+   * Create a JspLexer.
+   *
+   * @param buf the JSP content
+   * @param off the first char to read
+   * @param len the number of chars to read
+   */
+  public JspLexer(char[] buf, int off, int len) {
+    this(buf, off, len, false);
+  }
+
+  /**
+   * Create a JspLexer.
+   *
+   * @param buf the JSP content
+   * @param off the first char to read
+   * @param len the number of chars to read
+   * @param textOnly {@code true} for returning only text and expressions
+   */
+  public JspLexer(char[] buf, int off, int len, boolean textOnly) {
+    this.buf = buf;
+    this.pos = off;
+    this.limit = off + len;
+    this.textOnly = textOnly;
+  }
+
+  /**
+   * Read the next token.
+   *
+   * @return the type of the token
+   */
+  public int next() {
+    if (pos >= limit) {
+      start = end = limit;
+      return END;
+    }
+    int type = readSpecial();
+    if (type != TEXT) {
+      return type;
+    }
+    int textStart = pos;
+    while (pos < limit) {
+      char ch = buf[pos];
+      if (ch == '$' && pos + 1 < limit && buf[pos + 1] == '{' || ch == '<' && !textOnly) {
+        int save = pos;
+        if (pos > textStart && readSpecial() != TEXT) {
+          // the special token is returned on the next call
+          pos = save;
+          start = textStart;
+          end = save;
+          return TEXT;
+        }
+        pos = save + 1;
+      } else {
+        pos++;
+      }
+    }
+    start = textStart;
+    end = pos;
+    return TEXT;
+  }
+
+  private int readSpecial() {
+    char ch = buf[pos];
+    if (ch == '$' && pos + 1 < limit && buf[pos + 1] == '{') {
+      int close = indexOf('}', pos + 2);
+      if (close != -1) {
+        start = pos + 2;
+        end = close;
+        pos = close + 1;
+        return EXPRESSION;
+      }
+    } else if (ch == '<' && !textOnly) {
+      if (startsWith("<%--", pos)) {
+        int close = indexOf("--%>", pos + 2);
+        start = pos + 1;
+        end = close == -1 ? limit : close + 3;
+        pos = close == -1 ? limit : close + 4;
+        return COMMENT;
+      }
+      int close = findElementEnd(pos + 1);
+      if (close != -1) {
+        start = pos + 1;
+        end = close;
+        pos = close + 1;
+        return ELEMENT;
+      }
+    }
+    return TEXT;
+  }
+
+  private int findElementEnd(int from) {
+    int idx = from;
+    while (idx < limit) {
+      char ch = buf[idx];
+      if (ch == '>') {
+        return idx;
+      } else if (ch == '<') {
+        return -1;
+      } else if (ch == '$' && idx + 1 < limit && buf[idx + 1] == '{') {
+        int close = indexOf('}', idx + 2);
+        if (close == -1) {
+          return -1;
+        }
+        idx = close + 1;
+      } else {
+        idx++;
+      }
+    }
+    return -1;
+  }
+
+  private int indexOf(char ch, int from) {
+    for (int i = from; i < limit; i++) {
+      if (buf[i] == ch) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int indexOf(String str, int from) {
+    int last = limit - str.length();
+    for (int i = from; i <= last; i++) {
+      if (startsWith(str, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean startsWith(String str, int from) {
+    if (from + str.length() > limit) {
+      return false;
+    }
+    for (int i = 0; i < str.length(); i++) {
+      if (buf[from + i] != str.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public char[] getBuffer() {
+    return buf;
+  }
+
+  /**
+   * Get the start of the current token. For an element or a comment, the start is after the
+   * {@code <}. For an expression, the start is after the <code>${</code>.
+   *
+   * @return an index in the buffer
+   */
+  public int getStart() {
+    return start;
+  }
+
+  /**
+   * Get the end (exclusive) of the current token. For an element or a comment, the end is before
+   * the {@code >}. For an expression, the end is before the <code>}</code>.
+   *
+   * @return an index in the buffer
+   */
+  public int getEnd() {
+    return end;
+  }
+
+  /**
+   * Get the position of the next token.
+   *
+   * @return an index in the buffer
+   */
+  public int getPosition() {
+    return pos;
+  }
+
+  public String getValue() {
+    return new String(buf, start, end - start);
+  }
+
+  /**
+   * Get the line of the current position.
+   *
+   * @return a line number starting at 1
+   */
+  public int getLine() {
+    int line = 1;
+    for (int i = 0; i < start && i < buf.length; i++) {
+      if (buf[i] == '\n') {
+        line++;
+      }
+    }
+    return line;
+  }
+
+  /**
+   * Get the column of the current position.
+   *
+   * @return a column number starting at 1
+   */
+  public int getColumn() {
+    int column = 1;
+    for (int i = Math.min(start, buf.length) - 1; i >= 0 && buf[i] != '\n'; i--) {
+      if (buf[i] != '\r') {
+        column++;
+      }
+    }
+    return column;
+  }
+}
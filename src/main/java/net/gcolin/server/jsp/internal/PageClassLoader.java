@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+/**
+ * A class loader defining the classes of compiled JSP from their bytecode, which knows their size.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public abstract class PageClassLoader extends ClassLoader {
+
+  protected PageClassLoader(ClassLoader parent) {
+    super(parent);
+  }
+
+  /**
+   * Get the size of the class files.
+   *
+   * @return the size in bytes
+   */
+  public abstract long getSize();
+
+}
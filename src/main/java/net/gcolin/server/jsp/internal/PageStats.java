@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import net.gcolin.server.jsp.PageStatsMXBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of a JSP, updated by the concurrent renders without locking.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class PageStats implements PageStatsMXBean {
+
+  private static final long[] BOUNDS =
+      {100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000};
+
+  private final String path;
+  private final LongAdder renders = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder latency = new LongAdder();
+  private final LongAdder[] histogram = new LongAdder[BOUNDS.length + 1];
+  private volatile long compileTime;
+  private volatile long classSize = -1;
+
+  /**
+   * Create a PageStats.
+   *
+   * @param path the path of the JSP
+   */
+  public PageStats(String path) {
+    this.path = path;
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Count a render.
+   *
+   * @param nanos the time of the render in nanoseconds
+   * @param size the size of the output
+   * @param failed {@code true} if the render throws an exception
+   */
+  public void rendered(long nanos, long size, boolean failed) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    renders.increment();
+    if (failed) {
+      errors.increment();
+    }
+    bytes.add(size);
+    latency.add(micros);
+    int bucket = 0;
+    while (bucket < BOUNDS.length && micros > BOUNDS[bucket]) {
+      bucket++;
+    }
+    histogram[bucket].increment();
+  }
+
+  /**
+   * Record a compilation.
+   *
+   * @param nanos the time of the compilation in nanoseconds
+   * @param size the size of the classes in bytes or -1
+   */
+  public void compiled(long nanos, long size) {
+    compileTime = TimeUnit.NANOSECONDS.toMillis(nanos);
+    classSize = size;
+  }
+
+  @Override
+  public String getPath() {
+    return path;
+  }
+
+  @Override
+  public long getRenderCount() {
+    return renders.sum();
+  }
+
+  @Override
+  public long getErrorCount() {
+    return errors.sum();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytes.sum();
+  }
+
+  @Override
+  public long getMeanLatency() {
+    long count = renders.sum();
+    return count == 0 ? 0 : latency.sum() / count;
+  }
+
+  @Override
+  public long[] getLatencyBounds() {
+    return BOUNDS.clone();
+  }
+
+  @Override
+  public long[] getLatencyHistogram() {
+    long[] counts = new long[histogram.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = histogram[i].sum();
+    }
+    return counts;
+  }
+
+  @Override
+  public long getCompileTime() {
+    return compileTime;
+  }
+
+  @Override
+  public long getClassSize() {
+    return classSize;
+  }
+
+}
@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import net.gcolin.server.jsp.Logs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Sample the threads rendering a JSP and aggregate the samples by JSP line. The lines of the
+ * generated servlets are translated with their {@link Smap}, so a stack reads as the requested
+ * JSP, the lines of the JSP and of its includes, the custom tags and the methods called by the
+ * deepest line.
+ *
+ * <p>
+ * Each sample adds the CPU time and the bytes allocated by the thread since its previous sample.
+ * The report is in the collapsed stack format of the flame graph tools: a line by stack, with the
+ * frames separated by semicolons and followed by the measure.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class Profiler {
+
+  public static final String FILE_PREFIX = "jsp-profile-";
+
+  /**
+   * The measures of a stack.
+   */
+  public enum Measure {
+    /**
+     * The number of samples.
+     */
+    SAMPLES,
+    /**
+     * The CPU time in nanoseconds.
+     */
+    CPU,
+    /**
+     * The allocated bytes.
+     */
+    ALLOCATION
+  }
+
+  private static final Set<String> TAG_METHODS =
+      new HashSet<>(Arrays.asList("doTag", "doStartTag", "doEndTag", "doAfterBody"));
+
+  private final Map<String, Page> pages = new ConcurrentHashMap<>();
+  private final Map<Long, Render> renders = new ConcurrentHashMap<>();
+  private final Map<String, long[]> stacks = new TreeMap<>();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final com.sun.management.ThreadMXBean allocations;
+  private final ScheduledExecutorService sampler;
+
+  /**
+   * Create a Profiler and start the sampling.
+   *
+   * @param interval the time between two samples in milliseconds
+   */
+  public Profiler(long interval) {
+    if (threads.isThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+      threads.setThreadCpuTimeEnabled(true);
+    }
+    com.sun.management.ThreadMXBean bean = null;
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      bean = (com.sun.management.ThreadMXBean) threads;
+      if (!bean.isThreadAllocatedMemorySupported()) {
+        bean = null;
+      } else if (!bean.isThreadAllocatedMemoryEnabled()) {
+        bean.setThreadAllocatedMemoryEnabled(true);
+      }
+    }
+    allocations = bean;
+    sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "jsp-profiler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sampler.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Register the servlet generated for a JSP, for translating its lines.
+   *
+   * @param path the path of the JSP
+   * @param clazz the class of the servlet
+   */
+  public void register(String path, Class<?> clazz) {
+    Smap smap = null;
+    try {
+      smap = Smap.parse((String) clazz.getField(Smap.FIELD).get(null));
+    } catch (NoSuchFieldException ex) {
+      // compiled without source map or interpreted
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      Logs.LOG.log(Level.FINE, "cannot read the source map of " + path, ex);
+    }
+    pages.put(clazz.getName(), new Page(path, smap));
+  }
+
+  /**
+   * The current thread starts to render a JSP. An included JSP is sampled in the stack of the
+   * including JSP.
+   *
+   * @param path the path of the JSP
+   */
+  public void enter(String path) {
+    long id = Thread.currentThread().getId();
+    Render render = renders.get(id);
+    if (render == null) {
+      render = new Render(path, cpuTime(id), allocated(id));
+      renders.put(id, render);
+    }
+    render.depth++;
+  }
+
+  /**
+   * The current thread ends the render of a JSP.
+   */
+  public void exit() {
+    long id = Thread.currentThread().getId();
+    Render render = renders.get(id);
+    if (render != null && --render.depth == 0) {
+      renders.remove(id);
+    }
+  }
+
+  private long cpuTime(long id) {
+    return threads.isThreadCpuTimeEnabled() ? Math.max(0, threads.getThreadCpuTime(id)) : 0;
+  }
+
+  private long allocated(long id) {
+    return allocations == null ? 0 : Math.max(0, allocations.getThreadAllocatedBytes(id));
+  }
+
+  private void sample() {
+    try {
+      Long[] ids = renders.keySet().toArray(new Long[0]);
+      if (ids.length == 0) {
+        return;
+      }
+      long[] threadIds = new long[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        threadIds[i] = ids[i];
+      }
+      ThreadInfo[] infos = threads.getThreadInfo(threadIds, Integer.MAX_VALUE);
+      for (int i = 0; i < infos.length; i++) {
+        Render render = renders.get(threadIds[i]);
+        if (infos[i] == null || render == null) {
+          continue;
+        }
+        long cpu = cpuTime(threadIds[i]);
+        long allocated = allocated(threadIds[i]);
+        String stack = collapse(render.path, infos[i].getStackTrace());
+        synchronized (stacks) {
+          long[] measures = stacks.computeIfAbsent(stack, key -> new long[3]);
+          measures[Measure.SAMPLES.ordinal()]++;
+          measures[Measure.CPU.ordinal()] += Math.max(0, cpu - render.cpu);
+          measures[Measure.ALLOCATION.ordinal()] += Math.max(0, allocated - render.allocated);
+        }
+        render.cpu = cpu;
+        render.allocated = allocated;
+      }
+    } catch (RuntimeException ex) {
+      Logs.LOG.log(Level.WARNING, "cannot sample the JSP", ex);
+    }
+  }
+
+  /**
+   * Translate a stack trace to the frames of a flame graph. The frames of the server are removed,
+   * the frames of the generated servlets become JSP lines, and between two JSP lines only the
+   * custom tags are kept.
+   *
+   * @param path the path of the requested JSP
+   * @param stack the stack trace, the deepest frame first
+   * @return the frames separated by semicolons
+   */
+  public String collapse(String path, StackTraceElement[] stack) {
+    StringBuilder str = new StringBuilder(path);
+    String last = path;
+    List<StackTraceElement> tail = new ArrayList<>();
+    boolean inPage = false;
+    for (int i = stack.length - 1; i >= 0; i--) {
+      Page page = page(stack[i].getClassName());
+      if (page != null) {
+        for (StackTraceElement element : tail) {
+          if (TAG_METHODS.contains(element.getMethodName())) {
+            last = frame(element);
+            str.append(';').append(last);
+          }
+        }
+        tail.clear();
+        String frame = page.locate(stack[i].getLineNumber());
+        if (!frame.equals(last)) {
+          str.append(';').append(frame);
+          last = frame;
+        }
+        inPage = true;
+      } else if (inPage) {
+        tail.add(stack[i]);
+      }
+    }
+    for (StackTraceElement element : tail) {
+      str.append(';').append(frame(element));
+    }
+    return str.toString();
+  }
+
+  private Page page(String className) {
+    String name = className;
+    Page page = pages.get(name);
+    int inner;
+    // the inner classes of the fragments
+    while (page == null && (inner = name.lastIndexOf('$')) != -1) {
+      name = name.substring(0, inner);
+      page = pages.get(name);
+    }
+    return page;
+  }
+
+  private static String frame(StackTraceElement element) {
+    String className = element.getClassName();
+    return className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName();
+  }
+
+  /**
+   * Write the collapsed stacks.
+   *
+   * @param writer the output
+   * @param measure the measure written after each stack
+   * @throws IOException if an I/O error occurs.
+   */
+  public void write(Writer writer, Measure measure) throws IOException {
+    Map<String, Long> values = new TreeMap<>();
+    synchronized (stacks) {
+      for (Map.Entry<String, long[]> stack : stacks.entrySet()) {
+        long value = stack.getValue()[measure.ordinal()];
+        if (value > 0) {
+          values.put(stack.getKey(), value);
+        }
+      }
+    }
+    for (Map.Entry<String, Long> value : values.entrySet()) {
+      writer.write(value.getKey() + " " + value.getValue() + "\n");
+    }
+  }
+
+  /**
+   * Write a report by measure in a directory, named {@value #FILE_PREFIX} followed by the
+   * measure.
+   *
+   * @param dir the directory
+   * @throws IOException if an I/O error occurs.
+   */
+  public void save(File dir) throws IOException {
+    for (Measure measure : Measure.values()) {
+      File file = new File(dir, FILE_PREFIX + measure.name().toLowerCase(Locale.ENGLISH) + ".txt");
+      try (Writer writer =
+          new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+        write(writer, measure);
+      }
+    }
+  }
+
+  /**
+   * Clear the samples.
+   */
+  public void reset() {
+    synchronized (stacks) {
+      stacks.clear();
+    }
+  }
+
+  /**
+   * Stop the sampling.
+   */
+  public void shutdown() {
+    sampler.shutdownNow();
+  }
+
+  /**
+   * A generated servlet.
+   */
+  private static final class Page {
+
+    private final String path;
+    private final Smap smap;
+
+    private Page(String path, Smap smap) {
+      this.path = path;
+      this.smap = smap;
+    }
+
+    private String locate(int line) {
+      String location = smap == null || line <= 0 ? null : smap.locate(line);
+      return location == null ? path : location;
+    }
+  }
+
+  /**
+   * A thread rendering a JSP. The depth is changed by the rendering thread and the measures by
+   * the sampler.
+   */
+  private static final class Render {
+
+    private final String path;
+    private int depth;
+    private long cpu;
+    private long allocated;
+
+    private Render(String path, long cpu, long allocated) {
+      this.path = path;
+      this.cpu = cpu;
+      this.allocated = allocated;
+    }
+  }
+
+}
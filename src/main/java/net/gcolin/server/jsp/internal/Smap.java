@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The JSR-45 source map of a generated servlet, which maps the lines of the Java source to the
+ * lines of the JSP and of its static includes.
+ *
+ * <p>
+ * The Java generator marks the lines with {@link #mark(StringBuilder, int, int)} and the markers
+ * are removed by {@link #extract(String, List, CharSequence, StringBuilder)}. The map is kept in
+ * the constant {@value #FIELD} of the servlet, so it is read at runtime without parsing the class
+ * file.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class Smap {
+
+  public static final String FIELD = "_SMAP";
+
+  private static final String MARKER = " //@jsp:";
+  private static final String STRATUM = "JSP";
+
+  private final String generated;
+  private final String[] files;
+  private final int[] outputs;
+  private final int[] lengths;
+  private final int[] fileIds;
+  private final int[] inputs;
+
+  private Smap(String generated, String[] files, List<int[]> ranges) {
+    this.generated = generated;
+    this.files = files;
+    ranges.sort((r1, r2) -> Integer.compare(r1[0], r2[0]));
+    outputs = new int[ranges.size()];
+    lengths = new int[ranges.size()];
+    fileIds = new int[ranges.size()];
+    inputs = new int[ranges.size()];
+    for (int i = 0; i < outputs.length; i++) {
+      int[] range = ranges.get(i);
+      outputs[i] = range[0];
+      lengths[i] = range[1];
+      fileIds[i] = range[2];
+      inputs[i] = range[3];
+    }
+  }
+
+  /**
+   * Mark the end of a Java line with a position in the JSP.
+   *
+   * @param str the Java code ending with the line
+   * @param file the index of the JSP file
+   * @param line the line in the JSP file
+   */
+  public static void mark(StringBuilder str, int file, int line) {
+    str.append(MARKER).append(file).append(':').append(line);
+  }
+
+  /**
+   * Remove the markers of a Java source and create the map of the marked lines.
+   *
+   * @param generated the name of the Java file
+   * @param files the paths of the JSP files by index
+   * @param code the marked Java source
+   * @param out the Java source without the markers
+   * @return the map
+   */
+  public static Smap extract(String generated, List<String> files, CharSequence code,
+      StringBuilder out) {
+    List<int[]> ranges = new ArrayList<>();
+    int[] last = null;
+    int javaLine = 1;
+    int start = 0;
+    while (start < code.length()) {
+      int end = start;
+      while (end < code.length() && code.charAt(end) != '\n') {
+        end++;
+      }
+      int marker = marker(code, start, end);
+      if (marker == -1) {
+        out.append(code, start, end);
+      } else {
+        out.append(code, start, marker);
+        int colon = marker + MARKER.length();
+        while (code.charAt(colon) != ':') {
+          colon++;
+        }
+        int file = Integer.parseInt(code.subSequence(marker + MARKER.length(), colon).toString());
+        int line = Integer.parseInt(code.subSequence(colon + 1, end).toString());
+        if (last != null && last[0] + last[1] == javaLine && last[2] == file
+            && last[3] == line) {
+          last[1]++;
+        } else {
+          last = new int[] {javaLine, 1, file, line};
+          ranges.add(last);
+        }
+      }
+      if (end < code.length()) {
+        out.append('\n');
+      }
+      start = end + 1;
+      javaLine++;
+    }
+    return new Smap(generated, files.toArray(new String[files.size()]), ranges);
+  }
+
+  private static int marker(CharSequence code, int start, int end) {
+    int digits = end;
+    while (digits > start && Character.isDigit(code.charAt(digits - 1))) {
+      digits--;
+    }
+    if (digits == end || digits == start || code.charAt(digits - 1) != ':') {
+      return -1;
+    }
+    int index = digits - 1;
+    while (index > start && Character.isDigit(code.charAt(index - 1))) {
+      index--;
+    }
+    int marker = index - MARKER.length();
+    if (index == digits - 1 || marker < start) {
+      return -1;
+    }
+    for (int i = 0; i < MARKER.length(); i++) {
+      if (code.charAt(marker + i) != MARKER.charAt(i)) {
+        return -1;
+      }
+    }
+    return marker;
+  }
+
+  /**
+   * Read a map written by {@link #toString()}. Only the JSP stratum is read.
+   *
+   * @param text the SMAP
+   * @return the map
+   * @throws IllegalArgumentException if the text is not a SMAP
+   */
+  public static Smap parse(String text) {
+    String[] lines = text.split("\r?\n");
+    if (lines.length < 3 || !"SMAP".equals(lines[0])) {
+      throw new IllegalArgumentException("not a SMAP");
+    }
+    TreeMap<Integer, String> files = new TreeMap<>();
+    List<int[]> ranges = new ArrayList<>();
+    String section = null;
+    boolean stratum = false;
+    int fileId = 0;
+    for (int i = 3; i < lines.length; i++) {
+      String line = lines[i].trim();
+      if (line.startsWith("*")) {
+        if (line.startsWith("*S ")) {
+          stratum = STRATUM.equals(line.substring(3).trim());
+        }
+        section = line;
+      } else if (!stratum || line.isEmpty()) {
+        continue;
+      } else if ("*F".equals(section)) {
+        boolean path = line.startsWith("+ ");
+        String[] parts = (path ? line.substring(2) : line).trim().split(" ", 2);
+        String name = parts.length > 1 ? parts[1] : parts[0];
+        if (path && i + 1 < lines.length) {
+          name = lines[++i].trim();
+        }
+        files.put(Integer.parseInt(parts[0]), name);
+      } else if ("*L".equals(section)) {
+        int colon = line.indexOf(':');
+        String input = line.substring(0, colon);
+        String output = line.substring(colon + 1);
+        int repeat = 1;
+        int comma = input.indexOf(',');
+        if (comma != -1) {
+          repeat = Integer.parseInt(input.substring(comma + 1));
+          input = input.substring(0, comma);
+        }
+        int hash = input.indexOf('#');
+        if (hash != -1) {
+          fileId = Integer.parseInt(input.substring(hash + 1));
+          input = input.substring(0, hash);
+        }
+        int increment = 1;
+        comma = output.indexOf(',');
+        if (comma != -1) {
+          increment = Integer.parseInt(output.substring(comma + 1));
+          output = output.substring(0, comma);
+        }
+        int inputLine = Integer.parseInt(input);
+        int outputLine = Integer.parseInt(output);
+        for (int r = 0; r < repeat && increment > 0; r++) {
+          ranges.add(new int[] {outputLine + r * increment, increment, fileId, inputLine + r});
+        }
+      }
+    }
+    String[] names = new String[files.isEmpty() ? 0 : files.lastKey() + 1];
+    for (Map.Entry<Integer, String> file : files.entrySet()) {
+      names[file.getKey()] = file.getValue();
+    }
+    return new Smap(lines[1], names, ranges);
+  }
+
+  /**
+   * Get the position in the JSP of a line of the Java source.
+   *
+   * @param javaLine a line of the Java source
+   * @return the path of the JSP file and the line, separated by a colon, or {@code null} if the
+   *         line is not mapped
+   */
+  public String locate(int javaLine) {
+    int index = Arrays.binarySearch(outputs, javaLine);
+    if (index < 0) {
+      index = -index - 2;
+    }
+    if (index < 0 || javaLine >= outputs[index] + lengths[index]
+        || fileIds[index] >= files.length || files[fileIds[index]] == null) {
+      return null;
+    }
+    return files[fileIds[index]] + ":" + inputs[index];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder str = new StringBuilder();
+    str.append("SMAP\n").append(generated).append('\n').append(STRATUM).append('\n');
+    str.append("*S ").append(STRATUM).append('\n');
+    str.append("*F\n");
+    for (int i = 0; i < files.length; i++) {
+      String path = files[i];
+      if (path == null) {
+        continue;
+      }
+      str.append("+ ").append(i).append(' ').append(path.substring(path.lastIndexOf('/') + 1))
+          .append('\n').append(path).append('\n');
+    }
+    str.append("*L\n");
+    int fileId = -1;
+    for (int i = 0; i < outputs.length; i++) {
+      str.append(inputs[i]);
+      if (fileIds[i] != fileId) {
+        fileId = fileIds[i];
+        str.append('#').append(fileId);
+      }
+      str.append(':').append(outputs[i]);
+      if (lengths[i] > 1) {
+        str.append(',').append(lengths[i]);
+      }
+      str.append('\n');
+    }
+    str.append("*E\n");
+    return str.toString();
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal;
+
+import net.gcolin.common.io.NullWriter;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Locale;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A request without attributes and a response without output, for rendering a JSP at the startup
+ * so the JIT compiles its code before the first real request.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class Synthetic {
+
+  private Synthetic() {}
+
+  /**
+   * Create a GET request of a JSP.
+   *
+   * @param ctx the servlet context
+   * @param path the path of the JSP
+   * @return a request
+   */
+  public static HttpServletRequest request(ServletContext ctx, String path) {
+    return (HttpServletRequest) Proxy.newProxyInstance(Synthetic.class.getClassLoader(),
+        new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getServletContext":
+              return ctx;
+            case "getServletPath":
+            case "getRequestURI":
+              return path;
+            case "getMethod":
+              return "GET";
+            case "getLocale":
+              return Locale.getDefault();
+            case "getParameterMap":
+              return Collections.emptyMap();
+            case "getParameterNames":
+            case "getAttributeNames":
+            case "getHeaderNames":
+              return Collections.emptyEnumeration();
+            default:
+              return defaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  /**
+   * Create a response that ignores the output.
+   *
+   * @return a response
+   */
+  public static HttpServletResponse response() {
+    PrintWriter writer = new PrintWriter(new NullWriter());
+    return (HttpServletResponse) Proxy.newProxyInstance(Synthetic.class.getClassLoader(),
+        new Class<?>[] {HttpServletResponse.class}, (proxy, method, args) -> {
+          if ("getWriter".equals(method.getName())) {
+            return writer;
+          } else if ("getCharacterEncoding".equals(method.getName())) {
+            return "UTF-8";
+          }
+          return defaultValue(method.getReturnType());
+        });
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+}
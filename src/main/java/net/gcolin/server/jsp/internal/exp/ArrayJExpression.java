@@ -15,6 +15,7 @@
 
 package net.gcolin.server.jsp.internal.exp;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Type;
 
 public class ArrayJExpression implements JExpression {
@@ -68,4 +69,23 @@ public class ArrayJExpression implements JExpression {
     return ref.isNull();
   }
 
+  @Override
+  public boolean interpretable() {
+    return ref.interpretable() && index.interpretable();
+  }
+
+  @Override
+  public boolean pure() {
+    return ref.pure() && index.pure();
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    Object array = ref.evaluate(scope);
+    if (array == null) {
+      throw new NullPointerException();
+    }
+    return Array.get(array, ((Number) index.evaluate(scope)).intValue());
+  }
+
 }
@@ -18,6 +18,7 @@ package net.gcolin.server.jsp.internal.exp;
 import net.gcolin.common.reflect.Reflect;
 import net.gcolin.server.jsp.Util;
 import net.gcolin.server.jsp.internal.BuildContext;
+import net.gcolin.server.jsp.internal.exp.operator.Operator;
 
 import java.lang.reflect.Type;
 import java.text.MessageFormat;
@@ -28,6 +29,7 @@ public class BiOperatorJExpression implements JExpression {
   private JExpression a2;
   private Class<?> type;
   private String compilePattern;
+  private Operator operator;
   private BuildContext context;
 
   /**
@@ -37,15 +39,17 @@ public class BiOperatorJExpression implements JExpression {
    * @param a1 an expression
    * @param type type
    * @param compilePattern compilePattern
+   * @param operator the operator that evaluates the expression without compilation
    * @param context context
    */
   public BiOperatorJExpression(JExpression a2, JExpression a1, Class<?> type, String compilePattern,
-      BuildContext context) {
+      Operator operator, BuildContext context) {
     super();
     this.a1 = a1;
     this.a2 = a2;
     this.type = type;
     this.compilePattern = compilePattern;
+    this.operator = operator;
     this.context = context;
   }
 
@@ -97,4 +101,19 @@ public class BiOperatorJExpression implements JExpression {
     return a1.mustbeLocal() || a2.mustbeLocal();
   }
 
+  @Override
+  public boolean interpretable() {
+    return a1.interpretable() && a2.interpretable();
+  }
+
+  @Override
+  public boolean pure() {
+    return a1.pure() && a2.pure();
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    return operator.evaluate(new JExpression[] {a1, a2}, type, scope);
+  }
+
 }
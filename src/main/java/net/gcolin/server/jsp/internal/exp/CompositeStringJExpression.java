@@ -72,4 +72,33 @@ public class CompositeStringJExpression implements JExpression {
     return false;
   }
 
+  @Override
+  public boolean interpretable() {
+    for (int i = 0; i < list.size(); i++) {
+      if (!list.get(i).interpretable()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean pure() {
+    for (int i = 0; i < list.size(); i++) {
+      if (!list.get(i).pure()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < list.size(); i++) {
+      sb.append(list.get(i).evaluate(scope));
+    }
+    return sb.toString();
+  }
+
 }
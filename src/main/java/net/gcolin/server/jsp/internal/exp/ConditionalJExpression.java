@@ -69,4 +69,19 @@ public class ConditionalJExpression implements JExpression {
     return cond.mustbeLocal() || r1.mustbeLocal() || r2.mustbeLocal();
   }
 
+  @Override
+  public boolean interpretable() {
+    return cond.interpretable() && r1.interpretable() && r2.interpretable();
+  }
+
+  @Override
+  public boolean pure() {
+    return cond.pure() && r1.pure() && r2.pure();
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    return (Boolean) cond.evaluate(scope) ? r1.evaluate(scope) : r2.evaluate(scope);
+  }
+
 }
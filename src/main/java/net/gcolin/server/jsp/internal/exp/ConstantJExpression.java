@@ -75,4 +75,19 @@ public class ConstantJExpression implements JExpression {
     return value == null;
   }
 
+  @Override
+  public boolean interpretable() {
+    return true;
+  }
+
+  @Override
+  public boolean pure() {
+    return true;
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    return value;
+  }
+
 }
@@ -30,4 +30,36 @@ public interface JExpression {
   default boolean isNull() {
     return false;
   }
+
+  /**
+   * Tell if the expression can be evaluated by {@link #evaluate(Scope)} without compiling the
+   * page.
+   * 
+   * @return {@code true} if the expression and its operands can be evaluated
+   */
+  default boolean interpretable() {
+    return false;
+  }
+
+  /**
+   * Tell if the expression only reads values: variables, constants, operators, bean getters, map,
+   * list and array lookups and the functions of the JSTL. Such an expression can be evaluated once
+   * instead of several times without changing the page, if its variables do not change.
+   * 
+   * @return {@code true} if the expression and its operands have no side effect
+   */
+  default boolean pure() {
+    return false;
+  }
+
+  /**
+   * Evaluate the expression without compiling the page. The result is the value of the Java code
+   * of the expression, with the primitives boxed.
+   * 
+   * @param scope the variables of the page
+   * @return the value
+   */
+  default Object evaluate(Scope scope) {
+    throw new UnsupportedOperationException("cannot interpret " + toString());
+  }
 }
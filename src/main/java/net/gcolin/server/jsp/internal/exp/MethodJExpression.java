@@ -16,7 +16,10 @@
 package net.gcolin.server.jsp.internal.exp;
 
 import net.gcolin.common.reflect.Reflect;
+import net.gcolin.server.jsp.Functions;
+import net.gcolin.server.jsp.JspRuntimeException;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 
@@ -99,4 +102,55 @@ public class MethodJExpression implements JExpression {
     }
     return ref.mustbeLocal();
   }
+
+  @Override
+  public boolean interpretable() {
+    for (int i = 0; i < arguments.length; i++) {
+      if (!arguments[i].interpretable()) {
+        return false;
+      }
+    }
+    return ref == null || ref.interpretable();
+  }
+
+  @Override
+  public boolean pure() {
+    for (int i = 0; i < arguments.length; i++) {
+      if (!arguments[i].pure()) {
+        return false;
+      }
+    }
+    if (ref == null) {
+      return method.getDeclaringClass() == Functions.class;
+    }
+    String name = method.getName();
+    boolean getter = name.startsWith("get") && name.length() > 3
+        || name.startsWith("is") && name.length() > 2;
+    return getter && arguments.length == 0 && method.getReturnType() != Void.TYPE && ref.pure();
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    Object target = null;
+    if (ref != null) {
+      target = ref.evaluate(scope);
+      if (target == null) {
+        throw new NullPointerException();
+      }
+    }
+    Object[] args = new Object[arguments.length];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = arguments[i].evaluate(scope);
+    }
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw new JspRuntimeException(ex.getCause());
+    } catch (IllegalAccessException ex) {
+      throw new JspRuntimeException(ex);
+    }
+  }
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp.internal.exp;
+
+import java.lang.reflect.Type;
+
+/**
+ * An expression that gives a default value instead of {@code null} or of a
+ * {@link NullPointerException}, like the generated {@code expression} methods of a page.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class NullSafeJExpression implements JExpression {
+
+  private final JExpression expr;
+  private final Object defaultValue;
+
+  /**
+   * Create a NullSafeJExpression.
+   * 
+   * @param expr the expression
+   * @param defaultValue the value if the expression gives {@code null} or fails with a
+   *        {@link NullPointerException}
+   */
+  public NullSafeJExpression(JExpression expr, Object defaultValue) {
+    this.expr = expr;
+    this.defaultValue = defaultValue;
+  }
+
+  @Override
+  public Class<?> getType() {
+    return expr.getType();
+  }
+
+  @Override
+  public Type getGenericType() {
+    return expr.getGenericType();
+  }
+
+  @Override
+  public boolean nullable() {
+    return false;
+  }
+
+  @Override
+  public boolean mustbeLocal() {
+    return expr.mustbeLocal();
+  }
+
+  @Override
+  public String toString() {
+    return expr.toString();
+  }
+
+  @Override
+  public boolean interpretable() {
+    return expr.interpretable();
+  }
+
+  @Override
+  public boolean pure() {
+    return expr.pure();
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    try {
+      Object value = expr.evaluate(scope);
+      return value == null ? defaultValue : value;
+    } catch (NullPointerException ex) {
+      return defaultValue;
+    }
+  }
+}
@@ -15,6 +15,8 @@
 
 package net.gcolin.server.jsp.internal.exp;
 
+import net.gcolin.server.jsp.internal.exp.operator.Operator;
+
 import java.lang.reflect.Type;
 import java.text.MessageFormat;
 
@@ -23,6 +25,7 @@ public class OperatorJExpression implements JExpression {
   private JExpression expr;
   private Class<?> type;
   private String compilePattern;
+  private Operator operator;
 
   /**
    * Create a OperatorJExpression.
@@ -30,12 +33,15 @@ public class OperatorJExpression implements JExpression {
    * @param expr expr
    * @param type type
    * @param compilePattern compilePattern
+   * @param operator the operator that evaluates the expression without compilation
    */
-  public OperatorJExpression(JExpression expr, Class<?> type, String compilePattern) {
+  public OperatorJExpression(JExpression expr, Class<?> type, String compilePattern,
+      Operator operator) {
     super();
     this.expr = expr;
     this.type = type;
     this.compilePattern = compilePattern;
+    this.operator = operator;
   }
 
   @Override
@@ -63,4 +69,19 @@ public class OperatorJExpression implements JExpression {
     return expr.mustbeLocal();
   }
 
+  @Override
+  public boolean interpretable() {
+    return expr.interpretable();
+  }
+
+  @Override
+  public boolean pure() {
+    return expr.pure();
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    return operator.evaluate(new JExpression[] {expr}, type, scope);
+  }
+
 }
@@ -65,4 +65,19 @@ public class ValueJExpression implements JExpression {
   public boolean mustbeLocal() {
     return !variable.getJavaCall().startsWith("_c.");
   }
+
+  @Override
+  public boolean interpretable() {
+    return variable != null;
+  }
+
+  @Override
+  public boolean pure() {
+    return variable != null;
+  }
+
+  @Override
+  public Object evaluate(Scope scope) {
+    return scope.get(token, variable.getVar());
+  }
 }
@@ -51,7 +51,8 @@ public abstract class BiBoolOperator extends Operator {
   public JExpression build(JExpression[] args, BuildContext context) {
     adaptEnum(args[0], args[1]);
     adaptEnum(args[1], args[0]);
-    return new BiOperatorJExpression(args[0], args[1], Boolean.class, compilePattern, context);
+    return new BiOperatorJExpression(args[0], args[1], Boolean.class, compilePattern, this,
+        context);
   }
 
   @SuppressWarnings({"unchecked", "rawtypes"})
@@ -20,6 +20,7 @@ import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.exp.BiOperatorJExpression;
 import net.gcolin.server.jsp.internal.exp.ConstantJExpression;
 import net.gcolin.server.jsp.internal.exp.JExpression;
+import net.gcolin.server.jsp.internal.exp.Scope;
 
 public abstract class BiNumberOperator extends Operator {
 
@@ -59,9 +60,50 @@ public abstract class BiNumberOperator extends Operator {
         || oneIsPrimitive(args, 0, 1) || oneIsPrimitive(args, 1, 0)) {
       type = Reflect.toPrimitiveEquivalent(type);
     }
-    return new BiOperatorJExpression(args[0], args[1], type, compilePattern, context);
+    return new BiOperatorJExpression(args[0], args[1], type, compilePattern, this, context);
   }
 
+  @Override
+  public Object evaluate(JExpression[] args, Class<?> type, Scope scope) {
+    Object v1 = args[0].evaluate(scope);
+    Object v2 = args[1].evaluate(scope);
+    if (!(v1 instanceof Number) || !(v2 instanceof Number)) {
+      if (this instanceof PlusOperator && (v1 instanceof String || v2 instanceof String)) {
+        return String.valueOf(v1) + v2;
+      }
+      if (v1 == null || v2 == null) {
+        throw new NullPointerException();
+      }
+      throw new ClassCastException("not a number " + v1 + " " + v2);
+    }
+    int runtimePriority = Math.max(Nb.priority(v1.getClass()), Nb.priority(v2.getClass()));
+    Object result;
+    if (runtimePriority > NB_2) {
+      result = apply(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+    } else {
+      result = apply(((Number) v1).longValue(), ((Number) v2).longValue());
+    }
+    return result instanceof Number ? Nb.convert((Number) result, type, runtimePriority) : result;
+  }
+
+  /**
+   * Compute the operator with integers.
+   * 
+   * @param a1 the left operand
+   * @param a2 the right operand
+   * @return a Long or a Boolean
+   */
+  protected abstract Object apply(long a1, long a2);
+
+  /**
+   * Compute the operator with decimals.
+   * 
+   * @param a1 the left operand
+   * @param a2 the right operand
+   * @return a Double or a Boolean
+   */
+  protected abstract Object apply(double a1, double a2);
+
   private boolean oneIsPrimitive(JExpression[] args, int a1, int a2) {
     return args[a1].getType().isPrimitive() && args[a2] instanceof ConstantJExpression;
   }
@@ -15,7 +15,9 @@
 
 package net.gcolin.server.jsp.internal.exp.operator;
 
-
+import net.gcolin.server.jsp.Adapters;
+import net.gcolin.server.jsp.internal.exp.JExpression;
+import net.gcolin.server.jsp.internal.exp.Scope;
 
 public class EqOperator extends BiBoolOperator {
 
@@ -23,4 +25,9 @@ public class EqOperator extends BiBoolOperator {
     super(PRECEDENCE_8, "net.gcolin.server.jsp.Adapters.eq({0},{1})");
   }
 
+  @Override
+  public Object evaluate(JExpression[] args, Class<?> type, Scope scope) {
+    return Adapters.eq(args[0].evaluate(scope), args[1].evaluate(scope));
+  }
+
 }
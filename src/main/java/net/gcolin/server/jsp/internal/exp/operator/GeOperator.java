@@ -25,4 +25,15 @@ public class GeOperator extends BiNumberOperator {
   public Class<?> getType() {
     return Boolean.class;
   }
+
+  @Override
+  protected Object apply(long a1, long a2) {
+    return a1 >= a2;
+  }
+
+  @Override
+  protected Object apply(double a1, double a2) {
+    return a1 >= a2;
+  }
+
 }
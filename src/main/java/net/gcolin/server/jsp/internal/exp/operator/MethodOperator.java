@@ -22,6 +22,7 @@ import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.exp.ConstantJExpression;
 import net.gcolin.server.jsp.internal.exp.JExpression;
 import net.gcolin.server.jsp.internal.exp.MethodJExpression;
+import net.gcolin.server.jsp.internal.exp.Scope;
 import net.gcolin.server.jsp.internal.tag.FunctionTagBuilder;
 
 import java.lang.reflect.Method;
@@ -124,6 +125,27 @@ public class MethodOperator extends Operator {
             getType();
             return genericType;
           }
+
+          @Override
+          public boolean interpretable() {
+            return args[args.length - 1].interpretable();
+          }
+
+          @Override
+          public boolean pure() {
+            return args[args.length - 1].pure();
+          }
+
+          @Override
+          public Object evaluate(Scope scope) {
+            Object map = args[args.length - 1].evaluate(scope);
+            if (map instanceof Map) {
+              return ((Map<?, ?>) map).get(name);
+            } else if (map == null) {
+              throw new NullPointerException();
+            }
+            return ((Dictionary<?, ?>) map).get(name);
+          }
         };
       }
 
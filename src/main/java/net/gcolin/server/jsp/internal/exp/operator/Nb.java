@@ -55,4 +55,26 @@ public class Nb {
   public static Class<?> priorityClass(Class<?> c1, Class<?> c2) {
     return priority(c2) > priority(c1) ? c2 : c1;
   }
+
+  /**
+   * Convert a number to the type of an expression.
+   * 
+   * @param value a number
+   * @param type the type of the expression
+   * @param priority the priority of the operands, used if the type is not a number
+   * @return the converted number
+   */
+  public static Number convert(Number value, Class<?> type, int priority) {
+    Integer nb = type == null ? null : TYPE_PRIORITY.get(Reflect.toNonPrimitiveEquivalent(type));
+    switch (nb == null ? priority : nb) {
+      case 1:
+        return value.intValue();
+      case 2:
+        return value.longValue();
+      case 3:
+        return value.floatValue();
+      default:
+        return value.doubleValue();
+    }
+  }
 }
@@ -18,6 +18,7 @@ package net.gcolin.server.jsp.internal.exp.operator;
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.exp.JExpression;
 import net.gcolin.server.jsp.internal.exp.OperatorJExpression;
+import net.gcolin.server.jsp.internal.exp.Scope;
 
 public class NotOperator extends Operator {
 
@@ -33,7 +34,12 @@ public class NotOperator extends Operator {
 
   @Override
   public JExpression build(JExpression[] args, BuildContext context) {
-    return new OperatorJExpression(args[0], Boolean.class, "!({0})");
+    return new OperatorJExpression(args[0], Boolean.class, "!({0})", this);
+  }
+
+  @Override
+  public Object evaluate(JExpression[] args, Class<?> type, Scope scope) {
+    return !(Boolean) args[0].evaluate(scope);
   }
 
 }
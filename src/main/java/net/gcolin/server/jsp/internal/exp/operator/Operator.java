@@ -17,6 +17,7 @@ package net.gcolin.server.jsp.internal.exp.operator;
 
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.exp.JExpression;
+import net.gcolin.server.jsp.internal.exp.Scope;
 
 
 public abstract class Operator {
@@ -35,4 +36,16 @@ public abstract class Operator {
 
   public abstract JExpression build(JExpression[] args, BuildContext context);
 
+  /**
+   * Evaluate the operator without compilation.
+   * 
+   * @param args the operands in the order of the generated code
+   * @param type the type of the built expression
+   * @param scope the variables
+   * @return the value
+   */
+  public Object evaluate(JExpression[] args, Class<?> type, Scope scope) {
+    throw new UnsupportedOperationException("cannot interpret " + getClass().getSimpleName());
+  }
+
 }
@@ -15,6 +15,8 @@
 
 package net.gcolin.server.jsp.internal.exp.operator;
 
+import net.gcolin.server.jsp.internal.exp.JExpression;
+import net.gcolin.server.jsp.internal.exp.Scope;
 
 public class OrOperator extends BiBoolOperator {
 
@@ -22,4 +24,9 @@ public class OrOperator extends BiBoolOperator {
     super(13, "({0}||{1})");
   }
 
+  @Override
+  public Object evaluate(JExpression[] args, Class<?> type, Scope scope) {
+    return (Boolean) args[0].evaluate(scope) || (Boolean) args[1].evaluate(scope);
+  }
+
 }
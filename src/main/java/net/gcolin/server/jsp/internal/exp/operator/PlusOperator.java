@@ -22,4 +22,14 @@ public class PlusOperator extends BiNumberOperator {
     super(PRECEDENCE_5, "({0}+{1})");
   }
 
+  @Override
+  protected Object apply(long a1, long a2) {
+    return a1 + a2;
+  }
+
+  @Override
+  protected Object apply(double a1, double a2) {
+    return a1 + a2;
+  }
+
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.server.jsp.internal.Expression;
+
+/**
+ * A Java statement that assigns the value of an expression, so it can also be interpreted.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class AssignNode extends CodeNode {
+
+  public static final String PAGE = "page";
+  public static final String REQUEST = "request";
+  public static final String SESSION = "session";
+  public static final String APPLICATION = "application";
+
+  private final String name;
+  private final String scope;
+  private final Expression value;
+  private final boolean notNull;
+
+  /**
+   * Create an AssignNode.
+   * 
+   * @param code the Java statement
+   * @param name the name of the variable or {@code null} for evaluating the expression only
+   * @param scope the scope of the variable
+   * @param value the expression
+   * @param notNull {@code true} for assigning {@code value != null} instead of the value
+   */
+  public AssignNode(String code, String name, String scope, Expression value, boolean notNull) {
+    super(code);
+    this.name = name;
+    this.scope = scope;
+    this.value = value;
+    this.notNull = notNull;
+    getVariables().addAll(value.getVariables());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Expression getValue() {
+    return value;
+  }
+
+  @Override
+  public boolean interpretable() {
+    return value.isInterpretable();
+  }
+
+  @Override
+  public void interpret(Frame frame) {
+    Object result = value.evaluate(frame);
+    if (notNull) {
+      result = result != null;
+    }
+    if (name == null) {
+      return;
+    } else if (REQUEST.equals(scope)) {
+      frame.getRequest().setAttribute(name, result);
+    } else if (SESSION.equals(scope)) {
+      frame.getRequest().getSession().setAttribute(name, result);
+    } else if (APPLICATION.equals(scope)) {
+      frame.getRequest().getServletContext().setAttribute(name, result);
+    } else {
+      frame.set(name, result);
+    }
+  }
+
+}
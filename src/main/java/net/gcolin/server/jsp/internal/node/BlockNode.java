@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A node that contains other nodes.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class BlockNode extends Node {
+
+  private List<Node> children = new ArrayList<>();
+  private Set<String> locals = new HashSet<>();
+  private Set<String> declared = new HashSet<>();
+
+  public List<Node> getChildren() {
+    return children;
+  }
+
+  /**
+   * Get the names of the variables declared or assigned in the block or in one of its sub blocks.
+   * 
+   * @return variable names
+   */
+  public Set<String> getLocals() {
+    return locals;
+  }
+
+  public void add(Node node) {
+    children.add(node);
+  }
+
+  /**
+   * Get the names of the variables declared in the block or in one of its sub blocks.
+   * 
+   * @return variable names
+   */
+  public Set<String> getDeclared() {
+    return declared;
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    for (Node child : children) {
+      child.collectVariables(variables);
+    }
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    out.block(children);
+  }
+
+  @Override
+  public boolean interpretable() {
+    for (Node child : children) {
+      if (!child.interpretable()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Find the node that prevents the interpretation of the block.
+   * 
+   * @return the deepest node that cannot be interpreted or {@code null} if the block can be
+   *         interpreted
+   */
+  public Node unsupported() {
+    for (Node child : children) {
+      if (!child.interpretable()) {
+        Node node = child instanceof BlockNode ? ((BlockNode) child).unsupported() : null;
+        return node == null ? child : node;
+      }
+    }
+    return interpretable() ? null : this;
+  }
+
+  @Override
+  public void interpret(Frame frame) throws IOException {
+    for (int i = 0; i < children.size(); i++) {
+      children.get(i).interpret(frame);
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A Java statement.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CodeNode extends Node {
+
+  private final String code;
+  private final boolean writes;
+  private final Set<String> variables = new HashSet<>();
+
+  public CodeNode(String code) {
+    this(code, true);
+  }
+
+  /**
+   * Create a CodeNode.
+   * 
+   * @param code a Java statement
+   * @param writes {@code false} if the statement never writes in the page output
+   */
+  public CodeNode(String code, boolean writes) {
+    this.code = code;
+    this.writes = writes;
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * Get the names of the page variables read by the statement.
+   * 
+   * @return variable names
+   */
+  public Set<String> getVariables() {
+    return variables;
+  }
+
+  @Override
+  public boolean writes() {
+    return writes;
+  }
+
+  @Override
+  public boolean movable() {
+    return false;
+  }
+
+  @Override
+  public void collectVariables(Set<String> vars) {
+    vars.addAll(variables);
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    out.line(code);
+  }
+
+}
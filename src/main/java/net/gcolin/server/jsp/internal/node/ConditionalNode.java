@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.server.jsp.internal.Expression;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A block executed if a test is true.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class ConditionalNode extends BlockNode {
+
+  private Expression test;
+  private final String var;
+
+  /**
+   * Create a ConditionalNode.
+   * 
+   * @param test the test
+   * @param var the name of a local boolean that contains the test result or {@code null}
+   */
+  public ConditionalNode(Expression test, String var) {
+    this.test = test;
+    this.var = var;
+  }
+
+  public Expression getTest() {
+    return test;
+  }
+
+  public void setTest(Expression test) {
+    this.test = test;
+  }
+
+  public String getVar() {
+    return var;
+  }
+
+  /**
+   * Get the Java condition.
+   * 
+   * @return a Java boolean expression
+   */
+  public String getCondition() {
+    if (var != null) {
+      return var;
+    } else if (test.getType() == boolean.class || test.getType() == Boolean.class) {
+      return test.getJavaCall();
+    } else {
+      return test.getJavaCall() + " != null";
+    }
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    if (var != null) {
+      variables.add(var);
+    } else {
+      variables.addAll(test.getVariables());
+    }
+    super.collectVariables(variables);
+  }
+
+  @Override
+  public boolean interpretable() {
+    return (var != null || test.isInterpretable()) && super.interpretable();
+  }
+
+  @Override
+  public void interpret(Frame frame) throws IOException {
+    boolean value;
+    if (var != null) {
+      value = (Boolean) frame.get(var, null);
+    } else if (test.getType() == boolean.class || test.getType() == Boolean.class) {
+      value = (Boolean) test.evaluate(frame);
+    } else {
+      value = test.evaluate(frame) != null;
+    }
+    if (value) {
+      super.interpret(frame);
+    }
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    out.line("if(" + getCondition() + ") {");
+    out.incrTab();
+    super.toJava(out);
+    out.decrTab();
+    out.line("}");
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.common.reflect.Reflect;
+import net.gcolin.server.jsp.Adapters;
+import net.gcolin.server.jsp.AttributeSlot;
+import net.gcolin.server.jsp.internal.Var;
+import net.gcolin.server.jsp.internal.Var.VarType;
+import net.gcolin.server.jsp.internal.exp.Scope;
+
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The state of a request executed by the interpreter. The variables are resolved like in the
+ * {@code Context} of a compiled page.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class Frame implements Scope {
+
+  private final HttpServletRequest request;
+  private final HttpServletResponse response;
+  private final Writer writer;
+  private final Map<String, Object> shared;
+  private final Map<String, Object> locals = new HashMap<>();
+  private final Map<String, Object> beans = new HashMap<>();
+
+  /**
+   * Create a Frame.
+   * 
+   * @param request the request
+   * @param response the response
+   * @param writer the page output
+   * @param shared the values shared by the requests of the page, as the inject function
+   */
+  public Frame(HttpServletRequest request, HttpServletResponse response, Writer writer,
+      Map<String, Object> shared) {
+    this.request = request;
+    this.response = response;
+    this.writer = writer;
+    this.shared = shared;
+  }
+
+  public Writer getWriter() {
+    return writer;
+  }
+
+  public HttpServletRequest getRequest() {
+    return request;
+  }
+
+  /**
+   * Set a local variable.
+   * 
+   * @param name the name of the variable
+   * @param value the value
+   */
+  public void set(String name, Object value) {
+    locals.put(name, value);
+  }
+
+  @Override
+  public Object get(String name, Var var) {
+    if (var == null) {
+      if ("request".equals(name)) {
+        return request;
+      } else if ("response".equals(name)) {
+        return response;
+      } else if ("param".equals(name)) {
+        return Adapters.params(request);
+      }
+      return locals.get(name);
+    }
+    VarType type = var.getVarType();
+    Object value;
+    if (type == VarType.REQUEST_ATTRIBUTE) {
+      value = AttributeSlot.of(name).get(request);
+    } else if (type == VarType.SESSION_ATTRIBUTE) {
+      value = getSessionAttribute(name, var);
+    } else if (type == VarType.APPLICATION_ATTRIBUTE) {
+      value = request.getServletContext().getAttribute(name);
+    } else if (type == VarType.BEAN) {
+      value = getBean(name, var.getType());
+    } else {
+      return locals.get(name);
+    }
+    return Reflect.toNonPrimitiveEquivalent(var.getType()).cast(value);
+  }
+
+  private Object getSessionAttribute(String name, Var var) {
+    if (var.getType() == Locale.class && "locale".equals(name)) {
+      Object locale =
+          request.getSession().getAttribute("javax.servlet.jsp.jstl.fmt.locale.session");
+      if (locale == null) {
+        locale = request.getLocale();
+      }
+      return locale == null ? Locale.getDefault() : locale;
+    }
+    return request.getSession().getAttribute(name);
+  }
+
+  /**
+   * Get a bean resolved once by request, with the inject function resolved once for all the
+   * requests of the page.
+   */
+  @SuppressWarnings("unchecked")
+  private Object getBean(String name, Class<?> type) {
+    Object value = beans.get(name);
+    if (value == null) {
+      BiFunction<String, Type, Object> inject =
+          (BiFunction<String, Type, Object>) shared.get("inject");
+      if (inject == null) {
+        inject = (BiFunction<String, Type, Object>) request.getServletContext()
+            .getAttribute("inject");
+        if (inject != null) {
+          shared.put("inject", inject);
+        }
+      }
+      value = inject.apply(name, type);
+      beans.put(name, value);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.common.lang.Strings;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Minify the static HTML of a page.
+ * 
+ * <p>
+ * The comments are removed, except the conditional comments and the comments containing a dynamic
+ * part. The spaces before and after a block-level tag are removed. The content of {@code pre},
+ * {@code textarea}, {@code script} and {@code style} is kept as it is. The texts are visited in
+ * the page order, so an element can start in a text and end in another one.
+ * </p>
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class HtmlMinifier {
+
+  private static final Set<String> BLOCKS = new HashSet<>(Arrays.asList("!doctype", "html",
+      "head", "body", "title", "meta", "link", "base", "div", "p", "ul", "ol", "li", "dl", "dt",
+      "dd", "table", "caption", "colgroup", "col", "thead", "tbody", "tfoot", "tr", "td", "th",
+      "section", "article", "aside", "nav", "header", "footer", "main", "h1", "h2", "h3", "h4",
+      "h5", "h6", "form", "fieldset", "legend", "hr", "blockquote", "figure", "figcaption",
+      "address", "details", "summary", "noscript", "option", "optgroup"));
+  private static final Set<String> RAW =
+      new HashSet<>(Arrays.asList("pre", "textarea", "script", "style"));
+  private static final String START_COMMENT = "<!--";
+  private static final String END_COMMENT = "-->";
+
+  private String lastTag = "";
+  private String raw;
+  private boolean rawStart;
+  private boolean comment;
+  private char prec;
+
+  /**
+   * Minify the texts of a block and its children.
+   * 
+   * @param block a block
+   */
+  public void minify(BlockNode block) {
+    for (Node child : block.getChildren()) {
+      if (child instanceof TextNode) {
+        TextNode text = (TextNode) child;
+        text.setText(minify(text.getText()));
+      } else if (child instanceof BlockNode) {
+        minify((BlockNode) child);
+        prec = 0;
+      } else if (child.writes()) {
+        prec = 0;
+      }
+    }
+  }
+
+  private String minify(String text) {
+    StringBuilder str = new StringBuilder(text.length());
+    int len = text.length();
+    int idx = 0;
+    while (idx < len) {
+      int end;
+      char ch = text.charAt(idx);
+      if (comment) {
+        // a comment with a dynamic part
+        end = text.indexOf(END_COMMENT, idx);
+        comment = end == -1;
+        end = end == -1 ? len : end + END_COMMENT.length();
+      } else if (raw != null) {
+        end = indexOfIgnoreCase(text, "</" + raw, idx);
+        if (end == -1) {
+          end = len;
+        } else {
+          raw = null;
+        }
+      } else if (rawStart && ch == '>') {
+        rawStart = false;
+        raw = lastTag;
+        end = idx + 1;
+      } else if (text.startsWith(START_COMMENT, idx) && !isConditional(text, idx)) {
+        end = text.indexOf(END_COMMENT, idx + START_COMMENT.length());
+        if (end != -1) {
+          idx = end + END_COMMENT.length();
+          continue;
+        }
+        comment = true;
+        end = len;
+      } else if (Strings.isBlank(ch)) {
+        end = idx + 1;
+        while (end < len && Strings.isBlank(text.charAt(end))) {
+          end++;
+        }
+        if (prec == '>' && BLOCKS.contains(lastTag)
+            || end < len && text.charAt(end) == '<' && BLOCKS.contains(tagName(text, end))) {
+          idx = end;
+          continue;
+        }
+      } else {
+        end = idx + 1;
+        if (ch == '<') {
+          String name = tagName(text, idx);
+          if (!name.isEmpty()) {
+            lastTag = name;
+            rawStart = RAW.contains(name) && text.charAt(idx + 1) != '/';
+          }
+        }
+      }
+      if (end > idx) {
+        str.append(text, idx, end);
+        prec = text.charAt(end - 1);
+      }
+      idx = end;
+    }
+    return str.toString();
+  }
+
+  private static boolean isConditional(String text, int idx) {
+    int start = idx + START_COMMENT.length();
+    return text.startsWith("[", start) || text.startsWith("<!", start)
+        || text.startsWith(">", start);
+  }
+
+  /**
+   * Get the name of a tag, without the {@code /} of an end tag.
+   * 
+   * @param text the text
+   * @param idx the index of the {@code <}
+   * @return the lower case name or an empty string
+   */
+  private static String tagName(String text, int idx) {
+    int start = idx + 1;
+    if (start < text.length() && text.charAt(start) == '/') {
+      start++;
+    }
+    int end = start;
+    while (end < text.length()
+        && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '!')) {
+      end++;
+    }
+    return text.substring(start, end).toLowerCase(Locale.ENGLISH);
+  }
+
+  private static int indexOfIgnoreCase(String text, String search, int from) {
+    for (int i = from, last = text.length() - search.length(); i <= last; i++) {
+      if (text.regionMatches(true, i, search, 0, search.length())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.server.jsp.internal.Expression;
+
+import java.util.Set;
+
+/**
+ * A dynamic include of another page. The children set the include parameters.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class IncludeNode extends BlockNode {
+
+  private Expression page;
+  private final String uri;
+  private final String var;
+  private final boolean body;
+
+  /**
+   * Create an IncludeNode.
+   * 
+   * @param page the included page
+   * @param uri the uri of the current page
+   * @param var the local variable of the request dispatcher
+   * @param body {@code true} if the include has parameters
+   */
+  public IncludeNode(Expression page, String uri, String var, boolean body) {
+    this.page = page;
+    this.uri = uri;
+    this.var = var;
+    this.body = body;
+  }
+
+  public Expression getPage() {
+    return page;
+  }
+
+  public void setPage(Expression page) {
+    this.page = page;
+  }
+
+  public String getUri() {
+    return uri;
+  }
+
+  public boolean hasBody() {
+    return body;
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    variables.addAll(page.getVariables());
+    super.collectVariables(variables);
+  }
+
+  @Override
+  public boolean interpretable() {
+    return false;
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    String dispatcher = "_c._r.getServletContext().getRequestDispatcher("
+        + "net.gcolin.server.jsp.Util.getAbsoluteUri(" + page.getJavaCall() + ",\"" + uri
+        + "\"))";
+    out.line("try {");
+    out.incrTab();
+    out.line("_c._r.setAttribute(\"jspwriter\",_w);");
+    if (body) {
+      out.line("javax.servlet.RequestDispatcher " + var + " = " + dispatcher + ";");
+      super.toJava(out);
+      out.line(var + ".include(_c._r,_c._re);");
+    } else {
+      out.line(dispatcher + ".include(_c._r,_c._re);");
+    }
+    out.decrTab();
+    out.line("} catch(javax.servlet.ServletException e) {");
+    out.line("    throw new java.io.IOException(e);");
+    out.line("} finally {");
+    if (body) {
+      out.line("    _c._r.removeAttribute(\"param\");");
+    }
+    out.line("    _c._r.removeAttribute(\"jspwriter\");");
+    out.line("}");
+  }
+
+}
@@ -0,0 +1,380 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.server.jsp.internal.Smap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lower the nodes to Java code.
+ *
+ * <p>
+ * HotSpot does not compile a method larger than 8000 bytes of bytecode and a method cannot exceed
+ * 64KB, so when the code of a block is too large, its nodes are moved into private methods. The
+ * method receives the context, the writer and the local variables read by the nodes.
+ * </p>
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class JavaBuilder {
+
+  /**
+   * The maximum number of lines of a generated method. A line is a statement of about 5 to 15
+   * bytes of bytecode.
+   */
+  static final int METHOD_LINES = 400;
+
+  /**
+   * The minimum number of lines moved in a new method.
+   */
+  static final int MIN_METHOD_LINES = 10;
+
+  private final StringBuilder str = new StringBuilder();
+  private final List<Fragment> fragments;
+  private final List<String> methods;
+  private final Deque<Map<String, String>> scopes;
+  private final AtomicInteger methodIndex;
+  private final boolean inFragment;
+  private int indent;
+  private int lines;
+  private int file;
+  private int line;
+
+  /**
+   * Create a JavaBuilder.
+   * 
+   * @param indent the initial indentation
+   * @param inFragment {@code true} if the code is in a JspFragment
+   * @param fragments the fragments found while lowering
+   * @param methodIndex the index of the next generated method
+   */
+  public JavaBuilder(int indent, boolean inFragment, List<Fragment> fragments,
+      AtomicInteger methodIndex) {
+    this.indent = indent;
+    this.inFragment = inFragment;
+    this.fragments = fragments;
+    this.methodIndex = methodIndex;
+    this.methods = new ArrayList<>();
+    this.scopes = new ArrayDeque<>();
+  }
+
+  public JavaBuilder(int indent) {
+    this(indent, false, new ArrayList<>(), new AtomicInteger());
+  }
+
+  private JavaBuilder(JavaBuilder parent) {
+    this.indent = parent.indent;
+    this.inFragment = parent.inFragment;
+    this.fragments = parent.fragments;
+    this.methodIndex = parent.methodIndex;
+    this.methods = parent.methods;
+    this.scopes = parent.scopes;
+    this.file = parent.file;
+    this.line = parent.line;
+  }
+
+  /**
+   * Write a Java line. The line is marked with the position of the node in the JSP, for the
+   * {@link Smap}.
+   * 
+   * @param line a Java line
+   */
+  public void line(String line) {
+    for (int i = 0; i < indent; i++) {
+      str.append("    ");
+    }
+    str.append(line);
+    if (this.line > 0) {
+      Smap.mark(str, file, this.line);
+    }
+    str.append('\n');
+    lines++;
+  }
+
+  public void incrTab() {
+    indent++;
+  }
+
+  public void decrTab() {
+    indent--;
+  }
+
+  public boolean isInFragment() {
+    return inFragment;
+  }
+
+  public void openScope() {
+    scopes.offerLast(new HashMap<>());
+  }
+
+  public void closeScope() {
+    scopes.pollLast();
+  }
+
+  /**
+   * Declare a local variable in the current scope.
+   * 
+   * @param name the variable name
+   * @param type the Java type
+   */
+  public void declare(String name, String type) {
+    scopes.peekLast().put(name, type);
+  }
+
+  private Map<String, String> getVisibleLocals() {
+    if (scopes.size() == 1) {
+      return new HashMap<>(scopes.peekLast());
+    }
+    Map<String, String> visible = new HashMap<>();
+    for (Map<String, String> scope : scopes) {
+      visible.putAll(scope);
+    }
+    return visible;
+  }
+
+  /**
+   * Lower a list of nodes in a new scope. If the code is too large, the movable nodes are grouped
+   * in private methods.
+   * 
+   * @param nodes the nodes
+   */
+  public void block(List<Node> nodes) {
+    openScope();
+    List<Piece> pieces = new ArrayList<>(nodes.size());
+    int total = 0;
+    for (Node node : nodes) {
+      Piece piece = new Piece(node, getVisibleLocals());
+      JavaBuilder builder = new JavaBuilder(this);
+      if (node.getLine() > 0) {
+        builder.file = node.getFile();
+        builder.line = node.getLine();
+      }
+      node.toJava(builder);
+      piece.code = builder.str;
+      piece.lines = builder.lines;
+      total += piece.lines;
+      pieces.add(piece);
+    }
+    if (total <= METHOD_LINES) {
+      for (Piece piece : pieces) {
+        append(piece);
+      }
+    } else {
+      split(pieces);
+    }
+    closeScope();
+  }
+
+  private void split(List<Piece> pieces) {
+    List<Piece> group = new ArrayList<>();
+    int groupLines = 0;
+    for (Piece piece : pieces) {
+      if (!piece.movable()) {
+        flush(group, groupLines);
+        groupLines = 0;
+        append(piece);
+      } else {
+        if (groupLines + piece.lines > METHOD_LINES) {
+          flush(group, groupLines);
+          groupLines = 0;
+        }
+        group.add(piece);
+        groupLines += piece.lines;
+      }
+    }
+    flush(group, groupLines);
+  }
+
+  private void flush(List<Piece> group, int groupLines) {
+    if (group.isEmpty()) {
+      return;
+    }
+    if (groupLines < MIN_METHOD_LINES) {
+      for (Piece piece : group) {
+        append(piece);
+      }
+      group.clear();
+      return;
+    }
+    Map<String, String> parameters = new TreeMap<>();
+    for (Piece piece : group) {
+      for (String name : piece.variables) {
+        String type = piece.visible.get(name);
+        if (type != null) {
+          parameters.put(name, type);
+        }
+      }
+    }
+    String name = "m" + methodIndex.getAndIncrement();
+    int memberIndent = inFragment ? 2 : 1;
+    StringBuilder method = new StringBuilder();
+    StringBuilder call = new StringBuilder(name).append("(_c,_w");
+    appendIndent(method, memberIndent);
+    method.append("private void ").append(name).append("(Context _c,java.io.Writer _w");
+    for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+      method.append(',').append(parameter.getValue()).append(' ').append(parameter.getKey());
+      call.append(',').append(parameter.getKey());
+    }
+    method.append(") throws ")
+        .append(inFragment ? "javax.servlet.jsp.JspException" : "javax.servlet.ServletException")
+        .append(", java.io.IOException {\n");
+    for (Piece piece : group) {
+      reindent(piece.code, indent, memberIndent + 1, method);
+    }
+    appendIndent(method, memberIndent);
+    method.append("}\n");
+    methods.add(method.toString());
+    line(call.append(");").toString());
+    group.clear();
+  }
+
+  private void append(Piece piece) {
+    str.append(piece.code);
+    lines += piece.lines;
+  }
+
+  private static void appendIndent(StringBuilder sb, int indent) {
+    for (int i = 0; i < indent; i++) {
+      sb.append("    ");
+    }
+  }
+
+  private static void reindent(CharSequence code, int from, int to, StringBuilder out) {
+    int start = 0;
+    for (int i = 0; i < code.length(); i++) {
+      if (code.charAt(i) == '\n') {
+        int skip = Math.min(from * 4, countSpaces(code, start, i));
+        appendIndent(out, to);
+        out.append(code, start + skip, i + 1);
+        start = i + 1;
+      }
+    }
+  }
+
+  private static int countSpaces(CharSequence code, int start, int end) {
+    int count = 0;
+    while (start + count < end && code.charAt(start + count) == ' ') {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Add a JspFragment that will be written as an inner class.
+   * 
+   * @param name the inner class name
+   * @param body the fragment body
+   */
+  public void addFragment(String name, List<Node> body) {
+    JavaBuilder builder = new JavaBuilder(3, true, fragments, methodIndex);
+    builder.block(body);
+    fragments.add(new Fragment(name, builder.toString(), builder.getMethods()));
+  }
+
+  public List<Fragment> getFragments() {
+    return fragments;
+  }
+
+  /**
+   * Get the private methods created for the large blocks.
+   * 
+   * @return the Java code of the methods
+   */
+  public List<String> getMethods() {
+    return methods;
+  }
+
+  @Override
+  public String toString() {
+    return str.toString();
+  }
+
+  private static class Piece {
+
+    private final Node node;
+    private final Map<String, String> visible;
+    private final Set<String> variables;
+    private CharSequence code;
+    private int lines;
+
+    Piece(Node node, Map<String, String> visible) {
+      this.node = node;
+      this.visible = visible;
+      Set<String> vars = new HashSet<>();
+      node.collectVariables(vars);
+      this.variables = vars;
+    }
+
+    boolean movable() {
+      if (!node.movable()) {
+        return false;
+      }
+      if (node instanceof BlockNode) {
+        BlockNode block = (BlockNode) node;
+        for (String name : block.getLocals()) {
+          // a variable of the enclosing scope is assigned
+          if (!block.getDeclared().contains(name) && visible.containsKey(name)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  public static class Fragment {
+
+    private final String name;
+    private final String code;
+    private final List<String> methods;
+
+    /**
+     * Create a Fragment.
+     * 
+     * @param name the inner class name
+     * @param code the Java code of the invoke method
+     * @param methods the private methods of the inner class
+     */
+    public Fragment(String name, String code, List<String> methods) {
+      this.name = name;
+      this.code = code;
+      this.methods = methods;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public List<String> getMethods() {
+      return methods;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.common.reflect.Reflect;
+import net.gcolin.server.jsp.internal.Expression;
+
+import java.util.Set;
+
+/**
+ * Declare a local variable, optionally initialized with the value of an expression.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class LocalNode extends Node {
+
+  private final String name;
+  private final String type;
+  private final Expression value;
+
+  public LocalNode(String name, Expression value) {
+    this(name, Reflect.toJavaClass(value.getGenericType()), value);
+  }
+
+  /**
+   * Create a LocalNode.
+   * 
+   * @param name the variable name
+   * @param type the Java type of the variable
+   * @param value the initial value or {@code null}
+   */
+  public LocalNode(String name, String type, Expression value) {
+    this.name = name;
+    this.type = type;
+    this.value = value;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Expression getValue() {
+    return value;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  @Override
+  public boolean writes() {
+    return false;
+  }
+
+  @Override
+  public boolean movable() {
+    return false;
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    if (value != null) {
+      variables.addAll(value.getVariables());
+    }
+  }
+
+  @Override
+  public boolean interpretable() {
+    return value == null || value.isInterpretable();
+  }
+
+  @Override
+  public void interpret(Frame frame) {
+    frame.set(name, value == null ? null : value.evaluate(frame));
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    if (value == null) {
+      out.line(type + " " + name + ";");
+    } else {
+      out.line(type + " " + name + " = " + value.getJavaCall() + ";");
+    }
+    out.declare(name, type);
+  }
+
+}
@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.common.reflect.Reflect;
+import net.gcolin.server.jsp.Functions;
+import net.gcolin.server.jsp.LoopTagStatus;
+import net.gcolin.server.jsp.internal.Expression;
+import net.gcolin.server.jsp.internal.Var;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A loop over the items of a collection or over a range of integers.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class LoopNode extends BlockNode {
+
+  private Expression items;
+  private Type itemType;
+  private boolean list;
+  private Var var;
+  private Var varStatus;
+  private Expression begin;
+  private Expression end;
+  private Expression step;
+  private String[] names;
+  private final List<LocalNode> hoisted = new ArrayList<>();
+  private String first;
+
+  /**
+   * Create a LoopNode.
+   * 
+   * @param items the items or {@code null} for a range loop
+   * @param itemType the type of an item
+   * @param list {@code true} if the items can be accessed by index
+   * @param names three anonymous variable names
+   */
+  public LoopNode(Expression items, Type itemType, boolean list, String[] names) {
+    this.items = items;
+    this.itemType = itemType;
+    this.list = list;
+    this.names = names;
+  }
+
+  public Expression getItems() {
+    return items;
+  }
+
+  public void setItems(Expression items) {
+    this.items = items;
+  }
+
+  public Type getItemType() {
+    return itemType;
+  }
+
+  public boolean isList() {
+    return list;
+  }
+
+  public Var getVar() {
+    return var;
+  }
+
+  public void setVar(Var var) {
+    this.var = var;
+  }
+
+  public Var getVarStatus() {
+    return varStatus;
+  }
+
+  public void setVarStatus(Var varStatus) {
+    this.varStatus = varStatus;
+  }
+
+  public Expression getBegin() {
+    return begin;
+  }
+
+  public void setBegin(Expression begin) {
+    this.begin = begin;
+  }
+
+  public Expression getEnd() {
+    return end;
+  }
+
+  public void setEnd(Expression end) {
+    this.end = end;
+  }
+
+  public Expression getStep() {
+    return step;
+  }
+
+  public void setStep(Expression step) {
+    this.step = step;
+  }
+
+  /**
+   * Get the locals evaluated once, at the first iteration.
+   * 
+   * @return the hoisted locals
+   */
+  public List<LocalNode> getHoisted() {
+    return hoisted;
+  }
+
+  public String getFirst() {
+    return first;
+  }
+
+  /**
+   * Set the name of the flag of the first iteration, which evaluates the hoisted locals.
+   * 
+   * @param first an anonymous variable name
+   */
+  public void setFirst(String first) {
+    this.first = first;
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    for (Expression expr : new Expression[] {items, begin, end, step}) {
+      if (expr != null) {
+        variables.addAll(expr.getVariables());
+      }
+    }
+    for (LocalNode local : hoisted) {
+      local.collectVariables(variables);
+    }
+    super.collectVariables(variables);
+  }
+
+  private static String toInt(Expression expr) {
+    if (expr == null) {
+      return null;
+    } else if (expr.getType() == String.class) {
+      return "Integer.parseInt(" + expr.getJavaCall() + ")";
+    } else {
+      return expr.getJavaCall();
+    }
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    out.openScope();
+    if (items != null) {
+      itemsToJava(out);
+    } else {
+      rangeToJava(out);
+    }
+    out.closeScope();
+  }
+
+  private void itemsToJava(JavaBuilder out) {
+    String beginStr = toInt(begin);
+    String endStr = toInt(end);
+    String stepStr = toInt(step);
+    String collection = names[2];
+    out.line(Reflect.toJavaClass(items.getGenericType()) + " " + collection + " = "
+        + items.getJavaCall() + ";");
+    out.line("if(" + collection + "!=null){");
+    out.incrTab();
+    if (varStatus != null) {
+      declareStatus(out);
+      out.line(varStatus.getName() + ".setCount(net.gcolin.server.jsp.Functions.length("
+          + collection + "));");
+      if (beginStr != null) {
+        out.line(varStatus.getName() + ".setBegin(" + beginStr + ");");
+      }
+      if (endStr != null) {
+        out.line(varStatus.getName() + ".setEnd(" + endStr + ");");
+      }
+      if (stepStr != null) {
+        out.line(varStatus.getName() + ".setStep(" + stepStr + ");");
+      }
+    }
+    hoistedToJava(out);
+    String item = Reflect.toJavaClass(itemType);
+    if (list) {
+      String ivar = names[0];
+      String evar = names[1];
+      out.line("for(int " + ivar + "=" + (beginStr == null ? "0" : beginStr) + "," + evar + "="
+          + (endStr == null ? collection + ".size()" : endStr + "+1") + ";" + ivar + "<" + evar
+          + "; " + ivar + "++ ) {");
+      out.incrTab();
+      out.line(item + " " + var.getName() + " = " + collection + ".get(" + ivar + ");");
+    } else {
+      out.line("for(" + item + " " + var.getName() + " : " + collection + "){");
+      out.incrTab();
+    }
+    if (varStatus != null) {
+      String status = varStatus.getName();
+      out.line(status + ".setCurrent(" + var.getName() + ");");
+      out.line(status + ".setIndex(1+" + status + ".getIndex());");
+      out.line(status + ".setFirst(0==" + status + ".getIndex());");
+      out.line(status + ".setLast(" + status + ".getCount()-1==" + status + ".getIndex());");
+    }
+    firstToJava(out);
+    super.toJava(out);
+    out.decrTab();
+    out.line("}");
+    out.decrTab();
+    out.line("}");
+  }
+
+  private void rangeToJava(JavaBuilder out) {
+    String beginStr = toInt(begin);
+    String endStr = toInt(end);
+    String stepStr = toInt(step);
+    if (varStatus != null) {
+      declareStatus(out);
+      out.line(varStatus.getName() + ".setBegin(" + beginStr + ");");
+      out.line(varStatus.getName() + ".setEnd(" + endStr + ");");
+      if (stepStr != null) {
+        out.line(varStatus.getName() + ".setStep(" + stepStr + ");");
+      }
+    }
+    hoistedToJava(out);
+    String bi = names[0];
+    String ei = names[1];
+    String si = names[2];
+    out.line("for(int " + bi + "=" + beginStr + "," + ei + "=" + endStr + "," + si + "="
+        + (stepStr == null ? "1" : stepStr) + ";" + bi + "<=" + ei + ";" + bi + "+=" + si + "){");
+    out.incrTab();
+    if (var != null) {
+      out.line("int " + var.getName() + " = " + bi + ";");
+    }
+    if (varStatus != null) {
+      String status = varStatus.getName();
+      out.line(status + ".setIndex(" + bi + ");");
+      out.line(status + ".setFirst(" + bi + "==(int)" + status + ".getBegin());");
+      out.line(status + ".setLast(" + ei + ">" + si + "+ ((int)" + status + ".getEnd()));");
+    }
+    firstToJava(out);
+    super.toJava(out);
+    out.decrTab();
+    out.line("}");
+  }
+
+  private void hoistedToJava(JavaBuilder out) {
+    for (LocalNode local : hoisted) {
+      out.line(local.getType() + " " + local.getName() + " = "
+          + defaultValue(local.getValue().getType()) + ";");
+      out.declare(local.getName(), local.getType());
+    }
+    if (!hoisted.isEmpty()) {
+      out.line("boolean " + first + " = true;");
+    }
+    if (var != null) {
+      out.declare(var.getName(), items == null ? "int" : Reflect.toJavaClass(itemType));
+    }
+    if (varStatus != null) {
+      out.declare(varStatus.getName(), Reflect.toJavaClass(LoopTagStatus.class));
+    }
+  }
+
+  private void firstToJava(JavaBuilder out) {
+    if (hoisted.isEmpty()) {
+      return;
+    }
+    out.line("if(" + first + "){");
+    out.incrTab();
+    out.line(first + " = false;");
+    for (LocalNode local : hoisted) {
+      out.line(local.getName() + " = " + local.getValue().getJavaCall() + ";");
+    }
+    out.decrTab();
+    out.line("}");
+  }
+
+  private static String defaultValue(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return "null";
+    } else if (type == boolean.class) {
+      return "false";
+    } else if (type == char.class) {
+      return "'\\0'";
+    } else {
+      return "0";
+    }
+  }
+
+  private static Integer toInt(Expression expr, Frame frame) {
+    if (expr == null) {
+      return null;
+    }
+    Object value = expr.evaluate(frame);
+    if (value instanceof String) {
+      return Integer.parseInt((String) value);
+    } else {
+      return ((Number) value).intValue();
+    }
+  }
+
+  @Override
+  public boolean interpretable() {
+    for (Expression expr : new Expression[] {items, begin, end, step}) {
+      if (expr != null && !expr.isInterpretable()) {
+        return false;
+      }
+    }
+    for (LocalNode local : hoisted) {
+      if (!local.interpretable()) {
+        return false;
+      }
+    }
+    return super.interpretable();
+  }
+
+  @Override
+  public void interpret(Frame frame) throws IOException {
+    if (items != null) {
+      interpretItems(frame);
+    } else {
+      interpretRange(frame);
+    }
+  }
+
+  private void interpretItems(Frame frame) throws IOException {
+    Object collection = items.evaluate(frame);
+    if (collection == null) {
+      return;
+    }
+    Integer beginValue = toInt(begin, frame);
+    Integer endValue = toInt(end, frame);
+    LoopTagStatus status = null;
+    if (varStatus != null) {
+      status = new LoopTagStatus();
+      status.setCount(Functions.length(collection));
+      status.setBegin(beginValue);
+      status.setEnd(endValue);
+      status.setStep(toInt(step, frame));
+      frame.set(varStatus.getName(), status);
+    }
+    boolean firstIteration = true;
+    if (list) {
+      List<?> values = (List<?>) collection;
+      for (int i = beginValue == null ? 0 : beginValue,
+          e = endValue == null ? values.size() : endValue + 1; i < e; i++) {
+        iteration(frame, status, values.get(i), firstIteration);
+        firstIteration = false;
+      }
+    } else if (collection.getClass().isArray()) {
+      for (int i = 0, e = Array.getLength(collection); i < e; i++) {
+        iteration(frame, status, Array.get(collection, i), firstIteration);
+        firstIteration = false;
+      }
+    } else {
+      for (Object item : (Iterable<?>) collection) {
+        iteration(frame, status, item, firstIteration);
+        firstIteration = false;
+      }
+    }
+  }
+
+  private void iteration(Frame frame, LoopTagStatus status, Object item, boolean firstIteration)
+      throws IOException {
+    frame.set(var.getName(), item);
+    if (status != null) {
+      status.setCurrent(item);
+      status.setIndex(1 + status.getIndex());
+      status.setFirst(0 == status.getIndex());
+      status.setLast(status.getCount() - 1 == status.getIndex());
+    }
+    if (firstIteration) {
+      interpretHoisted(frame);
+    }
+    super.interpret(frame);
+  }
+
+  private void interpretHoisted(Frame frame) {
+    for (LocalNode local : hoisted) {
+      local.interpret(frame);
+    }
+  }
+
+  private void interpretRange(Frame frame) throws IOException {
+    int beginValue = toInt(begin, frame);
+    int endValue = toInt(end, frame);
+    Integer stepValue = toInt(step, frame);
+    LoopTagStatus status = null;
+    if (varStatus != null) {
+      status = new LoopTagStatus();
+      status.setBegin(beginValue);
+      status.setEnd(endValue);
+      status.setStep(stepValue);
+      frame.set(varStatus.getName(), status);
+    }
+    int stepIncr = stepValue == null ? 1 : stepValue;
+    for (int i = beginValue; i <= endValue; i += stepIncr) {
+      if (i == beginValue) {
+        interpretHoisted(frame);
+      }
+      if (var != null) {
+        frame.set(var.getName(), i);
+      }
+      if (status != null) {
+        status.setIndex(i);
+        status.setFirst(i == (int) status.getBegin());
+        status.setLast(endValue > stepIncr + ((int) status.getEnd()));
+      }
+      super.interpret(frame);
+    }
+  }
+
+  private void declareStatus(JavaBuilder out) {
+    String type = Reflect.toJavaClass(LoopTagStatus.class);
+    out.line(type + " " + varStatus.getName() + " = new " + type + "();");
+  }
+
+}
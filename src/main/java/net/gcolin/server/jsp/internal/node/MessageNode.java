@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.server.jsp.internal.Expression;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Write or store a localized message.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class MessageNode extends BlockNode {
+
+  private Expression bundle;
+  private Expression key;
+  private final String var;
+  private final boolean format;
+  private final List<Expression> arguments = new ArrayList<>();
+  private Expression pattern;
+
+  /**
+   * Create a MessageNode.
+   * 
+   * @param bundle the resource bundle
+   * @param key the key
+   * @param var the page attribute that receives the message or {@code null}
+   * @param format {@code true} if the message is formatted with the arguments
+   */
+  public MessageNode(Expression bundle, Expression key, String var, boolean format) {
+    this.bundle = bundle;
+    this.key = key;
+    this.var = var;
+    this.format = format;
+  }
+
+  public Expression getBundle() {
+    return bundle;
+  }
+
+  public void setBundle(Expression bundle) {
+    this.bundle = bundle;
+  }
+
+  public Expression getKey() {
+    return key;
+  }
+
+  public void setKey(Expression key) {
+    this.key = key;
+  }
+
+  /**
+   * Get the expression of the message before the formatting.
+   * 
+   * @return an expression
+   */
+  public Expression getPattern() {
+    if (pattern == null) {
+      Expression expr = new Expression(bundle.getJavaCall() + ".getString(" + getKeyCall() + ")",
+          String.class, String.class, false);
+      Set<String> variables = new HashSet<>(bundle.getVariables());
+      variables.addAll(key.getVariables());
+      expr.setVariables(variables);
+      expr.setPure(bundle.isPure() && key.isPure());
+      return expr;
+    }
+    return pattern;
+  }
+
+  public void setPattern(Expression pattern) {
+    this.pattern = pattern;
+  }
+
+  private String getKeyCall() {
+    if (key.getType() == String.class) {
+      return key.getJavaCall();
+    } else {
+      return "String.valueOf(" + key.getJavaCall() + ")";
+    }
+  }
+
+  public String getVar() {
+    return var;
+  }
+
+  public List<Expression> getArguments() {
+    return arguments;
+  }
+
+  public void addArgument(Expression argument) {
+    arguments.add(argument);
+  }
+
+  @Override
+  public boolean writes() {
+    return var == null;
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    variables.addAll(getPattern().getVariables());
+    for (Expression argument : arguments) {
+      variables.addAll(argument.getVariables());
+    }
+  }
+
+  @Override
+  public boolean interpretable() {
+    return false;
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    StringBuilder str = new StringBuilder();
+    if (var != null) {
+      str.append("_c.").append(var).append(" = (");
+    } else {
+      str.append("_w.write(");
+    }
+    if (format) {
+      str.append("java.text.MessageFormat.format(").append(getPattern().getJavaCall());
+      for (Expression argument : arguments) {
+        str.append(", ").append(argument.getJavaCall());
+      }
+      str.append("));");
+    } else {
+      str.append(getPattern().getJavaCall()).append(");");
+    }
+    out.line(str.toString());
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A node of the page model built by the tag builders and lowered to Java by
+ * {@link JavaBuilder}. A node can also be interpreted while the page is compiled.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public abstract class Node {
+
+  private int file;
+  private int line;
+
+  /**
+   * Set the position of the node in the JSP.
+   * 
+   * @param file the index of the file, 0 for the page and more for its static includes
+   * @param line the line starting at 1
+   */
+  public void setLocation(int file, int line) {
+    this.file = file;
+    this.line = line;
+  }
+
+  public int getFile() {
+    return file;
+  }
+
+  /**
+   * Get the line of the node in the JSP.
+   * 
+   * @return the line starting at 1 or 0 if the node is not from the JSP
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Write the Java code of the node.
+   * 
+   * @param out the Java output
+   */
+  public abstract void toJava(JavaBuilder out);
+
+  /**
+   * Tell if the node writes something in the page output.
+   * 
+   * @return {@code true} if the node may write
+   */
+  public boolean writes() {
+    return true;
+  }
+
+  /**
+   * Tell if the node can be moved in another method. A node that declares a local variable used by
+   * its next siblings cannot be moved.
+   * 
+   * @return {@code true} if the node can be moved
+   */
+  public boolean movable() {
+    return true;
+  }
+
+  /**
+   * Collect the names of the page variables read by the node.
+   * 
+   * @param variables the collected names
+   */
+  public void collectVariables(Set<String> variables) {}
+
+  /**
+   * Tell if the node and its children can be interpreted without compilation.
+   * 
+   * @return {@code true} if the node can be interpreted
+   */
+  public boolean interpretable() {
+    return false;
+  }
+
+  /**
+   * Execute the node without compilation.
+   * 
+   * @param frame the state of the request
+   * @throws IOException if an I/O error occurs.
+   */
+  public void interpret(Frame frame) throws IOException {
+    throw new UnsupportedOperationException("cannot interpret " + getClass().getSimpleName());
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.server.jsp.internal.Expression;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Write the value of an EL expression.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class OutputNode extends Node {
+
+  private Expression expression;
+
+  public OutputNode(Expression expression) {
+    this.expression = expression;
+  }
+
+  public Expression getExpression() {
+    return expression;
+  }
+
+  public void setExpression(Expression expression) {
+    this.expression = expression;
+  }
+
+  @Override
+  public boolean writes() {
+    return expression.getType() != Void.TYPE;
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    variables.addAll(expression.getVariables());
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    String jc = expression.getJavaCall();
+    if (expression.getType() == Void.TYPE) {
+      out.line(jc + ";");
+    } else if (expression.isNullable()) {
+      out.line("try{");
+      out.incrTab();
+      out.line("_w.write(String.valueOf(" + jc + "));");
+      out.decrTab();
+      out.line("}catch(NullPointerException ex){}");
+    } else if (expression.getType() == String.class) {
+      out.line("_w.write(" + jc + ");");
+    } else if (expression.getType().isPrimitive()) {
+      out.line("_w.write(String.valueOf(" + jc + "));");
+    } else {
+      out.line("_w.write(" + jc + ".toString());");
+    }
+  }
+
+  @Override
+  public boolean interpretable() {
+    return expression.isInterpretable();
+  }
+
+  @Override
+  public void interpret(Frame frame) throws IOException {
+    if (expression.getType() == Void.TYPE) {
+      expression.evaluate(frame);
+    } else if (expression.isNullable()) {
+      try {
+        frame.getWriter().write(String.valueOf(expression.evaluate(frame)));
+      } catch (NullPointerException ex) {
+        // same as the compiled page
+      }
+    } else if (expression.getType() == String.class) {
+      frame.getWriter().write((String) expression.evaluate(frame));
+    } else {
+      frame.getWriter().write(expression.evaluate(frame).toString());
+    }
+  }
+
+}
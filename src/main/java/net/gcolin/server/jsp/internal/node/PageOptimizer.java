@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.common.lang.Pair;
+import net.gcolin.server.jsp.internal.BuildContext;
+import net.gcolin.server.jsp.internal.Expression;
+import net.gcolin.server.jsp.internal.exp.ValueJExpression;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimize the page model before the Java generation.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class PageOptimizer {
+
+  private final BuildContext context;
+
+  public PageOptimizer(BuildContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Optimize a block and its children.
+   * 
+   * @param block a block
+   */
+  public void optimize(BlockNode block) {
+    mergeText(block.getChildren());
+    for (Node child : block.getChildren()) {
+      if (child instanceof LoopNode) {
+        hoist((LoopNode) child);
+      }
+      if (child instanceof BlockNode) {
+        optimize((BlockNode) child);
+      }
+    }
+  }
+
+  /**
+   * Evaluate the loop invariant expressions once, at the first iteration, instead of at each
+   * iteration. Only the expressions without side effect and evaluated at each iteration are moved,
+   * so a loop never evaluates an expression that it would not have evaluated before, and a loop
+   * without iteration evaluates none. The expressions inside a conditional, a nested loop or a tag
+   * body are left in place.
+   * 
+   * @param loop a loop
+   */
+  private void hoist(LoopNode loop) {
+    Map<String, LocalNode> locals = new LinkedHashMap<>();
+    hoist(loop.getChildren(), loop.getLocals(), locals);
+    if (!locals.isEmpty()) {
+      loop.getHoisted().addAll(locals.values());
+      loop.setFirst(context.getAnonymousVarName());
+    }
+  }
+
+  private void hoist(List<Node> nodes, Set<String> variant, Map<String, LocalNode> locals) {
+    for (Node node : nodes) {
+      if (node instanceof OutputNode) {
+        OutputNode output = (OutputNode) node;
+        output.setExpression(hoist(output.getExpression(), variant, locals));
+      } else if (node instanceof ConditionalNode) {
+        ConditionalNode cond = (ConditionalNode) node;
+        if (cond.getVar() == null) {
+          cond.setTest(hoist(cond.getTest(), variant, locals));
+        }
+      } else if (node instanceof LoopNode) {
+        LoopNode inner = (LoopNode) node;
+        inner.setItems(hoist(inner.getItems(), variant, locals));
+        inner.setBegin(hoist(inner.getBegin(), variant, locals));
+        inner.setEnd(hoist(inner.getEnd(), variant, locals));
+        inner.setStep(hoist(inner.getStep(), variant, locals));
+      } else if (node instanceof TagNode) {
+        for (Pair<String, Expression> setter : ((TagNode) node).getSetters()) {
+          setter.setValue(hoist(setter.getValue(), variant, locals));
+        }
+      } else if (node instanceof IncludeNode) {
+        IncludeNode include = (IncludeNode) node;
+        include.setPage(hoist(include.getPage(), variant, locals));
+        hoist(include.getChildren(), variant, locals);
+      } else if (node instanceof MessageNode) {
+        MessageNode message = (MessageNode) node;
+        message.setPattern(hoist(message.getPattern(), variant, locals));
+        List<Expression> arguments = message.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+          arguments.set(i, hoist(arguments.get(i), variant, locals));
+        }
+      }
+    }
+  }
+
+  private Expression hoist(Expression expr, Set<String> variant, Map<String, LocalNode> locals) {
+    if (expr == null || expr.isNullable() || expr.getType() == Void.TYPE
+        || expr.getJavaCall().indexOf('(') == -1 || !expr.isPure()
+        || !Collections.disjoint(expr.getVariables(), variant)) {
+      return expr;
+    }
+    LocalNode local = locals.get(expr.getJavaCall());
+    if (local == null) {
+      local = new LocalNode(context.getAnonymousVarName(), expr);
+      locals.put(expr.getJavaCall(), local);
+    }
+    Expression hoisted =
+        new Expression(local.getName(), expr.getType(), expr.getGenericType(), false);
+    // the interpreter reads the local set at the first iteration
+    hoisted.setTree(new ValueJExpression(hoisted, local.getName()));
+    Set<String> variables = new HashSet<>(expr.getVariables());
+    variables.add(local.getName());
+    hoisted.setVariables(variables);
+    return hoisted;
+  }
+
+  private void mergeText(List<Node> nodes) {
+    TextNode prec = null;
+    ListIterator<Node> it = nodes.listIterator();
+    while (it.hasNext()) {
+      Node node = it.next();
+      if (node instanceof TextNode) {
+        TextNode text = (TextNode) node;
+        if (text.getText().isEmpty()) {
+          it.remove();
+        } else if (prec != null) {
+          prec.setText(prec.getText() + text.getText());
+          it.remove();
+        } else {
+          prec = text;
+        }
+      } else {
+        prec = null;
+      }
+    }
+  }
+
+  /**
+   * Find the members used by some code. A member is used if its name is found in the code or in
+   * another used member.
+   * 
+   * @param members the members by name
+   * @param code the code
+   * @return the names of the used members
+   */
+  public static Collection<String> usedMembers(Map<String, String> members, CharSequence code) {
+    Set<String> used = new HashSet<>();
+    Set<String> unused = new HashSet<>(members.keySet());
+    CharSequence search = code;
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      StringBuilder next = new StringBuilder();
+      Iterator<String> it = unused.iterator();
+      while (it.hasNext()) {
+        String name = it.next();
+        if (contains(search, name)) {
+          used.add(name);
+          next.append(members.get(name));
+          it.remove();
+          changed = true;
+        }
+      }
+      search = next;
+    }
+    return used;
+  }
+
+  private static boolean contains(CharSequence code, String name) {
+    int len = name.length();
+    for (int i = 0, last = code.length() - len; i <= last; i++) {
+      if (code.charAt(i) == name.charAt(0) && (i == 0 || !isPart(code.charAt(i - 1)))
+          && (i == last || !isPart(code.charAt(i + len))) && matches(code, i, name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matches(CharSequence code, int offset, String name) {
+    for (int i = 1; i < name.length(); i++) {
+      if (code.charAt(offset + i) != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPart(char ch) {
+    return Character.isJavaIdentifierPart(ch);
+  }
+}
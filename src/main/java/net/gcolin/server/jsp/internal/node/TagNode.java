@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import net.gcolin.common.lang.Pair;
+import net.gcolin.common.reflect.Reflect;
+import net.gcolin.server.jsp.internal.Expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A call to a {@link javax.servlet.jsp.tagext.SimpleTag}. The children are the body of the tag.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class TagNode extends BlockNode {
+
+  private final Class<?> type;
+  private final String name;
+  private final String var;
+  private final boolean body;
+  private final boolean supported;
+  private final List<Pair<String, Expression>> setters = new ArrayList<>();
+
+  /**
+   * Create a TagNode.
+   * 
+   * @param type the tag class
+   * @param name the name of the tag with its prefix
+   * @param var the local variable of the tag
+   * @param body {@code true} if the tag has a body
+   * @param supported {@code false} if the tag is only instantiated
+   */
+  public TagNode(Class<?> type, String name, String var, boolean body, boolean supported) {
+    this.type = type;
+    this.name = name;
+    this.var = var;
+    this.body = body;
+    this.supported = supported;
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getVar() {
+    return var;
+  }
+
+  public boolean hasBody() {
+    return body;
+  }
+
+  public List<Pair<String, Expression>> getSetters() {
+    return setters;
+  }
+
+  public void addSetter(String method, Expression value) {
+    setters.add(new Pair<>(method, value));
+  }
+
+  @Override
+  public void collectVariables(Set<String> variables) {
+    // the body is in another class
+    for (Pair<String, Expression> setter : setters) {
+      variables.addAll(setter.getValue().getVariables());
+    }
+  }
+
+  @Override
+  public boolean interpretable() {
+    return false;
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    String clazz = Reflect.toJavaClass(type);
+    out.line(clazz + " " + var + " = new " + clazz + "();");
+    for (Pair<String, Expression> setter : setters) {
+      out.line(var + "." + setter.getKey() + "(" + setter.getValue().getJavaCall() + ");");
+    }
+    if (!supported) {
+      return;
+    }
+    if (body) {
+      out.line(var + ".setJspContext(_c._context);");
+      out.line(var + ".setJspBody(new f" + var + "(_c));");
+      out.addFragment("f" + var, getChildren());
+    }
+    out.line(var + ".setJspContext(_c._context);");
+    if (!out.isInFragment()) {
+      out.line("try {");
+      out.incrTab();
+    }
+    // the profiler sees the time of the tag and its nesting
+    out.line("Object _m" + var + " = net.gcolin.server.jsp.Monitoring.tagStarted(\"" + name
+        + "\");");
+    out.line("try {");
+    out.incrTab();
+    out.line(var + ".doTag();");
+    out.decrTab();
+    out.line("} finally {");
+    out.incrTab();
+    out.line("net.gcolin.server.jsp.Monitoring.tagEnded(_m" + var + ");");
+    out.decrTab();
+    out.line("}");
+    if (!out.isInFragment()) {
+      out.decrTab();
+      out.line("} catch(javax.servlet.jsp.JspException e) {");
+      out.incrTab();
+      out.line("throw new javax.servlet.ServletException(e);");
+      out.decrTab();
+      out.line("}");
+    }
+  }
+
+}
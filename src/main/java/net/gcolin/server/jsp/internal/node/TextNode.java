@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp.internal.node;
+
+import java.io.IOException;
+
+/**
+ * A static text of the page.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class TextNode extends Node {
+
+  private static final String CDATA = "//<![CDATA[";
+
+  private String text;
+
+  public TextNode(String text) {
+    this.text = text;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public void setText(String text) {
+    this.text = text;
+  }
+
+  @Override
+  public void toJava(JavaBuilder out) {
+    if (text.isEmpty()) {
+      return;
+    }
+    StringBuilder sb = new StringBuilder(text.length() + 10);
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch == '"') {
+        sb.append("\\\"");
+      } else if (ch == '\\') {
+        sb.append("\\\\");
+      } else if (ch == '\n') {
+        sb.append("\\n");
+      } else if (ch == '\r') {
+        sb.append("\\r");
+      } else if (ch == '\t') {
+        sb.append("\\t");
+      } else if (ch == ' ' && sb.length() >= CDATA.length()
+          && sb.lastIndexOf(CDATA) == sb.length() - CDATA.length()) {
+        // the end of line is needed after a javascript comment
+        sb.append("\\n");
+      } else {
+        sb.append(ch);
+      }
+    }
+    out.line("_w.write(\"" + sb + "\");");
+  }
+
+  @Override
+  public boolean interpretable() {
+    return true;
+  }
+
+  @Override
+  public void interpret(Frame frame) throws IOException {
+    frame.getWriter().write(text);
+  }
+
+}
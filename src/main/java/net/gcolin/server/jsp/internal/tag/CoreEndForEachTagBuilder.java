@@ -35,9 +35,6 @@ public class CoreEndForEachTagBuilder implements TagBuilder {
   @Override
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
-    context.decrTab();
-    context.appendJavaService("}");
-    context.decrTab();
-    context.appendJavaService("}");
+    context.closeBlock();
   }
 }
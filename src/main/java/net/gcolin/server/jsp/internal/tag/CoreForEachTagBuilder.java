@@ -21,6 +21,7 @@ import net.gcolin.server.jsp.Util;
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.Expression;
 import net.gcolin.server.jsp.internal.Var;
+import net.gcolin.server.jsp.internal.node.LoopNode;
 
 import java.lang.reflect.Type;
 import java.util.List;
@@ -60,141 +61,41 @@ public class CoreForEachTagBuilder implements TagBuilder {
     Var var = null;
     if (varString != null) {
       var = new Var(varString, Var.VarType.NONE, Reflect.toClass(itemType), itemType);
-      // context.appendVariable(var);
     }
     String varStatusString = params.get("varStatus");
     Var varStatus = null;
     if (varStatusString != null) {
-      varStatus = new Var(varStatusString, Var.VarType.LOCAL, LoopTagStatus.class);
-      // context.appendVariable(varStatus);
+      varStatus = new Var(varStatusString, Var.VarType.NONE, LoopTagStatus.class);
     }
 
-
     String beginString = params.get("begin");
-    Expression begin = null;
+    String endString = params.get("end");
+    String stepString = params.get("step");
+    assert items != null || beginString != null && endString != null;
+    assert items == null || var != null;
+
+    boolean list =
+        items != null && Util.load(List.class, context).isAssignableFrom(items.getType());
+    LoopNode loop = new LoopNode(items, itemType, list, new String[] {
+        context.getAnonymousVarName(), context.getAnonymousVarName(),
+        context.getAnonymousVarName()});
     if (beginString != null) {
-      begin = context.buildExpression(beginString);
+      loop.setBegin(context.buildExpression(beginString));
     }
-    String endString = params.get("end");
-    Expression end = null;
     if (endString != null) {
-      end = context.buildExpression(endString);
+      loop.setEnd(context.buildExpression(endString));
     }
-    String stepString = params.get("step");
-    Expression step = null;
     if (stepString != null) {
-      step = context.buildExpression(stepString);
-    }
-
-    String stepStr = null;
-    if (step != null) {
-      if (step.getType() == String.class) {
-        stepStr = "Integer.parseInt(" + step.getJavaCall() + ")";
-      } else {
-        stepStr = step.getJavaCall();
-      }
+      loop.setStep(context.buildExpression(stepString));
     }
-
-    String endStr = null;
-    if (end != null) {
-      if (end.getType() == String.class) {
-        endStr = "Integer.parseInt(" + end.getJavaCall() + ")";
-      } else {
-        endStr = end.getJavaCall();
-      }
-    }
-
-    String beginStr = null;
-    if (begin != null) {
-      if (begin.getType() == String.class) {
-        beginStr = "Integer.parseInt(" + begin.getJavaCall() + ")";
-      } else {
-        beginStr = begin.getJavaCall();
-      }
+    loop.setVar(var);
+    loop.setVarStatus(varStatus);
+    context.openBlock(loop);
+    if (varStatus != null) {
+      context.appendVariable(varStatus);
     }
-
-    if (items != null) {
-      assert var != null;
-      context.appendJavaService("if(" + items.getJavaCall() + "!=null){");
-      context.incrTab();
-
-
-      if (varStatus != null) {
-        context.appendVariable(varStatus);
-        context.appendJavaService(
-            varStatus.getName() + "= new " + Reflect.toJavaClass(varStatus.getType()) + "();");
-        context.appendJavaService(varStatus.getName()
-            + ".setCount(net.gcolin.server.jsp.Functions.length(" + items.getJavaCall() + "));");
-        if (beginStr != null) {
-          context.appendJavaService(varStatus.getName() + ".setBegin(" + beginStr + ");");
-        }
-        if (endStr != null) {
-          context.appendJavaService(varStatus.getName() + ".setEnd(" + endStr + ");");
-        }
-        if (stepStr != null) {
-          context.appendJavaService(varStatus.getName() + ".setStep(" + stepStr + ");");
-        }
-      }
-      if (Util.load(List.class, context).isAssignableFrom(items.getType())) {
-        String ivar = context.getAnonymousVarName();
-        String evar = context.getAnonymousVarName();
-        String list = context.getAnonymousVarName();
-        context.appendJavaService(Reflect.toJavaClass(items.getGenericType()) + " " + list + " = "
-            + items.getJavaCall() + ";");
-        context.appendJavaService("for(int " + ivar + "=" + (beginStr == null ? "0" : beginStr)
-            + "," + evar + "=" + (endStr == null ? list + ".size()" : endStr + "+1") + ";" + ivar
-            + "<" + evar + "; " + ivar + "++ ) {");
-        context.incrTab();
-        context.appendVariable(var);
-        context.appendJavaService(Reflect.toJavaClass(itemType) + " " + var.getName() + " = " + list
-            + ".get(" + ivar + ");");
-      } else {
-        context.appendJavaService("for(" + Reflect.toJavaClass(itemType) + " " + var.getName()
-            + " : " + items.getJavaCall() + "){");
-        context.incrTab();
-        context.appendVariable(var);
-      }
-
-      if (varStatus != null) {
-        context.appendJavaService(varStatus.getName() + ".setCurrent(" + var.getName() + ");");
-        context.appendJavaService(
-            varStatus.getName() + ".setIndex(1+" + varStatus.getName() + ".getIndex());");
-        context.appendJavaService(
-            varStatus.getName() + ".setFirst(0==" + varStatus.getName() + ".getIndex());");
-        context.appendJavaService(varStatus.getName() + ".setLast(" + varStatus.getName()
-            + ".getCount()-1==" + varStatus.getName() + ".getIndex());");
-      }
-    } else {
-      assert begin != null;
-      assert end != null;
-
-      if (varStatus != null) {
-        context.appendVariable(varStatus);
-        context.appendJavaService(
-            varStatus.getName() + "= new " + Reflect.toJavaClass(varStatus.getType()) + "();");
-        context.appendJavaService(varStatus.getName() + ".setBegin(" + beginStr + ");");
-        context.appendJavaService(varStatus.getName() + ".setEnd(" + endStr + ");");
-        if (stepStr != null) {
-          context.appendJavaService(varStatus.getName() + ".setStep(" + stepStr + ");");
-        }
-      }
-
-      String bi = context.getAnonymousVarName();
-      String ei = context.getAnonymousVarName();
-      String si = context.getAnonymousVarName();
-      context.appendJavaService("for(int " + bi + "=" + beginStr + "," + ei + "=" + endStr + ","
-          + si + "=" + (step == null ? "1" : stepStr) + ";" + bi + "<=" + ei + ";" + bi + "+=" + si
-          + "){");
-      context.incrTab();
-      context.appendJavaService("{");
-      context.incrTab();
-      if (varStatus != null) {
-        context.appendJavaService(varStatus.getName() + ".setIndex(" + bi + ");");
-        context.appendJavaService(varStatus.getName() + ".setFirst(" + bi + "==(int)"
-            + varStatus.getName() + ".getBegin());");
-        context.appendJavaService(varStatus.getName() + ".setLast(" + ei + ">" + si + "+ ((int)"
-            + varStatus.getName() + ".getEnd()));");
-      }
+    if (var != null) {
+      context.appendVariable(var);
     }
   }
 }
@@ -35,7 +35,6 @@ public class CoreIfEndTagBuilder implements TagBuilder {
   @Override
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
-    context.decrTab();
-    context.appendJavaService("}");
+    context.closeBlock();
   }
 }
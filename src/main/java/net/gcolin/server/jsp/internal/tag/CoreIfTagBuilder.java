@@ -18,6 +18,8 @@ package net.gcolin.server.jsp.internal.tag;
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.Expression;
 import net.gcolin.server.jsp.internal.Var;
+import net.gcolin.server.jsp.internal.node.AssignNode;
+import net.gcolin.server.jsp.internal.node.ConditionalNode;
 
 import java.util.Map;
 
@@ -43,21 +45,17 @@ public class CoreIfTagBuilder implements TagBuilder {
     if (varString != null) {
       var = new Var(varString, Var.VarType.LOCAL, Boolean.class);
       context.appendVariable(var);
+      context.assignVariable(var.getName());
       if (test.getType() == boolean.class || test.getType() == Boolean.class) {
-        context.appendJavaService(var.getName() + " = " + test.getJavaCall() + ";");
+        context.addNode(new AssignNode(var.getName() + " = " + test.getJavaCall() + ";",
+            var.getName(), AssignNode.PAGE, test, false));
       } else {
-        context.appendJavaService(var.getName() + " = " + test.getJavaCall() + " != null;");
+        context.addNode(new AssignNode(var.getName() + " = " + test.getJavaCall() + " != null;",
+            var.getName(), AssignNode.PAGE, test, true));
       }
     }
 
-    if (var != null) {
-      context.appendJavaService("if(" + var.getName() + ") {");
-    } else if (test.getType() == boolean.class || test.getType() == Boolean.class) {
-      context.appendJavaService("if(" + test.getJavaCall() + ") {");
-    } else {
-      context.appendJavaService("if(" + test.getJavaCall() + " != null) {");
-    }
-    context.incrTab();
+    context.openBlock(new ConditionalNode(test, var == null ? null : var.getName()));
   }
 
 }
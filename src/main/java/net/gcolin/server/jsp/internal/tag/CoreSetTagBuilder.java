@@ -19,6 +19,7 @@ import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.Expression;
 import net.gcolin.server.jsp.internal.Var;
 import net.gcolin.server.jsp.internal.Var.VarType;
+import net.gcolin.server.jsp.internal.node.AssignNode;
 
 import java.util.Map;
 
@@ -52,15 +53,20 @@ public class CoreSetTagBuilder implements TagBuilder {
     if ("page".equals(scope)) {
       context
           .appendVariable(new Var(varName, VarType.LOCAL, expr.getType(), expr.getGenericType()));
-      context.appendJavaService(varName + " = " + value + ";");
-    } else if ("session".equals(scope)) {
-      context
-          .appendJavaService("_c._r.getSession().setAttribute(\"" + varName + "\"," + value + ");");
-    } else if ("request".equals(scope)) {
-      context.appendJavaService("_c._r.setAttribute(\"" + varName + "\"," + value + ");");
-    } else if ("application".equals(scope)) {
-      context.appendJavaService(
-          "_c._r.getServletContext().setAttribute(\"" + varName + "\"," + value + ");");
+    }
+    context.assignVariable(varName);
+    String code = null;
+    if (AssignNode.PAGE.equals(scope)) {
+      code = varName + " = " + value + ";";
+    } else if (AssignNode.SESSION.equals(scope)) {
+      code = "_c._r.getSession().setAttribute(\"" + varName + "\"," + value + ");";
+    } else if (AssignNode.REQUEST.equals(scope)) {
+      code = "_c._r.setAttribute(\"" + varName + "\"," + value + ");";
+    } else if (AssignNode.APPLICATION.equals(scope)) {
+      code = "_c._r.getServletContext().setAttribute(\"" + varName + "\"," + value + ");";
+    }
+    if (code != null) {
+      context.addNode(new AssignNode(code, varName, scope, expr, false));
     }
   }
 }
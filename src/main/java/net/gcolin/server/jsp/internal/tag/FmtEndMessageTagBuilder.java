@@ -35,7 +35,7 @@ public class FmtEndMessageTagBuilder implements TagBuilder {
   @Override
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
-    context.appendJavaPartial("));\n");
+    context.closeBlock();
     context.setWritten(true);
   }
 
@@ -19,6 +19,7 @@ import net.gcolin.server.jsp.Logs;
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.Expression;
 import net.gcolin.server.jsp.internal.Var;
+import net.gcolin.server.jsp.internal.node.MessageNode;
 
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -53,24 +54,19 @@ public class FmtMessageTagBuilder implements TagBuilder {
     assert bundle.getType() == ResourceBundle.class;
 
     String varString = params.get("var");
-    StringBuilder strBuilder = new StringBuilder();
+    String varName = null;
     if (varString != null) {
       Var var = new Var(varString, Var.VarType.PAGE_ATTRIBUTE, String.class);
       context.appendVariable(var);
-      strBuilder.append("_c.").append(var.getName()).append(" = (");
-    } else {
-      strBuilder.append("_w.write(");
+      context.assignVariable(var.getName());
+      varName = var.getName();
     }
 
+    MessageNode message = new MessageNode(bundle, keyVariable, varName, !standalone);
     if (standalone) {
-      strBuilder.append(bundle.getJavaCall()).append(".getString(").append(getKey(keyVariable))
-          .append("));");
-      context.appendJavaService(strBuilder.toString());
+      context.addNode(message);
     } else {
-      strBuilder.append("java.text.MessageFormat.format(").append(bundle.getJavaCall())
-          .append(".getString(").append(getKey(keyVariable)).append(")");
-      context.appendTab();
-      context.appendJavaPartial(strBuilder.toString());
+      context.openBlock(message);
       context.setWritten(false);
     }
 
@@ -80,12 +76,4 @@ public class FmtMessageTagBuilder implements TagBuilder {
 
   }
 
-  private String getKey(Expression keyVariable) {
-    if (keyVariable.getType() == String.class) {
-      return keyVariable.getJavaCall();
-    } else {
-      return "String.valueOf(" + keyVariable.getJavaCall() + ")";
-    }
-  }
-
 }
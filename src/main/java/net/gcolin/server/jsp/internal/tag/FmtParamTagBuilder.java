@@ -17,6 +17,7 @@ package net.gcolin.server.jsp.internal.tag;
 
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.Expression;
+import net.gcolin.server.jsp.internal.node.MessageNode;
 
 import java.util.Map;
 
@@ -37,8 +38,7 @@ public class FmtParamTagBuilder implements TagBuilder {
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
     Expression keyVariable = context.buildExpression(params.get("value"));
-    context.appendJavaPartial(", ");
-    context.appendJavaPartial(keyVariable.getJavaCall());
+    ((MessageNode) context.getBlock()).addArgument(keyVariable);
     context.setWritten(false);
   }
 
@@ -17,6 +17,7 @@ package net.gcolin.server.jsp.internal.tag;
 
 import net.gcolin.server.jsp.Logs;
 import net.gcolin.server.jsp.internal.BuildContext;
+import net.gcolin.server.jsp.internal.Expression;
 import net.gcolin.server.jsp.internal.Var;
 
 import java.util.Locale;
@@ -49,14 +50,16 @@ public class FmtSetBundleTagBuilder implements TagBuilder {
       var = new Var(FMT_DEFAULT_VAR, Var.VarType.PAGE_ATTRIBUTE, ResourceBundle.class);
     }
     context.appendVariable(var);
+    context.assignVariable(var.getName());
     if (attrs.get("scope") != null) {
       Logs.LOG.log(Level.INFO, "the attribute scope is not supported in {0}", getPath());
     }
     String localeVar =
         context.appendVariable(new Var("locale", Var.VarType.SESSION_ATTRIBUTE, Locale.class))
             .getJavaCall();
-    String basename = context.buildExpression(attrs.get("basename")).getJavaCall();
+    Expression basename = context.buildExpression(attrs.get("basename"));
     context.appendJavaService("_c." + var.getName() + " = java.util.ResourceBundle.getBundle("
-        + basename + "," + localeVar + ",_c._r.getServletContext().getClassLoader());");
+        + basename.getJavaCall() + "," + localeVar
+        + ",_c._r.getServletContext().getClassLoader());", basename);
   }
 }
@@ -35,8 +35,7 @@ public class GenericEndTagBuilder implements TagBuilder {
   @Override
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
-    String var = context.popFragment();
-    GenericTagBuilder.writeTag(context, var);
+    context.closeBlock();
   }
 
   @Override
@@ -15,11 +15,11 @@
 
 package net.gcolin.server.jsp.internal.tag;
 
-import net.gcolin.common.reflect.Reflect;
 import net.gcolin.server.jsp.Logs;
 import net.gcolin.server.jsp.Util;
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.GenericAttribute;
+import net.gcolin.server.jsp.internal.node.TagNode;
 
 import java.util.Map;
 import java.util.Map.Entry;
@@ -58,62 +58,32 @@ public class GenericTagBuilder implements TagBuilder {
   @Override
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
-    String var = context.getAnonymousVarName();
-    context.appendJavaService(
-        Reflect.toJavaClass(type) + " " + var + " = new " + Reflect.toJavaClass(type) + "();");
-    setParamters(str, params, context, var);
-    if (Util.load(SimpleTag.class, context).isAssignableFrom(type)) {
-      if (body) {
-        context.appendJavaService(var + ".setJspContext(_c._context);");
-        context.appendJavaService(var + ".setJspBody(new f" + var + "(_c));");
-        context.pushFragment(var, false);
-      } else {
-        writeTag(context, var);
-      }
-    } else {
+    boolean supported = Util.load(SimpleTag.class, context).isAssignableFrom(type);
+    if (!supported) {
       Logs.LOG.log(Level.WARNING, "the tag {0} is not supported yet.", getPath());
     }
-
-
+    TagNode tag = new TagNode(type, getPath(), context.getAnonymousVarName(), body, supported);
+    setParamters(str, params, context, tag);
+    if (body) {
+      context.openBlock(tag);
+    } else {
+      context.addNode(tag);
+    }
   }
 
   private void setParamters(String str, Map<String, String> params, BuildContext context,
-      String var) {
+      TagNode tag) {
     for (Entry<String, String> e : params.entrySet()) {
       GenericAttribute ga = attributes.get(e.getKey());
       if (ga == null) {
         Logs.LOG.log(Level.WARNING, "property {0} does not exists in {1} see {2}",
             new Object[] {e.getKey(), getPath(), str});
       } else {
-        context.appendJavaService(var + "." + ga.getMethod().getName() + "("
-            + context.buildExpression(e.getValue()).getJavaCall() + ");");
+        tag.addSetter(ga.getMethod().getName(), context.buildExpression(e.getValue()));
       }
     }
   }
 
-  /**
-   * Write a tag.
-   * 
-   * @param context context
-   * @param var var name
-   */
-  public static void writeTag(BuildContext context, String var) {
-    context.appendJavaService(var + ".setJspContext(_c._context);");
-    if (!context.isInFragment()) {
-      context.appendJavaService("try {");
-      context.incrTab();
-    }
-    context.appendJavaService(var + ".doTag();");
-    if (!context.isInFragment()) {
-      context.decrTab();
-      context.appendJavaService("} catch(javax.servlet.jsp.JspException e) {");
-      context.incrTab();
-      context.appendJavaService("throw new javax.servlet.ServletException(e);");
-      context.decrTab();
-      context.appendJavaService("}");
-    }
-  }
-
   @Override
   public String toString() {
     return "GenericTagBuilder [path=" + path + "]";
@@ -37,10 +37,8 @@ public class IncludeTagBuilder implements TagBuilder {
     String file = params.get("file");
     file = Util.getAbsoluteUri(file, context.getUri());
     try (Reader r = Io.reader(context.getServletContext().getResourceAsStream(file))) {
-      int ch;
-      while ((ch = r.read()) != -1) {
-        context.write((char) ch);
-      }
+      char[] content = Util.toCharArray(r);
+      context.include(file, content);
     } catch (IOException ex) {
       throw new JspRuntimeException(ex);
     }
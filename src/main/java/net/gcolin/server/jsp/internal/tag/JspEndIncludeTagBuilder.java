@@ -29,15 +29,7 @@ public class JspEndIncludeTagBuilder implements TagBuilder {
   @Override
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
-    String var = context.getAttributes().get("include");
-    context.appendJavaService(var + ".include(_c._r,_c._re);");
-    context.decrTab();
-    context.appendJavaService("} catch(javax.servlet.ServletException e) {");
-    context.appendJavaService("    throw new java.io.IOException(e);");
-    context.appendJavaService("} finally {");
-    context.appendJavaService("    _c._r.removeAttribute(\"param\");");
-    context.appendJavaService("    _c._r.removeAttribute(\"jspwriter\");");
-    context.appendJavaService("}");
+    context.closeBlock();
   }
 
 }
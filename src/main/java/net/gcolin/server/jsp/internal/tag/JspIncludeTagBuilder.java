@@ -17,6 +17,7 @@ package net.gcolin.server.jsp.internal.tag;
 
 import net.gcolin.server.jsp.internal.BuildContext;
 import net.gcolin.server.jsp.internal.Expression;
+import net.gcolin.server.jsp.internal.node.IncludeNode;
 
 import java.util.Map;
 
@@ -33,29 +34,10 @@ public class JspIncludeTagBuilder implements TagBuilder {
     Expression page = context.buildExpression(params.get("page"));
     assert page.getType() == String.class;
     if (str.endsWith("/")) {
-      context.appendJavaService("try {");
-      context.incrTab();
-      context.appendJavaService("_c._r.setAttribute(\"jspwriter\",_w);");
-      context.appendJavaService("_c._r.getServletContext().getRequestDispatcher("
-          + "net.gcolin.server.jsp.Util.getAbsoluteUri(" + page.getJavaCall() + ",\""
-          + context.getUri() + "\")).include(_c._r,_c._re);");
-
-      context.decrTab();
-      context.appendJavaService("} catch(javax.servlet.ServletException e) {");
-      context.appendJavaService("    throw new java.io.IOException(e);");
-      context.appendJavaService("} finally {");
-      context.appendJavaService("    _c._r.removeAttribute(\"jspwriter\");");
-      context.appendJavaService("}");
+      context.addNode(new IncludeNode(page, context.getUri(), null, false));
     } else {
-      context.appendJavaService("try {");
-      context.incrTab();
-      String avar = context.getAnonymousVarName();
-      context.appendJavaService("_c._r.setAttribute(\"jspwriter\",_w);");
-      context.appendJavaService("javax.servlet.RequestDispatcher " + avar
-          + " = _c._r.getServletContext().getRequestDispatcher("
-          + "net.gcolin.server.jsp.Util.getAbsoluteUri(" + page.getJavaCall() + ",\""
-          + context.getUri() + "\"));");
-      context.getAttributes().put("include", avar);
+      context.openBlock(
+          new IncludeNode(page, context.getUri(), context.getAnonymousVarName(), true));
     }
   }
 
@@ -34,6 +34,10 @@ public class JspPageTagBuilder implements TagBuilder {
     if (contentType != null) {
       context.setContentType(contentType);
     }
+    String minify = params.get("minify");
+    if (minify != null) {
+      context.setMinify(Boolean.parseBoolean(minify));
+    }
   }
 
 }
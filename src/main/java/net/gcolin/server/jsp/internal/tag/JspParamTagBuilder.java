@@ -16,6 +16,8 @@
 package net.gcolin.server.jsp.internal.tag;
 
 import net.gcolin.server.jsp.internal.BuildContext;
+import net.gcolin.server.jsp.internal.Expression;
+import net.gcolin.server.jsp.internal.node.CodeNode;
 
 import java.util.Map;
 
@@ -30,11 +32,13 @@ public class JspParamTagBuilder implements TagBuilder {
   public void build(String str, Map<String, String> params, BuildContext context,
       boolean standalone) {
     String name = params.get("name");
-    String value = context.buildExpression(params.get("value")).getJavaCall();
-    context.appendJavaService("if(_c._r.getAttribute(\"param\")==null){"
-        + "_c._r.setAttribute(\"param\",new java.util.HashMap<String,Object>());}");
-    context.appendJavaService("((java.util.Map<String,Object>)_c._r.getAttribute(\"param\")).put(\""
-        + name + "\"," + value + ");");
+    Expression value = context.buildExpression(params.get("value"));
+    context.addNode(new CodeNode("if(_c._r.getAttribute(\"param\")==null){"
+        + "_c._r.setAttribute(\"param\",new java.util.HashMap<String,Object>());}", false));
+    CodeNode put = new CodeNode("((java.util.Map<String,Object>)_c._r.getAttribute(\"param\"))"
+        + ".put(\"" + name + "\"," + value.getJavaCall() + ");", false);
+    put.getVariables().addAll(value.getVariables());
+    context.addNode(put);
   }
 
 }
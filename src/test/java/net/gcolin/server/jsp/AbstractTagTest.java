@@ -21,6 +21,8 @@ import net.gcolin.common.io.Io;
 import net.gcolin.common.io.StringWriter;
 import net.gcolin.common.reflect.Reflect;
 import net.gcolin.server.jsp.internal.BuildContext;
+import net.gcolin.server.jsp.internal.InterpretedServlet;
+import net.gcolin.server.jsp.internal.node.BlockNode;
 
 import org.junit.Assert;
 import org.mockito.Mockito;
@@ -51,8 +53,70 @@ public class AbstractTagTest {
 
   protected void test(String path, Map<String, Object> attributes)
       throws IOException, ServletException {
+    test(path, expected(path), attributes);
+  }
+
+  protected void test(String path, String expected, Map<String, Object> attributes)
+      throws IOException, ServletException {
+    ServletContext sc = mockContext();
+    BuildContext bc = parse(path, sc);
+    StringWriter sw = new StringWriter();
+    bc.toJava(sw);
+
+    GroovyClassLoader gcl = new GroovyClassLoader(FmtMessageTest.class.getClassLoader());
+    try {
+      Class<?> clazz = gcl.parseClass(sw.toString(), path + ".groovy");
+      sw.close();
+      Servlet servlet = (Servlet) Reflect.newInstance(clazz);
+      check(expected, servlet, sc, attributes);
+    } finally {
+      gcl.close();
+    }
+  }
+
+  protected void interpret(String path, Map<String, Object> attributes)
+      throws IOException, ServletException {
+    interpret(path, expected(path), attributes);
+  }
+
+  protected void interpret(String path, String expected, Map<String, Object> attributes)
+      throws IOException, ServletException {
+    check(expected, interpreted(path), mockContext(), attributes);
+  }
+
+  protected InterpretedServlet interpreted(String path) throws IOException {
+    BuildContext bc = parse(path, mockContext());
+    BlockNode model = bc.getModel();
+    Assert.assertTrue(model.interpretable());
+    return new InterpretedServlet(bc.getUri(), bc.getContentType(), model);
+  }
+
+  protected InterpretedServlet generated(String path) throws IOException {
+    BuildContext bc = parse(path, mockContext());
+    StringWriter sw = new StringWriter();
+    bc.toJava(sw);
+    sw.close();
+    BlockNode model = bc.getModel();
+    Assert.assertTrue(model.interpretable());
+    return new InterpretedServlet(bc.getUri(), bc.getContentType(), model);
+  }
+
+  protected String generate(String path) throws IOException {
+    BuildContext bc = parse(path, mockContext());
+    StringWriter sw = new StringWriter();
+    bc.toJava(sw);
+    String java = sw.toString();
+    sw.close();
+    return java;
+  }
+
+  protected ServletContext mockContext() {
     ServletContext sc = Mockito.mock(ServletContext.class);
     Mockito.when(sc.getClassLoader()).thenReturn(BuildContext.class.getClassLoader());
+    return sc;
+  }
+
+  private BuildContext parse(String path, ServletContext sc) throws IOException {
     BuildContext bc = new BuildContext(path, sc);
     try (Reader reader =
         Io.reader(this.getClass().getClassLoader().getResourceAsStream(path + ".jsp"))) {
@@ -61,44 +125,44 @@ public class AbstractTagTest {
         bc.write((char) nb);
       }
     }
-    StringWriter sw = new StringWriter();
-    bc.toJava(sw);
+    return bc;
+  }
 
-    GroovyClassLoader gcl = new GroovyClassLoader(FmtMessageTest.class.getClassLoader());
-    try {
-      
-      Map<String, Object> attrs = attributes == null ? Collections.emptyMap() : attributes;
-
-      HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
-      HttpSession session = Mockito.mock(HttpSession.class);
-      Mockito.when(request.getAttribute(Mockito.anyString())).then(new Answer<Object>() {
-
-        @Override
-        public Object answer(InvocationOnMock invocation) throws Throwable {
-          return attrs.get(invocation.getArguments()[0]);
-        }
-      });
-      Mockito.when(request.getSession()).thenReturn(session);
-      Mockito.when(request.getSession(true)).thenReturn(session);
-      Mockito.when(request.getSession(false)).thenReturn(session);
-      Mockito.when(request.getServletContext()).thenReturn(sc);
-      HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
-      StringWriter sw2 = new StringWriter();
-      PrintWriter pw = new PrintWriter(sw2);
-      Mockito.when(response.getWriter()).thenReturn(pw);
+  private String expected(String path) throws IOException {
+    try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(path + ".txt")) {
+      return Io.toString(in);
+    }
+  }
 
-      Class<?> clazz = gcl.parseClass(sw.toString(), path + ".groovy");
-      sw.close();
-      Servlet servlet = (Servlet) Reflect.newInstance(clazz);
-      servlet.service(request, response);
+  private void check(String expected, Servlet servlet, ServletContext sc,
+      Map<String, Object> attributes) throws IOException, ServletException {
+    Assert.assertEquals(expected, service(servlet, sc, attributes));
+  }
 
-      try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(path + ".txt")) {
-        Assert.assertEquals(Io.toString(in), sw2.toString());
+  protected String service(Servlet servlet, ServletContext sc, Map<String, Object> attributes)
+      throws IOException, ServletException {
+    Map<String, Object> attrs = attributes == null ? Collections.emptyMap() : attributes;
+
+    HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    HttpSession session = Mockito.mock(HttpSession.class);
+    Mockito.when(request.getAttribute(Mockito.anyString())).then(new Answer<Object>() {
+
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return attrs.get(invocation.getArguments()[0]);
       }
+    });
+    Mockito.when(request.getSession()).thenReturn(session);
+    Mockito.when(request.getSession(true)).thenReturn(session);
+    Mockito.when(request.getSession(false)).thenReturn(session);
+    Mockito.when(request.getServletContext()).thenReturn(sc);
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    StringWriter sw2 = new StringWriter();
+    PrintWriter pw = new PrintWriter(sw2);
+    Mockito.when(response.getWriter()).thenReturn(pw);
 
-    } finally {
-      gcl.close();
-    }
+    servlet.service(request, response);
+    return sw2.toString();
   }
 
 }
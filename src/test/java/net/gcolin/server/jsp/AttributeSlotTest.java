@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequestAttributeEvent;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Test the typed request attributes.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class AttributeSlotTest {
+
+  private static final AttributeSlot<String> HELLO = AttributeSlot.of("hello");
+
+  private HttpServletRequest request;
+
+  /**
+   * Mock a request whose attributes notify the listener like a container.
+   */
+  @Before
+  public void before() {
+    Map<String, Object> attributes = new HashMap<>();
+    AttributeSlotListener listener = new AttributeSlotListener();
+    ServletContext sc = Mockito.mock(ServletContext.class);
+    request = Mockito.mock(HttpServletRequest.class);
+    Mockito.when(request.getAttribute(Mockito.anyString()))
+        .then(invocation -> attributes.get(invocation.getArguments()[0]));
+    Mockito.doAnswer(invocation -> {
+      String name = (String) invocation.getArguments()[0];
+      Object value = invocation.getArguments()[1];
+      Object old = value == null ? attributes.remove(name) : attributes.put(name, value);
+      ServletRequestAttributeEvent event =
+          new ServletRequestAttributeEvent(sc, request, name, old == null ? value : old);
+      if (value == null) {
+        listener.attributeRemoved(event);
+      } else if (old == null) {
+        listener.attributeAdded(event);
+      } else {
+        listener.attributeReplaced(event);
+      }
+      return null;
+    }).when(request).setAttribute(Mockito.anyString(), Mockito.any());
+    Mockito.doAnswer(invocation -> {
+      request.setAttribute((String) invocation.getArguments()[0], null);
+      return null;
+    }).when(request).removeAttribute(Mockito.anyString());
+  }
+
+  @Test
+  public void ofTest() {
+    Assert.assertSame(HELLO, AttributeSlot.of("hello"));
+    Assert.assertNotEquals(HELLO.getIndex(), AttributeSlot.of("ofTest").getIndex());
+  }
+
+  @Test
+  public void setTest() {
+    Assert.assertNull(HELLO.get(request));
+    HELLO.set(request, "a");
+    Assert.assertEquals("a", HELLO.get(request));
+    Assert.assertEquals("a", request.getAttribute("hello"));
+  }
+
+  @Test
+  public void setAttributeTest() {
+    request.setAttribute("hello", "a");
+    Assert.assertEquals("a", HELLO.get(request));
+
+    HELLO.set(request, "b");
+    request.setAttribute("hello", "c");
+    Assert.assertEquals("c", HELLO.get(request));
+  }
+
+  @Test
+  public void removeAttributeTest() {
+    HELLO.set(request, "a");
+    request.removeAttribute("hello");
+    Assert.assertNull(HELLO.get(request));
+  }
+
+  @Test
+  public void growTest() {
+    AttributeSlots slots = AttributeSlots.create(request);
+    AttributeSlot<Integer> slot = AttributeSlot.of("growTest");
+    slots.set(slot, 1);
+    Assert.assertEquals(Integer.valueOf(1), slots.get(slot, request));
+    slots.clear(slot);
+    Assert.assertNull(slots.get(slot, request));
+  }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.CompileScheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.UnavailableException;
+
+/**
+ * Test the compilation scheduler.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CompileSchedulerTest {
+
+  private CountDownLatch block(CompileScheduler scheduler) throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    scheduler.submit("/blocker.jsp", () -> {
+      started.countDown();
+      release.await();
+      return null;
+    });
+    started.await();
+    return release;
+  }
+
+  @Test
+  public void coalesceTest() throws Exception {
+    CompileScheduler scheduler = new CompileScheduler(1, 4, 10, 5);
+    try {
+      CountDownLatch release = block(scheduler);
+      AtomicInteger runs = new AtomicInteger();
+      CountDownLatch done = new CountDownLatch(1);
+      scheduler.submit("/a.jsp", () -> {
+        runs.incrementAndGet();
+        done.countDown();
+        return null;
+      });
+      scheduler.submit("/a.jsp", runs::incrementAndGet);
+      release.countDown();
+      done.await();
+      Assert.assertEquals(1, runs.get());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void priorityTest() throws Exception {
+    CompileScheduler scheduler = new CompileScheduler(1, 4, 10, 5);
+    try {
+      CountDownLatch release = block(scheduler);
+      List<String> order = new CopyOnWriteArrayList<>();
+      CountDownLatch done = new CountDownLatch(2);
+      scheduler.submit("/a.jsp", () -> {
+        order.add("a");
+        done.countDown();
+        return null;
+      });
+      scheduler.submit("/b.jsp", () -> {
+        order.add("b");
+        done.countDown();
+        return null;
+      });
+      scheduler.hit("/b.jsp");
+      release.countDown();
+      done.await();
+      Assert.assertEquals(Arrays.asList("b", "a"), order);
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void shutdownTest() throws Exception {
+    CompileScheduler scheduler = new CompileScheduler(1, 4, 10, 5);
+    CountDownLatch release = block(scheduler);
+    AtomicInteger runs = new AtomicInteger();
+    try {
+      CompletableFuture<?> queued = scheduler.submit("/a.jsp", runs::incrementAndGet);
+      scheduler.shutdown();
+      try {
+        queued.get(10, TimeUnit.SECONDS);
+        Assert.fail();
+      } catch (ExecutionException ex) {
+        Assert.assertTrue(ex.getCause() instanceof UnavailableException);
+      }
+      Assert.assertTrue(scheduler.isClosed());
+      Assert.assertNull(scheduler.submit("/b.jsp", runs::incrementAndGet));
+      try {
+        scheduler.await("/c.jsp", runs::incrementAndGet);
+        Assert.fail();
+      } catch (UnavailableException ex) {
+        // expected
+      }
+      Assert.assertEquals(0, runs.get());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void overloadTest() throws Exception {
+    CompileScheduler scheduler = new CompileScheduler(1, 0, 1, 7);
+    try {
+      scheduler.await("/a.jsp", () -> 1);
+      Assert.fail();
+    } catch (UnavailableException ex) {
+      Assert.assertEquals(7, ex.getUnavailableSeconds());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void timeoutTest() throws Exception {
+    CompileScheduler scheduler = new CompileScheduler(1, 4, 1, 3);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      scheduler.await("/a.jsp", () -> {
+        release.await();
+        return 1;
+      });
+      Assert.fail();
+    } catch (UnavailableException ex) {
+      Assert.assertEquals(3, ex.getUnavailableSeconds());
+    } finally {
+      release.countDown();
+      scheduler.shutdown();
+    }
+  }
+
+}
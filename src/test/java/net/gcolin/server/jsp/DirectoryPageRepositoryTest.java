@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.DirectoryPageRepository;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the shared repository of compiled JSP.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class DirectoryPageRepositoryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void publishTest() throws IOException {
+    AtomicInteger compilations = new AtomicInteger();
+    PageRepository.Compilation compilation = () -> {
+      compilations.incrementAndGet();
+      return Collections.singletonMap("_index_jsp", "bytecode".getBytes(StandardCharsets.UTF_8));
+    };
+    // two nodes sharing the same directory
+    PageRepository node1 = new DirectoryPageRepository(folder.getRoot());
+    PageRepository node2 = new DirectoryPageRepository(folder.getRoot());
+
+    node1.get("abc", compilation);
+    Map<String, byte[]> classes = node2.get("abc", compilation);
+
+    Assert.assertEquals(1, compilations.get());
+    Assert.assertEquals("bytecode", new String(classes.get("_index_jsp"), StandardCharsets.UTF_8));
+    // the lock file is deleted once the classes are published
+    Assert.assertFalse(new File(folder.getRoot(), "abc.lock").exists());
+    Assert.assertArrayEquals(new String[] {"abc"}, folder.getRoot().list());
+  }
+
+  @Test
+  public void notSharedTest() throws IOException {
+    AtomicInteger compilations = new AtomicInteger();
+    PageRepository.Compilation compilation = () -> {
+      compilations.incrementAndGet();
+      return Collections.singletonMap("_index_jsp", new byte[] {1});
+    };
+    // a file cannot be the shared directory
+    DirectoryPageRepository repository = new DirectoryPageRepository(folder.newFile("file"));
+    Assert.assertFalse(repository.isShared());
+
+    repository.get("abc", compilation);
+    Assert.assertArrayEquals(new byte[] {1}, repository.get("abc", compilation).get("_index_jsp"));
+    Assert.assertEquals(2, compilations.get());
+  }
+
+  @Test
+  public void failureTest() throws IOException {
+    PageRepository repository = new DirectoryPageRepository(folder.getRoot());
+    try {
+      repository.get("abc", () -> {
+        throw new IOException("error");
+      });
+      Assert.fail();
+    } catch (IOException ex) {
+      // nothing is published
+    }
+    Map<String, byte[]> classes = repository.get("abc",
+        () -> Collections.singletonMap("_index_jsp", new byte[] {1}));
+    Assert.assertArrayEquals(new byte[] {1}, classes.get("_index_jsp"));
+  }
+
+}
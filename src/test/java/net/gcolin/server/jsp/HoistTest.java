@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+
+/**
+ * Test the loop invariant expressions evaluated once by loop.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class HoistTest extends AbstractTagTest {
+
+  static Map<String, Object> attributes(List<String> rows, String user, List<String> log) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("rows", rows);
+    attributes.put("user", user);
+    attributes.put("log", log);
+    return attributes;
+  }
+
+  @Test
+  public void generatedCodeTest() throws IOException {
+    String java = generate("core/hoist");
+    // the getter is evaluated at the first iteration only
+    Assert.assertTrue(java.matches("(?s).*if\\((a\\d+)\\)\\{\\s*\\1 = false;\\s*"
+        + "a\\d+ = _c\\.getUser\\(\\)\\.isEmpty\\(\\);.*"));
+    // the method with a side effect is evaluated at each iteration
+    Assert.assertTrue(java.contains("_w.write(String.valueOf(_c.getLog().add(\"x\")));"));
+  }
+
+  @Test
+  public void compiledTest() throws IOException, ServletException {
+    List<String> log = new ArrayList<>();
+    test("core/hoist", "[a false true][b false true] ",
+        attributes(Arrays.asList("a", "b"), "u", log));
+    Assert.assertEquals(2, log.size());
+  }
+
+  @Test
+  public void compiledEmptyTest() throws IOException, ServletException {
+    // the getter of the null user is not evaluated without iteration
+    List<String> log = new ArrayList<>();
+    test("core/hoist", " ", attributes(Collections.emptyList(), null, log));
+    Assert.assertTrue(log.isEmpty());
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.HotPages;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test the list of the most requested JSP.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class HotPagesTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void saveAndLoadTest() throws IOException {
+    File dir = folder.getRoot();
+    HotPages pages = new HotPages();
+    hit(pages, "/a.jsp", 2);
+    hit(pages, "/b.jsp", 4);
+    hit(pages, "/c.jsp", 6);
+    pages.save(dir, 2);
+
+    HotPages next = new HotPages();
+    Assert.assertEquals(Arrays.asList("/c.jsp", "/b.jsp"), next.load(dir));
+    // the counts of the last run are halved: 3 and 2
+    hit(next, "/a.jsp", 4);
+    Assert.assertEquals(Arrays.asList("/a.jsp", "/c.jsp", "/b.jsp"), next.ranked(10));
+  }
+
+  @Test
+  public void decayTest() throws IOException {
+    File dir = folder.getRoot();
+    HotPages pages = new HotPages();
+    hit(pages, "/a.jsp", 4);
+    pages.save(dir, 10);
+    // 4, then 2, then 1, then forgotten
+    for (int i = 0; i < 2; i++) {
+      pages = new HotPages();
+      Assert.assertEquals(Arrays.asList("/a.jsp"), pages.load(dir));
+      pages.save(dir, 10);
+    }
+    Assert.assertTrue(new HotPages().load(dir).isEmpty());
+  }
+
+  @Test
+  public void maxPagesTest() {
+    HotPages pages = new HotPages(2);
+    hit(pages, "/a.jsp", 1);
+    hit(pages, "/b.jsp", 2);
+    hit(pages, "/c.jsp", 3);
+    hit(pages, "/a.jsp", 3);
+    Assert.assertEquals(Arrays.asList("/a.jsp", "/b.jsp"), pages.ranked(10));
+  }
+
+  private static void hit(HotPages pages, String path, int nb) {
+    for (int i = 0; i < nb; i++) {
+      pages.hit(path);
+    }
+  }
+
+  @Test
+  public void noListTest() throws IOException {
+    Assert.assertTrue(new HotPages().load(folder.getRoot()).isEmpty());
+  }
+
+}
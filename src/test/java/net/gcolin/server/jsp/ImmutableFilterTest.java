@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Immutable resources tests.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class ImmutableFilterTest {
+
+  private static final String MANIFEST = "/js/app.0123456789.js=/js/app.js\n";
+
+  private void filter(String path, HttpServletResponse response)
+      throws IOException, ServletException {
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getResourceAsStream(ImmutableFilter.WAR_MANIFEST))
+        .thenReturn(new ByteArrayInputStream(MANIFEST.getBytes(StandardCharsets.ISO_8859_1)));
+    ClassLoader cl = Mockito.mock(ClassLoader.class);
+    Mockito.when(cl.getResources(ImmutableFilter.JAR_MANIFEST))
+        .thenReturn(Collections.emptyEnumeration());
+    Mockito.when(ctx.getClassLoader()).thenReturn(cl);
+    FilterConfig config = Mockito.mock(FilterConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    ImmutableFilter filter = new ImmutableFilter();
+    filter.init(config);
+
+    HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    Mockito.when(request.getMethod()).thenReturn("GET");
+    Mockito.when(request.getServletPath()).thenReturn(path);
+    FilterChain chain = Mockito.mock(FilterChain.class);
+    filter.doFilter(request, response, chain);
+    Mockito.verify(chain).doFilter(request, response);
+  }
+
+  @Test
+  public void immutableTest() throws IOException, ServletException {
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    filter("/js/app.0123456789.js", response);
+    Mockito.verify(response).setHeader("Cache-Control", ImmutableFilter.CACHE_CONTROL);
+  }
+
+  @Test
+  public void otherTest() throws IOException, ServletException {
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    filter("/js/app.js", response);
+    Mockito.verify(response, Mockito.never()).setHeader(Mockito.eq("Cache-Control"),
+        Mockito.anyString());
+  }
+}
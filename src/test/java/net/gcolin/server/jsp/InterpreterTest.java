@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.JdkCompiler;
+import net.gcolin.server.jsp.internal.JspCompiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.tools.JavaCompiler;
+
+/**
+ * Test that an interpreted page gives the same output as the compiled page.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class InterpreterTest extends AbstractTagTest {
+
+  @Test
+  public void testMinify() throws IOException, ServletException {
+    interpret("core/minify", Collections.singletonMap("title", "T"));
+  }
+
+  @Test
+  public void testSetAndIf() throws IOException, ServletException {
+    interpret("core/largePage", Collections.singletonMap("title", "T"));
+  }
+
+  @Test
+  public void testHoist() throws IOException, ServletException {
+    List<String> log = new ArrayList<>();
+    interpret("core/hoist", "[a false true][b false true] ",
+        HoistTest.attributes(Arrays.asList("a", "b"), "u", log));
+    // the method with a side effect is called at each iteration, like in the compiled page
+    Assert.assertEquals(2, log.size());
+  }
+
+  @Test
+  public void testHoistGenerated() throws IOException, ServletException {
+    // the tiered mode interprets the model optimized by the Java generation
+    List<String> log = new ArrayList<>();
+    Assert.assertEquals("[a false true][b false true] ", service(generated("core/hoist"),
+        mockContext(), HoistTest.attributes(Arrays.asList("a", "b"), "u", log)));
+    Assert.assertEquals(2, log.size());
+  }
+
+  @Test
+  public void testUnsupported() throws IOException {
+    ServletContext ctx = mockContext();
+    Mockito.when(ctx.getResource("/messageFormat1.jsp"))
+        .thenReturn(InterpreterTest.class.getResource("/fmt/messageFormat1.jsp"));
+    JspCompiler compiler = new JspCompiler(null, false, false, new JdkCompiler() {
+
+      @Override
+      protected JavaCompiler getJavaCompiler() {
+        return null;
+      }
+    });
+    try {
+      compiler.buildInterpreter("/messageFormat1.jsp", ctx);
+      Assert.fail();
+    } catch (ServletException ex) {
+      // the bundle needs a compilation
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("CodeNode at line 4"));
+    }
+  }
+
+  @Test
+  public void testHoistEmpty() throws IOException, ServletException {
+    // the getter of the null user is not evaluated without iteration
+    interpret("core/hoist", " ", HoistTest.attributes(Collections.emptyList(), null, null));
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.JspLexer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JspLexerTest {
+
+  private List<String> tokens(String jsp, boolean textOnly) {
+    char[] content = jsp.toCharArray();
+    JspLexer lexer = new JspLexer(content, 0, content.length, textOnly);
+    List<String> list = new ArrayList<>();
+    int token;
+    while ((token = lexer.next()) != JspLexer.END) {
+      list.add(token + ":" + lexer.getValue());
+    }
+    return list;
+  }
+
+  @Test
+  public void testTokens() {
+    Assert.assertEquals(
+        "[1:hello , 2:c:if test=\"${a > b}\", 4:name, 2:/c:if, 3:%-- var --%, 1: end]",
+        tokens("hello <c:if test=\"${a > b}\">${name}</c:if><%-- var --%> end", false)
+            .toString());
+  }
+
+  @Test
+  public void testLiteral() {
+    Assert.assertEquals("[1:if (a < b) $ {, 2:br/]",
+        tokens("if (a < b) $ {<br/>", false).toString());
+    Assert.assertEquals("[1:a href=\", 4:url, 1:\"]",
+        tokens("a href=\"${url}\"", true).toString());
+  }
+
+  @Test
+  public void testPosition() {
+    char[] content = "a\nbc\n  ${d}".toCharArray();
+    JspLexer lexer = new JspLexer(content, 0, content.length);
+    Assert.assertEquals(JspLexer.TEXT, lexer.next());
+    Assert.assertEquals(JspLexer.EXPRESSION, lexer.next());
+    Assert.assertEquals(3, lexer.getLine());
+    Assert.assertEquals(5, lexer.getColumn());
+  }
+
+}
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.HotPages;
+import net.gcolin.server.jsp.internal.InterpretedServlet;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Precompiled JSP tests.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class JspServletTest {
+
+  private static final String MANIFEST = "/index.jsp=" + Page.class.getName() + "\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  public static class Page implements Servlet {
+
+    static int served;
+    private ServletConfig config;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+      this.config = config;
+    }
+
+    @Override
+    public ServletConfig getServletConfig() {
+      return config;
+    }
+
+    @Override
+    public void service(ServletRequest req, ServletResponse res) {
+      Assert.assertNotNull(config);
+      served++;
+    }
+
+    @Override
+    public String getServletInfo() {
+      return null;
+    }
+
+    @Override
+    public void destroy() {}
+  }
+
+  @Test
+  public void precompiledTest() throws IOException, ServletException {
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getResourceAsStream(JspServlet.WAR_MANIFEST))
+        .thenReturn(new ByteArrayInputStream(MANIFEST.getBytes(StandardCharsets.ISO_8859_1)));
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+
+    HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    Mockito.when(request.getServletPath()).thenReturn("/index.jsp");
+    Mockito.when(request.getServletContext()).thenReturn(ctx);
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    Page.served = 0;
+    servlet.service(request, response);
+    servlet.service(request, response);
+
+    Assert.assertEquals(2, Page.served);
+    // the JSP source is not needed
+    Mockito.verify(ctx, Mockito.never()).getResource("/index.jsp");
+  }
+
+  @Test
+  public void precompiledOnlyTest() throws IOException, ServletException {
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getResourceAsStream(JspServlet.WAR_MANIFEST))
+        .thenReturn(new ByteArrayInputStream(MANIFEST.getBytes(StandardCharsets.ISO_8859_1)));
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    Mockito.when(ctx.getResource("/minify.jsp"))
+        .thenReturn(JspServletTest.class.getResource("/core/minify.jsp"));
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    Mockito.when(config.getInitParameter("precompiled")).thenReturn("only");
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+    try {
+      HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+      Mockito.when(request.getServletPath()).thenReturn("/minify.jsp");
+      Mockito.when(request.getServletContext()).thenReturn(ctx);
+      servlet.service(request, Mockito.mock(HttpServletResponse.class));
+      Assert.fail();
+    } catch (FileNotFoundException ex) {
+      // the JSP is not compiled
+    } finally {
+      servlet.destroy();
+    }
+  }
+
+  @Test
+  public void failureCachedTest() throws IOException, ServletException {
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    Mockito.when(ctx.getResource("/broken.jsp"))
+        .thenReturn(JspServletTest.class.getResource("/core/broken.jsp"));
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    Mockito.when(config.getInitParameter("compileRetry")).thenReturn("60");
+    Mockito.when(ctx.getAttribute("jspWork")).thenReturn(folder.getRoot());
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+
+    HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    Mockito.when(request.getServletPath()).thenReturn("/broken.jsp");
+    Mockito.when(request.getServletContext()).thenReturn(ctx);
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    RuntimeException error = null;
+    try {
+      servlet.service(request, response);
+      Assert.fail();
+    } catch (RuntimeException ex) {
+      error = ex;
+    }
+    try {
+      servlet.service(request, response);
+      Assert.fail();
+    } catch (ServletException ex) {
+      // the error is cached
+      Assert.assertSame(error, ex.getCause());
+    } finally {
+      servlet.destroy();
+    }
+    // a failing JSP is not compiled at the next startup
+    Assert.assertFalse(new File(folder.getRoot(), HotPages.FILE_NAME).exists());
+  }
+
+  @Test
+  public void evictionTest() throws IOException, ServletException {
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    Mockito.when(ctx.getResource("/minify.jsp"))
+        .thenReturn(JspServletTest.class.getResource("/core/minify.jsp"));
+    Mockito.when(ctx.getResource("/largePage.jsp"))
+        .thenReturn(JspServletTest.class.getResource("/core/largePage.jsp"));
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    Mockito.when(config.getInitParameter("maxPages")).thenReturn("1");
+    Mockito.when(config.getInitParameter("warmup")).thenReturn("false");
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+    try {
+      service(servlet, ctx, "/minify.jsp");
+      Assert.assertEquals(1, servlet.getResidentPages());
+      service(servlet, ctx, "/largePage.jsp");
+      // the least recently requested JSP is released
+      Assert.assertEquals(1, servlet.getResidentPages());
+      Assert.assertEquals(1, servlet.getEvictedPages());
+      service(servlet, ctx, "/minify.jsp");
+      Assert.assertEquals(1, servlet.getResidentPages());
+      Assert.assertEquals(2, servlet.getEvictedPages());
+    } finally {
+      servlet.destroy();
+    }
+  }
+
+  @Test
+  public void evictionDuringRenderTest() throws Exception {
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    Mockito.when(ctx.getAttribute("jspWork")).thenReturn(folder.getRoot());
+    Mockito.when(ctx.getResource("/gate.jsp"))
+        .thenReturn(JspServletTest.class.getResource("/core/gate.jsp"));
+    Mockito.when(ctx.getResource("/minify.jsp"))
+        .thenReturn(JspServletTest.class.getResource("/core/minify.jsp"));
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    Mockito.when(config.getInitParameter("maxPages")).thenReturn("1");
+    Mockito.when(config.getInitParameter("warmup")).thenReturn("false");
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+    CompletableFuture<String> gate = new CompletableFuture<>();
+    try {
+      // the evicted JSP is loaded again from its class files, by a class loader to close
+      service(servlet, ctx, "/gate.jsp", CompletableFuture.completedFuture("open"));
+      service(servlet, ctx, "/minify.jsp");
+      AtomicReference<Object> rendered = new AtomicReference<>();
+      Thread request = new Thread(() -> {
+        try {
+          rendered.set(service(servlet, ctx, "/gate.jsp", gate));
+        } catch (IOException | ServletException | RuntimeException ex) {
+          rendered.set(ex);
+        }
+      });
+      request.start();
+      // the compilation is awaited with a timeout, the gate without
+      for (int i = 0; i < 100 && request.getState() != Thread.State.WAITING; i++) {
+        Thread.sleep(100);
+      }
+      Assert.assertEquals(Thread.State.WAITING, request.getState());
+      Servlet page = servlet.getServlet("/gate.jsp");
+      URLClassLoader loader = (URLClassLoader) page.getClass().getClassLoader();
+      String classFile = page.getClass().getName().replace('.', '/') + ".class";
+
+      // the JSP is evicted while its render is blocked
+      service(servlet, ctx, "/minify.jsp");
+      Assert.assertNull(servlet.getServlet("/gate.jsp"));
+      Assert.assertNotNull(loader.findResource(classFile));
+
+      gate.complete("x");
+      request.join(10000);
+      Assert.assertEquals("before x after", String.valueOf(rendered.get()).trim());
+      // the class loader is closed after the render
+      Assert.assertNull(loader.findResource(classFile));
+    } finally {
+      gate.complete("x");
+      servlet.destroy();
+    }
+  }
+
+  @Test
+  public void warmupOverlapTest() throws IOException, ServletException, InterruptedException {
+    File work = folder.getRoot();
+    Files.write(new File(work, HotPages.FILE_NAME).toPath(),
+        "/minify.jsp 5\n".getBytes(StandardCharsets.UTF_8));
+    CountDownLatch compiling = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    Mockito.when(ctx.getAttribute("jspWork")).thenReturn(work);
+    CountDownLatch ready = new CountDownLatch(1);
+    Mockito.doAnswer(invocation -> {
+      ready.countDown();
+      return null;
+    }).when(ctx).setAttribute(JspServlet.READY_ATTRIBUTE, Boolean.TRUE);
+    Mockito.when(ctx.getResource("/minify.jsp")).thenAnswer(invocation -> {
+      if (Thread.currentThread().getName().startsWith("jsp-compiler")) {
+        // hold the compilation of the warm-up until the request waits for it
+        compiling.countDown();
+        release.await(10, TimeUnit.SECONDS);
+      }
+      return JspServletTest.class.getResource("/core/minify.jsp");
+    });
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+    try {
+      Assert.assertTrue(compiling.await(10, TimeUnit.SECONDS));
+      AtomicReference<Exception> error = new AtomicReference<>();
+      Thread request = new Thread(() -> {
+        try {
+          service(servlet, ctx, "/minify.jsp");
+        } catch (IOException | ServletException | RuntimeException ex) {
+          error.set(ex);
+        }
+      });
+      request.start();
+      Thread.sleep(200);
+      release.countDown();
+      request.join(10000);
+      Assert.assertNull(error.get());
+      Assert.assertTrue(ready.await(10, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      servlet.destroy();
+    }
+  }
+
+  @Test
+  public void tieredWarmupTest() throws IOException, ServletException, InterruptedException {
+    File work = folder.getRoot();
+    Files.write(new File(work, HotPages.FILE_NAME).toPath(),
+        "/minify.jsp 5\n".getBytes(StandardCharsets.UTF_8));
+    CountDownLatch compiling = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    Mockito.when(ctx.getAttribute("jspWork")).thenReturn(work);
+    CountDownLatch ready = new CountDownLatch(1);
+    Mockito.doAnswer(invocation -> {
+      ready.countDown();
+      return null;
+    }).when(ctx).setAttribute(JspServlet.READY_ATTRIBUTE, Boolean.TRUE);
+    Mockito.when(ctx.getResource("/minify.jsp")).thenAnswer(invocation -> {
+      if (Thread.currentThread().getName().startsWith("jsp-compiler")) {
+        compiling.countDown();
+        release.await(10, TimeUnit.SECONDS);
+      }
+      return JspServletTest.class.getResource("/core/minify.jsp");
+    });
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    Mockito.when(config.getInitParameter("tiered")).thenReturn("true");
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+    try {
+      Assert.assertTrue(compiling.await(10, TimeUnit.SECONDS));
+      // the warm-up compiles the JSP, the request is served by the interpreter
+      service(servlet, ctx, "/minify.jsp");
+      Assert.assertTrue(servlet.getServlet("/minify.jsp") instanceof InterpretedServlet);
+      release.countDown();
+      Assert.assertTrue(ready.await(10, TimeUnit.SECONDS));
+      // the compiled servlet of the warm-up replaces the interpreter
+      Assert.assertNotNull(servlet.getServlet("/minify.jsp"));
+      Assert.assertFalse(servlet.getServlet("/minify.jsp") instanceof InterpretedServlet);
+    } finally {
+      release.countDown();
+      servlet.destroy();
+    }
+  }
+
+  @Test
+  public void tieredParseOnceTest() throws IOException, ServletException, InterruptedException {
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getClassLoader()).thenReturn(JspServletTest.class.getClassLoader());
+    Mockito.when(ctx.getResource("/minify.jsp"))
+        .thenReturn(JspServletTest.class.getResource("/core/minify.jsp"));
+    ServletConfig config = Mockito.mock(ServletConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    Mockito.when(config.getInitParameter("tiered")).thenReturn("true");
+    Mockito.when(config.getInitParameter("warmup")).thenReturn("false");
+    JspServlet servlet = new JspServlet();
+    servlet.init(config);
+    try {
+      service(servlet, ctx, "/minify.jsp");
+      for (int i = 0; i < 100
+          && servlet.getServlet("/minify.jsp") instanceof InterpretedServlet; i++) {
+        Thread.sleep(100);
+      }
+      Assert.assertNotNull(servlet.getServlet("/minify.jsp"));
+      Assert.assertFalse(servlet.getServlet("/minify.jsp") instanceof InterpretedServlet);
+      // once for the modification date and once for the parsing, the compilation in the
+      // background reuses the parsing of the interpreter
+      Mockito.verify(ctx, Mockito.times(2)).getResource("/minify.jsp");
+    } finally {
+      servlet.destroy();
+    }
+  }
+
+  private void service(JspServlet servlet, ServletContext ctx, String path)
+      throws IOException, ServletException {
+    service(servlet, ctx, path, null);
+  }
+
+  private String service(JspServlet servlet, ServletContext ctx, String path,
+      CompletableFuture<String> gate) throws IOException, ServletException {
+    HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    Mockito.when(request.getServletPath()).thenReturn(path);
+    Mockito.when(request.getServletContext()).thenReturn(ctx);
+    Mockito.when(request.getAttribute("gate")).thenReturn(gate);
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    StringWriter out = new StringWriter();
+    Mockito.when(response.getWriter()).thenReturn(new PrintWriter(out));
+    servlet.service(request, response);
+    response.getWriter().flush();
+    return out.toString();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.BuildContext;
+import net.gcolin.server.jsp.internal.Expression;
+import net.gcolin.server.jsp.internal.node.BlockNode;
+import net.gcolin.server.jsp.internal.node.CodeNode;
+import net.gcolin.server.jsp.internal.node.ConditionalNode;
+import net.gcolin.server.jsp.internal.node.JavaBuilder;
+import net.gcolin.server.jsp.internal.node.PageOptimizer;
+import net.gcolin.server.jsp.internal.node.TextNode;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Test the optimizations of the node tree and its lowering to Java.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class PageOptimizerTest {
+
+  private static PageOptimizer optimizer() {
+    ServletContext sc = Mockito.mock(ServletContext.class);
+    Mockito.when(sc.getClassLoader()).thenReturn(BuildContext.class.getClassLoader());
+    return new PageOptimizer(new BuildContext("/test.jsp", sc));
+  }
+
+  private static String toJava(BlockNode block) {
+    JavaBuilder out = new JavaBuilder(0);
+    out.block(block.getChildren());
+    return out.toString();
+  }
+
+  @Test
+  public void mergeTextTest() {
+    BlockNode block = new BlockNode();
+    block.add(new TextNode("a"));
+    block.add(new TextNode(""));
+    block.add(new TextNode("b\"\n"));
+    block.add(new CodeNode("x();"));
+    block.add(new TextNode("c"));
+    block.add(new TextNode("d"));
+
+    optimizer().optimize(block);
+
+    Assert.assertEquals(3, block.getChildren().size());
+    Assert.assertEquals("_w.write(\"ab\\\"\\n\");\nx();\n_w.write(\"cd\");\n", toJava(block));
+  }
+
+  @Test
+  public void mergeNestedTextTest() {
+    BlockNode block = new BlockNode();
+    ConditionalNode test =
+        new ConditionalNode(new Expression("a", boolean.class, boolean.class, false), null);
+    test.add(new TextNode("b"));
+    test.add(new TextNode("c"));
+    block.add(new TextNode("a"));
+    block.add(test);
+    block.add(new TextNode("d"));
+
+    optimizer().optimize(block);
+
+    // the text is not merged across the block
+    Assert.assertEquals(3, block.getChildren().size());
+    Assert.assertEquals(1, test.getChildren().size());
+    Assert.assertEquals("bc", ((TextNode) test.getChildren().get(0)).getText());
+  }
+
+  @Test
+  public void usedMembersTest() {
+    Map<String, String> members = new HashMap<>();
+    members.put("getA", "private A getA(){ return new A(getB()); }");
+    members.put("getB", "private B getB(){ return b; }");
+    members.put("getAll", "private A getAll(){ return getC(); }");
+    members.put("getC", "private C getC(){ return c; }");
+    members.put("b", "private B b;");
+    members.put("c", "private C c;");
+
+    // getAll is not used by getA(), and a member used by a used member is used
+    Assert.assertEquals("[b, getA, getB]",
+        new TreeSet<>(PageOptimizer.usedMembers(members, "_w.write(_c.getA());")).toString());
+    Assert.assertEquals("[c, getC]",
+        new TreeSet<>(PageOptimizer.usedMembers(members, "getC")).toString());
+    Assert.assertTrue(PageOptimizer.usedMembers(members, "_c.getAb();").isEmpty());
+  }
+
+}
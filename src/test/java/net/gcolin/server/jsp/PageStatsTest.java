@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.CountingResponse;
+import net.gcolin.server.jsp.internal.PageStats;
+import net.gcolin.server.jsp.internal.Synthetic;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the statistics of a JSP.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class PageStatsTest {
+
+  @Test
+  public void renderTest() {
+    PageStats stats = new PageStats("/a.jsp");
+    Assert.assertEquals(0, stats.getMeanLatency());
+    stats.rendered(TimeUnit.MICROSECONDS.toNanos(50), 10, false);
+    stats.rendered(TimeUnit.MICROSECONDS.toNanos(300), 20, false);
+    stats.rendered(TimeUnit.SECONDS.toNanos(2), 5, true);
+    Assert.assertEquals("/a.jsp", stats.getPath());
+    Assert.assertEquals(3, stats.getRenderCount());
+    Assert.assertEquals(1, stats.getErrorCount());
+    Assert.assertEquals(35, stats.getBytesWritten());
+    Assert.assertEquals((50 + 300 + 2000000) / 3, stats.getMeanLatency());
+
+    long[] bounds = stats.getLatencyBounds();
+    long[] histogram = stats.getLatencyHistogram();
+    Assert.assertEquals(bounds.length + 1, histogram.length);
+    Assert.assertEquals(1, histogram[0]);
+    Assert.assertEquals(1, histogram[2]);
+    Assert.assertEquals(1, histogram[histogram.length - 1]);
+  }
+
+  @Test
+  public void compileTest() {
+    PageStats stats = new PageStats("/a.jsp");
+    Assert.assertEquals(-1, stats.getClassSize());
+    stats.compiled(TimeUnit.MILLISECONDS.toNanos(120), 4096);
+    Assert.assertEquals(120, stats.getCompileTime());
+    Assert.assertEquals(4096, stats.getClassSize());
+  }
+
+  @Test
+  public void countTest() throws Exception {
+    CountingResponse response = new CountingResponse(Synthetic.response());
+    PrintWriter writer = response.getWriter();
+    writer.write("hello");
+    writer.write('!');
+    writer.print(12);
+    writer.flush();
+    Assert.assertEquals(8, response.getCount());
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.server.jsp;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Precompressed resources tests.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class PrecompressedFilterTest {
+
+  private static final String MANIFEST = "/js/app.js=1000 gzip:gz:300 br:br:250\n";
+  private static final long LAST_MODIFIED = 1500000000000L;
+  private static final String ETAG = "\"gzip-300-" + LAST_MODIFIED + "\"";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private PrecompressedFilter filter() throws IOException, ServletException {
+    File gz = folder.newFile("app.js.gz");
+    Assert.assertTrue(gz.setLastModified(LAST_MODIFIED));
+    ServletContext ctx = Mockito.mock(ServletContext.class);
+    Mockito.when(ctx.getResource("/js/app.js.gz")).thenReturn(gz.toURI().toURL());
+    Mockito.when(ctx.getResourceAsStream(PrecompressedFilter.WAR_MANIFEST))
+        .thenReturn(new ByteArrayInputStream(MANIFEST.getBytes(StandardCharsets.ISO_8859_1)));
+    Mockito.when(ctx.getResourceAsStream("/js/app.js.gz"))
+        .thenReturn(new ByteArrayInputStream("gzip".getBytes(StandardCharsets.UTF_8)));
+    Mockito.when(ctx.getMimeType("/js/app.js")).thenReturn("application/javascript");
+    ClassLoader cl = Mockito.mock(ClassLoader.class);
+    Mockito.when(cl.getResources(PrecompressedFilter.JAR_MANIFEST))
+        .thenReturn(Collections.emptyEnumeration());
+    Mockito.when(ctx.getClassLoader()).thenReturn(cl);
+    FilterConfig config = Mockito.mock(FilterConfig.class);
+    Mockito.when(config.getServletContext()).thenReturn(ctx);
+    PrecompressedFilter filter = new PrecompressedFilter();
+    filter.init(config);
+    return filter;
+  }
+
+  private HttpServletRequest request(String path, String acceptEncoding) {
+    HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+    Mockito.when(request.getMethod()).thenReturn("GET");
+    Mockito.when(request.getServletPath()).thenReturn(path);
+    Mockito.when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+    Mockito.when(request.getDateHeader(Mockito.anyString())).thenReturn(-1L);
+    return request;
+  }
+
+  @Test
+  public void selectTest() {
+    PrecompressedFilter.Variant[] list = new PrecompressedFilter.Variant[] {
+        new PrecompressedFilter.Variant(PrecompressedFilter.IDENTITY, "", 1000),
+        new PrecompressedFilter.Variant("gzip", ".gz", 300),
+        new PrecompressedFilter.Variant("br", ".br", 250)};
+    Assert.assertEquals("br", PrecompressedFilter.select(list, "gzip, deflate, br").getEncoding());
+    Assert.assertEquals("gzip",
+        PrecompressedFilter.select(list, "gzip;q=0.8, br;q=0").getEncoding());
+    Assert.assertEquals(PrecompressedFilter.IDENTITY,
+        PrecompressedFilter.select(list, "deflate").getEncoding());
+    Assert.assertEquals(PrecompressedFilter.IDENTITY,
+        PrecompressedFilter.select(list, null).getEncoding());
+    Assert.assertEquals("br", PrecompressedFilter.select(list, "*").getEncoding());
+    Assert.assertNull(PrecompressedFilter.select(list, "identity;q=0"));
+  }
+
+  @Test
+  public void serveTest() throws IOException, ServletException {
+    PrecompressedFilter filter = filter();
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Mockito.when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+
+      @Override
+      public void write(int bt) throws IOException {
+        out.write(bt);
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {}
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+    });
+    FilterChain chain = Mockito.mock(FilterChain.class);
+
+    filter.doFilter(request("/js/app.js", "gzip"), response, chain);
+
+    Mockito.verify(chain, Mockito.never()).doFilter(Mockito.any(), Mockito.any());
+    Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+    Mockito.verify(response).addHeader("Vary", "Accept-Encoding");
+    Mockito.verify(response).setHeader("ETag", ETAG);
+    Mockito.verify(response).setDateHeader("Last-Modified", LAST_MODIFIED);
+    Mockito.verify(response).setContentType("application/javascript");
+    Mockito.verify(response).setContentLengthLong(300);
+    Assert.assertEquals("gzip", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void ifNoneMatchTest() throws IOException, ServletException {
+    PrecompressedFilter filter = filter();
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    FilterChain chain = Mockito.mock(FilterChain.class);
+    HttpServletRequest request = request("/js/app.js", "gzip");
+    Mockito.when(request.getHeader("If-None-Match")).thenReturn("\"other\", " + ETAG);
+    // If-None-Match wins over If-Modified-Since
+    Mockito.when(request.getDateHeader("If-Modified-Since")).thenReturn(0L);
+
+    filter.doFilter(request, response, chain);
+
+    Mockito.verify(chain, Mockito.never()).doFilter(Mockito.any(), Mockito.any());
+    Mockito.verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    Mockito.verify(response, Mockito.never()).getOutputStream();
+  }
+
+  @Test
+  public void ifModifiedSinceTest() {
+    HttpServletRequest request = request("/js/app.js", "gzip");
+    Mockito.when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED + 500);
+    Assert.assertTrue(PrecompressedFilter.notModified(request, ETAG, LAST_MODIFIED));
+    Mockito.when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED - 1000);
+    Assert.assertFalse(PrecompressedFilter.notModified(request, ETAG, LAST_MODIFIED));
+    Mockito.when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+    Mockito.when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED);
+    Assert.assertFalse(PrecompressedFilter.notModified(request, ETAG, LAST_MODIFIED));
+  }
+
+  @Test
+  public void chainTest() throws IOException, ServletException {
+    PrecompressedFilter filter = filter();
+    HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+    FilterChain chain = Mockito.mock(FilterChain.class);
+    HttpServletRequest request = request("/index.html", "gzip");
+
+    filter.doFilter(request, response, chain);
+
+    Mockito.verify(chain).doFilter(request, response);
+    Mockito.verify(response, Mockito.never()).setHeader("Content-Encoding", "gzip");
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.Profiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the translation of the stacks by the profiler.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class ProfilerTest {
+
+  /**
+   * A generated servlet.
+   */
+  public static class Page {
+
+    public static final String _SMAP = "SMAP\nPage.java\nJSP\n*S JSP\n*F\n+ 0 list.jsp\n"
+        + "/list.jsp\n+ 1 row.jsp\n/row.jsp\n*L\n4#0:10,5\n12:15\n2#1:30\n*E\n";
+  }
+
+  /**
+   * A generated servlet without source map.
+   */
+  public static class OldPage {
+  }
+
+  private static StackTraceElement frame(Class<?> clazz, String method, int line) {
+    return frame(clazz.getName(), method, line);
+  }
+
+  private static StackTraceElement frame(String className, String method, int line) {
+    return new StackTraceElement(className, method, null, line);
+  }
+
+  @Test
+  public void collapseTest() {
+    Profiler profiler = new Profiler(1000);
+    try {
+      profiler.register("/list.jsp", Page.class);
+      profiler.register("/old.jsp", OldPage.class);
+      StackTraceElement[] stack = {
+          frame("java.lang.StringBuilder", "append", 10),
+          frame("com.acme.Format", "format", 5),
+          frame(OldPage.class, "service", 8),
+          frame("org.server.Dispatcher", "include", 100),
+          frame(Page.class.getName() + "$Frag0", "invoke", 30),
+          frame("com.acme.RowTag", "doTag", 20),
+          frame("com.acme.RowTag", "render", 18),
+          frame(Page.class, "m0", 15),
+          frame(Page.class, "service", 12),
+          frame(Page.class, "service", 11),
+          frame("net.gcolin.server.jsp.JspServlet", "service", 400),
+          frame("org.server.Worker", "run", 50)};
+      Assert.assertEquals("/list.jsp;/list.jsp:4;/list.jsp:12;RowTag.doTag;/row.jsp:2;/old.jsp;"
+          + "Format.format;StringBuilder.append", profiler.collapse("/list.jsp", stack));
+      Assert.assertEquals("/index.jsp",
+          profiler.collapse("/index.jsp", new StackTraceElement[] {
+              frame("net.gcolin.server.jsp.internal.InterpretedServlet", "service", 10)}));
+    } finally {
+      profiler.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import groovy.lang.GroovyClassLoader;
+
+import net.gcolin.common.reflect.Reflect;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+/**
+ * Test the application attributes and the beans read at each request.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class ScopeTest extends AbstractTagTest {
+
+  @Test
+  public void compiledTest() throws IOException, ServletException {
+    try (GroovyClassLoader gcl = new GroovyClassLoader(ScopeTest.class.getClassLoader())) {
+      Class<?> clazz = gcl.parseClass(generate("core/scope"), "core/scope.groovy");
+      check((Servlet) Reflect.newInstance(clazz));
+    }
+  }
+
+  @Test
+  public void interpretedTest() throws IOException, ServletException {
+    check(interpreted("core/scope"));
+  }
+
+  private void check(Servlet servlet) throws IOException, ServletException {
+    ServletContext sc = mockContext();
+    AtomicInteger beans = new AtomicInteger();
+    BiFunction<String, Type, Object> inject = (name, type) -> name + beans.incrementAndGet();
+    Mockito.when(sc.getAttribute("inject")).thenReturn(inject);
+    Mockito.when(sc.getAttribute("hello")).thenReturn(1);
+    // the bean is resolved once by request
+    Assert.assertEquals("1-myBean1-myBean1", service(servlet, sc, null));
+
+    Mockito.when(sc.getAttribute("hello")).thenReturn(2);
+    Assert.assertEquals("2-myBean2-myBean2", service(servlet, sc, null));
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.server.jsp;
+
+import net.gcolin.server.jsp.internal.BuildContext;
+import net.gcolin.server.jsp.internal.JspLexer;
+import net.gcolin.server.jsp.internal.Smap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Test the source map of the generated servlets.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class SmapTest {
+
+  @Test
+  public void extractTest() {
+    StringBuilder code = new StringBuilder();
+    code.append("class A {\n");
+    code.append("a();");
+    Smap.mark(code, 0, 3);
+    code.append("\nb();");
+    Smap.mark(code, 0, 3);
+    code.append("\nc(\" //@jsp:0:9\");\n");
+    code.append("d();");
+    Smap.mark(code, 1, 2);
+    code.append("\n}");
+    StringBuilder java = new StringBuilder();
+    Smap smap = Smap.extract("A.java", Arrays.asList("/a.jsp", "/inc/b.jsp"), code, java);
+
+    Assert.assertEquals("class A {\na();\nb();\nc(\" //@jsp:0:9\");\nd();\n}", java.toString());
+    Assert.assertNull(smap.locate(1));
+    Assert.assertEquals("/a.jsp:3", smap.locate(2));
+    Assert.assertEquals("/a.jsp:3", smap.locate(3));
+    Assert.assertNull(smap.locate(4));
+    Assert.assertEquals("/inc/b.jsp:2", smap.locate(5));
+    Assert.assertEquals("SMAP\nA.java\nJSP\n*S JSP\n*F\n+ 0 a.jsp\n/a.jsp\n+ 1 b.jsp\n/inc/b.jsp\n"
+        + "*L\n3#0:2,2\n2#1:5\n*E\n", smap.toString());
+    Assert.assertEquals(smap.toString(), Smap.parse(smap.toString()).toString());
+  }
+
+  @Test
+  public void parseTest() {
+    Smap smap = Smap.parse("SMAP\nA.java\nJSP\n*S JSP\n*F\n1 a.jsp\n+ 2 b.jsp\n/WEB-INF/b.jsp\n"
+        + "*L\n1#1,3:10,2\n7#2:20\n*E\n");
+    Assert.assertEquals("a.jsp:1", smap.locate(10));
+    Assert.assertEquals("a.jsp:1", smap.locate(11));
+    Assert.assertEquals("a.jsp:2", smap.locate(12));
+    Assert.assertEquals("a.jsp:3", smap.locate(15));
+    Assert.assertNull(smap.locate(16));
+    Assert.assertEquals("/WEB-INF/b.jsp:7", smap.locate(20));
+  }
+
+  @Test
+  public void generateTest() throws Exception {
+    ServletContext ctx = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {ServletContext.class}, (proxy, method, args) -> {
+          if ("getClassLoader".equals(method.getName())) {
+            return getClass().getClassLoader();
+          } else if ("getResourceAsStream".equals(method.getName())) {
+            return new ByteArrayInputStream("<p>\n${'inc'}</p>".getBytes(StandardCharsets.UTF_8));
+          }
+          return null;
+        });
+    BuildContext context = new BuildContext("/index.jsp", ctx);
+    char[] content =
+        "<html>\n${'a'}\n<%@include file=\"/inc.jsp\"%>\n${'b'}\n</html>".toCharArray();
+    context.parse(new JspLexer(content, 0, content.length));
+    StringWriter java = new StringWriter();
+    context.toJava(java);
+
+    String[] lines = java.toString().split("\n");
+    Smap smap = context.getSmap();
+    Assert.assertTrue(java.toString().contains(Smap.FIELD));
+    Assert.assertFalse(java.toString().contains("//@jsp"));
+    for (int i = 0; i < lines.length; i++) {
+      if (lines[i].contains("write(\"a\")")) {
+        Assert.assertEquals("/index.jsp:2", smap.locate(i + 1));
+      } else if (lines[i].contains("write(\"inc\")")) {
+        Assert.assertEquals("/inc.jsp:2", smap.locate(i + 1));
+      } else if (lines[i].contains("write(\"b\")")) {
+        Assert.assertEquals("/index.jsp:4", smap.locate(i + 1));
+      }
+    }
+  }
+
+}
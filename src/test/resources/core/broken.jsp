@@ -0,0 +1,2 @@
+<%-- var title = REQUEST_ATTRIBUTE as not.a.Clazz --%>
+<p>${title}</p>
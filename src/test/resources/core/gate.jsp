@@ -0,0 +1,2 @@
+<%-- var gate = REQUEST_ATTRIBUTE as java.util.concurrent.CompletableFuture<java.lang.String> --%>
+before ${gate.join()} after
@@ -0,0 +1,5 @@
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c"%>
+<%-- var user = REQUEST_ATTRIBUTE as java.lang.String --%>
+<%-- var rows = REQUEST_ATTRIBUTE as java.util.Collection<java.lang.String> --%>
+<%-- var log = REQUEST_ATTRIBUTE as java.util.List<java.lang.String> --%>
+<c:forEach items="${rows}" var="row">[${row} ${user.empty} ${log.add('x')}]</c:forEach>
@@ -0,0 +1,308 @@
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c"%>
+<%-- var title = REQUEST_ATTRIBUTE as java.lang.String --%>
+<c:set var="z" value="${title}"/>
+<c:if test="${title}" var="has">t</c:if>
+<p>0 ${title} ${z}</p>
+<p>1 ${title} ${z}</p>
+<p>2 ${title} ${z}</p>
+<p>3 ${title} ${z}</p>
+<p>4 ${title} ${z}</p>
+<p>5 ${title} ${z}</p>
+<p>6 ${title} ${z}</p>
+<p>7 ${title} ${z}</p>
+<p>8 ${title} ${z}</p>
+<p>9 ${title} ${z}</p>
+<p>10 ${title} ${z}</p>
+<p>11 ${title} ${z}</p>
+<p>12 ${title} ${z}</p>
+<p>13 ${title} ${z}</p>
+<p>14 ${title} ${z}</p>
+<p>15 ${title} ${z}</p>
+<p>16 ${title} ${z}</p>
+<p>17 ${title} ${z}</p>
+<p>18 ${title} ${z}</p>
+<p>19 ${title} ${z}</p>
+<p>20 ${title} ${z}</p>
+<p>21 ${title} ${z}</p>
+<p>22 ${title} ${z}</p>
+<p>23 ${title} ${z}</p>
+<p>24 ${title} ${z}</p>
+<p>25 ${title} ${z}</p>
+<p>26 ${title} ${z}</p>
+<p>27 ${title} ${z}</p>
+<p>28 ${title} ${z}</p>
+<p>29 ${title} ${z}</p>
+<p>30 ${title} ${z}</p>
+<p>31 ${title} ${z}</p>
+<p>32 ${title} ${z}</p>
+<p>33 ${title} ${z}</p>
+<p>34 ${title} ${z}</p>
+<p>35 ${title} ${z}</p>
+<p>36 ${title} ${z}</p>
+<p>37 ${title} ${z}</p>
+<p>38 ${title} ${z}</p>
+<p>39 ${title} ${z}</p>
+<p>40 ${title} ${z}</p>
+<p>41 ${title} ${z}</p>
+<p>42 ${title} ${z}</p>
+<p>43 ${title} ${z}</p>
+<p>44 ${title} ${z}</p>
+<p>45 ${title} ${z}</p>
+<p>46 ${title} ${z}</p>
+<p>47 ${title} ${z}</p>
+<p>48 ${title} ${z}</p>
+<p>49 ${title} ${z}</p>
+<p>50 ${title} ${z}</p>
+<p>51 ${title} ${z}</p>
+<p>52 ${title} ${z}</p>
+<p>53 ${title} ${z}</p>
+<p>54 ${title} ${z}</p>
+<p>55 ${title} ${z}</p>
+<p>56 ${title} ${z}</p>
+<p>57 ${title} ${z}</p>
+<p>58 ${title} ${z}</p>
+<p>59 ${title} ${z}</p>
+<p>60 ${title} ${z}</p>
+<p>61 ${title} ${z}</p>
+<p>62 ${title} ${z}</p>
+<p>63 ${title} ${z}</p>
+<p>64 ${title} ${z}</p>
+<p>65 ${title} ${z}</p>
+<p>66 ${title} ${z}</p>
+<p>67 ${title} ${z}</p>
+<p>68 ${title} ${z}</p>
+<p>69 ${title} ${z}</p>
+<p>70 ${title} ${z}</p>
+<p>71 ${title} ${z}</p>
+<p>72 ${title} ${z}</p>
+<p>73 ${title} ${z}</p>
+<p>74 ${title} ${z}</p>
+<p>75 ${title} ${z}</p>
+<p>76 ${title} ${z}</p>
+<p>77 ${title} ${z}</p>
+<p>78 ${title} ${z}</p>
+<p>79 ${title} ${z}</p>
+<p>80 ${title} ${z}</p>
+<p>81 ${title} ${z}</p>
+<p>82 ${title} ${z}</p>
+<p>83 ${title} ${z}</p>
+<p>84 ${title} ${z}</p>
+<p>85 ${title} ${z}</p>
+<p>86 ${title} ${z}</p>
+<p>87 ${title} ${z}</p>
+<p>88 ${title} ${z}</p>
+<p>89 ${title} ${z}</p>
+<p>90 ${title} ${z}</p>
+<p>91 ${title} ${z}</p>
+<p>92 ${title} ${z}</p>
+<p>93 ${title} ${z}</p>
+<p>94 ${title} ${z}</p>
+<p>95 ${title} ${z}</p>
+<p>96 ${title} ${z}</p>
+<p>97 ${title} ${z}</p>
+<p>98 ${title} ${z}</p>
+<p>99 ${title} ${z}</p>
+<p>100 ${title} ${z}</p>
+<p>101 ${title} ${z}</p>
+<p>102 ${title} ${z}</p>
+<p>103 ${title} ${z}</p>
+<p>104 ${title} ${z}</p>
+<p>105 ${title} ${z}</p>
+<p>106 ${title} ${z}</p>
+<p>107 ${title} ${z}</p>
+<p>108 ${title} ${z}</p>
+<p>109 ${title} ${z}</p>
+<p>110 ${title} ${z}</p>
+<p>111 ${title} ${z}</p>
+<p>112 ${title} ${z}</p>
+<p>113 ${title} ${z}</p>
+<p>114 ${title} ${z}</p>
+<p>115 ${title} ${z}</p>
+<p>116 ${title} ${z}</p>
+<p>117 ${title} ${z}</p>
+<p>118 ${title} ${z}</p>
+<p>119 ${title} ${z}</p>
+<p>120 ${title} ${z}</p>
+<p>121 ${title} ${z}</p>
+<p>122 ${title} ${z}</p>
+<p>123 ${title} ${z}</p>
+<p>124 ${title} ${z}</p>
+<p>125 ${title} ${z}</p>
+<p>126 ${title} ${z}</p>
+<p>127 ${title} ${z}</p>
+<p>128 ${title} ${z}</p>
+<p>129 ${title} ${z}</p>
+<p>130 ${title} ${z}</p>
+<p>131 ${title} ${z}</p>
+<p>132 ${title} ${z}</p>
+<p>133 ${title} ${z}</p>
+<p>134 ${title} ${z}</p>
+<p>135 ${title} ${z}</p>
+<p>136 ${title} ${z}</p>
+<p>137 ${title} ${z}</p>
+<p>138 ${title} ${z}</p>
+<p>139 ${title} ${z}</p>
+<p>140 ${title} ${z}</p>
+<p>141 ${title} ${z}</p>
+<p>142 ${title} ${z}</p>
+<p>143 ${title} ${z}</p>
+<p>144 ${title} ${z}</p>
+<p>145 ${title} ${z}</p>
+<p>146 ${title} ${z}</p>
+<p>147 ${title} ${z}</p>
+<p>148 ${title} ${z}</p>
+<p>149 ${title} ${z}</p>
+<c:if test="${has}">
+<b>0 ${z}</b><c:if test="${has}">+</c:if>
+<b>1 ${z}</b>
+<b>2 ${z}</b>
+<b>3 ${z}</b>
+<b>4 ${z}</b>
+<b>5 ${z}</b>
+<b>6 ${z}</b>
+<b>7 ${z}</b>
+<b>8 ${z}</b>
+<b>9 ${z}</b>
+<b>10 ${z}</b><c:if test="${has}">+</c:if>
+<b>11 ${z}</b>
+<b>12 ${z}</b>
+<b>13 ${z}</b>
+<b>14 ${z}</b>
+<b>15 ${z}</b>
+<b>16 ${z}</b>
+<b>17 ${z}</b>
+<b>18 ${z}</b>
+<b>19 ${z}</b>
+<b>20 ${z}</b><c:if test="${has}">+</c:if>
+<b>21 ${z}</b>
+<b>22 ${z}</b>
+<b>23 ${z}</b>
+<b>24 ${z}</b>
+<b>25 ${z}</b>
+<b>26 ${z}</b>
+<b>27 ${z}</b>
+<b>28 ${z}</b>
+<b>29 ${z}</b>
+<b>30 ${z}</b><c:if test="${has}">+</c:if>
+<b>31 ${z}</b>
+<b>32 ${z}</b>
+<b>33 ${z}</b>
+<b>34 ${z}</b>
+<b>35 ${z}</b>
+<b>36 ${z}</b>
+<b>37 ${z}</b>
+<b>38 ${z}</b>
+<b>39 ${z}</b>
+<b>40 ${z}</b><c:if test="${has}">+</c:if>
+<b>41 ${z}</b>
+<b>42 ${z}</b>
+<b>43 ${z}</b>
+<b>44 ${z}</b>
+<b>45 ${z}</b>
+<b>46 ${z}</b>
+<b>47 ${z}</b>
+<b>48 ${z}</b>
+<b>49 ${z}</b>
+<b>50 ${z}</b><c:if test="${has}">+</c:if>
+<b>51 ${z}</b>
+<b>52 ${z}</b>
+<b>53 ${z}</b>
+<b>54 ${z}</b>
+<b>55 ${z}</b>
+<b>56 ${z}</b>
+<b>57 ${z}</b>
+<b>58 ${z}</b>
+<b>59 ${z}</b>
+<b>60 ${z}</b><c:if test="${has}">+</c:if>
+<b>61 ${z}</b>
+<b>62 ${z}</b>
+<b>63 ${z}</b>
+<b>64 ${z}</b>
+<b>65 ${z}</b>
+<b>66 ${z}</b>
+<b>67 ${z}</b>
+<b>68 ${z}</b>
+<b>69 ${z}</b>
+<b>70 ${z}</b><c:if test="${has}">+</c:if>
+<b>71 ${z}</b>
+<b>72 ${z}</b>
+<b>73 ${z}</b>
+<b>74 ${z}</b>
+<b>75 ${z}</b>
+<b>76 ${z}</b>
+<b>77 ${z}</b>
+<b>78 ${z}</b>
+<b>79 ${z}</b>
+<b>80 ${z}</b><c:if test="${has}">+</c:if>
+<b>81 ${z}</b>
+<b>82 ${z}</b>
+<b>83 ${z}</b>
+<b>84 ${z}</b>
+<b>85 ${z}</b>
+<b>86 ${z}</b>
+<b>87 ${z}</b>
+<b>88 ${z}</b>
+<b>89 ${z}</b>
+<b>90 ${z}</b><c:if test="${has}">+</c:if>
+<b>91 ${z}</b>
+<b>92 ${z}</b>
+<b>93 ${z}</b>
+<b>94 ${z}</b>
+<b>95 ${z}</b>
+<b>96 ${z}</b>
+<b>97 ${z}</b>
+<b>98 ${z}</b>
+<b>99 ${z}</b>
+<b>100 ${z}</b><c:if test="${has}">+</c:if>
+<b>101 ${z}</b>
+<b>102 ${z}</b>
+<b>103 ${z}</b>
+<b>104 ${z}</b>
+<b>105 ${z}</b>
+<b>106 ${z}</b>
+<b>107 ${z}</b>
+<b>108 ${z}</b>
+<b>109 ${z}</b>
+<b>110 ${z}</b><c:if test="${has}">+</c:if>
+<b>111 ${z}</b>
+<b>112 ${z}</b>
+<b>113 ${z}</b>
+<b>114 ${z}</b>
+<b>115 ${z}</b>
+<b>116 ${z}</b>
+<b>117 ${z}</b>
+<b>118 ${z}</b>
+<b>119 ${z}</b>
+<b>120 ${z}</b><c:if test="${has}">+</c:if>
+<b>121 ${z}</b>
+<b>122 ${z}</b>
+<b>123 ${z}</b>
+<b>124 ${z}</b>
+<b>125 ${z}</b>
+<b>126 ${z}</b>
+<b>127 ${z}</b>
+<b>128 ${z}</b>
+<b>129 ${z}</b>
+<b>130 ${z}</b><c:if test="${has}">+</c:if>
+<b>131 ${z}</b>
+<b>132 ${z}</b>
+<b>133 ${z}</b>
+<b>134 ${z}</b>
+<b>135 ${z}</b>
+<b>136 ${z}</b>
+<b>137 ${z}</b>
+<b>138 ${z}</b>
+<b>139 ${z}</b>
+<b>140 ${z}</b><c:if test="${has}">+</c:if>
+<b>141 ${z}</b>
+<b>142 ${z}</b>
+<b>143 ${z}</b>
+<b>144 ${z}</b>
+<b>145 ${z}</b>
+<b>146 ${z}</b>
+<b>147 ${z}</b>
+<b>148 ${z}</b>
+<b>149 ${z}</b>
+<c:set var="z" value="end"/>
+</c:if>
+${z}
@@ -0,0 +1,20 @@
+<%@ page contentType="text/html; charset=UTF-8" minify="true"%>
+<%-- var title = REQUEST_ATTRIBUTE as java.lang.String --%>
+<!DOCTYPE html>
+<html>
+  <head>
+    <title>${title}</title>
+    <!-- a comment -->
+    <!--[if lt IE 9]><script src="html5shiv.js"></script><![endif]-->
+    <script>
+      var a = 1;   var b = 2;
+    </script>
+  </head>
+  <body>
+    <div class="main">
+      <p>Hello <b>${title}</b> !</p>
+      <!-- ${title} -->
+      <pre>  a   b  </pre>
+    </div>
+  </body>
+</html>
@@ -0,0 +1 @@
+<%-- var hello = APPLICATION_ATTRIBUTE as java.lang.Integer --%><%-- var myBean = BEAN as java.lang.String --%>${hello}-${myBean}-${myBean}
\ No newline at end of file
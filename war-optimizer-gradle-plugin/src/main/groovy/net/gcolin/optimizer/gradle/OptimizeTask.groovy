@@ -39,6 +39,22 @@ class OptimizeTask extends DefaultTask {
   
   Logger log = null;
 
+  Integer threads = null
+
+  boolean incremental = true
+
+  boolean fingerprint = false
+
+  boolean servletManifest = false
+
+  boolean cds = false
+
+  List<File> cdsClassPath = []
+
+  boolean cdsFailIfSlower = false
+
+  boolean nativeImage = false
+
   @TaskAction
   def optimize() {
     log = Logger.getLogger('net.gcolin.optimizer.gradle')
@@ -60,6 +76,16 @@ class OptimizeTask extends DefaultTask {
     Io.unzip(archive, exploded)
     def wp = new WarProd()
     wp.logger = log
+    wp.incremental = incremental
+    wp.fingerprint = fingerprint
+    wp.servletManifest = servletManifest
+    wp.cds = cds
+    wp.cdsClassPath = cdsClassPath
+    wp.cdsFailIfSlower = cdsFailIfSlower
+    wp.nativeImage = nativeImage
+    if(threads != null) {
+      wp.threads = threads
+    }
     def urls = [exploded.toURI().toURL()]
     if(classpath != null) {
        for(String part: classpath.asPath.split(":")) {
@@ -23,6 +23,7 @@ import org.apache.maven.project.MavenProject;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Mojo for optimizing a war.
@@ -66,6 +67,62 @@ public class WarProdMojo extends AbstractMojo {
    */
   private String resourcesFileName;
 
+  /**
+   * Number of threads of the optimization, the number of processors if not set
+   * 
+   * @parameter property="optimizer.threads"
+   */
+  private int threads;
+
+  /**
+   * Reuse the outputs of the previous executions cached in target/optimizer/cache
+   * 
+   * @parameter property="optimizer.incremental" default-value="true"
+   */
+  private boolean incremental = true;
+
+  /**
+   * Copy the static assets to a name containing their content hash and rewrite their references
+   * 
+   * @parameter property="optimizer.fingerprint" default-value="false"
+   */
+  private boolean fingerprint;
+
+  /**
+   * List the compiled JSP in a manifest loaded by the JspServlet instead of the web.xml
+   * 
+   * @parameter property="optimizer.servletManifest" default-value="false"
+   */
+  private boolean servletManifest;
+
+  /**
+   * Create a class data sharing archive of the precompiled JSP in target/optimizer/cds
+   * 
+   * @parameter property="optimizer.cds" default-value="false"
+   */
+  private boolean cds;
+
+  /**
+   * The jar files following the archived classes in the class path of the application
+   * 
+   * @parameter
+   */
+  private File[] cdsClassPath;
+
+  /**
+   * Fail the build when the JVM does not start faster with the class data sharing archive
+   * 
+   * @parameter property="optimizer.cdsFailIfSlower" default-value="false"
+   */
+  private boolean cdsFailIfSlower;
+
+  /**
+   * Write the GraalVM native-image metadata of the precompiled JSP
+   * 
+   * @parameter property="optimizer.nativeImage" default-value="false"
+   */
+  private boolean nativeImage;
+
   @Override
   public void execute() throws MojoExecutionException {
     File war = new File(project.getBasedir(),
@@ -75,8 +132,21 @@ public class WarProdMojo extends AbstractMojo {
       warFileName = warFileName.substring(0, warFileName.length() - 4) + ".jar";
     }
 
+    WarProd warProd = new WarProd();
+    warProd.setIncremental(incremental);
+    warProd.setFingerprint(fingerprint);
+    warProd.setServletManifest(servletManifest);
+    warProd.setCds(cds);
+    warProd.setCdsFailIfSlower(cdsFailIfSlower);
+    warProd.setNativeImage(nativeImage);
+    if (cdsClassPath != null) {
+      warProd.setCdsClassPath(Arrays.asList(cdsClassPath));
+    }
+    if (threads > 0) {
+      warProd.setThreads(threads);
+    }
     try {
-      new WarProd().execute(war, new File(project.getBasedir(), "target"), new File(warFileName),
+      warProd.execute(war, new File(project.getBasedir(), "target"), new File(warFileName),
           new File(resourcesFileName));
     } catch (IOException ex) {
       throw new MojoExecutionException(ex.getMessage(), ex);
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.optimizer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+import net.gcolin.common.io.Io;
+
+/**
+ * A persistent cache of the optimizer outputs, keyed by the content hash of their inputs.
+ *
+ * <p>
+ * An entry is a file or a directory stored in {@code <directory>/<kind>/<key>}. An entry is
+ * written in a temporary location and moved once complete, so an interrupted build never leaves a
+ * partial entry and several threads can fill the cache at the same time.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class BuildCache {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final File directory;
+
+  public BuildCache(File directory) {
+    this.directory = directory;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Write an entry.
+   */
+  @FunctionalInterface
+  public interface EntryWriter {
+
+    /**
+     * Create the entry.
+     *
+     * @param file the file or the directory to create
+     * @throws IOException if an I/O error occurs.
+     */
+    void write(File file) throws IOException;
+  }
+
+  /**
+   * Get an entry.
+   *
+   * @param kind the kind of entry
+   * @param key the content hash
+   * @return the entry or {@code null} if the entry does not exist
+   */
+  public File get(String kind, String key) {
+    File entry = new File(new File(directory, kind), key);
+    return entry.exists() ? entry : null;
+  }
+
+  /**
+   * Create an entry.
+   *
+   * @param kind the kind of entry
+   * @param key the content hash
+   * @param writer the entry creator
+   * @return the entry
+   * @throws IOException if an I/O error occurs.
+   */
+  public File put(String kind, String key, EntryWriter writer) throws IOException {
+    File parent = new File(directory, kind);
+    if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+      throw new IOException("cannot create directory " + parent);
+    }
+    File entry = new File(parent, key);
+    File tmp = new File(parent, key + "-" + UUID.randomUUID() + ".tmp");
+    try {
+      writer.write(tmp);
+      move(tmp, entry);
+    } finally {
+      delete(tmp);
+    }
+    return entry;
+  }
+
+  /**
+   * Get an entry or create it if it does not exist.
+   *
+   * @param kind the kind of entry
+   * @param key the content hash
+   * @param writer the entry creator
+   * @return the entry
+   * @throws IOException if an I/O error occurs.
+   */
+  public File computeIfAbsent(String kind, String key, EntryWriter writer) throws IOException {
+    File entry = get(kind, key);
+    return entry != null ? entry : put(kind, key, writer);
+  }
+
+  /**
+   * Copy the content of a directory entry into a directory.
+   *
+   * @param entry the entry
+   * @param target the target directory
+   * @throws IOException if an I/O error occurs.
+   */
+  public static void copy(File entry, File target) throws IOException {
+    Path from = entry.toPath();
+    Path to = target.toPath();
+    Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+          throws IOException {
+        Files.createDirectories(to.resolve(from.relativize(dir).toString()));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.copy(file, to.resolve(from.relativize(file).toString()),
+            StandardCopyOption.REPLACE_EXISTING);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static void move(File tmp, File entry) throws IOException {
+    try {
+      try {
+        Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(tmp.toPath(), entry.toPath());
+      }
+    } catch (IOException ex) {
+      if (!entry.exists()) {
+        throw ex;
+      }
+      // the same entry was created by another thread
+    }
+  }
+
+  private static void delete(File file) throws IOException {
+    if (file.isDirectory()) {
+      Io.deleteDir(file.toPath());
+    } else {
+      Files.deleteIfExists(file.toPath());
+    }
+  }
+
+  /**
+   * Compute the content hash of some strings.
+   *
+   * @param parts the strings
+   * @return an hexadecimal SHA-256
+   */
+  public static String hash(String... parts) {
+    MessageDigest digest = digest();
+    for (String part : parts) {
+      digest.update(part.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Compute the content hash of some bytes.
+   *
+   * @param content the bytes
+   * @return an hexadecimal SHA-256
+   */
+  public static String hash(byte[] content) {
+    return toHex(digest().digest(content));
+  }
+
+  /**
+   * Compute the content hash of a file.
+   *
+   * @param file the file
+   * @return an hexadecimal SHA-256
+   * @throws IOException if an I/O error occurs.
+   */
+  public static String hash(File file) throws IOException {
+    MessageDigest digest = digest();
+    byte[] buffer = Io.takeBytes();
+    try (InputStream in = new FileInputStream(file)) {
+      int nb;
+      while ((nb = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, nb);
+      }
+    } finally {
+      Io.recycleBytes(buffer);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+      hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+    }
+    return new String(hex);
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.optimizer;
+
+import net.gcolin.server.jsp.Compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Create a class data sharing archive of the precompiled JSP and of the JSP runtime, so a JVM
+ * maps them already parsed and verified instead of loading them at each start.
+ * 
+ * <p>
+ * The classes are copied in {@code jsp-cds.jar}, because a JVM only shares the classes of the jar
+ * files, and listed in {@code jsp.classlist} after the default class list of the JDK
+ * ({@code lib/classlist}). The archive {@code jsp.jsa} is dumped by a JDK with this class list and
+ * is used by a JVM started with {@code -XX:SharedArchiveFile=jsp.jsa -cp jsp-cds.jar:...}, the
+ * class path beginning with the same entries as at the dump. This archive replaces the default
+ * archive of the JDK, so it must contain the classes of the JDK too.
+ * </p>
+ * 
+ * <p>
+ * The benchmark starts a JVM that only loads the listed classes, with and without the archive. It
+ * does not start the servlets. If the JVM is not faster with the archive, the archive is deleted
+ * with a warning, or the build fails with {@link #setFailIfSlower(boolean)}.
+ * </p>
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CdsArchive {
+
+  public static final String JAR = "jsp-cds.jar";
+  public static final String CLASS_LIST = "jsp.classlist";
+  public static final String ARCHIVE = "jsp.jsa";
+  private static final String RUNTIME_PACKAGE = "net/gcolin/server/jsp/";
+  private static final String RUNTIME_CLASS = RUNTIME_PACKAGE + "JspServlet.class";
+  private static final String CLASS_EXTENSION = ".class";
+
+  private List<File> classPath = new ArrayList<>();
+  private int benchmarkRuns = 3;
+  private boolean failIfSlower;
+  private Logger log;
+
+  public List<File> getClassPath() {
+    return classPath;
+  }
+
+  /**
+   * Set the jar files after {@code jsp-cds.jar} in the class path, such as the servlet API and the
+   * libraries of the JSP runtime. They are needed for verifying the classes at the dump, and must
+   * be in the same order at the start of the application.
+   * 
+   * @param classPath classPath
+   */
+  public void setClassPath(List<File> classPath) {
+    this.classPath = classPath;
+  }
+
+  public int getBenchmarkRuns() {
+    return benchmarkRuns;
+  }
+
+  /**
+   * Set the number of starts with and without the archive that measure its gain, 0 for no
+   * measure. 3 by default.
+   * 
+   * @param benchmarkRuns benchmarkRuns
+   */
+  public void setBenchmarkRuns(int benchmarkRuns) {
+    this.benchmarkRuns = benchmarkRuns;
+  }
+
+  public boolean isFailIfSlower() {
+    return failIfSlower;
+  }
+
+  /**
+   * Fail instead of deleting the archive with a warning when the JVM is not faster with the
+   * archive. The measure depends on the load of the machine, so it is disabled by default.
+   * 
+   * @param failIfSlower failIfSlower
+   */
+  public void setFailIfSlower(boolean failIfSlower) {
+    this.failIfSlower = failIfSlower;
+  }
+
+  /**
+   * Create the jar, the class list and the archive.
+   * 
+   * @param dir the output directory
+   * @param pages the class names of the precompiled JSP and their directory
+   * @param libs the exploded libraries, searched for the JSP runtime
+   * @param log log
+   * @return {@code true} if the archive is dumped and kept by the benchmark
+   * @throws IOException if an error occurs.
+   */
+  public boolean execute(File dir, Map<String, File> pages, Collection<File> libs, Logger log)
+      throws IOException {
+    this.log = log;
+    if (!dir.exists() && !dir.mkdirs()) {
+      throw new IOException("cannot create directory " + dir);
+    }
+    File jar = new File(dir, JAR);
+    File classList = new File(dir, CLASS_LIST);
+    File archive = new File(dir, ARCHIVE);
+    Set<String> classes = new LinkedHashSet<>();
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+      addRuntime(libs, zos, classes);
+      for (Map.Entry<String, File> page : pages.entrySet()) {
+        addPage(page.getKey(), page.getValue(), zos, classes);
+      }
+    }
+    List<String> lines = jdkClassList();
+    lines.addAll(classes);
+    Files.write(classList.toPath(), lines, StandardCharsets.UTF_8);
+    log.info("write " + classes.size() + " classes in " + classList);
+
+    String cp = toClassPath(jar, classPath);
+    Files.deleteIfExists(archive.toPath());
+    int status = run(java(), "-Xshare:dump", "-XX:SharedClassListFile=" + classList,
+        "-XX:SharedArchiveFile=" + archive, "-cp", cp);
+    if (status != 0 || !archive.exists()) {
+      log.warning("cannot dump " + archive + ", a JDK 10 or later is needed");
+      return false;
+    }
+    log.info("write " + archive);
+    return benchmarkRuns <= 0 || benchmark(cp, classList, archive);
+  }
+
+  /**
+   * Read the default class list of the JDK, whose classes are in the default archive of the JDK.
+   */
+  private List<String> jdkClassList() throws IOException {
+    File file = new File(System.getProperty("java.home"), "lib/classlist");
+    if (!file.isFile()) {
+      log.warning("cannot find " + file + ", the archive will not contain the classes of the JDK");
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Compare the loading time of the listed classes with and without the archive. Without the
+   * archive, the JVM still shares the classes of the JDK. A loading time is the best of the runs,
+   * for ignoring the noise of the machine.
+   * 
+   * @return {@code false} if the archive is deleted because the JVM is not faster with it
+   * @throws IOException if the JVM is not faster with the archive and {@link #failIfSlower} is set
+   */
+  private boolean benchmark(String cp, File classList, File archive) throws IOException {
+    String probeCp;
+    try {
+      File probe =
+          new File(CdsArchive.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+      probeCp = cp + File.pathSeparator + probe;
+    } catch (URISyntaxException | SecurityException ex) {
+      log.log(Level.FINE, "cannot find the optimizer classes", ex);
+      return true;
+    }
+    long without = Long.MAX_VALUE;
+    long with = Long.MAX_VALUE;
+    for (int i = 0; i < benchmarkRuns; i++) {
+      without = Math.min(without,
+          time(java(), "-cp", probeCp, CdsArchive.class.getName(), classList.getPath()));
+      with = Math.min(with, time(java(), "-XX:SharedArchiveFile=" + archive, "-Xshare:auto",
+          "-cp", probeCp, CdsArchive.class.getName(), classList.getPath()));
+    }
+    if (without < 0) {
+      log.warning("cannot measure the archive, the JVM fails without it");
+      return true;
+    }
+    String times = with / 1000000 + " ms with the archive, " + without / 1000000 + " ms without";
+    if (with < 0 || with >= without) {
+      String message = "the archive " + archive + " does not speed up the start of the JVM: "
+          + (with < 0 ? "the JVM fails with the archive" : times);
+      if (failIfSlower) {
+        throw new IOException(message);
+      }
+      Files.deleteIfExists(archive.toPath());
+      log.warning(message + ", the archive is deleted");
+      return false;
+    }
+    log.info("start and load the classes in " + times);
+    return true;
+  }
+
+  private long time(String... command) throws IOException {
+    long start = System.nanoTime();
+    if (run(command) != 0) {
+      return -1;
+    }
+    return System.nanoTime() - start;
+  }
+
+  private int run(String... command) throws IOException {
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = process.getInputStream()) {
+      byte[] buf = new byte[4096];
+      int nb;
+      while ((nb = in.read(buf)) != -1) {
+        out.write(buf, 0, nb);
+      }
+    }
+    try {
+      int status = process.waitFor();
+      if (status != 0 || log.isLoggable(Level.FINE)) {
+        log.log(status == 0 ? Level.FINE : Level.WARNING,
+            String.join(" ", command) + "\n" + out.toString(StandardCharsets.UTF_8.name()));
+      }
+      return status;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      process.destroy();
+      throw new IOException(ex);
+    }
+  }
+
+  private static String java() {
+    return new File(System.getProperty("java.home"), "bin/java").getPath();
+  }
+
+  private static String toClassPath(File jar, List<File> classPath) {
+    List<String> entries = new ArrayList<>();
+    entries.add(jar.getPath());
+    for (File file : classPath) {
+      entries.add(file.getPath());
+    }
+    return String.join(File.pathSeparator, entries);
+  }
+
+  /**
+   * Add the runtime classes from the library of the war, or from the class path of the
+   * optimizer if the runtime is provided by the server.
+   */
+  private void addRuntime(Collection<File> libs, ZipOutputStream zos, Set<String> classes)
+      throws IOException {
+    for (File lib : libs) {
+      if (new File(lib, RUNTIME_CLASS).exists()) {
+        addDirectory(lib, new File(lib, RUNTIME_PACKAGE), zos, classes);
+        return;
+      }
+    }
+    File location;
+    try {
+      location =
+          new File(Compiler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    } catch (URISyntaxException | SecurityException ex) {
+      log.log(Level.WARNING, "cannot find the JSP runtime", ex);
+      return;
+    }
+    if (location.isDirectory()) {
+      addDirectory(location, new File(location, RUNTIME_PACKAGE), zos, classes);
+      return;
+    }
+    try (ZipFile zip = new ZipFile(location)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (entry.getName().startsWith(RUNTIME_PACKAGE)
+            && entry.getName().endsWith(CLASS_EXTENSION)) {
+          try (InputStream in = zip.getInputStream(entry)) {
+            add(entry.getName(), in, zos, classes);
+          }
+        }
+      }
+    }
+  }
+
+  private void addDirectory(File root, File dir, ZipOutputStream zos, Set<String> classes)
+      throws IOException {
+    Path rootPath = root.toPath();
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(dir.toPath())) {
+      files = stream.filter(path -> path.toString().endsWith(CLASS_EXTENSION)).sorted()
+          .collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      try (InputStream in = Files.newInputStream(file)) {
+        add(rootPath.relativize(file).toString().replace('\\', '/'), in, zos, classes);
+      }
+    }
+  }
+
+  /**
+   * Add the class of a JSP and its nested classes.
+   */
+  private void addPage(String className, File workDir, ZipOutputStream zos, Set<String> classes)
+      throws IOException {
+    String path = className.replace('.', '/');
+    int slash = path.lastIndexOf('/');
+    String dir = slash == -1 ? "" : path.substring(0, slash + 1);
+    String simpleName = path.substring(slash + 1);
+    File[] files = new File(workDir, dir).listFiles(x -> x.getName().endsWith(CLASS_EXTENSION)
+        && (x.getName().equals(simpleName + CLASS_EXTENSION)
+            || x.getName().startsWith(simpleName + "$")));
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      try (InputStream in = new FileInputStream(file)) {
+        add(dir + file.getName(), in, zos, classes);
+      }
+    }
+  }
+
+  private void add(String name, InputStream in, ZipOutputStream zos, Set<String> classes)
+      throws IOException {
+    if (!classes.add(name.substring(0, name.length() - CLASS_EXTENSION.length()))) {
+      return;
+    }
+    zos.putNextEntry(new ZipEntry(name));
+    byte[] buf = new byte[4096];
+    int nb;
+    while ((nb = in.read(buf)) != -1) {
+      zos.write(buf, 0, nb);
+    }
+    zos.closeEntry();
+  }
+
+  /**
+   * Load the classes of a class list, for measuring the start of a JVM.
+   * 
+   * @param args the class list
+   * @throws IOException if an error occurs.
+   */
+  public static void main(String[] args) throws IOException {
+    ClassLoader cl = CdsArchive.class.getClassLoader();
+    int loaded = 0;
+    for (String name : Files.readAllLines(new File(args[0]).toPath(), StandardCharsets.UTF_8)) {
+      if (name.isEmpty() || name.charAt(0) == '#' || name.charAt(0) == '@') {
+        // a comment or a lambda form of the JDK class list
+        continue;
+      }
+      try {
+        Class.forName(name.replace('/', '.'), false, cl);
+        loaded++;
+      } catch (ClassNotFoundException | LinkageError ex) {
+        // a class with a dependency missing in the class path
+      }
+    }
+    System.out.println(loaded + " classes loaded");
+  }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The runtime visible annotations of a class, read from its class file without loading it.
+ * 
+ * <p>
+ * An annotation is a map of its element values. A value is a {@link String}, an {@link Integer},
+ * a {@link Long}, a {@link Float}, a {@link Double}, a {@link Boolean}, a {@link Character}, the
+ * name of an enum constant, the descriptor of a class, an {@code Object[]} or a nested annotation.
+ * The default values are not in the class file.
+ * </p>
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class ClassAnnotations {
+
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+  private final String name;
+  private final Map<String, Map<String, Object>> annotations;
+
+  private ClassAnnotations(String name, Map<String, Map<String, Object>> annotations) {
+    this.name = name;
+    this.annotations = annotations;
+  }
+
+  /**
+   * Get the binary name of the class.
+   * 
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get the simple name of the class.
+   * 
+   * @return the name after the package and the outer classes
+   */
+  public String getSimpleName() {
+    return name.substring(Math.max(name.lastIndexOf('.'), name.lastIndexOf('$')) + 1);
+  }
+
+  /**
+   * Get an annotation.
+   * 
+   * @param descriptor the descriptor of the annotation type, like {@code Ljava/lang/Deprecated;}
+   * @return the element values or {@code null} if the class is not annotated
+   */
+  public Map<String, Object> getAnnotation(String descriptor) {
+    return annotations.get(descriptor);
+  }
+
+  /**
+   * Get the descriptor of a type.
+   * 
+   * @param type the type
+   * @return the descriptor
+   */
+  public static String descriptor(Class<?> type) {
+    return "L" + type.getName().replace('.', '/') + ";";
+  }
+
+  /**
+   * Read a class file.
+   * 
+   * @param in the class file
+   * @param prefix the prefix of the descriptors of the annotations to read
+   * @return the annotations or {@code null} if the constant pool does not reference an annotation
+   *         with the prefix
+   * @throws IOException if the class file cannot be read
+   */
+  public static ClassAnnotations read(InputStream in, String prefix) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("not a class file");
+    }
+    data.readUnsignedShort();
+    data.readUnsignedShort();
+    Object[] pool = readConstantPool(data);
+    boolean found = false;
+    for (Object constant : pool) {
+      if (constant instanceof String && ((String) constant).startsWith(prefix)) {
+        found = true;
+        break;
+      }
+    }
+    if (!found) {
+      // the class cannot have one of the annotations
+      return null;
+    }
+    data.readUnsignedShort();
+    String name = utf8(pool, (Integer) pool[data.readUnsignedShort()]).replace('/', '.');
+    data.readUnsignedShort();
+    skip(data, data.readUnsignedShort() * 2);
+    skipMembers(data);
+    skipMembers(data);
+
+    Map<String, Map<String, Object>> annotations = Collections.emptyMap();
+    for (int i = data.readUnsignedShort(); i > 0; i--) {
+      String attribute = utf8(pool, data.readUnsignedShort());
+      int length = data.readInt();
+      if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attribute)) {
+        annotations = new HashMap<>();
+        for (int j = data.readUnsignedShort(); j > 0; j--) {
+          String type = utf8(pool, data.readUnsignedShort());
+          annotations.put(type, readAnnotation(data, pool));
+        }
+      } else {
+        skip(data, length);
+      }
+    }
+    return new ClassAnnotations(name, annotations);
+  }
+
+  /**
+   * Read the constant pool. An UTF8 constant is a {@link String}, a class constant is the
+   * {@link Integer} index of its name, a numeric constant is its {@link Number}.
+   */
+  private static Object[] readConstantPool(DataInputStream data) throws IOException {
+    Object[] pool = new Object[data.readUnsignedShort()];
+    for (int i = 1; i < pool.length; i++) {
+      int tag = data.readUnsignedByte();
+      switch (tag) {
+        case 1:
+          pool[i] = data.readUTF();
+          break;
+        case 3:
+          pool[i] = data.readInt();
+          break;
+        case 4:
+          pool[i] = data.readFloat();
+          break;
+        case 5:
+          pool[i++] = data.readLong();
+          break;
+        case 6:
+          pool[i++] = data.readDouble();
+          break;
+        case 7:
+          pool[i] = data.readUnsignedShort();
+          break;
+        case 8:
+        case 16:
+        case 19:
+        case 20:
+          skip(data, 2);
+          break;
+        case 15:
+          skip(data, 3);
+          break;
+        case 9:
+        case 10:
+        case 11:
+        case 12:
+        case 17:
+        case 18:
+          skip(data, 4);
+          break;
+        default:
+          throw new IOException("unknown constant pool tag " + tag);
+      }
+    }
+    return pool;
+  }
+
+  private static void skipMembers(DataInputStream data) throws IOException {
+    for (int i = data.readUnsignedShort(); i > 0; i--) {
+      skip(data, 6);
+      for (int j = data.readUnsignedShort(); j > 0; j--) {
+        skip(data, 2);
+        skip(data, data.readInt());
+      }
+    }
+  }
+
+  private static Map<String, Object> readAnnotation(DataInputStream data, Object[] pool)
+      throws IOException {
+    Map<String, Object> values = new HashMap<>();
+    for (int i = data.readUnsignedShort(); i > 0; i--) {
+      String element = utf8(pool, data.readUnsignedShort());
+      values.put(element, readValue(data, pool));
+    }
+    return values;
+  }
+
+  private static Object readValue(DataInputStream data, Object[] pool) throws IOException {
+    char tag = (char) data.readUnsignedByte();
+    switch (tag) {
+      case 'B':
+      case 'I':
+      case 'S':
+        return pool[data.readUnsignedShort()];
+      case 'C':
+        return (char) ((Integer) pool[data.readUnsignedShort()]).intValue();
+      case 'Z':
+        return ((Integer) pool[data.readUnsignedShort()]) != 0;
+      case 'J':
+      case 'F':
+      case 'D':
+        return pool[data.readUnsignedShort()];
+      case 's':
+      case 'c':
+        return utf8(pool, data.readUnsignedShort());
+      case 'e':
+        data.readUnsignedShort();
+        return utf8(pool, data.readUnsignedShort());
+      case '@':
+        data.readUnsignedShort();
+        return readAnnotation(data, pool);
+      case '[':
+        Object[] array = new Object[data.readUnsignedShort()];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = readValue(data, pool);
+        }
+        return array;
+      default:
+        throw new IOException("unknown element value tag " + tag);
+    }
+  }
+
+  private static String utf8(Object[] pool, int index) throws IOException {
+    Object value = pool[index];
+    if (!(value instanceof String)) {
+      throw new IOException("invalid constant pool index " + index);
+    }
+    return (String) value;
+  }
+
+  private static void skip(DataInputStream data, int length) throws IOException {
+    int remaining = length;
+    while (remaining > 0) {
+      int skipped = data.skipBytes(remaining);
+      if (skipped <= 0) {
+        throw new IOException("truncated class file");
+      }
+      remaining -= skipped;
+    }
+  }
+}
@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer;
+
+import net.gcolin.common.collection.Func;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Find stylesheets in html or jsp, assemble them and minify them.
+ * 
+ * <p>
+ * The consecutive {@code <link rel="stylesheet">} of a page are replaced by a single stylesheet.
+ * The relative {@code url()} are rewritten for the location of the new stylesheet. A group of
+ * stylesheets found in several pages is written once.
+ * </p>
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CompressCss {
+
+  private static final char END_ATTR = '"';
+
+  private static final String HREF = "href=\"";
+
+  private static final String STYLESHEET = "rel=\"stylesheet\"";
+
+  private static final String MEDIA = "media=";
+
+  private static final String START_LINK = "<link";
+
+  private static final String IMPORT = "@import";
+
+  private static final String FILE_EXTENSIONS = "html,jsp,jsf";
+
+  private static final Pattern CSS_URL =
+      Pattern.compile("\\burl\\(\\s*([\"']?)([^\"'()\\s]*)\\1\\s*\\)");
+
+  private static final Pattern CHARSET = Pattern.compile("@charset\\s+[\"'][^\"']*[\"']\\s*;");
+
+  private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:");
+
+  private List<File> resources;
+  private Logger log;
+  private Map<String, File> generatedFiles = new HashMap<>();
+  private Map<File, String> sources = new HashMap<>();
+
+  /**
+   * Execute the compress css on a war.
+   * 
+   * @param war war
+   * @param explodedLibs explodedLibs
+   * @param log log
+   * @throws IOException if an error occurs
+   */
+  public void execute(File war, Map<String, File> explodedLibs, Logger log) throws IOException {
+    this.log = log;
+    final PathMatcher filter =
+        FileSystems.getDefault().getPathMatcher("glob:**.{" + FILE_EXTENSIONS + "}");
+    resources = new ArrayList<>();
+    if (new File(war, "META-INF/web-fragment.xml").exists()) {
+      if (new File(war, "META-INF/resources").exists()) {
+        resources.add(new File(war, "META-INF/resources"));
+      }
+    } else {
+      resources.add(war);
+    }
+    resources.addAll(Func.map(explodedLibs.values(), x -> new File(x, "META-INF/resources"),
+        x -> new File(x, "META-INF/resources").exists()));
+    List<CompressCssContext> pages = new ArrayList<>();
+    for (File resource : resources) {
+      Files.walkFileTree(resource.toPath(), new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (filter.matches(file)) {
+            CompressCssContext data =
+                new CompressCssContext(file, readFile(file), resource.toPath());
+            extractStyles(data);
+            if (!data.getStyleParts().isEmpty()) {
+              pages.add(data);
+            }
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+
+    // the first page of a group names its stylesheet
+    pages.sort((p1, p2) -> p1.getFile().compareTo(p2.getFile()));
+    for (CompressCssContext data : pages) {
+      Iterator<StylePart> it = data.getStyleParts().iterator();
+      while (it.hasNext()) {
+        StylePart part = it.next();
+        findStyles(data, part);
+        if (part.getStyleFiles().size() > 1 && hasImport(part)) {
+          // an @import must stay at the beginning of a stylesheet
+          getLog().log(Level.INFO, "keep the stylesheets {0} of {1} because of an @import",
+              new Object[] {part.getStyles(), data.getFile()});
+          it.remove();
+        }
+      }
+      if (!data.getStyleParts().isEmpty()) {
+        compress(data);
+      }
+    }
+  }
+
+  public Logger getLog() {
+    return log;
+  }
+
+  /**
+   * Compress stylesheets.
+   * 
+   * @param data data
+   * @throws IOException if an I/O error occurs.
+   */
+  public void compress(CompressCssContext data) throws IOException {
+    getLog().info("compress " + data.getFile().toString());
+
+    StringBuilder newFileContent = new StringBuilder();
+    int prec = 0;
+    for (int i = 0; i < data.getStyleParts().size(); i++) {
+      StylePart part = data.getStyleParts().get(i);
+      String key = key(part);
+      part.setStyleFile(generatedFiles.get(key));
+      File style = part.getStyleFile();
+      String styleFile;
+
+      if (style == null) {
+        String stylePath = data.getFile().toAbsolutePath().toString()
+            .substring(data.getWar().toAbsolutePath().toString().length());
+        int ext = stylePath.lastIndexOf('.');
+        if (ext != -1) {
+          stylePath = stylePath.substring(0, ext);
+        }
+        File wfile = data.getWar().toFile();
+        if (stylePath.contains("WEB-INF")) {
+          stylePath = stylePath.substring(stylePath.lastIndexOf(File.separatorChar));
+        }
+        int nb = i;
+        while ((style = new File(wfile, stylePath + (nb > 0 ? nb : "") + ".css")).exists()) {
+          nb++;
+        }
+        styleFile = stylePath + (nb > 0 ? nb : "") + ".css";
+        getLog().info("write to " + style.getAbsolutePath());
+        Files.write(style.toPath(),
+            bundle(part, styleFile.replace(File.separatorChar, '/')).getBytes(
+                StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        generatedFiles.put(key, style.getAbsoluteFile());
+        getLog().log(Level.INFO, "create key {0}", key);
+      } else {
+        getLog().log(Level.INFO, "reuse compressed file {0}", style);
+        styleFile = style.toPath().toAbsolutePath().toString()
+            .substring(data.getWar().toAbsolutePath().toString().length());
+      }
+
+      for (int j = 0; j < part.getStylePositions().size(); j++) {
+        int[] pa = part.getStylePositions().get(j);
+        newFileContent.append(data.getContent().substring(prec, pa[0]));
+        if (j == 0) {
+          newFileContent.append("<link rel=\"stylesheet\" type=\"text/css\" href=\"")
+              .append(styleFile.replace(File.separatorChar, '/')).append("\"/>");
+        }
+        prec = pa[1];
+      }
+    }
+
+    newFileContent.append(data.getContent().substring(prec));
+    getLog().info("write to " + data.getFile().toFile().getAbsolutePath());
+    Files.write(data.getFile(), newFileContent.toString().getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  private void findStyles(CompressCssContext data, StylePart part) throws IOException {
+    File dir = data.getFile().toFile().getParentFile();
+    for (String p : part.getStyles()) {
+      int query = p.indexOf('?');
+      String path = query == -1 ? p : p.substring(0, query);
+      File found = null;
+      for (File root : resources) {
+        File file = path.startsWith("/") ? new File(root, path) : new File(dir, path);
+        if (!file.exists() && !path.startsWith("/")) {
+          file = new File(root, path);
+        }
+        if (file.exists()) {
+          found = file;
+          break;
+        }
+      }
+      if (found == null) {
+        throw new IOException("cannot find stylesheet " + p);
+      }
+      part.getStyleFiles().add(found.getCanonicalFile());
+    }
+  }
+
+  private boolean hasImport(StylePart part) throws IOException {
+    for (File file : part.getStyleFiles()) {
+      if (source(file).contains(IMPORT)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Concatenate the stylesheets of a group and minify them.
+   * 
+   * @param part the group
+   * @param path the path of the new stylesheet from the root of the web application
+   * @return the new stylesheet
+   */
+  private String bundle(StylePart part, String path) throws IOException {
+    StringBuilder str = new StringBuilder();
+    for (File file : part.getStyleFiles()) {
+      String css = CHARSET.matcher(source(file)).replaceAll("");
+      str.append(rebase(css, parent(urlPath(file)), parent(path))).append('\n');
+    }
+    return minify(str.toString());
+  }
+
+  private String source(File file) throws IOException {
+    String content = sources.get(file);
+    if (content == null) {
+      content = readFile(file.toPath());
+      sources.put(file, content);
+    }
+    return content;
+  }
+
+  private String urlPath(File file) throws IOException {
+    String path = file.getCanonicalPath();
+    for (File root : resources) {
+      String rootPath = root.getCanonicalPath() + File.separator;
+      if (path.startsWith(rootPath)) {
+        return "/" + path.substring(rootPath.length()).replace(File.separatorChar, '/');
+      }
+    }
+    throw new IOException("the stylesheet " + file + " is not a resource");
+  }
+
+  /**
+   * Rewrite the relative {@code url()} of a stylesheet moved from a directory to another.
+   */
+  static String rebase(String css, String from, String to) {
+    if (from.equals(to)) {
+      return css;
+    }
+    Matcher matcher = CSS_URL.matcher(css);
+    StringBuilder str = new StringBuilder(css.length() + 64);
+    int prec = 0;
+    while (matcher.find()) {
+      String url = matcher.group(2);
+      if (url.isEmpty() || url.startsWith("/") || url.startsWith("#")
+          || SCHEME.matcher(url).find()) {
+        continue;
+      }
+      int end = url.length();
+      for (char ch : new char[] {'?', '#'}) {
+        int idx = url.indexOf(ch);
+        if (idx != -1 && idx < end) {
+          end = idx;
+        }
+      }
+      String target = normalize(from + url.substring(0, end));
+      if (target != null) {
+        str.append(css, prec, matcher.start(2)).append(relativize(to, target))
+            .append(url.substring(end));
+        prec = matcher.end(2);
+      }
+    }
+    return str.append(css, prec, css.length()).toString();
+  }
+
+  /**
+   * Remove the comments and the useless spaces of a stylesheet. The strings and the comments
+   * starting with {@code /*!} are kept.
+   */
+  static String minify(String css) {
+    StringBuilder str = new StringBuilder(css.length());
+    boolean space = false;
+    int idx = 0;
+    while (idx < css.length()) {
+      char ch = css.charAt(idx);
+      if (ch == '/' && css.startsWith("*", idx + 1)) {
+        int end = css.indexOf("*/", idx + 2);
+        end = end == -1 ? css.length() : end + 2;
+        if (css.startsWith("!", idx + 2)) {
+          str.append(css, idx, end);
+        } else {
+          space = true;
+        }
+        idx = end;
+        continue;
+      }
+      if (Character.isWhitespace(ch)) {
+        space = true;
+        idx++;
+        continue;
+      }
+      if (space && str.length() > 0 && "{};,>:".indexOf(str.charAt(str.length() - 1)) == -1
+          && "{};,>".indexOf(ch) == -1) {
+        str.append(' ');
+      }
+      space = false;
+      if (ch == '"' || ch == '\'') {
+        int end = idx + 1;
+        while (end < css.length() && css.charAt(end) != ch) {
+          end += css.charAt(end) == '\\' ? 2 : 1;
+        }
+        end = Math.min(end + 1, css.length());
+        str.append(css, idx, end);
+        idx = end;
+        continue;
+      }
+      if (ch == '}' && str.length() > 0 && str.charAt(str.length() - 1) == ';') {
+        str.setLength(str.length() - 1);
+      }
+      str.append(ch);
+      idx++;
+    }
+    return str.toString();
+  }
+
+  private static String parent(String path) {
+    return path.substring(0, path.lastIndexOf('/') + 1);
+  }
+
+  private static String normalize(String path) {
+    Deque<String> segments = new ArrayDeque<>();
+    for (String segment : path.split("/")) {
+      if ("..".equals(segment)) {
+        if (segments.isEmpty()) {
+          return null;
+        }
+        segments.removeLast();
+      } else if (!segment.isEmpty() && !".".equals(segment)) {
+        segments.addLast(segment);
+      }
+    }
+    return "/" + String.join("/", segments);
+  }
+
+  private static String relativize(String dir, String path) {
+    String[] from = dir.substring(1).split("/", -1);
+    String[] to = path.substring(1).split("/", -1);
+    // the last segment of dir is empty
+    int common = 0;
+    while (common < from.length - 1 && common < to.length - 1
+        && from[common].equals(to[common])) {
+      common++;
+    }
+    StringBuilder str = new StringBuilder();
+    for (int i = common; i < from.length - 1; i++) {
+      str.append("../");
+    }
+    for (int i = common; i < to.length; i++) {
+      if (i > common) {
+        str.append('/');
+      }
+      str.append(to[i]);
+    }
+    return str.toString();
+  }
+
+  private String key(StylePart part) {
+    return part.getStyleFiles().stream().map(File::getPath)
+        .collect(Collectors.joining(";"));
+  }
+
+  public String readFile(Path file) throws IOException {
+    getLog().info("read file " + file.toString());
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private void extractStyles(CompressCssContext data) {
+    int idx = 0;
+    int prec = -1;
+    String content = data.getContent();
+    StylePart part = new StylePart();
+
+    while ((idx = content.indexOf(START_LINK, idx)) != -1) {
+      String space = prec == -1 ? "" : content.substring(prec, idx).trim();
+      if (space.length() > 0 && !part.getStyles().isEmpty()) {
+        data.getStyleParts().add(part);
+        part = new StylePart();
+      }
+      int end = content.indexOf('>', idx);
+      if (end == -1) {
+        break;
+      }
+      end++;
+      String tag = content.substring(idx, end);
+      int start = tag.indexOf(HREF);
+      String path = start == -1 ? null
+          : tag.substring(start + HREF.length(), Math.max(start + HREF.length(),
+              tag.indexOf(END_ATTR, start + HREF.length())));
+      if (tag.contains(STYLESHEET) && !tag.contains(MEDIA) && path != null && isLocal(path)) {
+        part.getStyles().add(path);
+        part.getStylePositions().add(new int[] {idx, end});
+      } else if (!part.getStyles().isEmpty()) {
+        // another link keeps its place between the stylesheets
+        data.getStyleParts().add(part);
+        part = new StylePart();
+      }
+      prec = idx = end;
+    }
+    if (!part.getStyles().isEmpty()) {
+      data.getStyleParts().add(part);
+    }
+  }
+
+  private static boolean isLocal(String path) {
+    return !path.isEmpty() && !path.contains("${") && !path.contains("#{")
+        && !path.startsWith("//") && !SCHEME.matcher(path).find();
+  }
+
+}
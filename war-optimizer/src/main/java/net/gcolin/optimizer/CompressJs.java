@@ -42,9 +42,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Find javascript files in html or jsp, assemble them, compress them with Closure.
@@ -68,10 +69,19 @@ public class CompressJs {
 
   private static final String FILE_EXTENSIONS = "html,jsp,jsf";
 
+  private static final String CACHE_KIND = "js";
+
+  private static final String CLOSURE_SETTINGS =
+      "closure " + Compiler.getReleaseVersion() + " " + CompilationLevel.SIMPLE_OPTIMIZATIONS;
+
   private List<File> resources;
   private File errorDirectory;
   private Logger log;
+  // keyed by the content hash of the script groups
   private Map<String, File> generatedFiles = new HashMap<>();
+  private Map<String, CompletableFuture<String>> compilations = new HashMap<>();
+  private Executor executor;
+  private BuildCache cache;
 
   /**
    * Execute the compress js on a war.
@@ -96,6 +106,7 @@ public class CompressJs {
     }
     resources.addAll(Func.map(explodedLibs.values(), x -> new File(x, "META-INF/resources"),
         x -> new File(x, "META-INF/resources").exists()));
+    List<CompressJsContext> pages = new ArrayList<>();
     for (File resource : resources) {
       Files.walkFileTree(resource.toPath(), new SimpleFileVisitor<Path>() {
         @Override
@@ -109,19 +120,58 @@ public class CompressJs {
             CompressJsContext data = new CompressJsContext(file, readFile(file), resource.toPath());
             extractScripts(data);
             if (!data.getScriptParts().isEmpty()) {
-              compress(data);
+              pages.add(data);
             }
           }
         }
 
       });
     }
+
+    // start the closure compilation of all the script groups before rewriting the pages
+    for (CompressJsContext data : pages) {
+      for (ScriptPart part : data.getScriptParts()) {
+        findScripts(data, part);
+        compile(part);
+      }
+    }
+    for (CompressJsContext data : pages) {
+      compress(data);
+    }
   }
 
   public Logger getLog() {
     return log;
   }
 
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Set the executor of the Closure compilations. The script groups are compiled one after another
+   * in the current thread if there is no executor.
+   * 
+   * @param executor executor
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  public BuildCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Set the cache of the Closure compilations. A script group is compiled again only if the
+   * content of its scripts changed.
+   * 
+   * @param cache cache or {@code null} for compiling all the script groups
+   */
+  public void setCache(BuildCache cache) {
+    this.cache = cache;
+  }
+
   /**
    * Compress Javascript.
    * 
@@ -131,74 +181,18 @@ public class CompressJs {
   public void compress(CompressJsContext data) throws IOException {
     getLog().info("compress " + data.getFile().toString());
 
-    StringBuilder str = new StringBuilder();
     for (ScriptPart part : data.getScriptParts()) {
-      str.setLength(0);
-      getLog().info("getFiles");
-      for (String p : part.getScripts()) {
-        boolean found = false;
-        for (File root : resources) {
-          File file = p.startsWith("..") ? new File(data.getFile().toFile().getParentFile(), p)
-              : new File(root, p);
-          if (file.exists()) {
-            part.getScriptFiles().add(file);
-            found = true;
-            break;
-          }
-        }
-        if (!found) {
-          throw new IOException("cannot find script " + p);
-        }
-      }
-
-      part.setScriptFile(generatedFiles.get(key(part)));
+      findScripts(data, part);
+      CompletableFuture<String> compilation = compile(part);
+      part.setScriptFile(generatedFiles.get(part.getKey()));
 
       if (part.getScriptFile() != null) {
         continue;
       }
 
-      getLog().info("getScripts");
-
-      for (File file : part.getScriptFiles()) {
-        str.append("\n");
-        str.append(readFile(file.toPath()));
-      }
-
-      getLog().info("start compile with closure");
-
-      CompilerOptions options = new CompilerOptions();
-      CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
-      options.setWarningLevel(DiagnosticGroups.NON_STANDARD_JSDOC, CheckLevel.OFF);
-      options.setWarningLevel(DiagnosticGroups.FILEOVERVIEW_JSDOC, CheckLevel.OFF);
-      options.setWarningLevel(DiagnosticGroups.MISPLACED_TYPE_ANNOTATION, CheckLevel.OFF);
-      Compiler compiler = new Compiler();
-      Result result = compiler.compile(new ArrayList<SourceFile>(0),
-          Arrays.asList(SourceFile.fromCode("input.js", str.toString())), options);
-      if ((result.warnings == null || result.warnings.length == 0)
-          && (result.errors == null || result.errors.length == 0)) {
-        part.setCompiled(compiler.toSource());
-      } else {
-        if (errorDirectory == null) {
-          errorDirectory = new File("target");
-        }
-        if (errorDirectory.mkdirs()) {
-          getLog().fine("create directory " + errorDirectory);
-        }
-        File file = new File(errorDirectory, "input.js");
-        getLog().severe("error while compiling > " + file);
-        Files.write(file.toPath(), str.toString().getBytes(StandardCharsets.UTF_8));
-        for (JSError e : result.errors) {
-          getLog().severe(e.toString());
-        }
-        for (JSError e : result.warnings) {
-          getLog().severe(e.toString());
-        }
-        throw new IOException("error in closure");
-      }
+      part.setCompiled(Tasks.join(compilation));
     }
 
-
-
     StringBuilder newFileContent = new StringBuilder();
     int prec = 0;
     for (int i = 0; i < data.getScriptParts().size(); i++) {
@@ -227,7 +221,7 @@ public class CompressJs {
         getLog().info("write to " + script.getAbsolutePath());
         Files.write(script.toPath(), part.getCompiled().getBytes(StandardCharsets.UTF_8),
             StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        String key = key(part);
+        String key = part.getKey();
         generatedFiles.put(key, script.getAbsoluteFile());
         getLog().log(Level.INFO, "create key {0}", key);
       } else {
@@ -253,9 +247,95 @@ public class CompressJs {
         StandardOpenOption.TRUNCATE_EXISTING);
   }
 
-  private String key(ScriptPart part) {
-    return part.getScriptFiles().stream().map(File::getAbsolutePath).sorted()
-        .collect(Collectors.joining(";"));
+  private void findScripts(CompressJsContext data, ScriptPart part) throws IOException {
+    if (!part.getScriptFiles().isEmpty()) {
+      return;
+    }
+    getLog().info("getFiles");
+    for (String p : part.getScripts()) {
+      boolean found = false;
+      for (File root : resources) {
+        File file = p.startsWith("..") ? new File(data.getFile().toFile().getParentFile(), p)
+            : new File(root, p);
+        if (file.exists()) {
+          part.getScriptFiles().add(file);
+          found = true;
+          break;
+        }
+      }
+      if (!found) {
+        throw new IOException("cannot find script " + p);
+      }
+    }
+  }
+
+  /**
+   * Start the compilation of a script group, unless a group with the same content is already
+   * compiled.
+   */
+  private CompletableFuture<String> compile(ScriptPart part) throws IOException {
+    if (part.getKey() != null) {
+      return compilations.get(part.getKey());
+    }
+    getLog().info("getScripts");
+
+    StringBuilder str = new StringBuilder();
+    for (File file : part.getScriptFiles()) {
+      str.append("\n");
+      str.append(readFile(file.toPath()));
+    }
+    String source = str.toString();
+    part.setKey(BuildCache.hash(CLOSURE_SETTINGS, source));
+    return compilations.computeIfAbsent(part.getKey(),
+        key -> Tasks.supply(() -> compile(source, key), executor));
+  }
+
+  private String compile(String source, String key) throws IOException {
+    if (cache != null) {
+      File entry = cache.get(CACHE_KIND, key);
+      if (entry != null) {
+        getLog().log(Level.INFO, "reuse closure compilation {0}", entry);
+        return readFile(entry.toPath());
+      }
+    }
+
+    getLog().info("start compile with closure");
+
+    CompilerOptions options = new CompilerOptions();
+    CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
+    options.setWarningLevel(DiagnosticGroups.NON_STANDARD_JSDOC, CheckLevel.OFF);
+    options.setWarningLevel(DiagnosticGroups.FILEOVERVIEW_JSDOC, CheckLevel.OFF);
+    options.setWarningLevel(DiagnosticGroups.MISPLACED_TYPE_ANNOTATION, CheckLevel.OFF);
+    Compiler compiler = new Compiler();
+    Result result = compiler.compile(new ArrayList<SourceFile>(0),
+        Arrays.asList(SourceFile.fromCode("input.js", source)), options);
+    if ((result.warnings == null || result.warnings.length == 0)
+        && (result.errors == null || result.errors.length == 0)) {
+      String compiled = compiler.toSource();
+      if (cache != null) {
+        cache.put(CACHE_KIND, key,
+            file -> Files.write(file.toPath(), compiled.getBytes(StandardCharsets.UTF_8)));
+      }
+      return compiled;
+    }
+    synchronized (this) {
+      if (errorDirectory == null) {
+        errorDirectory = new File("target");
+      }
+      if (errorDirectory.mkdirs()) {
+        getLog().fine("create directory " + errorDirectory);
+      }
+      File file = new File(errorDirectory, "input.js");
+      getLog().severe("error while compiling > " + file);
+      Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+      for (JSError e : result.errors) {
+        getLog().severe(e.toString());
+      }
+      for (JSError e : result.warnings) {
+        getLog().severe(e.toString());
+      }
+    }
+    throw new IOException("error in closure");
   }
 
   public String readFile(Path file) throws IOException {
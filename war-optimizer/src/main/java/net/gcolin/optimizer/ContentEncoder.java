@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compression of the static resources, done once by the optimizer and served by the
+ * {@code PrecompressedFilter}.
+ *
+ * <p>
+ * The encoders are found with a {@link java.util.ServiceLoader}, so an encoder that is not
+ * provided by the optimizer (Brotli for example) can be added to the plugin dependencies. An
+ * encoder replaces the built-in one of the same encoding.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public interface ContentEncoder {
+
+  /**
+   * Get the encoding.
+   *
+   * @return the value of the Content-Encoding header
+   */
+  String getEncoding();
+
+  /**
+   * Get the extension of the variant, added to the name of the resource.
+   *
+   * @return the extension without dot
+   */
+  String getExtension();
+
+  /**
+   * Compress a resource.
+   *
+   * @param content the content of the resource
+   * @return the compressed content
+   * @throws IOException if an I/O error occurs.
+   */
+  byte[] encode(ByteBuffer content) throws IOException;
+
+}
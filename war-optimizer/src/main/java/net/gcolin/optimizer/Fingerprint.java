@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer;
+
+import net.gcolin.common.collection.Collections2;
+import net.gcolin.common.collection.Func;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copy the static assets to a name containing their content hash and make the pages and the
+ * stylesheets reference the copies, so they can be cached forever.
+ * 
+ * <p>
+ * A stylesheet is fingerprinted after the assets it references, so its hash changes when one of
+ * them changes. The original files are kept for the references that are not rewritten. The
+ * fingerprinted paths are listed in {@code WEB-INF/fingerprint.properties} for a war and in
+ * {@code META-INF/fingerprint.properties} for a jar, for the {@code ImmutableFilter}.
+ * </p>
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class Fingerprint {
+
+  public static final String WAR_MANIFEST = "WEB-INF/fingerprint.properties";
+  public static final String JAR_MANIFEST = "META-INF/fingerprint.properties";
+
+  private static final Set<String> ASSET_EXTENSIONS = Collections2.toSet("js", "css", "png", "jpg",
+      "jpeg", "gif", "ico", "svg", "eot", "ttf", "woff", "woff2", "webp");
+  private static final Set<String> PAGE_EXTENSIONS = Collections2.toSet("html", "jsp", "jsf");
+  private static final Pattern ATTRIBUTE =
+      Pattern.compile("\\b(src|href)\\s*=\\s*([\"'])([^\"'<>]*)\\2");
+  private static final Pattern CSS_URL =
+      Pattern.compile("\\burl\\(\\s*([\"']?)([^\"'()\\s]*)\\1\\s*\\)");
+  private static final Pattern EL_PREFIX = Pattern.compile("^\\$\\{[^}]*\\}");
+  private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:");
+  private static final int HASH_LENGTH = 10;
+
+  private Logger log;
+  private Map<String, File> assets = new HashMap<>();
+  private Map<String, String> fingerprints = new HashMap<>();
+  private Set<String> visiting = new HashSet<>();
+
+  public Logger getLog() {
+    return log;
+  }
+
+  /**
+   * Fingerprint the assets of a war.
+   * 
+   * @param war war
+   * @param explodedLibs explodedLibs
+   * @param log log
+   * @throws IOException if an error occurs.
+   */
+  public void execute(File war, Map<String, File> explodedLibs, Logger log) throws IOException {
+    this.log = log;
+    boolean fragment = new File(war, "META-INF/web-fragment.xml").exists();
+    List<File> resources = new ArrayList<>();
+    if (fragment) {
+      if (new File(war, "META-INF/resources").exists()) {
+        resources.add(new File(war, "META-INF/resources"));
+      }
+    } else {
+      resources.add(war);
+    }
+    resources.addAll(Func.map(explodedLibs.values(), x -> new File(x, "META-INF/resources"),
+        x -> new File(x, "META-INF/resources").exists()));
+
+    Map<String, File> pages = new TreeMap<>();
+    for (File resource : resources) {
+      Path root = resource.toPath();
+      Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          String name = root.relativize(dir).toString().replace('\\', '/');
+          return "WEB-INF".equals(name) || "META-INF".equals(name) ? FileVisitResult.SKIP_SUBTREE
+              : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          String path = "/" + root.relativize(file).toString().replace('\\', '/');
+          String extension = extension(path);
+          if (ASSET_EXTENSIONS.contains(extension)) {
+            assets.putIfAbsent(path, file.toFile());
+          } else if (PAGE_EXTENSIONS.contains(extension)) {
+            pages.putIfAbsent(path, file.toFile());
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+
+    for (String path : new TreeMap<>(assets).keySet()) {
+      fingerprint(path);
+    }
+
+    for (Map.Entry<String, File> page : pages.entrySet()) {
+      Path file = page.getValue().toPath();
+      String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      String rewritten = rewrite(content, parent(page.getKey()), true);
+      if (!rewritten.equals(content)) {
+        getLog().info("rewrite references of " + file);
+        Files.write(file, rewritten.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    writeManifest(new File(war, fragment ? JAR_MANIFEST : WAR_MANIFEST));
+  }
+
+  /**
+   * Fingerprint an asset.
+   * 
+   * @param path the path of the asset from the root of the web application
+   * @return the path of the fingerprinted asset or {@code null} if it cannot be fingerprinted
+   */
+  private String fingerprint(String path) throws IOException {
+    String fingerprinted = fingerprints.get(path);
+    if (fingerprinted != null || !visiting.add(path)) {
+      // a cycle between stylesheets is left as it is
+      return fingerprinted;
+    }
+    File file = assets.get(path);
+    byte[] content = Files.readAllBytes(file.toPath());
+    if (path.endsWith(".css")) {
+      content = rewrite(new String(content, StandardCharsets.UTF_8), parent(path), false)
+          .getBytes(StandardCharsets.UTF_8);
+    }
+    String hash = BuildCache.hash(content).substring(0, HASH_LENGTH);
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    String suffix = "." + hash + name.substring(dot);
+    if (name.endsWith(suffix)) {
+      // already a fingerprinted asset
+      fingerprinted = path;
+    } else {
+      File target = new File(file.getParentFile(), name.substring(0, dot) + suffix);
+      getLog().log(Level.FINE, "fingerprint {0}", target);
+      Files.write(target.toPath(), content);
+      fingerprinted = parent(path) + target.getName();
+    }
+    fingerprints.put(path, fingerprinted);
+    return fingerprinted;
+  }
+
+  /**
+   * Make the references of a page or a stylesheet point to the fingerprinted assets.
+   */
+  private String rewrite(String content, String dir, boolean page) throws IOException {
+    String result = content;
+    if (page) {
+      result = rewrite(result, dir, ATTRIBUTE, 3);
+    }
+    return rewrite(result, dir, CSS_URL, 2);
+  }
+
+  private String rewrite(String content, String dir, Pattern pattern, int group)
+      throws IOException {
+    Matcher matcher = pattern.matcher(content);
+    StringBuilder str = null;
+    int prec = 0;
+    while (matcher.find()) {
+      String reference = matcher.group(group);
+      String rewritten = rewriteReference(reference, dir);
+      if (rewritten != null) {
+        if (str == null) {
+          str = new StringBuilder(content.length() + 64);
+        }
+        str.append(content, prec, matcher.start(group)).append(rewritten);
+        prec = matcher.end(group);
+      }
+    }
+    if (str == null) {
+      return content;
+    }
+    return str.append(content, prec, content.length()).toString();
+  }
+
+  /**
+   * Rewrite a reference, keeping it relative or absolute, its EL prefix (the context path for
+   * example), its query and its fragment.
+   * 
+   * @return the new reference or {@code null} if it does not reference an asset
+   */
+  private String rewriteReference(String reference, String dir) throws IOException {
+    String prefix = "";
+    String url = reference;
+    Matcher el = EL_PREFIX.matcher(url);
+    if (el.find()) {
+      prefix = el.group();
+      url = url.substring(prefix.length());
+      if (!url.startsWith("/")) {
+        return null;
+      }
+    }
+    if (url.isEmpty() || url.startsWith("//") || url.contains("${")
+        || SCHEME.matcher(url).find()) {
+      return null;
+    }
+    int end = url.length();
+    for (char ch : new char[] {'?', '#'}) {
+      int idx = url.indexOf(ch);
+      if (idx != -1 && idx < end) {
+        end = idx;
+      }
+    }
+    String location = url.substring(0, end);
+    String path = normalize(location.startsWith("/") ? location : dir + location);
+    if (path == null || !assets.containsKey(path)) {
+      return null;
+    }
+    String fingerprinted = fingerprint(path);
+    if (fingerprinted == null || fingerprinted.equals(path)) {
+      return null;
+    }
+    return prefix + location.substring(0, location.lastIndexOf('/') + 1)
+        + fingerprinted.substring(fingerprinted.lastIndexOf('/') + 1) + url.substring(end);
+  }
+
+  private void writeManifest(File manifest) throws IOException {
+    StringBuilder str = new StringBuilder();
+    Map<String, String> sorted = new TreeMap<>();
+    for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+      if (entry.getKey().equals(entry.getValue())) {
+        // an asset fingerprinted by a previous execution
+        sorted.putIfAbsent(entry.getValue(), entry.getKey());
+      } else {
+        sorted.put(entry.getValue(), entry.getKey());
+      }
+    }
+    for (Map.Entry<String, String> entry : sorted.entrySet()) {
+      str.append(ManifestUtil.escape(entry.getKey())).append('=')
+          .append(ManifestUtil.escape(entry.getValue())).append('\n');
+    }
+    if (str.length() > 0) {
+      getLog().info("write " + manifest);
+      Files.createDirectories(manifest.getParentFile().toPath());
+      Files.write(manifest.toPath(), str.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+  }
+
+  private static String extension(String path) {
+    int dot = path.lastIndexOf('.');
+    return dot == -1 || dot < path.lastIndexOf('/') ? "" : path.substring(dot + 1);
+  }
+
+  private static String parent(String path) {
+    return path.substring(0, path.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * Remove the {@code .} and {@code ..} segments of a path.
+   * 
+   * @return the path or {@code null} if the path goes above the root
+   */
+  private static String normalize(String path) {
+    Deque<String> segments = new ArrayDeque<>();
+    for (String segment : path.split("/")) {
+      if ("..".equals(segment)) {
+        if (segments.isEmpty()) {
+          return null;
+        }
+        segments.removeLast();
+      } else if (!segment.isEmpty() && !".".equals(segment)) {
+        segments.addLast(segment);
+      }
+    }
+    return "/" + String.join("/", segments);
+  }
+
+}
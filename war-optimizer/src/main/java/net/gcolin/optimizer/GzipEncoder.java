@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip with the best compression level of the JDK. The output is readable by any gzip client, so
+ * a Zopfli encoder can replace it for a smaller output.
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class GzipEncoder implements ContentEncoder {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  @Override
+  public String getEncoding() {
+    return "gzip";
+  }
+
+  @Override
+  public String getExtension() {
+    return "gz";
+  }
+
+  @Override
+  public byte[] encode(ByteBuffer content) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(content.remaining() / 2 + 64);
+    try (OutputStream gout = new BestGzipOutputStream(out)) {
+      ByteBuffer in = content.duplicate();
+      if (in.hasArray()) {
+        gout.write(in.array(), in.arrayOffset() + in.position(), in.remaining());
+      } else {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (in.hasRemaining()) {
+          int nb = Math.min(buffer.length, in.remaining());
+          in.get(buffer, 0, nb);
+          gout.write(buffer, 0, nb);
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static class BestGzipOutputStream extends GZIPOutputStream {
+
+    BestGzipOutputStream(OutputStream out) throws IOException {
+      super(out, BUFFER_SIZE);
+      def.setLevel(Deflater.BEST_COMPRESSION);
+    }
+  }
+
+}
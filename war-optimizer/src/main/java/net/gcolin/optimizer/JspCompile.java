@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -42,26 +43,74 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Precompile JSP and add them to the web.xml or web-fragment.xml.
+ * Precompile JSP and list them in a manifest read by the {@code JspServlet}, or add them to the
+ * web.xml or web-fragment.xml.
  * 
  * @author Gaël COLIN
  * @since 1.0
  */
 public class JspCompile {
 
+  private static final String CACHE_KIND = "jsp";
+
+  public static final String WAR_MANIFEST = "WEB-INF/jsp.properties";
+  public static final String JAR_MANIFEST = "jsp.properties";
+
   private Logger log;
 
   public Logger getLog() {
     return log;
   }
 
+  public BuildCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Set the cache of the compiled JSP. A JSP is compiled again only if its generated source, which
+   * includes the content of the JSP and its dependencies, the compiler, or the classes of
+   * {@code WEB-INF/classes} and of the libraries changed.
+   * 
+   * @param cache cache or {@code null} for compiling all the JSP
+   */
+  public void setCache(BuildCache cache) {
+    this.cache = cache;
+  }
+
+  public boolean isServletManifest() {
+    return servletManifest;
+  }
+
+  /**
+   * List the compiled JSP in {@code WEB-INF/jsp.properties} for a war or in
+   * {@code META-INF/jsp.properties} for a jar, instead of declaring a servlet per JSP in the
+   * web.xml or the web-fragment.xml. The JSP are loaded by the {@code JspServlet}.
+   * 
+   * @param servletManifest servletManifest
+   */
+  public void setServletManifest(boolean servletManifest) {
+    this.servletManifest = servletManifest;
+  }
+
   List<Pair<String, String>> servlets = new ArrayList<>();
+  private Map<String, File> compiledClasses = new LinkedHashMap<>();
+  private List<Unit> units = new ArrayList<>();
+  private ClassLoader webAppClassLoader;
+  private JspCompiler jspcompiler;
+  private BuildCache cache;
+  private boolean servletManifest;
+  private File war;
+  private List<File> classPath = new ArrayList<>();
 
   private Collection<URL> getClasspath(ClassLoader classLoader) {
     Map<String, URL> urls = new HashMap<>();
@@ -88,16 +137,39 @@ public class JspCompile {
    */
   public void execute(File war, Map<String, File> explodedLibs, Logger log, Compiler compiler,
       ClassLoader cl) throws IOException {
+    generate(war, explodedLibs, log, compiler, cl);
+    compile();
+  }
+
+  /**
+   * Generate the Java sources of the JSP. The sources are compiled and added to the web.xml or
+   * web-fragment.xml by {@link #compile()}, so the generation does not write in the classes
+   * directories.
+   * 
+   * @param war war
+   * @param explodedLibs explodedLibs
+   * @param log log
+   * @param compiler compiler
+   * @param cl cl
+   * @throws IOException if an error occurs.
+   */
+  public void generate(File war, Map<String, File> explodedLibs, Logger log, Compiler compiler,
+      ClassLoader cl) throws IOException {
     this.log = log;
+    this.war = war;
 
     URL[] cpUrl = new URL[explodedLibs.size() + 1];
     cpUrl[0] = new File(war, "WEB-INF/classes").toURI().toURL();
+    classPath.clear();
+    classPath.add(new File(war, "WEB-INF/classes"));
     Iterator<File> it = explodedLibs.values().iterator();
     for (int i = 1; i < cpUrl.length; i++) {
-      cpUrl[i] = it.next().toURI().toURL();
+      File lib = it.next();
+      cpUrl[i] = lib.toURI().toURL();
+      classPath.add(lib);
     }
 
-    ClassLoader webAppClassLoader = cl;
+    webAppClassLoader = cl;
 
     if (webAppClassLoader == null) {
       Collection<URL> urls = getClasspath(JspCompile.class.getClassLoader());
@@ -121,70 +193,215 @@ public class JspCompile {
         x -> new File(x, "META-INF/resources").exists()));
     final PathMatcher filter = FileSystems.getDefault().getPathMatcher("glob:**.{jsp}");
 
-    JspCompiler jspcompiler = new JspCompiler(webAppClassLoader, false, true, compiler);
+    try {
+      jspcompiler = new JspCompiler(webAppClassLoader, false, true, compiler);
+
+      for (int i = 0; i < resources.size(); i++) {
+        File resource = resources.get(i);
 
-    for (int i = 0; i < resources.size(); i++) {
-      File resource = resources.get(i);
-      servlets.clear();
+        String rootPath = resource.getAbsolutePath();
+        if (!rootPath.endsWith(File.separatorChar + "")) {
+          rootPath += File.separatorChar;
+        }
+        final String rpath = rootPath;
 
-      String rootPath = resource.getAbsolutePath();
-      if (!rootPath.endsWith(File.separatorChar + "")) {
-        rootPath += File.separatorChar;
-      }
-      final String rpath = rootPath;
+        Set<String> ignorejsp = new HashSet<>();
+        File jspIgnore = new File(resource, "WEB-INF/jspignore.txt");
+        if (jspIgnore.exists()) {
+          ignorejsp.addAll(Files.readAllLines(jspIgnore.toPath()));
+        }
 
-      Set<String> ignorejsp = new HashSet<>();
-      File jspIgnore = new File(resource, "WEB-INF/jspignore.txt");
-      if (jspIgnore.exists()) {
-        ignorejsp.addAll(Files.readAllLines(jspIgnore.toPath()));
-      }
+        List<String> paths = new ArrayList<>();
+        File workDir = resource.equals(war) ? new File(war, "WEB-INF/classes")
+            : resource.getParentFile().getParentFile();
+        if (!workDir.exists() && !workDir.mkdirs()) {
+          throw new IOException("cannot create directory " + workDir);
+        }
 
-      List<String> paths = new ArrayList<>();
-      File workDir = resource.getParentFile().getParentFile();
+        Files.walkFileTree(resource.toPath(), new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+              throws IOException {
+            if (filter.matches(file)) {
 
-      Files.walkFileTree(resource.toPath(), new SimpleFileVisitor<Path>() {
-        @Override
-        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-          if (filter.matches(file)) {
 
+              String path =
+                  file.toFile().getAbsolutePath().substring(rpath.length()).replace('\\', '/');
+              if (ignorejsp.contains(path)) {
+                return FileVisitResult.CONTINUE;
+              }
 
-            String path =
-                file.toFile().getAbsolutePath().substring(rpath.length()).replace('\\', '/');
-            if (ignorejsp.contains(path)) {
-              return FileVisitResult.CONTINUE;
+              paths.add(path);
             }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+
+        if (!paths.isEmpty()) {
+          getLog().info("generate " + paths.size() + " servlets of " + resource);
+          JspCompileServletContext ctx =
+              new JspCompileServletContext(resources, webAppClassLoader, workDir);
+
+          Thread thread = Thread.currentThread();
+          ClassLoader current = thread.getContextClassLoader();
+          thread.setContextClassLoader(webAppClassLoader);
+          try {
+            units.add(new Unit(i, resource, workDir, paths, ctx,
+                jspcompiler.generateJava(paths.toArray(new String[paths.size()]), ctx)));
+          } finally {
+            thread.setContextClassLoader(current);
+          }
+        }
+      }
+    } catch (IOException | RuntimeException ex) {
+      close();
+      throw ex;
+    }
+  }
 
-            paths.add(path);
+  /**
+   * Compile the Java sources generated by
+   * {@link #generate(File, Map, Logger, Compiler, ClassLoader)} and add the servlets to the
+   * web.xml or web-fragment.xml.
+   * 
+   * @throws IOException if an error occurs.
+   */
+  public void compile() throws IOException {
+    try {
+      String settings = jspcompiler.getCompiler().getClass().getName() + " "
+          + System.getProperty("java.specification.version");
+      if (cache != null) {
+        settings += " " + hashClassPath();
+      }
+      for (Unit unit : units) {
+        servlets.clear();
+
+        List<Pair<String, String>> compile = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Pair<String, String> java : unit.java) {
+          String key = null;
+          if (cache != null) {
+            key = BuildCache.hash(settings, java.getKey(), java.getValue());
+            File entry = cache.get(CACHE_KIND, key);
+            if (entry != null) {
+              getLog().log(Level.INFO, "reuse compiled {0}", java.getKey());
+              BuildCache.copy(entry, unit.workDir);
+              continue;
+            }
           }
-          return FileVisitResult.CONTINUE;
+          compile.add(java);
+          keys.add(key);
         }
-      });
 
-      if (!paths.isEmpty()) {
-        getLog().info("compile " + paths.size() + " servlets to " + workDir);
-        JspCompileServletContext ctx =
-            new JspCompileServletContext(resources, webAppClassLoader, workDir);
-
-        Thread thread = Thread.currentThread();
-        ClassLoader current = thread.getContextClassLoader();
-        thread.setContextClassLoader(webAppClassLoader);
-        try {
-          Object[] servlet = jspcompiler.buildServlet(paths.toArray(new String[paths.size()]), ctx);
-          for (int j = 0; j < servlet.length; j++) {
-            servlets.add(new Pair<>(servlet[j].getClass().getName(), paths.get(j)));
+        if (!compile.isEmpty()) {
+          getLog().info("compile " + compile.size() + " servlets to " + unit.workDir);
+
+          Thread thread = Thread.currentThread();
+          ClassLoader current = thread.getContextClassLoader();
+          thread.setContextClassLoader(webAppClassLoader);
+          try {
+            jspcompiler.buildServlet(compile, unit.ctx);
+          } finally {
+            thread.setContextClassLoader(current);
+          }
+
+          if (cache != null) {
+            for (int j = 0; j < compile.size(); j++) {
+              String className = compile.get(j).getKey();
+              cache.put(CACHE_KIND, keys.get(j), entry -> copyClasses(className, unit.workDir,
+                  entry));
+            }
           }
+        }
+
+        for (int j = 0; j < unit.java.size(); j++) {
+          servlets.add(new Pair<>(unit.java.get(j).getKey(), unit.paths.get(j)));
+          compiledClasses.put(unit.java.get(j).getKey(), unit.workDir);
+        }
 
-        } finally {
-          thread.setContextClassLoader(current);
+        if (servletManifest) {
+          writeManifest(unit.resource);
+        } else {
+          appenServletToWebXml(unit.index, unit.resource);
         }
       }
+    } finally {
+      units.clear();
+      close();
+    }
+  }
 
-      appenServletToWebXml(i, resource);
+  /**
+   * Hash the classes of the class path, so the JSP are compiled again when a class they use
+   * changes. The JSP classes compiled by a previous build are ignored.
+   */
+  private String hashClassPath() throws IOException {
+    Set<String> generated = new HashSet<>();
+    for (Unit unit : units) {
+      for (Pair<String, String> java : unit.java) {
+        generated.add(java.getKey().replace('.', '/'));
+      }
     }
+    List<String> parts = new ArrayList<>();
+    for (File dir : classPath) {
+      if (!dir.isDirectory()) {
+        continue;
+      }
+      Path root = dir.toPath();
+      List<Path> classes;
+      try (Stream<Path> files = Files.walk(root)) {
+        classes = files.filter(file -> file.toString().endsWith(".class")).sorted()
+            .collect(Collectors.toList());
+      }
+      for (Path file : classes) {
+        String name = root.relativize(file).toString().replace('\\', '/');
+        int inner = name.indexOf('$', name.lastIndexOf('/') + 1);
+        String className = name.substring(0, inner == -1 ? name.length() - 6 : inner);
+        if (!generated.contains(className)) {
+          parts.add(name);
+          parts.add(BuildCache.hash(file.toFile()));
+        }
+      }
+    }
+    return BuildCache.hash(parts.toArray(new String[parts.size()]));
+  }
 
+  /**
+   * Get the servlets compiled by {@link #compile()}.
+   * 
+   * @return the class names and the directories of their class files
+   */
+  public Map<String, File> getCompiledClasses() {
+    return compiledClasses;
+  }
+
+  /**
+   * Copy the class files of a compiled JSP, including its nested classes.
+   */
+  private void copyClasses(String className, File workDir, File entry) throws IOException {
+    String path = className.replace('.', '/');
+    int slash = path.lastIndexOf('/');
+    String dir = slash == -1 ? "" : path.substring(0, slash + 1);
+    String simpleName = path.substring(slash + 1);
+    File[] classes = new File(workDir, dir).listFiles(x -> x.getName().endsWith(".class")
+        && (x.getName().equals(simpleName + ".class") || x.getName().startsWith(simpleName + "$")));
+    File target = new File(entry, dir);
+    if (!target.mkdirs()) {
+      throw new IOException("cannot create directory " + target);
+    }
+    if (classes != null) {
+      for (File file : classes) {
+        Files.copy(file.toPath(), new File(target, file.getName()).toPath());
+      }
+    }
+  }
+
+  private void close() {
     if (webAppClassLoader instanceof URLClassLoader) {
       Io.close((URLClassLoader) webAppClassLoader);
     }
+    webAppClassLoader = null;
+    jspcompiler = null;
   }
 
   private void appenServletToWebXml(int nb, File resource) throws IOException {
@@ -199,6 +416,20 @@ public class JspCompile {
     }
   }
 
+  private void writeManifest(File resource) throws IOException {
+    if (!servlets.isEmpty()) {
+      StringBuilder str = new StringBuilder();
+      for (Pair<String, String> pair : servlets) {
+        str.append(ManifestUtil.escape("/" + pair.getValue())).append('=')
+            .append(pair.getKey()).append('\n');
+      }
+      File manifest = resource.equals(war) ? new File(resource, WAR_MANIFEST)
+          : new File(resource.getParentFile(), JAR_MANIFEST);
+      getLog().info("write " + manifest);
+      Files.write(manifest.toPath(), str.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+  }
+
   private String buildFragment(List<Pair<String, String>> servlets) throws IOException {
     StringWriter str = new StringWriter();
     BufferedWriter fragment = null;
@@ -238,4 +469,27 @@ public class JspCompile {
     return str.toString();
   }
 
+  /**
+   * The generated sources of a resource directory.
+   */
+  private static class Unit {
+
+    private final int index;
+    private final File resource;
+    private final File workDir;
+    private final List<String> paths;
+    private final JspCompileServletContext ctx;
+    private final List<Pair<String, String>> java;
+
+    Unit(int index, File resource, File workDir, List<String> paths,
+        JspCompileServletContext ctx, List<Pair<String, String>> java) {
+      this.index = index;
+      this.resource = resource;
+      this.workDir = workDir;
+      this.paths = paths;
+      this.ctx = ctx;
+      this.java = java;
+    }
+  }
+
 }
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer;
+
+/**
+ * An utility class for writing the properties manifests read at runtime.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class ManifestUtil {
+
+  private ManifestUtil() {}
+
+  /**
+   * Escape a key or a value of a properties file encoded in ISO-8859-1.
+   * 
+   * @param value a key or a value
+   * @return the escaped value
+   */
+  public static String escape(String value) {
+    StringBuilder str = new StringBuilder(value.length());
+    for (char ch : value.toCharArray()) {
+      if (ch == ' ' || ch == ':' || ch == '=' || ch == '\\') {
+        str.append('\\').append(ch);
+      } else if (ch > '~') {
+        str.append(String.format("\\u%04x", (int) ch));
+      } else {
+        str.append(ch);
+      }
+    }
+    return str.toString();
+  }
+}
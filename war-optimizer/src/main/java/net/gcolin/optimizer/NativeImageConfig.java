@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.optimizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Write the GraalVM native-image metadata of the precompiled JSP in
+ * {@code META-INF/native-image/net.gcolin.jsplike/pages} of their class directory. The
+ * {@code JspServlet} creates the JSP listed in its manifest by reflection, and the {@code fmt}
+ * tags read resource bundles. The setters of the tags and the functions are called directly by
+ * the generated code.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class NativeImageConfig {
+
+  public static final String DIR = "META-INF/native-image/net.gcolin.jsplike/pages";
+  public static final String REFLECT_CONFIG = "reflect-config.json";
+  public static final String RESOURCE_CONFIG = "resource-config.json";
+  private static final String[] MANIFESTS = {"META-INF/jsp.properties",
+      "META-INF/precompressed.properties", "META-INF/fingerprint.properties"};
+  private static final String PROPERTIES = ".properties";
+  private static final Pattern LOCALE = Pattern.compile("_[a-z]{2,3}(_[A-Z]{2})?$");
+
+  /**
+   * Write the metadata.
+   * 
+   * @param pages the class names of the precompiled JSP and their directory
+   * @param log log
+   * @throws IOException if an error occurs.
+   */
+  public void execute(Map<String, File> pages, Logger log) throws IOException {
+    Map<File, List<String>> classesByDir = new LinkedHashMap<>();
+    for (Map.Entry<String, File> page : pages.entrySet()) {
+      classesByDir.computeIfAbsent(page.getValue(), dir -> new ArrayList<>()).add(page.getKey());
+    }
+    for (Map.Entry<File, List<String>> entry : classesByDir.entrySet()) {
+      File dir = new File(entry.getKey(), DIR);
+      if (!dir.exists() && !dir.mkdirs()) {
+        throw new IOException("cannot create directory " + dir);
+      }
+      log.info("write native-image metadata of " + entry.getValue().size() + " JSP in " + dir);
+      write(new File(dir, REFLECT_CONFIG), reflectConfig(entry.getValue()));
+      write(new File(dir, RESOURCE_CONFIG), resourceConfig(bundles(entry.getKey())));
+    }
+  }
+
+  private static String reflectConfig(List<String> classes) {
+    StringBuilder str = new StringBuilder("[\n");
+    for (int i = 0; i < classes.size(); i++) {
+      str.append("  {\"name\": ").append(quote(classes.get(i)))
+          .append(", \"methods\": [{\"name\": \"<init>\", \"parameterTypes\": []}]}")
+          .append(i == classes.size() - 1 ? "\n" : ",\n");
+    }
+    return str.append("]\n").toString();
+  }
+
+  private static String resourceConfig(Set<String> bundles) {
+    StringBuilder str = new StringBuilder("{\n  \"resources\": {\n    \"includes\": [\n");
+    for (int i = 0; i < MANIFESTS.length; i++) {
+      str.append("      {\"pattern\": ").append(quote("\\Q" + MANIFESTS[i] + "\\E"))
+          .append('}').append(i == MANIFESTS.length - 1 ? "\n" : ",\n");
+    }
+    str.append("    ]\n  },\n  \"bundles\": [");
+    int i = 0;
+    for (String bundle : bundles) {
+      str.append(i++ == 0 ? "\n" : ",\n").append("    {\"name\": ").append(quote(bundle))
+          .append('}');
+    }
+    return str.append(bundles.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+  }
+
+  /**
+   * Find the resource bundles that the {@code fmt:setBundle} tags may load.
+   */
+  private static Set<String> bundles(File root) throws IOException {
+    Path rootPath = root.toPath();
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(rootPath)) {
+      files = stream.filter(path -> path.toString().endsWith(PROPERTIES))
+          .collect(Collectors.toList());
+    }
+    Set<String> bundles = new TreeSet<>();
+    for (Path file : files) {
+      String name = rootPath.relativize(file).toString().replace('\\', '/');
+      if (name.startsWith("META-INF/")) {
+        continue;
+      }
+      name = name.substring(0, name.length() - PROPERTIES.length());
+      bundles.add(LOCALE.matcher(name).replaceFirst("").replace('/', '.'));
+    }
+    return bundles;
+  }
+
+  private static String quote(String value) {
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
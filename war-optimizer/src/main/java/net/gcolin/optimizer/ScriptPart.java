@@ -32,6 +32,7 @@ public class ScriptPart {
   private final List<int[]> scriptPositions = new ArrayList<>();
   private String compiled;
   private File scriptFile;
+  private String key;
 
   public List<File> getScriptFiles() {
     return scriptFiles;
@@ -60,4 +61,12 @@ public class ScriptPart {
   public void setScriptFile(File scriptFile) {
     this.scriptFile = scriptFile;
   }
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
 }
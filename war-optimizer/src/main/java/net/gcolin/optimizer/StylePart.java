@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Context informations for a single stylesheet compression.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class StylePart {
+
+  private final List<File> styleFiles = new ArrayList<>();
+  private final List<String> styles = new ArrayList<>();
+  private final List<int[]> stylePositions = new ArrayList<>();
+  private File styleFile;
+
+  public List<File> getStyleFiles() {
+    return styleFiles;
+  }
+
+  public List<String> getStyles() {
+    return styles;
+  }
+
+  public List<int[]> getStylePositions() {
+    return stylePositions;
+  }
+
+  public File getStyleFile() {
+    return styleFile;
+  }
+
+  public void setStyleFile(File styleFile) {
+    this.styleFile = styleFile;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.optimizer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Helpers for running optimizer stages as {@link CompletableFuture}.
+ *
+ * <p>
+ * The stages throw {@link IOException}, which is wrapped while the task runs and unwrapped when
+ * the result is joined.
+ * </p>
+ *
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+final class Tasks {
+
+  private Tasks() {}
+
+  /**
+   * A stage that may throw an {@link IOException}.
+   *
+   * @param <T> the result type
+   */
+  @FunctionalInterface
+  interface IoSupplier<T> {
+
+    T get() throws IOException;
+  }
+
+  /**
+   * A stage without result that may throw an {@link IOException}.
+   */
+  @FunctionalInterface
+  interface IoRunnable {
+
+    void run() throws IOException;
+  }
+
+  /**
+   * Start a task.
+   *
+   * @param supplier the task
+   * @param executor the executor or {@code null} for running the task in the current thread
+   * @return the result of the task
+   */
+  static <T> CompletableFuture<T> supply(IoSupplier<T> supplier, Executor executor) {
+    if (executor == null) {
+      CompletableFuture<T> result = new CompletableFuture<>();
+      try {
+        result.complete(supplier.get());
+      } catch (IOException | RuntimeException ex) {
+        result.completeExceptionally(ex);
+      }
+      return result;
+    }
+    return CompletableFuture.supplyAsync(() -> unchecked(supplier), executor);
+  }
+
+  /**
+   * Start a task.
+   *
+   * @param runnable the task
+   * @param executor the executor or {@code null} for running the task in the current thread
+   * @return the completion of the task
+   */
+  static CompletableFuture<Void> run(IoRunnable runnable, Executor executor) {
+    return supply(() -> {
+      runnable.run();
+      return null;
+    }, executor);
+  }
+
+  /**
+   * Wrap a task that may throw an {@link IOException}, for chaining it after another task.
+   *
+   * @param supplier the task
+   * @return the result of the task
+   * @throws UncheckedIOException if the task fails
+   */
+  static <T> T unchecked(IoSupplier<T> supplier) {
+    try {
+      return supplier.get();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Wait for a task.
+   *
+   * @param future the task
+   * @return the result of the task
+   * @throws IOException if the task fails
+   */
+  static <T> T join(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      } else if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
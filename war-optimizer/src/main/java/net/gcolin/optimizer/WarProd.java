@@ -16,23 +16,37 @@
 package net.gcolin.optimizer;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -50,18 +64,43 @@ public class WarProd {
 
   private static final String WEB_INF = "WEB-INF";
   private static final String META_INF_RESOURCES = "META-INF/resources";
+  private static final String WEB_FRAGMENT = "META-INF/web-fragment.xml";
+  private static final String JAR_KIND = "jar";
   public static final String END_OF_WEBAPP = "</web-app>";
   public static final String END_OF_WEBAPP2 = "</web-fragment>";
   private static final Set<String> ACCEPTED_EXTENSIONS = Collections2.toSet("js", "css", "png",
       "jpg", "ico", "html", "jpeg", "gif", "eot", "svg", "ttf", "woff", "woff2");
+  private static final Set<String> COMPRESSED_EXTENSIONS = Collections2.toSet("png", "jpg", "jpeg",
+      "gif", "woff", "woff2", "gz", "zip", "jar", "war", "webp");
+  private static final long LARGE_FILE = 1024 * 1024;
+  // a variant must save at least 1/MIN_GAIN of the size
+  private static final int MIN_GAIN = 10;
+  private static final String WAR_MANIFEST = "WEB-INF/precompressed.properties";
+  private static final String JAR_MANIFEST = "META-INF/precompressed.properties";
   private Compiler compiler;
   private Logger logger;
   private ClassLoader classLoader;
   private byte[] buffer;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private boolean incremental = true;
+  private boolean fingerprint;
+  private boolean servletManifest;
+  private boolean cds;
+  private boolean nativeImage;
+  private List<File> cdsClassPath = new ArrayList<>();
+  private boolean cdsFailIfSlower;
+  private List<ContentEncoder> encoders = loadEncoders();
 
   /**
    * Execute all.
    * 
+   * <p>
+   * The libraries are exploded in parallel. Then the Javascript and the stylesheet compressions,
+   * the fingerprinting of the assets and the JSP generation run while the annotations are scanned.
+   * The JSP are compiled and the web.xml is completed once both are done, and finally the war is
+   * reassembled.
+   * </p>
+   * 
    * @param exploded war/jar exploded
    * @param target target directory
    * @param warFile war optimized file
@@ -70,38 +109,128 @@ public class WarProd {
    */
   public void execute(File exploded, File target, File warFile, File resourceFile)
       throws IOException {
-    buffer = Io.takeBytes();
     if (logger == null) {
       logger = Logger.getLogger(this.getClass().getName());
     }
+    // a fork join pool compensates the tasks blocked while waiting for nested tasks
+    ForkJoinPool executor = new ForkJoinPool(threads);
+    BuildCache cache = incremental ? new BuildCache(new File(target, "optimizer/cache")) : null;
+    try {
+      Map<String, File> libMap = explode(exploded, target, executor, cache);
+      optimize(exploded, target, libMap, executor, cache);
+      assemble(exploded, warFile, resourceFile, libMap);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private Map<String, File> explode(File exploded, File target, Executor executor,
+      BuildCache cache) throws IOException {
     logger.info("explode libs");
     Map<String, File> libMap = new HashMap<>();
 
     File[] libs = new File(exploded, "WEB-INF/lib").listFiles(x -> x.getName().endsWith(".jar"));
     if (libs != null) {
       File tmp = new File(target, "optimizer");
+      List<CompletableFuture<File>> tasks = new ArrayList<>();
       for (File lib : libs) {
         File dest = new File(tmp, lib.getName().substring(0, lib.getName().length() - 4));
-        logger.info("create dir " + dest);
-        Io.unzip(lib, dest);
-        libMap.put(lib.getName(), dest);
+        tasks.add(Tasks.supply(() -> explode(lib, dest, cache), executor));
+      }
+      Tasks.join(CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()])));
+      for (int i = 0; i < libs.length; i++) {
+        libMap.put(libs[i].getName(), tasks.get(i).join());
       }
     }
+    return libMap;
+  }
 
-    ZipOutputStream warZip = null;
-    ZipOutputStream resZip = null;
-    File tmp = new File(target, "optimizer/tmp.jar");
+  private File explode(File lib, File dest, BuildCache cache) throws IOException {
+    if (cache == null) {
+      logger.info("create dir " + dest);
+      Io.unzip(lib, dest);
+      return dest;
+    }
+    File entry = cache.computeIfAbsent(JAR_KIND, BuildCache.hash(lib), dir -> {
+      logger.info("create dir " + dir);
+      Io.unzip(lib, dir);
+    });
+    if (!new File(entry, META_INF_RESOURCES).exists()
+        && !new File(entry, WEB_FRAGMENT).exists()) {
+      // only the resources and the web fragment of a library are modified
+      logger.info("reuse dir " + entry);
+      return entry;
+    }
+    if (dest.exists()) {
+      Io.deleteDir(dest.toPath());
+    }
+    logger.info("copy " + entry + " to " + dest);
+    BuildCache.copy(entry, dest);
+    return dest;
+  }
 
-    try {
+  private void optimize(File exploded, File target, Map<String, File> libMap, Executor executor,
+      BuildCache cache) throws IOException {
+    CompressJs compressJs = new CompressJs();
+    compressJs.setExecutor(executor);
+    compressJs.setCache(cache);
+    WebAnnotation webAnnotation = new WebAnnotation();
+    webAnnotation.setExecutor(executor);
+    webAnnotation.setCache(cache);
+    JspCompile jspCompile = new JspCompile();
+    jspCompile.setCache(cache);
+    jspCompile.setServletManifest(servletManifest);
+
+    // the JSP are read after their scripts and their stylesheets are compressed
+    CompletableFuture<Void> jsp = Tasks.run(() -> {
       logger.info("compress js");
-      new CompressJs().execute(exploded, libMap, logger);
+      compressJs.execute(exploded, libMap, logger);
 
+      logger.info("compress css");
+      new CompressCss().execute(exploded, libMap, logger);
+
+      if (fingerprint) {
+        logger.info("fingerprint assets");
+        new Fingerprint().execute(exploded, libMap, logger);
+      }
+
+      logger.info("generate jsp");
+      jspCompile.generate(exploded, libMap, logger, compiler, classLoader);
+    }, executor);
+
+    CompletableFuture<Void> annotations = Tasks.run(() -> {
       logger.info("pre read annontations");
-      new WebAnnotation().execute(exploded, libMap, logger, classLoader);
+      webAnnotation.scan(exploded, libMap, logger);
+    }, executor);
+
+    Tasks.join(CompletableFuture.allOf(jsp, annotations));
+
+    // the compilation writes classes in the directories scanned for annotations
+    webAnnotation.write();
+    logger.info("compile jsp");
+    jspCompile.compile();
+
+    if (nativeImage) {
+      new NativeImageConfig().execute(jspCompile.getCompiledClasses(), logger);
+    }
+
+    if (cds) {
+      logger.info("create class data sharing archive");
+      CdsArchive archive = new CdsArchive();
+      archive.setClassPath(cdsClassPath);
+      archive.setFailIfSlower(cdsFailIfSlower);
+      archive.execute(new File(target, "optimizer/cds"), jspCompile.getCompiledClasses(),
+          libMap.values(), logger);
+    }
+  }
 
-      logger.info("compile jsp");
-      new JspCompile().execute(exploded, libMap, logger, compiler, classLoader);
+  private void assemble(File exploded, File warFile, File resourceFile, Map<String, File> libMap)
+      throws IOException {
+    buffer = Io.takeBytes();
+    ZipOutputStream warZip = null;
+    ZipOutputStream resZip = null;
 
+    try {
       logger.info("reassemble war and generate resources");
       warZip = new ZipOutputStream(new FileOutputStream(warFile));
       resZip = new ZipOutputStream(new FileOutputStream(resourceFile));
@@ -114,16 +243,16 @@ public class WarProd {
       final ZipOutputStream zwar = warZip;
       final ZipOutputStream zres = resZip;
 
-      Files.walkFileTree(exploded.toPath(), new AssembleFileVisitor(libMap, tmp, zwar, zres,
-          warPath, buffer, new File(exploded, "WEB-INF/web.xml").exists()));
+      boolean war = new File(exploded, "WEB-INF/web.xml").exists();
+      AssembleFileVisitor visitor =
+          new AssembleFileVisitor(libMap, zwar, zres, warPath, buffer, war, encoders);
+      Files.walkFileTree(exploded.toPath(), visitor);
+      visitor.writeManifest(war ? WAR_MANIFEST : JAR_MANIFEST);
     } finally {
       Io.recycleBytes(buffer);
       buffer = null;
       Io.close(warZip);
       Io.close(resZip);
-      if (tmp.exists() && !tmp.delete()) {
-        logger.warning("cannot delete " + tmp);
-      }
     }
   }
 
@@ -139,20 +268,26 @@ public class WarProd {
         return false;
       }
     };
+    private static final Predicate<String> COMPRESSED = fileName -> {
+      int split = fileName.lastIndexOf('.');
+      return split != -1 && COMPRESSED_EXTENSIONS.contains(fileName.substring(split + 1));
+    };
 
     private Map<String, File> libMap;
-    private File tmp;
     private ZipOutputStream zwar;
     private ZipOutputStream zres;
     private final String warPath;
     private byte[] buffer;
     private Predicate<String> resource;
     private Function<String, String> resFormat;
+    private List<ContentEncoder> encoders;
+    private Map<String, String> manifest = new TreeMap<>();
 
-    public AssembleFileVisitor(Map<String, File> libMap, File tmp, ZipOutputStream zwar,
-        ZipOutputStream zres, String warPath, byte[] buffer, boolean war) {
+    public AssembleFileVisitor(Map<String, File> libMap, ZipOutputStream zwar,
+        ZipOutputStream zres, String warPath, byte[] buffer, boolean war,
+        List<ContentEncoder> encoders) {
+      this.encoders = encoders;
       this.libMap = libMap;
-      this.tmp = tmp;
       this.zwar = zwar;
       this.zres = zres;
       this.warPath = warPath;
@@ -171,99 +306,214 @@ public class WarProd {
         return FileVisitResult.CONTINUE;
       }
       String path = fl.getAbsolutePath();
-      InputStream in = null;
       String zipEntryName = path.substring(warPath.length()).replace('\\', '/');
-      try {
-        if (fileName.endsWith(".jar") && "lib".equals(fl.getParentFile().getName())) {
-          try (FileOutputStream fout = new FileOutputStream(tmp)) {
-            zip(libMap.get(fl.getName()), fout, ACCEPT, zres, ACCEPT_RESOURCE, zwar);
-          }
-          in = new FileInputStream(tmp);
-        } else {
-          in = new FileInputStream(fl);
-        }
-        ZipEntry zipEntry = new ZipEntry(zipEntryName);
-        zwar.putNextEntry(zipEntry);
-        Io.copy(in, zwar, buffer);
-        zwar.closeEntry();
-      } finally {
-        Io.close(in);
+      boolean lib = fileName.endsWith(".jar") && "lib".equals(fl.getParentFile().getName());
+      boolean res = resource.test(zipEntryName);
+      if (lib) {
+        zip(libMap.get(fl.getName()), zipEntryName);
+      } else if (!res) {
+        addToZipFile(fl, zipEntryName, zwar);
       }
-      if (resource.test(zipEntryName)) {
-        addToZipFile(fl, resFormat.apply(zipEntryName), zres, true);
+      if (res) {
+        // the war entry and the resource entries are written from a single read
+        ByteBuffer content = read(fl);
+        String resName = resFormat.apply(zipEntryName);
+        Map<ContentEncoder, byte[]> variants = encode(content, resName);
+        if (!lib) {
+          addResource(content, zipEntryName, variants, zwar);
+        }
+        addResource(content, resName, variants, zres);
       }
 
       return FileVisitResult.CONTINUE;
     }
 
-    private void zip(File file, OutputStream out, Predicate<String> accept, ZipOutputStream resZip,
-        Predicate<String> acceptResource, ZipOutputStream parentZip) throws IOException {
-      ZipOutputStream output = null;
+    /**
+     * Zip an exploded library directly in the war. The resources of the library are moved to the
+     * war and to the resources file after the library entry is closed.
+     */
+    private void zip(File file, String zipName) throws IOException {
       String fs = file.getAbsolutePath();
       if (!fs.endsWith(File.separator)) {
         fs += File.separator;
       }
       final String fPath = fs;
-      try {
-        output = new ZipOutputStream(out);
-        ZipOutputStream zos = output;
+      Map<String, File> resources = new LinkedHashMap<>();
+      zwar.putNextEntry(new ZipEntry(zipName));
+      try (ZipOutputStream zos = new ZipOutputStream(new EntryOutputStream(zwar))) {
         Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
           @Override
           public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
               throws IOException {
             File fl = file.toFile();
-            if (!accept.test(fl.getName())) {
+            if (!ACCEPT.test(fl.getName())) {
               return FileVisitResult.CONTINUE;
             }
             String path = fl.getAbsolutePath().replace('\\', '/');
             if (path.contains(META_INF_RESOURCES) && !path.contains("/WEB-INF/")
-                && acceptResource.test(fl.getName())) {
-              String entryName = path.substring(fPath.length() + META_INF_RESOURCES.length() + 1);
-              addToZipFile(fl, entryName, resZip, true);
-              addToZipFile(fl, entryName, parentZip, true);
+                && ACCEPT_RESOURCE.test(fl.getName())) {
+              resources.put(path.substring(fPath.length() + META_INF_RESOURCES.length() + 1), fl);
             } else {
-              addToZipFile(fl, path.substring(fPath.length()), zos, false);
+              addToZipFile(fl, path.substring(fPath.length()), zos);
             }
             return FileVisitResult.CONTINUE;
           }
 
         });
-      } finally {
-        Io.close(output);
+      }
+      zwar.closeEntry();
+
+      for (Map.Entry<String, File> entry : resources.entrySet()) {
+        ByteBuffer content = read(entry.getValue());
+        Map<ContentEncoder, byte[]> variants = encode(content, entry.getKey());
+        addResource(content, entry.getKey(), variants, zres);
+        addResource(content, entry.getKey(), variants, zwar);
       }
     }
 
-    private void addToZipFile(File file, String zipName, ZipOutputStream zos, boolean gz)
-        throws IOException {
+    /**
+     * Read a file in memory, or map it if it is large.
+     */
+    private ByteBuffer read(File file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (size >= LARGE_FILE) {
+          return channel.map(MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer content = ByteBuffer.allocate((int) size);
+        while (content.hasRemaining() && channel.read(content) != -1) {
+          continue;
+        }
+        content.flip();
+        return content;
+      }
+    }
 
-      FileInputStream fis = null;
+    private void addToZipFile(File file, String zipName, ZipOutputStream zos)
+        throws IOException {
       String parsedName = zipName.replace('\\', '/');
-      try {
-        fis = new FileInputStream(file);
-        ZipEntry zipEntry = new ZipEntry(parsedName);
-        zos.putNextEntry(zipEntry);
-        Io.copy(fis, zos, buffer);
-        zos.closeEntry();
-      } finally {
-        Io.close(fis);
+      boolean compressed = COMPRESSED.test(parsedName);
+      if (compressed || file.length() < LARGE_FILE) {
+        addToZipFile(read(file), parsedName, zos, compressed);
+        return;
+      }
+      zos.putNextEntry(new ZipEntry(parsedName));
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        WritableByteChannel out = Channels.newChannel(zos);
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+          position += channel.transferTo(position, size - position, out);
+        }
       }
+      zos.closeEntry();
+    }
 
-      if (gz) {
-        fis = null;
-        try {
-          fis = new FileInputStream(file);
-          ZipEntry zipEntry = new ZipEntry(parsedName + ".gz");
-          zos.putNextEntry(zipEntry);
-          GZIPOutputStream gout = new GZIPOutputStream(zos);
-          Io.copy(fis, gout, buffer);
-          gout.finish();
-          zos.closeEntry();
-        } finally {
-          Io.close(fis);
+    /**
+     * Compress a resource with each encoder, and record the variants that are smaller enough in
+     * the manifest.
+     */
+    private Map<ContentEncoder, byte[]> encode(ByteBuffer content, String resName)
+        throws IOException {
+      Map<ContentEncoder, byte[]> variants = new LinkedHashMap<>();
+      int size = content.remaining();
+      if (COMPRESSED.test(resName)) {
+        return variants;
+      }
+      StringBuilder line = new StringBuilder().append(size);
+      for (ContentEncoder encoder : encoders) {
+        byte[] encoded = encoder.encode(content.duplicate());
+        if (encoded.length < size - size / MIN_GAIN) {
+          variants.put(encoder, encoded);
+          line.append(' ').append(encoder.getEncoding()).append(':')
+              .append(encoder.getExtension()).append(':').append(encoded.length);
         }
       }
+      if (!variants.isEmpty()) {
+        manifest.put("/" + resName.replace('\\', '/'), line.toString());
+      }
+      return variants;
+    }
+
+    /**
+     * Add the raw entry and the compressed entries of a resource.
+     */
+    private void addResource(ByteBuffer content, String zipName,
+        Map<ContentEncoder, byte[]> variants, ZipOutputStream zos) throws IOException {
+      String parsedName = zipName.replace('\\', '/');
+      addToZipFile(content, parsedName, zos, COMPRESSED.test(parsedName));
+      for (Map.Entry<ContentEncoder, byte[]> variant : variants.entrySet()) {
+        addToZipFile(ByteBuffer.wrap(variant.getValue()),
+            parsedName + "." + variant.getKey().getExtension(), zos, true);
+      }
+    }
+
+    /**
+     * Write the sizes of the compressed variants, read by the {@code PrecompressedFilter}.
+     */
+    private void writeManifest(String name) throws IOException {
+      if (manifest.isEmpty()) {
+        return;
+      }
+      StringBuilder str = new StringBuilder();
+      for (Map.Entry<String, String> entry : manifest.entrySet()) {
+        str.append(ManifestUtil.escape(entry.getKey())).append('=').append(entry.getValue())
+            .append('\n');
+      }
+      addToZipFile(ByteBuffer.wrap(str.toString().getBytes(StandardCharsets.ISO_8859_1)), name,
+          zwar, false);
+    }
+
+    private void addToZipFile(ByteBuffer content, String zipName, ZipOutputStream zos,
+        boolean stored) throws IOException {
+      ZipEntry zipEntry = new ZipEntry(zipName);
+      if (stored) {
+        // already compressed, deflating again would only cost time
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(content.remaining());
+        zipEntry.setCompressedSize(content.remaining());
+        zipEntry.setCrc(crc.getValue());
+      }
+      zos.putNextEntry(zipEntry);
+      write(content.duplicate(), zos);
+      zos.closeEntry();
+    }
+
+    private void write(ByteBuffer content, OutputStream out) throws IOException {
+      if (content.hasArray()) {
+        out.write(content.array(), content.arrayOffset() + content.position(),
+            content.remaining());
+        return;
+      }
+      while (content.hasRemaining()) {
+        int nb = Math.min(buffer.length, content.remaining());
+        content.get(buffer, 0, nb);
+        out.write(buffer, 0, nb);
+      }
+    }
+
+  }
+
+  /**
+   * The output of a zip entry, the entry is not closed when the stream is closed.
+   */
+  private static class EntryOutputStream extends FilterOutputStream {
+
+    public EntryOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException {
+      out.write(bytes, off, len);
     }
 
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
   }
 
   public Compiler getCompiler() {
@@ -282,6 +532,148 @@ public class WarProd {
     this.classLoader = classLoader;
   }
   
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Set the number of threads of the optimization, the number of processors by default.
+   * 
+   * @param threads threads
+   */
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  private static List<ContentEncoder> loadEncoders() {
+    Map<String, ContentEncoder> encoders = new LinkedHashMap<>();
+    ContentEncoder gzip = new GzipEncoder();
+    encoders.put(gzip.getEncoding(), gzip);
+    for (ContentEncoder encoder : ServiceLoader.load(ContentEncoder.class,
+        WarProd.class.getClassLoader())) {
+      encoders.put(encoder.getEncoding(), encoder);
+    }
+    return new ArrayList<>(encoders.values());
+  }
+
+  public List<ContentEncoder> getEncoders() {
+    return encoders;
+  }
+
+  /**
+   * Set the encoders of the precompressed resources. By default, the built-in gzip and the
+   * encoders found with a {@link ServiceLoader}.
+   * 
+   * @param encoders encoders
+   */
+  public void setEncoders(List<ContentEncoder> encoders) {
+    this.encoders = encoders;
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Reuse the outputs of the previous executions stored in the {@code optimizer/cache} directory
+   * of the target directory. The exploded libraries, the compressed scripts and the compiled JSP
+   * are keyed by the content hash of their inputs. Enabled by default.
+   * 
+   * @param incremental incremental
+   */
+  public void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
+
+  public boolean isFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * Copy the static assets to a name containing their content hash and rewrite the references of
+   * the pages and the stylesheets. Disabled by default, because the pages and the stylesheets of
+   * the war are rewritten.
+   * 
+   * @param fingerprint fingerprint
+   */
+  public void setFingerprint(boolean fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  public boolean isServletManifest() {
+    return servletManifest;
+  }
+
+  /**
+   * List the compiled JSP in a manifest loaded by the {@code JspServlet} instead of declaring a
+   * servlet per JSP in the web.xml. Disabled by default, because the manifest needs the
+   * {@code JspServlet} of JspLike in the war.
+   * 
+   * @param servletManifest servletManifest
+   */
+  public void setServletManifest(boolean servletManifest) {
+    this.servletManifest = servletManifest;
+  }
+
+  public boolean isCds() {
+    return cds;
+  }
+
+  /**
+   * Create a class data sharing archive of the precompiled JSP and of the JSP runtime in the
+   * {@code optimizer/cds} directory of the target directory. Needs a JDK 10 or later. Disabled by
+   * default.
+   * 
+   * @param cds cds
+   * @see CdsArchive
+   */
+  public void setCds(boolean cds) {
+    this.cds = cds;
+  }
+
+  public List<File> getCdsClassPath() {
+    return cdsClassPath;
+  }
+
+  /**
+   * Set the jar files following the archived classes in the class path of the application.
+   * 
+   * @param cdsClassPath cdsClassPath
+   * @see CdsArchive#setClassPath(List)
+   */
+  public void setCdsClassPath(List<File> cdsClassPath) {
+    this.cdsClassPath = cdsClassPath;
+  }
+
+  public boolean isCdsFailIfSlower() {
+    return cdsFailIfSlower;
+  }
+
+  /**
+   * Fail the build when the JVM does not start faster with the class data sharing archive, instead
+   * of deleting the archive with a warning. Disabled by default.
+   * 
+   * @param cdsFailIfSlower cdsFailIfSlower
+   * @see CdsArchive#setFailIfSlower(boolean)
+   */
+  public void setCdsFailIfSlower(boolean cdsFailIfSlower) {
+    this.cdsFailIfSlower = cdsFailIfSlower;
+  }
+
+  public boolean isNativeImage() {
+    return nativeImage;
+  }
+
+  /**
+   * Write the GraalVM native-image metadata of the precompiled JSP. Disabled by default.
+   * 
+   * @param nativeImage nativeImage
+   * @see NativeImageConfig
+   */
+  public void setNativeImage(boolean nativeImage) {
+    this.nativeImage = nativeImage;
+  }
+
   public void setLogger(Logger logger) {
     this.logger = logger;
   }
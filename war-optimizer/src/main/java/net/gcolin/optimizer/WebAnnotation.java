@@ -15,42 +15,59 @@
 
 package net.gcolin.optimizer;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.lang.annotation.Annotation;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import javax.servlet.DispatcherType;
 import javax.servlet.annotation.MultipartConfig;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.annotation.WebListener;
 import javax.servlet.annotation.WebServlet;
 
 import net.gcolin.common.io.Io;
-import net.gcolin.common.reflect.Reflect;
-import net.gcolin.common.reflect.Scan;
 
 /**
  * This goal will look for webservlet, webfilter and weblistener and add them to webapp.
  * 
+ * <p>
+ * The annotations are read from the class files, the classes are not loaded. The libraries with
+ * a web-fragment.xml are scanned in parallel and their fragments are cached by the content hash
+ * of the jar.
+ * </p>
+ * 
  * @author gael
  * 
  */
-public class WebAnnotation implements Consumer<Class<?>> {
+public class WebAnnotation {
 
   private static final String WEB_INF_CLASSES = "WEB-INF/classes";
+  private static final String WEB_INF_LIB = "WEB-INF/lib";
+  private static final String WEB_FRAGMENT = "META-INF/web-fragment.xml";
+  private static final String FRAGMENT_KIND = "webfragment";
+  private static final String FRAGMENT_SETTINGS = "webfragment 1";
+  private static final String ANNOTATION_PREFIX = "Ljavax/servlet/annotation/Web";
+  private static final String WEB_SERVLET = ClassAnnotations.descriptor(WebServlet.class);
+  private static final String WEB_FILTER = ClassAnnotations.descriptor(WebFilter.class);
+  private static final String WEB_LISTENER = ClassAnnotations.descriptor(WebListener.class);
+  private static final String MULTIPART_CONFIG =
+      ClassAnnotations.descriptor(MultipartConfig.class);
   private static final String ASYNC_SUPPORTED =
       "                <async-supported>true</async-supported>";
   private static final String SERVLET_NAME_END = "</servlet-name>";
@@ -61,12 +78,10 @@ public class WebAnnotation implements Consumer<Class<?>> {
   private static final String FILTER_MAPPING_START = "        <filter-mapping>";
   private static final String FILTER_NAME_END = "</filter-name>";
   private static final String FILTER_NAME_START = "                <filter-name>";
-  private List<Class<?>> servlets = new ArrayList<Class<?>>();
-  private List<Class<?>> filters = new ArrayList<Class<?>>();
-  private List<Class<?>> listeners = new ArrayList<Class<?>>();
-  private Class<? extends Annotation> webservlet;
-  private Class<? extends Annotation> webfilter;
-  private Class<? extends Annotation> weblistener;
+  private static final Object[] REQUEST = {"REQUEST"};
+  private Map<File, String> fragments = new LinkedHashMap<>();
+  private Executor executor;
+  private BuildCache cache;
 
   private Logger log;
 
@@ -74,70 +89,166 @@ public class WebAnnotation implements Consumer<Class<?>> {
     return log;
   }
 
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Set the executor of the scans. The libraries are scanned one after another in the current
+   * thread if there is no executor.
+   * 
+   * @param executor executor
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  public BuildCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Set the cache of the library scans. A library is scanned again only if its jar changed.
+   * 
+   * @param cache cache or {@code null} for scanning all the libraries
+   */
+  public void setCache(BuildCache cache) {
+    this.cache = cache;
+  }
+
   /**
    * Complete web.xml.
    * 
    * @param war war
    * @param explodedLibs explodedLibs
    * @param log log
-   * @param classLoader 
    * @throws IOException if an error occurs.
    */
-  @SuppressWarnings("unchecked")
-  public void execute(File war, Map<String, File> explodedLibs, Logger log, ClassLoader classLoader) throws IOException {
+  public void execute(File war, Map<String, File> explodedLibs, Logger log) throws IOException {
+    scan(war, explodedLibs, log);
+    write();
+  }
+
+  /**
+   * Look for the annotated classes and prepare the web.xml fragments. The fragments are written by
+   * {@link #write()}.
+   * 
+   * @param war war
+   * @param explodedLibs explodedLibs
+   * @param log log
+   * @throws IOException if an error occurs.
+   */
+  public void scan(File war, Map<String, File> explodedLibs, Logger log) throws IOException {
     this.log = log;
-    URL[] cpUrl = new URL[explodedLibs.size() + 1];
-    cpUrl[0] = new File(war, WEB_INF_CLASSES).toURI().toURL();
-    Iterator<File> it = explodedLibs.values().iterator();
-    for (int i = 1; i < cpUrl.length; i++) {
-      cpUrl[i] = it.next().toURI().toURL();
-    }
-    
-    ClassLoader webAppClassLoader = classLoader != null ? classLoader : 
-        AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
-          public ClassLoader run() {
-            return new URLClassLoader(cpUrl, WebAnnotation.class.getClassLoader());
-          }
-        });
-    
-    try {
-      webservlet = (Class<? extends Annotation>) webAppClassLoader.loadClass(WebServlet.class.getName());
-      webfilter = (Class<? extends Annotation>) webAppClassLoader.loadClass(WebFilter.class.getName());
-      weblistener = (Class<? extends Annotation>) webAppClassLoader.loadClass(WebListener.class.getName());
-    } catch (ClassNotFoundException ex) {
-      throw new IOException(ex);
-    }   
-
-    Scan.classes(new File(war, WEB_INF_CLASSES).toURI().toURL(), this, webAppClassLoader);
-    writeIfNeeded(new File(war, "WEB-INF/web.xml"));
-
-    for (int i = 1; i < cpUrl.length; i++) {
-      URL url = cpUrl[i];
-      File web = new File(url.getFile(), "META-INF/web-fragment.xml");
+    CompletableFuture<String> classes =
+        Tasks.supply(() -> fragment(new File(war, WEB_INF_CLASSES)), executor);
+    Map<File, CompletableFuture<String>> libs = new LinkedHashMap<>();
+    for (Map.Entry<String, File> lib : explodedLibs.entrySet()) {
+      File web = new File(lib.getValue(), WEB_FRAGMENT);
       if (web.exists()) {
-        Scan.classes(url, this, webAppClassLoader);
-        writeIfNeeded(web);
+        File jar = new File(war, WEB_INF_LIB + "/" + lib.getKey());
+        libs.put(web, Tasks.supply(() -> fragment(jar, lib.getValue()), executor));
       }
     }
+
+    putIfNeeded(new File(war, "WEB-INF/web.xml"), Tasks.join(classes));
+    for (Map.Entry<File, CompletableFuture<String>> lib : libs.entrySet()) {
+      putIfNeeded(lib.getKey(), Tasks.join(lib.getValue()));
+    }
+  }
+
+  /**
+   * Append the fragments found by {@link #scan(File, Map, Logger)} to the web.xml or
+   * web-fragment.xml.
+   * 
+   * @throws IOException if an error occurs.
+   */
+  public void write() throws IOException {
+    for (Map.Entry<File, String> fragment : fragments.entrySet()) {
+      WebXmlUtil.append(fragment.getKey(), fragment.getValue());
+    }
+    fragments.clear();
   }
 
-  private void writeIfNeeded(File webXml) throws IOException {
-    if (!servlets.isEmpty() || !filters.isEmpty() || !listeners.isEmpty()) {
-      StringWriter fragment = new StringWriter();
-      writeFragment(fragment);
-      WebXmlUtil.append(webXml, fragment.toString());
+  private void putIfNeeded(File webXml, String fragment) {
+    if (!fragment.isEmpty()) {
+      fragments.put(webXml, fragment);
+    }
+  }
 
-      filters.clear();
-      listeners.clear();
-      servlets.clear();
+  private String fragment(File jar, File dir) throws IOException {
+    if (cache == null || !jar.isFile()) {
+      return fragment(dir);
+    }
+    String key = BuildCache.hash(FRAGMENT_SETTINGS, BuildCache.hash(jar));
+    File entry = cache.get(FRAGMENT_KIND, key);
+    if (entry != null) {
+      log.info("reuse annotations of " + jar.getName());
+      return new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8);
+    }
+    String fragment = fragment(dir);
+    cache.put(FRAGMENT_KIND, key,
+        file -> Files.write(file.toPath(), fragment.getBytes(StandardCharsets.UTF_8)));
+    return fragment;
+  }
+
+  /**
+   * Read the annotations of the class files of a directory.
+   * 
+   * @param dir the classes directory or the exploded library
+   * @return the fragment or an empty string if there is no annotated class
+   * @throws IOException if an error occurs.
+   */
+  private String fragment(File dir) throws IOException {
+    if (!dir.isDirectory()) {
+      return "";
     }
+    Path root = dir.toPath();
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(root)) {
+      files = stream.filter(x -> x.getFileName().toString().endsWith(".class")
+          && !root.relativize(x).startsWith("META-INF")).collect(Collectors.toList());
+    }
+    List<ClassAnnotations> servlets = new ArrayList<>();
+    List<ClassAnnotations> filters = new ArrayList<>();
+    List<ClassAnnotations> listeners = new ArrayList<>();
+    for (Path file : files) {
+      ClassAnnotations type;
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+        type = ClassAnnotations.read(in, ANNOTATION_PREFIX);
+      } catch (IOException ex) {
+        throw new IOException("cannot read " + file, ex);
+      }
+      if (type == null) {
+        continue;
+      } else if (type.getAnnotation(WEB_SERVLET) != null) {
+        log.info("detect servlet " + type.getName());
+        servlets.add(type);
+      } else if (type.getAnnotation(WEB_FILTER) != null) {
+        filters.add(type);
+      } else if (type.getAnnotation(WEB_LISTENER) != null) {
+        listeners.add(type);
+      }
+    }
+    if (servlets.isEmpty() && filters.isEmpty() && listeners.isEmpty()) {
+      return "";
+    }
+    // the walk order depends on the file system
+    Comparator<ClassAnnotations> byName = Comparator.comparing(ClassAnnotations::getName);
+    servlets.sort(byName);
+    filters.sort(byName);
+    listeners.sort(byName);
+    StringWriter fragment = new StringWriter();
+    writeFragment(fragment, servlets, filters, listeners);
+    return fragment.toString();
   }
 
-  private void writeFragment(Writer out) throws IOException {
+  private void writeFragment(Writer out, List<ClassAnnotations> servlets,
+      List<ClassAnnotations> filters, List<ClassAnnotations> listeners) throws IOException {
     BufferedWriter fragment = null;
     try {
       fragment = new BufferedWriter(out);
-      for (Class<?> c : listeners) {
+      for (ClassAnnotations c : listeners) {
         fragment.write("        <listener>");
         fragment.newLine();
         fragment.write("                <listener-class>");
@@ -147,9 +258,9 @@ public class WebAnnotation implements Consumer<Class<?>> {
         fragment.write("        </listener>");
         fragment.newLine();
       }
-      for (Class<?> c : filters) {
-        Annotation ws = c.getAnnotation(webfilter);
-        String name = (String) Reflect.execute(ws, "filterName");
+      for (ClassAnnotations c : filters) {
+        Map<String, Object> ws = c.getAnnotation(WEB_FILTER);
+        String name = string(ws, "filterName");
         if (name.length() == 0) {
           name = c.getSimpleName().substring(0, 1).toLowerCase() + c.getSimpleName().substring(1);
         }
@@ -163,20 +274,17 @@ public class WebAnnotation implements Consumer<Class<?>> {
         fragment.write(c.getName());
         fragment.write("</filter-class>");
         fragment.newLine();
-        if ((Boolean) Reflect.execute(ws, "asyncSupported")) {
+        if (bool(ws, "asyncSupported")) {
           fragment.write(ASYNC_SUPPORTED);
           fragment.newLine();
         }
         fragment.write("        </filter>");
         fragment.newLine();
-        List<DispatcherType> dt = new ArrayList<>();
-        for (Object dispatcherType : (Object[]) Reflect.execute(ws, "dispatcherTypes")) {
-          dt.add(DispatcherType.valueOf((String) Reflect.execute(dispatcherType, "name")));
-        }
-        addFilterUrlPattern(fragment, (String[]) Reflect.execute(ws, "value"), name, dt);
-        addFilterUrlPattern(fragment, (String[]) Reflect.execute(ws, "urlPatterns"), name, dt);
+        Object[] dt = ws.containsKey("dispatcherTypes") ? array(ws, "dispatcherTypes") : REQUEST;
+        addFilterUrlPattern(fragment, array(ws, "value"), name, dt);
+        addFilterUrlPattern(fragment, array(ws, "urlPatterns"), name, dt);
       }
-      for (Class<?> c : servlets) {
+      for (ClassAnnotations c : servlets) {
         writeServlet(fragment, c);
       }
     } finally {
@@ -184,9 +292,10 @@ public class WebAnnotation implements Consumer<Class<?>> {
     }
   }
 
-  private void writeServlet(BufferedWriter fragment, Class<?> servlet) throws IOException {
-    Object ws = servlet.getAnnotation(webservlet);
-    String name = (String) Reflect.execute(ws, "name");
+  private void writeServlet(BufferedWriter fragment, ClassAnnotations servlet)
+      throws IOException {
+    Map<String, Object> ws = servlet.getAnnotation(WEB_SERVLET);
+    String name = string(ws, "name");
     if (name.length() == 0) {
       name = servlet.getName();
     }
@@ -200,22 +309,22 @@ public class WebAnnotation implements Consumer<Class<?>> {
     fragment.write(servlet.getName());
     fragment.write("</servlet-class>");
     fragment.newLine();
-    String description = (String) Reflect.execute(ws, "description");
+    String description = string(ws, "description");
     if (!description.isEmpty()) {
       fragment.write("                <description>");
       fragment.write(description);
       fragment.write("</description>");
       fragment.newLine();
     }
-    String displayName = (String) Reflect.execute(ws, "displayName");
+    String displayName = string(ws, "displayName");
     if (!displayName.isEmpty()) {
       fragment.write("                <display-name>");
       fragment.write(displayName);
       fragment.write("</display-name>");
       fragment.newLine();
     }
-    String largeIcon = (String) Reflect.execute(ws, "largeIcon");
-    String smallIcon = (String) Reflect.execute(ws, "smallIcon");
+    String largeIcon = string(ws, "largeIcon");
+    String smallIcon = string(ws, "smallIcon");
     if (!largeIcon.isEmpty() || !smallIcon.isEmpty()) {
       fragment.write("                <icon>");
       if (!largeIcon.isEmpty()) {
@@ -232,14 +341,16 @@ public class WebAnnotation implements Consumer<Class<?>> {
       }
       fragment.write("</icon>");
     }
-    for (Object param : (Object[]) Reflect.execute(ws, "initParams")) {
+    for (Object item : array(ws, "initParams")) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> param = (Map<String, Object>) item;
       fragment.write("                <init-param>");
       fragment.newLine();
       fragment.write("                        <param-name>");
-      fragment.write((String) Reflect.execute(param, "param"));
+      fragment.write(string(param, "name"));
       fragment.write("</param-name>");
       fragment.newLine();
-      description = (String) Reflect.execute(param, "description");
+      description = string(param, "description");
       if (!description.isEmpty()) {
         fragment.write("                        <description>");
         fragment.write(description);
@@ -247,21 +358,21 @@ public class WebAnnotation implements Consumer<Class<?>> {
         fragment.newLine();
       }
       fragment.write("                        <param-value>");
-      fragment.write((String) Reflect.execute(param, "value"));
+      fragment.write(string(param, "value"));
       fragment.write("</param-value>");
       fragment.newLine();
       fragment.write("                </init-param>");
       fragment.newLine();
     }
 
-    if ((Boolean) Reflect.execute(ws, "asyncSupported")) {
+    if (bool(ws, "asyncSupported")) {
       fragment.write(ASYNC_SUPPORTED);
       fragment.newLine();
     }
-    int loadOnStartup = (Integer) Reflect.execute(ws, "loadOnStartup");
+    int loadOnStartup = number(ws, "loadOnStartup", -1).intValue();
     if (loadOnStartup > -1) {
       fragment.write("                <load-on-startup>");
-      fragment.write(loadOnStartup);
+      fragment.write(String.valueOf(loadOnStartup));
       fragment.write("</load-on-startup>");
       fragment.newLine();
     }
@@ -269,35 +380,38 @@ public class WebAnnotation implements Consumer<Class<?>> {
     writeServletMultipartConfig(fragment, servlet);
     fragment.write("        </servlet>");
     fragment.newLine();
-    addServletUrlPattern(fragment, (String[]) Reflect.execute(ws, "value"), name);
-    addServletUrlPattern(fragment, (String[]) Reflect.execute(ws, "urlPatterns"), name);
+    addServletUrlPattern(fragment, array(ws, "value"), name);
+    addServletUrlPattern(fragment, array(ws, "urlPatterns"), name);
   }
 
-  private void writeServletMultipartConfig(BufferedWriter fragment, Class<?> servlet)
+  private void writeServletMultipartConfig(BufferedWriter fragment, ClassAnnotations servlet)
       throws IOException {
-    MultipartConfig multipartConfig = servlet.getAnnotation(MultipartConfig.class);
+    Map<String, Object> multipartConfig = servlet.getAnnotation(MULTIPART_CONFIG);
     if (multipartConfig != null) {
       fragment.write("                <multipart-config>");
       fragment.newLine();
-      if (!multipartConfig.location().isEmpty()) {
+      String location = string(multipartConfig, "location");
+      if (!location.isEmpty()) {
         fragment.write("                        <location>");
-        fragment.write(multipartConfig.location());
+        fragment.write(location);
         fragment.write("</location>");
         fragment.newLine();
       }
       fragment.write("                        <file-size-threshold>");
-      fragment.write(String.valueOf(multipartConfig.fileSizeThreshold()));
+      fragment.write(String.valueOf(number(multipartConfig, "fileSizeThreshold", 0).intValue()));
       fragment.write("</file-size-threshold>");
       fragment.newLine();
-      if (multipartConfig.maxFileSize() > -1) {
+      long maxFileSize = number(multipartConfig, "maxFileSize", -1L).longValue();
+      if (maxFileSize > -1) {
         fragment.write("                        <max-file-size>");
-        fragment.write(String.valueOf(multipartConfig.maxFileSize()));
+        fragment.write(String.valueOf(maxFileSize));
         fragment.write("</max-file-size>");
         fragment.newLine();
       }
-      if (multipartConfig.maxRequestSize() > -1) {
+      long maxRequestSize = number(multipartConfig, "maxRequestSize", -1L).longValue();
+      if (maxRequestSize > -1) {
         fragment.write("                        <max-request-size>");
-        fragment.write(String.valueOf(multipartConfig.maxRequestSize()));
+        fragment.write(String.valueOf(maxRequestSize));
         fragment.write("</max-request-size>");
         fragment.newLine();
       }
@@ -306,9 +420,9 @@ public class WebAnnotation implements Consumer<Class<?>> {
     }
   }
 
-  private void addServletUrlPattern(BufferedWriter fragment, String[] value, String name)
+  private void addServletUrlPattern(BufferedWriter fragment, Object[] value, String name)
       throws IOException {
-    for (String v : value) {
+    for (Object v : value) {
       fragment.write("        <servlet-mapping>");
       fragment.newLine();
       fragment.write(SERVLET_NAME_START);
@@ -316,7 +430,7 @@ public class WebAnnotation implements Consumer<Class<?>> {
       fragment.write(SERVLET_NAME_END);
       fragment.newLine();
       fragment.write(URL_PATTERN_START);
-      fragment.write(v);
+      fragment.write((String) v);
       fragment.write(URL_PATTERN_END);
       fragment.newLine();
       fragment.write("        </servlet-mapping>");
@@ -324,10 +438,10 @@ public class WebAnnotation implements Consumer<Class<?>> {
     }
   }
 
-  private void addFilterUrlPattern(BufferedWriter fragment, String[] value, String name,
-      List<DispatcherType> dt) throws IOException {
-    if (dt.isEmpty()) {
-      for (String v : value) {
+  private void addFilterUrlPattern(BufferedWriter fragment, Object[] value, String name,
+      Object[] dt) throws IOException {
+    if (dt.length == 0) {
+      for (Object v : value) {
         fragment.write(FILTER_MAPPING_START);
         fragment.newLine();
         fragment.write(FILTER_NAME_START);
@@ -335,15 +449,15 @@ public class WebAnnotation implements Consumer<Class<?>> {
         fragment.write(FILTER_NAME_END);
         fragment.newLine();
         fragment.write(URL_PATTERN_START);
-        fragment.write(v);
+        fragment.write((String) v);
         fragment.write(URL_PATTERN_END);
         fragment.newLine();
         fragment.write(FILTER_MAPPING_END);
         fragment.newLine();
       }
     } else {
-      for (String v : value) {
-        for (DispatcherType d : dt) {
+      for (Object v : value) {
+        for (Object d : dt) {
           fragment.write(FILTER_MAPPING_START);
           fragment.newLine();
           fragment.write(FILTER_NAME_START);
@@ -351,11 +465,11 @@ public class WebAnnotation implements Consumer<Class<?>> {
           fragment.write(FILTER_NAME_END);
           fragment.newLine();
           fragment.write(URL_PATTERN_START);
-          fragment.write(v);
+          fragment.write((String) v);
           fragment.write(URL_PATTERN_END);
           fragment.newLine();
           fragment.write("                <dispatcher>");
-          fragment.write(d.name());
+          fragment.write((String) d);
           fragment.write("</dispatcher>");
           fragment.newLine();
           fragment.write(FILTER_MAPPING_END);
@@ -366,17 +480,25 @@ public class WebAnnotation implements Consumer<Class<?>> {
     }
   }
 
-  @Override
-  public void accept(Class<?> type) {
-    log.warning("? " + type);
-    if (type.isAnnotationPresent(webservlet)) {
-      log.warning("detect servlet " + type);
-      servlets.add(type);
-    } else if (type.isAnnotationPresent(webfilter)) {
-      filters.add(type);
-    } else if (type.isAnnotationPresent(weblistener)) {
-      listeners.add(type);
-    }
+  // the default values of the annotations are not in the class files
+
+  private static String string(Map<String, Object> annotation, String name) {
+    Object value = annotation.get(name);
+    return value == null ? "" : (String) value;
+  }
+
+  private static boolean bool(Map<String, Object> annotation, String name) {
+    return Boolean.TRUE.equals(annotation.get(name));
+  }
+
+  private static Number number(Map<String, Object> annotation, String name, Number defaultValue) {
+    Object value = annotation.get(name);
+    return value == null ? defaultValue : (Number) value;
+  }
+
+  private static Object[] array(Map<String, Object> annotation, String name) {
+    Object value = annotation.get(name);
+    return value == null ? new Object[0] : (Object[]) value;
   }
 
 }
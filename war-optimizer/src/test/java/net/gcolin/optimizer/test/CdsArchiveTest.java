@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer.test;
+
+import net.gcolin.common.io.Io;
+import net.gcolin.optimizer.CdsArchive;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+/**
+ * Class data sharing archive test.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CdsArchiveTest {
+
+  @Test
+  public void classListTest() throws IOException, URISyntaxException {
+    Path target = Paths.get("target/cds");
+    Io.deleteDir(target);
+    // this test class stands for a precompiled JSP
+    File classes =
+        new File(CdsArchiveTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    CdsArchive archive = new CdsArchive();
+    archive.setBenchmarkRuns(0);
+    archive.execute(target.toFile(),
+        Collections.singletonMap(CdsArchiveTest.class.getName(), classes),
+        Collections.emptyList(), Logger.getLogger(this.getClass().getName()));
+
+    List<String> list =
+        Files.readAllLines(target.resolve(CdsArchive.CLASS_LIST), StandardCharsets.UTF_8);
+    Assert.assertTrue(list.contains("net/gcolin/server/jsp/JspServlet"));
+    Assert.assertTrue(list.contains("net/gcolin/optimizer/test/CdsArchiveTest"));
+    try (ZipFile jar = new ZipFile(target.resolve(CdsArchive.JAR).toFile())) {
+      Assert.assertNotNull(jar.getEntry("net/gcolin/server/jsp/JspServlet.class"));
+      Assert.assertNotNull(jar.getEntry("net/gcolin/optimizer/test/CdsArchiveTest.class"));
+    }
+  }
+
+}
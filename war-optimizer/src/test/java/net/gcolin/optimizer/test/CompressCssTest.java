@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer.test;
+
+import net.gcolin.common.io.Io;
+import net.gcolin.optimizer.CompressCss;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stylesheet compression test.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class CompressCssTest {
+
+  @Test
+  public void simpleTest() throws IOException {
+    Path target = Paths.get("target/compresscss");
+    Io.deleteDir(target);
+    Logger logger = Logger.getLogger(this.getClass().getName());
+    if (target.toFile().mkdirs()) {
+      logger.log(Level.FINE, "dir {0} created", target);
+    }
+    Io.copy(Paths.get("src/test/resources/compresscss"), target);
+
+    new CompressCss().execute(target.toFile(), Collections.emptyMap(), logger);
+
+    String expected = "src/test/resources/compresscssexpected/";
+    for (String name : new String[] {"html/index.html", "html/index.css", "html/index1.css",
+        "html/other.html"}) {
+      Assert.assertArrayEquals(name, Files.readAllBytes(Paths.get(expected + name)),
+          Files.readAllBytes(target.resolve(name)));
+    }
+    // other.html has the same group as index.html
+    Assert.assertFalse(Files.exists(target.resolve("html/other.css")));
+  }
+}
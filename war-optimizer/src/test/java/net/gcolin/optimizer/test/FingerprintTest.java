@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer.test;
+
+import net.gcolin.common.io.Io;
+import net.gcolin.optimizer.BuildCache;
+import net.gcolin.optimizer.Fingerprint;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asset fingerprinting test.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class FingerprintTest {
+
+  private static String fingerprint(Path file, String content) {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return name.substring(0, dot) + "."
+        + BuildCache.hash(content.getBytes(StandardCharsets.UTF_8)).substring(0, 10)
+        + name.substring(dot);
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void simpleTest() throws IOException {
+    Path target = Paths.get("target/fingerprint");
+    Io.deleteDir(target);
+    Logger logger = Logger.getLogger(this.getClass().getName());
+    if (target.toFile().mkdirs()) {
+      logger.log(Level.FINE, "dir {0} created", target);
+    }
+    Io.copy(Paths.get("src/test/resources/fingerprint"), target);
+
+    new Fingerprint().execute(target.toFile(), Collections.emptyMap(), logger);
+
+    String logo = fingerprint(target.resolve("img/logo.png"), "PNG");
+    String app = fingerprint(target.resolve("js/app.js"), read(target.resolve("js/app.js")));
+    String css = read(target.resolve("css/site.css"));
+    Assert.assertTrue(css.contains("url(\"../img/logo.png\")"));
+    String cssFingerprinted = css.replace("logo.png", logo);
+    String site = fingerprint(target.resolve("css/site.css"), cssFingerprinted);
+    Assert.assertEquals(cssFingerprinted, read(target.resolve("css/" + site)));
+    Assert.assertTrue(Files.exists(target.resolve("img/" + logo)));
+    Assert.assertTrue(Files.exists(target.resolve("js/" + app)));
+
+    String page = read(target.resolve("index.jsp"));
+    Assert.assertTrue(page.contains("href=\"${pageContext.request.contextPath}/css/" + site));
+    Assert.assertTrue(page.contains("src=\"js/" + app + "?v=1\""));
+    Assert.assertTrue(page.contains("src=\"img/" + logo + "\""));
+    Assert.assertTrue(page.contains("href=\"http://example.com/img/logo.png\""));
+    Assert.assertTrue(page.contains("href=\"missing.png\""));
+
+    Properties manifest = new Properties();
+    manifest.load(Files.newInputStream(target.resolve(Fingerprint.WAR_MANIFEST)));
+    Assert.assertEquals("/img/logo.png", manifest.getProperty("/img/" + logo));
+    Assert.assertEquals("/css/site.css", manifest.getProperty("/css/" + site));
+    Assert.assertEquals(3, manifest.size());
+
+    // a second execution keeps the same names
+    new Fingerprint().execute(target.toFile(), Collections.emptyMap(), logger);
+    Assert.assertEquals(page, read(target.resolve("index.jsp")));
+    Assert.assertFalse(Files.list(target.resolve("img")).anyMatch(
+        x -> x.getFileName().toString().split("\\.").length > 3));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.optimizer.test;
+
+import net.gcolin.common.io.Io;
+import net.gcolin.optimizer.BuildCache;
+import net.gcolin.optimizer.JspCompile;
+import net.gcolin.server.jsp.internal.JdkCompiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * JSP precompilation test.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class JspCompileTest {
+
+  private static void copyClass(Class<?> type, Path classes) throws IOException {
+    Path file = classes.resolve(type.getName().replace('.', '/') + ".class");
+    Files.createDirectories(file.getParent());
+    try (InputStream in = type.getResourceAsStream(
+        type.getName().substring(type.getPackage().getName().length() + 1) + ".class")) {
+      Files.copy(in, file);
+    }
+  }
+
+  private static int compile(Path war, BuildCache cache) throws IOException {
+    JspCompile jspCompile = new JspCompile();
+    jspCompile.setCache(cache);
+    jspCompile.setServletManifest(true);
+    // the compiler reads the class path of URLClassLoaders only
+    List<URL> urls = new ArrayList<>();
+    urls.add(war.resolve("WEB-INF/classes").toUri().toURL());
+    for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      urls.add(new File(entry).toURI().toURL());
+    }
+    try (URLClassLoader cl = new URLClassLoader(urls.toArray(new URL[urls.size()]), null)) {
+      jspCompile.generate(war.toFile(), Collections.emptyMap(),
+          Logger.getLogger(JspCompileTest.class.getName()), new JdkCompiler(), cl);
+      jspCompile.compile();
+    }
+    Assert.assertEquals(1, jspCompile.getCompiledClasses().size());
+    String[] entries = new File(cache.getDirectory(), "jsp").list();
+    return entries == null ? 0 : entries.length;
+  }
+
+  @Test
+  public void cacheTest() throws IOException {
+    Path target = Paths.get("target/jspcompile");
+    Io.deleteDir(target);
+    Path war = target.resolve("war");
+    Path classes = war.resolve("WEB-INF/classes");
+    Files.createDirectories(classes);
+    Files.write(war.resolve("index.jsp"), "hello".getBytes(StandardCharsets.UTF_8));
+    copyClass(JspCompileTest.class, classes);
+    BuildCache cache = new BuildCache(target.resolve("cache").toFile());
+
+    Assert.assertEquals(1, compile(war, cache));
+    // the same sources and classes reuse the cache
+    Assert.assertEquals(1, compile(war, cache));
+    // a class used by the JSP may have changed
+    copyClass(CdsArchiveTest.class, classes);
+    Assert.assertEquals(2, compile(war, cache));
+  }
+}
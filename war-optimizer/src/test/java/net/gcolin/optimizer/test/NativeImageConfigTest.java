@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer.test;
+
+import net.gcolin.common.io.Io;
+import net.gcolin.optimizer.NativeImageConfig;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.logging.Logger;
+
+/**
+ * Native-image metadata test.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class NativeImageConfigTest {
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void metadataTest() throws IOException {
+    Path target = Paths.get("target/nativeimage");
+    Io.deleteDir(target);
+    Files.createDirectories(target.resolve("i18n"));
+    Files.write(target.resolve("i18n/messages.properties"), new byte[0]);
+    Files.write(target.resolve("i18n/messages_fr_FR.properties"), new byte[0]);
+
+    new NativeImageConfig().execute(Collections.singletonMap("_index_jsp", target.toFile()),
+        Logger.getLogger(this.getClass().getName()));
+
+    Path dir = target.resolve(NativeImageConfig.DIR);
+    Assert.assertEquals(
+        "[\n  {\"name\": \"_index_jsp\", \"methods\": [{\"name\": \"<init>\", "
+            + "\"parameterTypes\": []}]}\n]\n",
+        read(dir.resolve(NativeImageConfig.REFLECT_CONFIG)));
+    String resources = read(dir.resolve(NativeImageConfig.RESOURCE_CONFIG));
+    Assert.assertTrue(resources.contains("{\"pattern\": \"\\\\QMETA-INF/jsp.properties\\\\E\"}"));
+    Assert.assertTrue(resources.contains("\"bundles\": [\n    {\"name\": \"i18n.messages\"}\n  ]"));
+  }
+
+}
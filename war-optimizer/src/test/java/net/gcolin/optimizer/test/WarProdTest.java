@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package net.gcolin.optimizer.test;
+
+import net.gcolin.common.io.Io;
+import net.gcolin.optimizer.GzipEncoder;
+import net.gcolin.optimizer.WarProd;
+import net.gcolin.server.jsp.internal.JdkCompiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * War assembly test.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class WarProdTest {
+
+  private static byte[] text(String line, int size) {
+    StringBuilder str = new StringBuilder(size + line.length());
+    for (int i = 0; str.length() < size; i++) {
+      str.append(line).append(i).append('\n');
+    }
+    return str.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int nb;
+    while ((nb = in.read(buffer)) != -1) {
+      out.write(buffer, 0, nb);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Read the entries of a zip and check the CRC of the stored entries.
+   */
+  private static Map<String, byte[]> entries(File file) throws IOException {
+    Map<String, byte[]> entries = new TreeMap<>();
+    try (ZipFile zip = new ZipFile(file)) {
+      for (ZipEntry entry : Collections.list(zip.entries())) {
+        byte[] content;
+        try (InputStream in = zip.getInputStream(entry)) {
+          content = read(in);
+        }
+        if (entry.getMethod() == ZipEntry.STORED) {
+          CRC32 crc = new CRC32();
+          crc.update(content);
+          Assert.assertEquals(entry.getName(), entry.getCrc(), crc.getValue());
+          Assert.assertEquals(entry.getName(), entry.getSize(), content.length);
+        }
+        Assert.assertNull(entries.put(entry.getName(), content));
+      }
+    }
+    return entries;
+  }
+
+  private static int method(File file, String name) throws IOException {
+    try (ZipFile zip = new ZipFile(file)) {
+      return zip.getEntry(name).getMethod();
+    }
+  }
+
+  private static byte[] gunzip(byte[] content) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+      return read(in);
+    }
+  }
+
+  private static void lib(Path jar, byte[] script, byte[] data) throws IOException {
+    try (OutputStream out = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(out)) {
+      zip.putNextEntry(new ZipEntry("META-INF/resources/lib.js"));
+      zip.write(script);
+      zip.closeEntry();
+      zip.putNextEntry(new ZipEntry("data/lib.txt"));
+      zip.write(data);
+      zip.closeEntry();
+    }
+  }
+
+  @Test
+  public void assembleTest() throws IOException {
+    Path target = Paths.get("target/warprod");
+    Io.deleteDir(target);
+    Path war = target.resolve("war");
+    Files.createDirectories(war.resolve("WEB-INF/lib"));
+    Files.write(war.resolve("WEB-INF/web.xml"),
+        "<web-app></web-app>".getBytes(StandardCharsets.UTF_8));
+    byte[] png = new byte[4096];
+    new Random(1).nextBytes(png);
+    Files.write(war.resolve("logo.png"), png);
+    byte[] big = text("<p>a large page</p>", 1024 * 1024 + 1);
+    Files.write(war.resolve("big.html"), big);
+    Files.write(war.resolve("app.js"), text("var message = 'hello from the application';", 4096));
+    byte[] libData = text("data of the library", 2048);
+    lib(war.resolve("WEB-INF/lib/lib.jar"), text("var lib = 'hello from the library';", 4096),
+        libData);
+
+    File warFile = target.resolve("app.war").toFile();
+    File resourceFile = target.resolve("resources.zip").toFile();
+    WarProd prod = new WarProd();
+    prod.setIncremental(false);
+    prod.setEncoders(Collections.singletonList(new GzipEncoder()));
+    prod.setCompiler(new JdkCompiler());
+    // the compiler reads the class path of URLClassLoaders only
+    List<URL> urls = new ArrayList<>();
+    urls.add(war.resolve("WEB-INF/classes").toUri().toURL());
+    for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      urls.add(new File(entry).toURI().toURL());
+    }
+    try (URLClassLoader cl = new URLClassLoader(urls.toArray(new URL[urls.size()]), null)) {
+      prod.setClassLoader(cl);
+      prod.execute(war.toFile(), target.toFile(), warFile, resourceFile);
+    }
+
+    Map<String, byte[]> wars = entries(warFile);
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("WEB-INF/web.xml", "WEB-INF/lib/lib.jar",
+        "WEB-INF/precompressed.properties", "logo.png", "big.html", "big.html.gz", "app.js",
+        "app.js.gz", "lib.js", "lib.js.gz")), wars.keySet());
+    Map<String, byte[]> resources = entries(resourceFile);
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("logo.png", "big.html", "big.html.gz",
+        "app.js", "app.js.gz", "lib.js", "lib.js.gz")), resources.keySet());
+
+    // the compressed files and the variants are stored
+    Assert.assertEquals(ZipEntry.STORED, method(warFile, "logo.png"));
+    Assert.assertEquals(ZipEntry.STORED, method(warFile, "app.js.gz"));
+    Assert.assertEquals(ZipEntry.STORED, method(resourceFile, "big.html.gz"));
+    Assert.assertArrayEquals(png, wars.get("logo.png"));
+    Assert.assertArrayEquals(big, wars.get("big.html"));
+    for (String name : Arrays.asList("big.html", "app.js", "lib.js")) {
+      Assert.assertArrayEquals(name, wars.get(name), resources.get(name));
+      Assert.assertArrayEquals(name, wars.get(name), gunzip(wars.get(name + ".gz")));
+      Assert.assertArrayEquals(name, resources.get(name), gunzip(resources.get(name + ".gz")));
+    }
+
+    // the resources of the library are moved out of the nested jar
+    Map<String, byte[]> nested = new TreeMap<>();
+    try (ZipInputStream in =
+        new ZipInputStream(new ByteArrayInputStream(wars.get("WEB-INF/lib/lib.jar")))) {
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null) {
+        nested.put(entry.getName(), read(in));
+      }
+    }
+    Assert.assertEquals(Collections.singleton("data/lib.txt"), nested.keySet());
+    Assert.assertArrayEquals(libData, nested.get("data/lib.txt"));
+
+    Properties manifest = new Properties();
+    manifest.load(new ByteArrayInputStream(wars.get("WEB-INF/precompressed.properties")));
+    Assert.assertEquals(new TreeSet<>(Arrays.asList("/big.html", "/app.js", "/lib.js")),
+        manifest.stringPropertyNames());
+    for (String name : Arrays.asList("big.html", "app.js", "lib.js")) {
+      Assert.assertEquals(wars.get(name).length + " gzip:gz:" + wars.get(name + ".gz").length,
+          manifest.getProperty("/" + name));
+    }
+  }
+}
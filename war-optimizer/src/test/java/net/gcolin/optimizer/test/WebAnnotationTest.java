@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package net.gcolin.optimizer.test;
+
+import net.gcolin.common.io.Io;
+import net.gcolin.optimizer.BuildCache;
+import net.gcolin.optimizer.WebAnnotation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.logging.Logger;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.MultipartConfig;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.annotation.WebInitParam;
+import javax.servlet.annotation.WebListener;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+
+/**
+ * Servlet 3 annotations test.
+ * 
+ * @author Gaël COLIN
+ * @since 1.0
+ */
+public class WebAnnotationTest {
+
+  @SuppressWarnings("serial")
+  @WebServlet(urlPatterns = "/hello", loadOnStartup = 1,
+      initParams = @WebInitParam(name = "greeting", value = "hi"))
+  @MultipartConfig(maxFileSize = 1024)
+  public static class HelloServlet extends HttpServlet {
+  }
+
+  @WebFilter(value = "/*", dispatcherTypes = {DispatcherType.REQUEST, DispatcherType.FORWARD})
+  public abstract static class HelloFilter implements Filter {
+  }
+
+  @WebListener
+  public abstract static class HelloListener implements ServletContextListener {
+  }
+
+  private static void copyClass(Class<?> type, Path classes) throws IOException {
+    Path file = classes.resolve(type.getName().replace('.', '/') + ".class");
+    Files.createDirectories(file.getParent());
+    try (InputStream in = type.getResourceAsStream(
+        type.getName().substring(type.getPackage().getName().length() + 1) + ".class")) {
+      Files.copy(in, file);
+    }
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void simpleTest() throws IOException {
+    Path target = Paths.get("target/webannotation");
+    Io.deleteDir(target);
+    Path classes = target.resolve("WEB-INF/classes");
+    copyClass(HelloServlet.class, classes);
+    copyClass(HelloFilter.class, classes);
+    copyClass(HelloListener.class, classes);
+    copyClass(WebAnnotationTest.class, classes);
+    Files.write(target.resolve("WEB-INF/web.xml"),
+        "<web-app>\n</web-app>\n".getBytes(StandardCharsets.UTF_8));
+
+    new WebAnnotation().execute(target.toFile(), Collections.emptyMap(),
+        Logger.getLogger(this.getClass().getName()));
+
+    String webXml = read(target.resolve("WEB-INF/web.xml"));
+    Assert.assertTrue(webXml.contains("<listener-class>" + HelloListener.class.getName()));
+    Assert.assertTrue(webXml.contains("<filter-name>helloFilter</filter-name>"));
+    Assert.assertTrue(webXml.contains("<dispatcher>REQUEST</dispatcher>"));
+    Assert.assertTrue(webXml.contains("<dispatcher>FORWARD</dispatcher>"));
+    Assert.assertTrue(webXml.contains("<servlet-class>" + HelloServlet.class.getName()));
+    Assert.assertTrue(webXml.contains("<param-name>greeting</param-name>"));
+    Assert.assertTrue(webXml.contains("<param-value>hi</param-value>"));
+    Assert.assertTrue(webXml.contains("<load-on-startup>1</load-on-startup>"));
+    Assert.assertTrue(webXml.contains("<file-size-threshold>0</file-size-threshold>"));
+    Assert.assertTrue(webXml.contains("<max-file-size>1024</max-file-size>"));
+    Assert.assertFalse(webXml.contains("<max-request-size>"));
+    Assert.assertTrue(webXml.contains("<url-pattern>/hello</url-pattern>"));
+    Assert.assertFalse(webXml.contains(WebAnnotationTest.class.getName() + "<"));
+  }
+
+  @Test
+  public void cacheTest() throws IOException {
+    Path target = Paths.get("target/webannotationlib");
+    Io.deleteDir(target);
+    Path lib = target.resolve("lib");
+    copyClass(HelloServlet.class, lib);
+    Path webFragment = lib.resolve("META-INF/web-fragment.xml");
+    Files.createDirectories(webFragment.getParent());
+    Path war = target.resolve("war");
+    Files.createDirectories(war.resolve("WEB-INF/lib"));
+    Files.write(war.resolve("WEB-INF/lib/lib.jar"), "jar".getBytes(StandardCharsets.UTF_8));
+    BuildCache cache = new BuildCache(target.resolve("cache").toFile());
+
+    String first = null;
+    for (int i = 0; i < 2; i++) {
+      Files.write(webFragment,
+          "<web-fragment >\n</web-fragment>\n".getBytes(StandardCharsets.UTF_8));
+      WebAnnotation webAnnotation = new WebAnnotation();
+      webAnnotation.setCache(cache);
+      webAnnotation.execute(war.toFile(), Collections.singletonMap("lib.jar", lib.toFile()),
+          Logger.getLogger(this.getClass().getName()));
+      String content = read(webFragment);
+      Assert.assertTrue(content.contains("<servlet-class>" + HelloServlet.class.getName()));
+      if (first == null) {
+        first = content;
+        // the second scan reads the cache
+        Io.deleteDir(lib.resolve("net"));
+      } else {
+        Assert.assertEquals(first, content);
+      }
+    }
+  }
+}
@@ -0,0 +1,11 @@
+<html>
+<head>
+<link rel="stylesheet" href="${pageContext.request.contextPath}/css/site.css">
+<script type="text/javascript" src="js/app.js?v=1"></script>
+</head>
+<body>
+<img src="img/logo.png" alt="logo">
+<a href="http://example.com/img/logo.png">external</a>
+<a href="missing.png">missing</a>
+</body>
+</html>